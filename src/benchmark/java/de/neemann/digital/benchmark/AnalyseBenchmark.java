@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.benchmark;
+
+import de.neemann.digital.analyse.ModelAnalyser;
+import de.neemann.digital.analyse.TruthTable;
+import de.neemann.digital.core.Model;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed to create the truth table of a combinatorial circuit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AnalyseBenchmark {
+
+    @Param({"combinatorial/Multiply.dig", "combinatorial/FullAdderRC.dig", "combinatorial/Comp7485.dig"})
+    private String circuit;
+
+    private Circuits circuits;
+    private Model model;
+
+    /**
+     * Loads the circuit
+     *
+     * @throws Exception Exception
+     */
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        circuits = new Circuits(circuit);
+    }
+
+    /**
+     * Creates a fresh model for every analysis
+     *
+     * @throws Exception Exception
+     */
+    @Setup(Level.Invocation)
+    public void createModel() throws Exception {
+        model = circuits.createModel();
+    }
+
+    /**
+     * Creates the truth table
+     *
+     * @return the truth table
+     * @throws Exception Exception
+     */
+    @Benchmark
+    public TruthTable analyse() throws Exception {
+        return new ModelAnalyser(model).analyse();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+
+/**
+ * Runs all benchmarks and writes the results as JSON.
+ * Usage: {@code BenchmarkMain [result.json [regex]]}
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args the result file and an optional regular expression to select the benchmarks
+     * @throws RunnerException RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        ArrayList<String> jvmArgs = new ArrayList<>();
+        jvmArgs.add("-Ddig=" + System.getProperty("dig", "src/main/dig"));
+        if (!System.getProperty("java.specification.version").startsWith("1.")) {
+            // XStream needs reflective access to the jdk classes
+            for (String p : new String[]{"java.base/java.lang", "java.base/java.util", "java.base/java.lang.reflect",
+                    "java.base/java.text", "java.base/java.io", "java.desktop/java.awt", "java.desktop/java.awt.font"})
+                jvmArgs.add("--add-opens=" + p + "=ALL-UNNAMED");
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(args.length > 1 ? args[1] : BenchmarkMain.class.getPackage().getName() + ".*")
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(2)
+                .jvmArgsAppend(jvmArgs.toArray(new String[0]))
+                .resultFormat(ResultFormatType.JSON);
+        if (args.length > 0)
+            options.result(args[0]);
+
+        new Runner(options.build()).run();
+    }
+}
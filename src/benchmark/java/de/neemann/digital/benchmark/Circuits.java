@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.benchmark;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.elements.PinException;
+import de.neemann.digital.draw.library.ElementLibrary;
+import de.neemann.digital.draw.library.ElementNotFoundException;
+import de.neemann.digital.draw.model.ModelCreator;
+import de.neemann.digital.draw.shapes.ShapeFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Loads the example circuits used by the benchmarks.
+ * The folder containing the examples is taken from the system property "dig".
+ */
+final class Circuits {
+    private final File file;
+    private final ElementLibrary library;
+    private final ShapeFactory shapeFactory;
+    private final Circuit circuit;
+
+    /**
+     * Loads the given circuit
+     *
+     * @param name the name of the circuit relative to the examples folder
+     * @throws IOException IOException
+     */
+    Circuits(String name) throws IOException {
+        file = new File(System.getProperty("dig", "src/main/dig"), name);
+        library = new ElementLibrary();
+        library.setRootFilePath(file.getParentFile());
+        shapeFactory = new ShapeFactory(library);
+        circuit = load();
+    }
+
+    /**
+     * @return the circuit, loaded again from the file
+     * @throws IOException IOException
+     */
+    Circuit load() throws IOException {
+        return Circuit.loadCircuit(file, shapeFactory);
+    }
+
+    /**
+     * @return the circuit
+     */
+    Circuit getCircuit() {
+        return circuit;
+    }
+
+    /**
+     * @return the library used to load the circuit
+     */
+    ElementLibrary getLibrary() {
+        return library;
+    }
+
+    /**
+     * @return a new, not yet initialized model
+     * @throws PinException             PinException
+     * @throws NodeException            NodeException
+     * @throws ElementNotFoundException ElementNotFoundException
+     */
+    Model createModel() throws PinException, NodeException, ElementNotFoundException {
+        return new ModelCreator(circuit, library).createModel(false);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.benchmark;
+
+import com.thoughtworks.xstream.XStream;
+import de.neemann.digital.draw.elements.Circuit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed to read all circuits of the library folder.
+ * The files are read into memory up front, so only the parsing is measured.
+ * The reader "default" is the reader used by {@link Circuit#loadCircuit(java.io.InputStream, de.neemann.digital.draw.shapes.ShapeFactory)},
+ * the reader "xstream" creates a new XStream instance for every file as it was done before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LibraryLoadBenchmark {
+
+    @Param({"default", "xstream"})
+    private String reader;
+
+    private ArrayList<byte[]> files;
+
+    /**
+     * Reads the library files
+     *
+     * @throws IOException IOException
+     */
+    @Setup
+    public void setup() throws IOException {
+        files = new ArrayList<>();
+        collect(new File(System.getProperty("dig", "src/main/dig"), "lib"));
+        if (files.isEmpty())
+            throw new IOException("no library files found");
+    }
+
+    private void collect(File folder) throws IOException {
+        File[] list = folder.listFiles();
+        if (list == null)
+            return;
+        for (File f : list) {
+            if (f.isDirectory())
+                collect(f);
+            else if (f.getName().endsWith(".dig"))
+                files.add(Files.readAllBytes(f.toPath()));
+        }
+    }
+
+    /**
+     * Reads all library circuits
+     *
+     * @param blackhole the blackhole to consume the circuits
+     * @throws IOException IOException
+     */
+    @Benchmark
+    public void readLibrary(Blackhole blackhole) throws IOException {
+        for (byte[] data : files) {
+            if (reader.equals("xstream")) {
+                XStream xStream = Circuit.getxStream();
+                blackhole.consume(xStream.fromXML(new ByteArrayInputStream(data)));
+            } else
+                blackhole.consume(Circuit.loadCircuit(new ByteArrayInputStream(data), null));
+        }
+    }
+}
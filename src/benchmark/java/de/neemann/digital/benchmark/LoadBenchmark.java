@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.benchmark;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.model.ModelCreator;
+import de.neemann.digital.draw.model.NetList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed to load a circuit, to create its net list and to create the model.
+ * The restart of a simulation is measured separately, because the wires are attached to the model.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoadBenchmark {
+
+    @Param({"processor/Processor.dig", "sequential/conway/Conway.dig", "74xx/hexCounter.dig", "combinatorial/Multiply16Bit.dig"})
+    private String circuit;
+
+    private Circuits circuits;
+
+    /**
+     * Loads the circuit
+     *
+     * @throws Exception Exception
+     */
+    @Setup
+    public void setup() throws Exception {
+        circuits = new Circuits(circuit);
+    }
+
+    /**
+     * Reads the circuit file
+     *
+     * @return the circuit
+     * @throws Exception Exception
+     */
+    @Benchmark
+    public Circuit loadCircuit() throws Exception {
+        return circuits.load();
+    }
+
+    /**
+     * Creates the net list of the top level circuit
+     *
+     * @return the net list
+     * @throws Exception Exception
+     */
+    @Benchmark
+    public NetList netList() throws Exception {
+        return new NetList(circuits.getCircuit());
+    }
+
+    /**
+     * Creates the model including all nested circuits
+     *
+     * @return the model
+     * @throws Exception Exception
+     */
+    @Benchmark
+    public Model createModel() throws Exception {
+        return circuits.createModel();
+    }
+
+    /**
+     * Creates the model like it is done if the simulation is restarted in the GUI:
+     * The circuit is already loaded and the wires are attached to the model.
+     *
+     * @return the model
+     * @throws Exception Exception
+     */
+    @Benchmark
+    public Model restartModel() throws Exception {
+        Circuit c = circuits.getCircuit();
+        ModelCreator mc = new ModelCreator(c, circuits.getLibrary());
+        c.clearState();
+        return mc.createModel(true);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.benchmark;
+
+import de.neemann.digital.analyse.MinimizerEspresso;
+import de.neemann.digital.analyse.expression.Expression;
+import de.neemann.digital.analyse.expression.Variable;
+import de.neemann.digital.analyse.quinemc.BoolTableByteArray;
+import de.neemann.digital.gui.components.table.ExpressionListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed by the espresso minimizer on tables which are much too large for
+ * the QMC algorithm. The tables are a random sum of eight products with four to eight literals.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MinimizerBenchmark {
+    private static final int PRODUCTS = 8;
+
+    @Param({"20", "24"})
+    private int inputs;
+
+    private ArrayList<Variable> vars;
+    private BoolTableByteArray table;
+
+    /**
+     * Creates the table
+     */
+    @Setup
+    public void setup() {
+        vars = new ArrayList<>();
+        for (int i = 0; i < inputs; i++)
+            vars.add(new Variable("V" + i));
+
+        Random r = new Random(inputs);
+        long[] mask = new long[PRODUCTS];
+        long[] value = new long[PRODUCTS];
+        for (int p = 0; p < PRODUCTS; p++) {
+            int l = 4 + r.nextInt(5);
+            while (Long.bitCount(mask[p]) < l)
+                mask[p] |= 1L << r.nextInt(inputs);
+            value[p] = r.nextLong() & mask[p];
+        }
+
+        table = new BoolTableByteArray(1 << inputs);
+        for (int i = 0; i < table.size(); i++)
+            for (int p = 0; p < PRODUCTS; p++)
+                if ((i & mask[p]) == value[p]) {
+                    table.set(i, true);
+                    break;
+                }
+    }
+
+    /**
+     * Minimizes the table
+     *
+     * @return the minimized expression
+     * @throws Exception Exception
+     */
+    @Benchmark
+    public Expression minimize() throws Exception {
+        Expression[] result = new Expression[1];
+        new MinimizerEspresso().minimize(vars, table, "Y", new ExpressionListener() {
+            @Override
+            public void resultFound(String name, Expression expression) {
+                result[0] = expression;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return result[0];
+    }
+}
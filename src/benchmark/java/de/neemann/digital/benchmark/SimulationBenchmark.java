@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.benchmark;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the clock frequency a model can run with.
+ * One operation is a full clock cycle, so the throughput is the simulated frequency in Hz.
+ * This is what the {@link de.neemann.digital.core.SpeedTest} estimates in the gui.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SimulationBenchmark {
+
+    @Param({"processor/Processor.dig", "sequential/conway/Conway.dig", "74xx/counter.dig"})
+    private String circuit;
+
+    private Model model;
+    private ObservableValue clock;
+
+    /**
+     * Creates the model
+     *
+     * @throws Exception Exception
+     */
+    @Setup
+    public void setup() throws Exception {
+        model = new Circuits(circuit).createModel();
+        clock = model.getClocks().get(0).getClockOutput();
+        model.init();
+    }
+
+    /**
+     * Closes the model
+     */
+    @TearDown
+    public void tearDown() {
+        model.close();
+    }
+
+    /**
+     * Simulates a single clock cycle
+     *
+     * @throws NodeException NodeException
+     */
+    @Benchmark
+    public void clockCycle() throws NodeException {
+        clock.setBool(!clock.getBool());
+        model.doStep();
+        clock.setBool(!clock.getBool());
+        model.doStep();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.benchmark;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.draw.elements.VisualElement;
+import de.neemann.digital.testing.TestCaseDescription;
+import de.neemann.digital.testing.TestCaseElement;
+import de.neemann.digital.testing.TestExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed to run all test cases embedded in a circuit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TestExecutorBenchmark {
+
+    @Param({"combinatorial/Multiply16Bit.dig", "combinatorial/Comp7485Parall.dig", "74xx/hexCounter.dig"})
+    private String circuit;
+
+    private Circuits circuits;
+    private ArrayList<TestCaseDescription> testCases;
+
+    /**
+     * Loads the circuit
+     *
+     * @throws Exception Exception
+     */
+    @Setup
+    public void setup() throws Exception {
+        circuits = new Circuits(circuit);
+        testCases = new ArrayList<>();
+        for (VisualElement el : circuits.getCircuit().getElements())
+            if (el.equalsDescription(TestCaseElement.TESTCASEDESCRIPTION))
+                testCases.add(el.getElementAttributes().get(TestCaseElement.TESTDATA));
+    }
+
+    /**
+     * Runs all test cases
+     *
+     * @return true if all tests have passed
+     * @throws Exception Exception
+     */
+    @Benchmark
+    public boolean runTests() throws Exception {
+        boolean passed = true;
+        for (TestCaseDescription td : testCases) {
+            Model model = circuits.createModel();
+            try {
+                passed &= new TestExecutor(td).create(model).allPassed();
+            } finally {
+                model.close();
+            }
+        }
+        return passed;
+    }
+}
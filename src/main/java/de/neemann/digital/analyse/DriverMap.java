@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.Node;
+import de.neemann.digital.core.NodeInterface;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.Observer;
+import de.neemann.digital.core.Signal;
+import de.neemann.digital.draw.elements.PinException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Maps every value of a model to the nodes which drive this value.
+ * Besides the nodes of the model, also the nodes without a delay are found, like the
+ * inverters of inverted inputs. These nodes are not part of the models node list and are
+ * found by following the observers of the inputs and the node outputs.
+ * Used to walk a model backwards from its outputs to its inputs.
+ */
+public final class DriverMap {
+    private final HashMap<ObservableValue, ArrayList<NodeInterface>> drivers;
+
+    /**
+     * Creates the driver map of the given model
+     *
+     * @param model  the model
+     * @param inputs the inputs of the model
+     * @throws PinException PinException
+     */
+    public DriverMap(Model model, List<Signal> inputs) throws PinException {
+        drivers = new HashMap<>();
+        for (Node n : model)
+            addDrivers(n);
+        for (Signal s : inputs)
+            addDriversFollowing(s.getValue());
+        for (Node n : model)
+            for (ObservableValue v : n.getOutputs())
+                addDriversFollowing(v);
+    }
+
+    /**
+     * Returns the nodes which drive the given value
+     *
+     * @param value the value
+     * @return the drivers or null if the value is not driven by a node
+     */
+    public ArrayList<NodeInterface> get(ObservableValue value) {
+        return drivers.get(value);
+    }
+
+    private void addDrivers(NodeInterface n) throws PinException {
+        for (ObservableValue v : n.getOutputs()) {
+            ArrayList<NodeInterface> list = drivers.computeIfAbsent(v, k -> new ArrayList<>());
+            if (!list.contains(n))
+                list.add(n);
+        }
+    }
+
+    /**
+     * Adds the nodes without a delay which follow the given value.
+     */
+    private void addDriversFollowing(ObservableValue value) throws PinException {
+        for (Observer o : value.getObservers())
+            if (o instanceof NodeInterface && !(o instanceof Node)) {
+                NodeInterface n = (NodeInterface) o;
+                boolean known = true;
+                for (ObservableValue v : n.getOutputs()) {
+                    ArrayList<NodeInterface> list = drivers.get(v);
+                    if (list == null || !list.contains(n))
+                        known = false;
+                }
+                if (!known) {
+                    addDrivers(n);
+                    for (ObservableValue v : n.getOutputs())
+                        addDriversFollowing(v);
+                }
+            }
+    }
+}
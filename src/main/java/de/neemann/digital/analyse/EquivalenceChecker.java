@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse;
+
+import de.neemann.digital.analyse.bdd.BDD;
+import de.neemann.digital.analyse.bdd.BDDCreator;
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.Node;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.Signal;
+import de.neemann.digital.core.io.PowerSupply;
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.elements.PinException;
+import de.neemann.digital.draw.library.ElementLibrary;
+import de.neemann.digital.draw.library.ElementNotFoundException;
+import de.neemann.digital.draw.model.ModelCreator;
+import de.neemann.digital.draw.shapes.ShapeFactory;
+import de.neemann.digital.lang.Lang;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks if two combinational circuits are equivalent.
+ * The inputs and outputs of the circuits are matched by their names.
+ * At first a number of random input vectors is simulated, which finds most differences quickly.
+ * If both circuits are supported by the {@link LaneSimulator}, 64 vectors are simulated at once.
+ * If no difference is found, the outputs of both circuits are created as BDDs which share the same
+ * variables. Because BDDs are canonical, the outputs are equivalent if the BDDs are identical.
+ * Otherwise a satisfying assignment of the xor of the outputs is a counterexample.
+ * If the circuit can not be represented by BDDs, e.g. because it contains components which are not
+ * supported by the {@link BDDCreator}, only the result of the random simulation is available.
+ * Inputs which are connected to a power supply are always set to the required value.
+ * <p>
+ * Usage: {@code java -jar Digital.jar equiv [-vectors n] a.dig b.dig}
+ */
+public class EquivalenceChecker {
+    private static final int DEFAULT_RANDOM_VECTORS = 10000;
+
+    private final Model a;
+    private final Model b;
+    private int randomVectors = DEFAULT_RANDOM_VECTORS;
+    private long seed = 1;
+    private HashMap<String, Long> supply;
+
+    /**
+     * Creates a new instance
+     *
+     * @param a the first model
+     * @param b the second model
+     */
+    public EquivalenceChecker(Model a, Model b) {
+        this.a = a;
+        this.b = b;
+    }
+
+    /**
+     * Sets the number of random vectors which are simulated before the symbolic check is started
+     *
+     * @param randomVectors the number of vectors
+     * @return this for chained calls
+     */
+    public EquivalenceChecker setRandomVectors(int randomVectors) {
+        this.randomVectors = randomVectors;
+        return this;
+    }
+
+    /**
+     * Sets the seed of the random vectors
+     *
+     * @param seed the seed
+     * @return this for chained calls
+     */
+    public EquivalenceChecker setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Checks the equivalence
+     *
+     * @return the result
+     * @throws NodeException    NodeException
+     * @throws AnalyseException AnalyseException
+     */
+    public Result check() throws NodeException, AnalyseException {
+        checkCombinational(a);
+        checkCombinational(b);
+        LinkedHashMap<String, Integer> inputs = getInputs();
+        checkOutputs();
+        supply = new HashMap<>();
+        addPowerSupply(a);
+        addPowerSupply(b);
+
+        a.init();
+        b.init();
+
+        Result r = checkRandom(inputs);
+        if (r != null)
+            return r;
+
+        BDD bdd = new BDD();
+        BDDCreator ca;
+        BDDCreator cb;
+        try {
+            ca = new BDDCreator(a, bdd);
+            cb = new BDDCreator(b, bdd);
+        } catch (AnalyseException e) {
+            return new Result(true, false, null, e.getMessage(), randomVectors);
+        }
+
+        try {
+            // only assignments with a correctly connected power supply are of interest
+            int valid = BDD.ONE;
+            for (Map.Entry<String, Long> e : supply.entrySet()) {
+                int v = bdd.variable(e.getKey());
+                valid = bdd.and(valid, e.getValue() != 0 ? v : bdd.not(v));
+            }
+
+            for (String name : ca.getOutputNames()) {
+                int diff = bdd.and(bdd.xor(ca.getOutput(name), cb.getOutput(name)), valid);
+                if (diff != BDD.ZERO) {
+                    int[] sat = bdd.satisfy(diff);
+                    LinkedHashMap<String, Long> vector = new LinkedHashMap<>();
+                    for (Map.Entry<String, Integer> e : inputs.entrySet())
+                        vector.put(e.getKey(), getValue(bdd, sat, e.getKey(), e.getValue()));
+                    return createDifference(vector, name, randomVectors);
+                }
+            }
+        } catch (BDD.TooLargeException e) {
+            return new Result(true, false, null, e.getMessage(), randomVectors);
+        }
+        return new Result(true, true, null, null, randomVectors);
+    }
+
+    /**
+     * Simulates the random vectors
+     *
+     * @return the difference found or null if there is no difference
+     */
+    private Result checkRandom(LinkedHashMap<String, Integer> inputs) throws NodeException, AnalyseException {
+        Random r = new Random(seed);
+        LaneSimulator la = LaneSimulator.create(a.getInputs(), a.getOutputs(), a);
+        LaneSimulator lb = la == null ? null : LaneSimulator.create(b.getInputs(), b.getOutputs(), b);
+        if (lb != null)
+            return checkRandomLanes(inputs, r, la, lb);
+
+        LinkedHashMap<String, Long> vector = new LinkedHashMap<>();
+        for (int i = 0; i < randomVectors; i++) {
+            for (Map.Entry<String, Integer> e : inputs.entrySet()) {
+                Long s = supply.get(e.getKey());
+                vector.put(e.getKey(), s != null ? s : r.nextLong() & mask(e.getValue()));
+            }
+            String diff = simulate(vector);
+            if (diff != null)
+                return new Result(false, true, vector, diff, i + 1);
+        }
+        return null;
+    }
+
+    /**
+     * Simulates the random vectors 64 at a time.
+     * All inputs and outputs have a single bit, otherwise the lane simulators could not be created.
+     */
+    private Result checkRandomLanes(LinkedHashMap<String, Integer> inputs, Random r, LaneSimulator la, LaneSimulator lb) throws NodeException, AnalyseException {
+        ArrayList<Signal> outA = a.getOutputs();
+        int[] outB = new int[outA.size()];
+        for (int i = 0; i < outB.length; i++)
+            outB[i] = indexOf(b.getOutputs(), outA.get(i).getName());
+
+        HashMap<String, Long> lanes = new HashMap<>();
+        for (int done = 0; done < randomVectors; done += LaneSimulator.LANES) {
+            for (String name : inputs.keySet()) {
+                Long s = supply.get(name);
+                lanes.put(name, s == null ? r.nextLong() : s != 0 ? -1L : 0);
+            }
+            setLanes(la, a, lanes);
+            setLanes(lb, b, lanes);
+            la.calculate();
+            lb.calculate();
+
+            long diff = 0;
+            for (int i = 0; i < outB.length; i++)
+                diff |= la.getOutput(i) ^ lb.getOutput(outB[i]);
+            diff &= mask(Math.min(LaneSimulator.LANES, randomVectors - done));
+            if (diff != 0) {
+                int lane = Long.numberOfTrailingZeros(diff);
+                LinkedHashMap<String, Long> vector = new LinkedHashMap<>();
+                for (String name : inputs.keySet())
+                    vector.put(name, (lanes.get(name) >>> lane) & 1);
+                String name = null;
+                for (int i = 0; i < outB.length && name == null; i++)
+                    if ((((la.getOutput(i) ^ lb.getOutput(outB[i])) >>> lane) & 1) != 0)
+                        name = outA.get(i).getName();
+                return createDifference(vector, name, done + lane + 1);
+            }
+        }
+        return null;
+    }
+
+    private static void setLanes(LaneSimulator lanes, Model model, Map<String, Long> values) {
+        ArrayList<Signal> inputs = model.getInputs();
+        for (int i = 0; i < inputs.size(); i++)
+            lanes.setInput(i, values.get(inputs.get(i).getName()));
+    }
+
+    private static int indexOf(ArrayList<Signal> signals, String name) {
+        for (int i = 0; i < signals.size(); i++)
+            if (signals.get(i).getName().equals(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Creates the result of a difference found by the lane simulation or the BDDs.
+     * The difference is confirmed by simulating the vector. If the simulation does not show a difference,
+     * there is an internal inconsistency, which is reported as an error.
+     */
+    private Result createDifference(LinkedHashMap<String, Long> vector, String output, int simulated) throws NodeException, AnalyseException {
+        for (Map.Entry<String, Long> e : supply.entrySet())
+            vector.put(e.getKey(), e.getValue());
+        String diff = simulate(vector);
+        if (diff == null)
+            throw new AnalyseException(Lang.get("err_equivalenceInconsistent_N", output));
+        return new Result(false, true, vector, diff, simulated);
+    }
+
+    /**
+     * Collects the inputs which are connected to a power supply
+     */
+    private void addPowerSupply(Model model) {
+        for (PowerSupply ps : model.findNode(PowerSupply.class))
+            for (Signal s : model.getInputs()) {
+                if (s.getValue() == ps.getVddInput())
+                    supply.put(s.getName(), 1L);
+                else if (s.getValue() == ps.getGndInput())
+                    supply.put(s.getName(), 0L);
+            }
+    }
+
+    private static long getValue(BDD bdd, int[] sat, String name, int bits) {
+        long value = 0;
+        for (int i = 0; i < bits; i++) {
+            int index = bdd.getVariableIndex(bits == 1 ? name : name + i);
+            if (index >= 0 && sat[index] == 1)
+                value |= 1L << i;
+        }
+        return value;
+    }
+
+    private static void checkCombinational(Model model) throws AnalyseException {
+        for (Node n : model)
+            if (n.hasState())
+                throw new AnalyseException(Lang.get("err_cannotAnalyse_N", n.getClass().getSimpleName()));
+    }
+
+    /**
+     * Collects the inputs of both models.
+     * An input which is only present in one of the circuits is not used by the other circuit.
+     */
+    private LinkedHashMap<String, Integer> getInputs() throws AnalyseException {
+        LinkedHashMap<String, Integer> inputs = new LinkedHashMap<>();
+        for (Signal s : a.getInputs())
+            inputs.put(s.getName(), s.getValue().getBits());
+        for (Signal s : b.getInputs()) {
+            Integer bits = inputs.get(s.getName());
+            if (bits == null)
+                inputs.put(s.getName(), s.getValue().getBits());
+            else if (bits != s.getValue().getBits())
+                throw new AnalyseException(Lang.get("err_equivalenceSignal_N_bitsDiffer", s.getName()));
+        }
+        return inputs;
+    }
+
+    private void checkOutputs() throws AnalyseException {
+        for (Signal s : a.getOutputs())
+            checkOutput(s, b);
+        for (Signal s : b.getOutputs())
+            checkOutput(s, a);
+    }
+
+    private static void checkOutput(Signal s, Model other) throws AnalyseException {
+        ObservableValue o = other.getOutput(s.getName());
+        if (o == null)
+            throw new AnalyseException(Lang.get("err_equivalenceSignal_N_notFound", s.getName()));
+        if (o.getBits() != s.getValue().getBits())
+            throw new AnalyseException(Lang.get("err_equivalenceSignal_N_bitsDiffer", s.getName()));
+    }
+
+    /**
+     * Simulates both models
+     *
+     * @return the name of the first output which differs or null if all outputs are equal
+     */
+    private String simulate(Map<String, Long> vector) throws NodeException {
+        setInputs(a, vector);
+        setInputs(b, vector);
+        for (Signal s : a.getOutputs()) {
+            ObservableValue o = b.getOutput(s.getName());
+            if (s.getValue().getValue() != o.getValue() || s.getValue().getHighZ() != o.getHighZ())
+                return s.getName();
+        }
+        return null;
+    }
+
+    private static void setInputs(Model model, Map<String, Long> vector) throws NodeException {
+        for (Signal s : model.getInputs())
+            s.getValue().setValue(vector.get(s.getName()));
+        model.doStep();
+    }
+
+    private static long mask(int bits) {
+        return bits >= 64 ? -1 : (1L << bits) - 1;
+    }
+
+    /**
+     * Checks two circuit files
+     *
+     * @param fileA the first circuit
+     * @param fileB the second circuit
+     * @param randomVectors the number of random vectors to simulate
+     * @return the result
+     * @throws IOException              IOException
+     * @throws PinException             PinException
+     * @throws NodeException            NodeException
+     * @throws ElementNotFoundException ElementNotFoundException
+     * @throws AnalyseException         AnalyseException
+     */
+    public static Result checkFiles(File fileA, File fileB, int randomVectors) throws IOException, PinException, NodeException, ElementNotFoundException, AnalyseException {
+        Model a = createModel(fileA);
+        try {
+            Model b = createModel(fileB);
+            try {
+                return new EquivalenceChecker(a, b).setRandomVectors(randomVectors).check();
+            } finally {
+                b.close();
+            }
+        } finally {
+            a.close();
+        }
+    }
+
+    private static Model createModel(File file) throws IOException, PinException, NodeException, ElementNotFoundException {
+        ElementLibrary library = new ElementLibrary();
+        library.setRootFilePath(file.getParentFile());
+        Circuit circuit = Circuit.loadCircuit(file, new ShapeFactory(library));
+        return new ModelCreator(circuit, library).createModel(false);
+    }
+
+    /**
+     * The result of the check
+     */
+    public static final class Result {
+        private final boolean equivalent;
+        private final boolean proven;
+        private final Map<String, Long> counterExample;
+        private final String message;
+        private final int simulated;
+
+        private Result(boolean equivalent, boolean proven, Map<String, Long> counterExample, String message, int simulated) {
+            this.equivalent = equivalent;
+            this.proven = proven;
+            this.counterExample = counterExample == null ? null : new LinkedHashMap<>(counterExample);
+            this.message = message;
+            this.simulated = simulated;
+        }
+
+        /**
+         * Returns true if no difference was found.
+         * Use {@link #isProven()} to check if the equivalence is proven.
+         *
+         * @return true if no difference was found
+         */
+        public boolean isEquivalent() {
+            return equivalent;
+        }
+
+        /**
+         * @return true if the result is proven, false if only the random simulation has found no difference
+         */
+        public boolean isProven() {
+            return proven;
+        }
+
+        /**
+         * @return the input values which cause a difference or null if the circuits are equivalent
+         */
+        public Map<String, Long> getCounterExample() {
+            return counterExample;
+        }
+
+        /**
+         * @return the output which differs or the reason why no proof was possible, null otherwise
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            if (!equivalent) {
+                StringBuilder sb = new StringBuilder("not equivalent, output ").append(message).append(" differs at");
+                for (Map.Entry<String, Long> e : counterExample.entrySet())
+                    sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+                return sb.toString();
+            }
+            if (proven)
+                return "equivalent";
+            return "no difference found in " + simulated + " random vectors, no proof possible: " + message;
+        }
+    }
+
+    /**
+     * Checks the circuits given on the command line.
+     * Exits with 0 if the circuits are equivalent, 1 if they differ, 2 if the check has failed
+     * and 3 if no difference was found but the equivalence could not be proven.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int vectors = DEFAULT_RANDOM_VECTORS;
+        ArrayList<File> files = new ArrayList<>();
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i++];
+            if (arg.equals("-vectors") && i < args.length)
+                vectors = Integer.parseInt(args[i++]);
+            else
+                files.add(new File(arg));
+        }
+
+        if (files.size() != 2) {
+            System.err.println("usage: equiv [-vectors n] a.dig b.dig");
+            System.exit(2);
+        }
+
+        Result r;
+        try {
+            r = checkFiles(files.get(0), files.get(1), vectors);
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        System.out.println(r);
+        if (r.isEquivalent())
+            System.exit(r.isProven() ? 0 : 3);
+        else
+            System.exit(1);
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse;
+
+import de.neemann.digital.analyse.expression.BitSlicedEvaluator;
+import de.neemann.digital.core.*;
+import de.neemann.digital.core.basic.*;
+import de.neemann.digital.core.flipflops.FlipflopD;
+import de.neemann.digital.core.wiring.Multiplexer;
+import de.neemann.digital.draw.elements.PinException;
+import de.neemann.digital.draw.model.InverterConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Simulates 64 independent input vectors of a model at once.
+ * Every single bit net of the model is represented by a long word, every bit of the word is a lane
+ * which holds the value of the net for one of the 64 input vectors. The nodes of the model are
+ * compiled to a straight line program of AND, OR, XOR, NOT and multiplexer operations which is
+ * ordered topologically, so a single pass calculates all outputs for all lanes.
+ * <p>
+ * Only models built from single bit gates, inverted inputs and multiplexers with a single
+ * bit selector are supported. The output Q of a D flip-flop is expected to be one of the inputs,
+ * like it is done by the {@link ModelAnalyser}; in this case the inverted output is supported as well.
+ * If a model contains other components, {@link #create(List, List, Model)} returns null and the
+ * model has to be simulated vector by vector.
+ */
+public final class LaneSimulator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LaneSimulator.class);
+
+    /**
+     * The number of lanes
+     */
+    public static final int LANES = 64;
+
+    private static final int OP_AND = 0;
+    private static final int OP_OR = 1;
+    private static final int OP_XOR = 2;
+    private static final int OP_NOT = 3;
+    private static final int OP_MUX = 4;
+
+    private final long[] nets;
+    private final int[] ops;
+    private final int[] dst;
+    private final int[] a;
+    private final int[] b;
+    private final int[] c;
+    private final int[] outputs;
+    private final int inputCount;
+
+    /**
+     * Compiles the given model.
+     *
+     * @param inputs  the inputs of the model
+     * @param outputs the outputs of the model
+     * @param model   the model
+     * @return the simulator or null if the model contains components which are not supported
+     */
+    public static LaneSimulator create(List<Signal> inputs, List<Signal> outputs, Model model) {
+        try {
+            return new Compiler(inputs, model).compile(outputs);
+        } catch (NotSupportedException | PinException e) {
+            LOGGER.debug("model is not lane parallel: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private LaneSimulator(Compiler comp, int[] outputs) {
+        this.outputs = outputs;
+        inputCount = comp.inputCount;
+        int size = comp.ops.size();
+        ops = new int[size];
+        dst = new int[size];
+        a = new int[size];
+        b = new int[size];
+        c = new int[size];
+        for (int i = 0; i < size; i++) {
+            int[] op = comp.ops.get(i);
+            ops[i] = op[0];
+            dst[i] = op[1];
+            a[i] = op[2];
+            b[i] = op[3];
+            c[i] = op[4];
+        }
+        nets = new long[comp.netCount];
+        for (int i = 0; i < comp.constantNets.size(); i++)
+            nets[comp.constantNets.get(i)] = comp.constantValues.get(i);
+    }
+
+    /**
+     * Sets the lanes of an input
+     *
+     * @param input the index of the input
+     * @param lanes the 64 values of the input
+     */
+    public void setInput(int input, long lanes) {
+        nets[input] = lanes;
+    }
+
+    /**
+     * Calculates all outputs for all 64 lanes
+     */
+    public void calculate() {
+        final long[] n = nets;
+        for (int pc = 0; pc < ops.length; pc++) {
+            switch (ops[pc]) {
+                case OP_AND:
+                    n[dst[pc]] = n[a[pc]] & n[b[pc]];
+                    break;
+                case OP_OR:
+                    n[dst[pc]] = n[a[pc]] | n[b[pc]];
+                    break;
+                case OP_XOR:
+                    n[dst[pc]] = n[a[pc]] ^ n[b[pc]];
+                    break;
+                case OP_NOT:
+                    n[dst[pc]] = ~n[a[pc]];
+                    break;
+                default:
+                    final long sel = n[a[pc]];
+                    n[dst[pc]] = (n[b[pc]] & ~sel) | (n[c[pc]] & sel);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the lanes of an output
+     *
+     * @param output the index of the output
+     * @return the 64 values of the output
+     */
+    public long getOutput(int output) {
+        return nets[outputs[output]];
+    }
+
+    /**
+     * @return the number of inputs
+     */
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * Sets the inputs to the rows {@code word * 64} up to {@code word * 64 + 63} of a truth table.
+     * The row numbering is the same as used by the {@link de.neemann.digital.analyse.expression.BitSetter}:
+     * The first input is the most significant bit of the row number.
+     *
+     * @param word the number of the 64 row block
+     */
+    public void setRows(int word) {
+        for (int i = 0; i < inputCount; i++) {
+            nets[i] = BitSlicedEvaluator.getRowBits(inputCount - 1 - i, word);
+        }
+    }
+
+    private static final class NotSupportedException extends Exception {
+        private NotSupportedException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Compiler {
+        private final HashMap<ObservableValue, Integer> netIndex;
+        private final DriverMap drivers;
+        private final HashSet<ObservableValue> inProgress;
+        private final ArrayList<Integer> constantNets;
+        private final ArrayList<Long> constantValues;
+        private final ArrayList<int[]> ops;
+        private final int inputCount;
+        private int netCount;
+
+        private Compiler(List<Signal> inputs, Model model) throws NotSupportedException, PinException {
+            netIndex = new HashMap<>();
+            inProgress = new HashSet<>();
+            constantNets = new ArrayList<>();
+            constantValues = new ArrayList<>();
+            ops = new ArrayList<>();
+
+            for (Signal s : inputs) {
+                checkBits(s.getValue());
+                netIndex.put(s.getValue(), netCount++);
+            }
+            inputCount = netCount;
+
+            drivers = new DriverMap(model, inputs);
+        }
+
+        private LaneSimulator compile(List<Signal> outputs) throws NotSupportedException, PinException {
+            int[] out = new int[outputs.size()];
+            for (int i = 0; i < out.length; i++)
+                out[i] = get(outputs.get(i).getValue());
+            return new LaneSimulator(this, out);
+        }
+
+        private int get(ObservableValue value) throws NotSupportedException, PinException {
+            Integer index = netIndex.get(value);
+            if (index != null)
+                return index;
+
+            checkBits(value);
+            if (!inProgress.add(value))
+                throw new NotSupportedException("cycle at " + value.getName());
+
+            int net;
+            ArrayList<NodeInterface> list = drivers.get(value);
+            FlipflopD ff = findFlipflop(list);
+            if (ff != null)
+                net = createInvertedQ(ff, value);
+            else if (list == null || list.isEmpty()) {
+                if (!value.isConstant())
+                    throw new NotSupportedException("value " + value.getName() + " is not driven");
+                net = constant(value.getBool() ? -1L : 0);
+            } else if (list.size() == 1)
+                net = create(list.get(0));
+            else
+                throw new NotSupportedException("value " + value.getName() + " has several drivers");
+
+            inProgress.remove(value);
+            netIndex.put(value, net);
+            return net;
+        }
+
+        private int create(NodeInterface node) throws NotSupportedException, PinException {
+            if (node instanceof And || node instanceof Or || node instanceof XOr) {
+                ArrayList<ObservableValue> in = ((FanIn) node).getInputs();
+                if (in.isEmpty())
+                    throw new NotSupportedException("gate without inputs");
+                int op = node instanceof And ? OP_AND : node instanceof Or ? OP_OR : OP_XOR;
+                int r = get(in.get(0));
+                if (in.size() > 1) {
+                    int t = netCount++;
+                    add(op, t, r, get(in.get(1)), 0);
+                    for (int i = 2; i < in.size(); i++)
+                        add(op, t, t, get(in.get(i)), 0);
+                    r = t;
+                }
+                if (node instanceof NAnd || node instanceof NOr || node instanceof XNOr)
+                    return not(r);
+                return r;
+            } else if (node instanceof Not)
+                return not(get(((Not) node).getInput()));
+            else if (node instanceof InverterConfig.Inverter)
+                return not(get(((InverterConfig.Inverter) node).getInput()));
+            else if (node instanceof Multiplexer) {
+                Multiplexer mux = (Multiplexer) node;
+                ArrayList<ObservableValue> in = mux.getInputs();
+                if (in.size() != 2)
+                    throw new NotSupportedException("multiplexer with a multi bit selector");
+                int sel = get(mux.getSelector());
+                int in0 = get(in.get(0));
+                int in1 = get(in.get(1));
+                int r = netCount++;
+                add(OP_MUX, r, sel, in0, in1);
+                return r;
+            } else
+                throw new NotSupportedException(node.getClass().getSimpleName());
+        }
+
+        private static FlipflopD findFlipflop(ArrayList<NodeInterface> list) {
+            if (list != null)
+                for (NodeInterface n : list)
+                    if (n instanceof FlipflopD)
+                        return (FlipflopD) n;
+            return null;
+        }
+
+        private int createInvertedQ(FlipflopD ff, ObservableValue value) throws NotSupportedException, PinException {
+            ObservableValues out = ff.getOutputs();
+            Integer q = netIndex.get(out.get(0));
+            if (q == null || value != out.get(1))
+                throw new NotSupportedException("flip-flop output is not an input");
+            return not(q);
+        }
+
+        private int not(int in) {
+            int r = netCount++;
+            add(OP_NOT, r, in, 0, 0);
+            return r;
+        }
+
+        private int constant(long lanes) {
+            int r = netCount++;
+            constantNets.add(r);
+            constantValues.add(lanes);
+            return r;
+        }
+
+        private void add(int op, int d, int a, int b, int c) {
+            ops.add(new int[]{op, d, a, b, c});
+        }
+
+        private static void checkBits(ObservableValue value) throws NotSupportedException {
+            if (value.getBits() != 1)
+                throw new NotSupportedException("value " + value.getName() + " has " + value.getBits() + " bits");
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse;
+
+import de.neemann.digital.analyse.expression.Constant;
+import de.neemann.digital.analyse.expression.Expression;
+import de.neemann.digital.analyse.expression.ExpressionException;
+import de.neemann.digital.analyse.expression.Variable;
+import de.neemann.digital.analyse.expression.format.FormatterException;
+import de.neemann.digital.analyse.quinemc.BoolTable;
+import de.neemann.digital.analyse.quinemc.ThreeStateValue;
+import de.neemann.digital.gui.components.table.ExpressionListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static de.neemann.digital.analyse.expression.Not.not;
+import static de.neemann.digital.analyse.expression.Operation.and;
+import static de.neemann.digital.analyse.expression.Operation.or;
+
+/**
+ * A heuristic minimizer which follows the ideas of the espresso algorithm.
+ * The cover of the on-set is improved by a loop of expand, irredundant and reduce steps
+ * until the cost of the cover does not decrease anymore.
+ * In contrast to the original algorithm the on-set and the off-set are stored as
+ * bit sets of the complete table, so all checks are done by looking up the minterms of a cube.
+ * This is fast as long as the table fits into memory, so the minimizer is able to handle
+ * tables with more than twenty variables, which is not possible using the QMC algorithm.
+ * The number of cubes covering a minterm is only stored for the minterms of the on-set,
+ * so apart from the two bit sets the memory needed grows with the size of the on-set.
+ * The result is not guaranteed to be minimal.
+ */
+public class MinimizerEspresso implements MinimizerInterface {
+    private static final int MAX_ITERATIONS = 16;
+    private static final Comparator<Cube> SMALL_FIRST = Comparator.comparingInt(Cube::literals).reversed().thenComparing(Cube::compareTo);
+    private static final Comparator<Cube> LARGE_FIRST = Comparator.comparingInt(Cube::literals).thenComparing(Cube::compareTo);
+
+    private int vars;
+    private long full;
+    private long[] on;
+    private long[] off;
+    private int[] rank;
+    private int[] count;
+
+    @Override
+    public void minimize(List<Variable> vars, BoolTable boolTable, String resultName, ExpressionListener listener) throws ExpressionException, FormatterException {
+        listener.resultFound(resultName, createExpression(vars, minimize(vars.size(), boolTable)));
+    }
+
+    /**
+     * Creates a cover of the given table
+     *
+     * @param n         the number of variables
+     * @param boolTable the table
+     * @return the cubes of the cover
+     */
+    ArrayList<Cube> minimize(int n, BoolTable boolTable) {
+        vars = n;
+        full = n == 0 ? 0 : -1L >>> (64 - n);
+        int rows = 1 << n;
+        on = new long[(rows + 63) >>> 6];
+        off = new long[on.length];
+        for (int i = 0; i < rows; i++) {
+            ThreeStateValue v = boolTable.get(i);
+            if (v == ThreeStateValue.one)
+                on[i >>> 6] |= 1L << i;
+            else if (v == ThreeStateValue.zero)
+                off[i >>> 6] |= 1L << i;
+        }
+        rank = new int[on.length];
+        int ones = 0;
+        for (int w = 0; w < on.length; w++) {
+            rank[w] = ones;
+            ones += Long.bitCount(on[w]);
+        }
+        count = new int[ones];
+
+        // create an initial cover of prime implicants
+        ArrayList<Cube> cover = new ArrayList<>();
+        for (int w = 0; w < on.length; w++) {
+            long bits = on[w];
+            while (bits != 0) {
+                int m = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (count[index(m)] == 0) {
+                    Cube c = new Cube(full, m);
+                    expand(c);
+                    addCount(c, 1);
+                    cover.add(c);
+                }
+            }
+        }
+        irredundant(cover);
+
+        ArrayList<Cube> best = copy(cover);
+        long bestCost = cost(cover);
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            reduce(cover);
+            cover.sort(SMALL_FIRST);
+            for (Cube c : cover) {
+                Cube old = new Cube(c.mask, c.value);
+                expand(c);
+                addCountOutside(c, old);
+            }
+            irredundant(cover);
+
+            long cost = cost(cover);
+            if (cost >= bestCost)
+                break;
+            bestCost = cost;
+            best = copy(cover);
+        }
+        best.sort(null);
+
+        on = null;
+        off = null;
+        rank = null;
+        count = null;
+        return best;
+    }
+
+    /**
+     * Expands the given cube to a prime implicant.
+     * In every step the literal is removed which makes the cube cover the most minterms
+     * not covered yet. A literal which can not be removed can not be removed later on,
+     * because the cube only grows.
+     */
+    private void expand(Cube c) {
+        long candidates = c.mask;
+        while (candidates != 0) {
+            long bestBit = 0;
+            long bestScore = -1;
+            long bits = candidates;
+            while (bits != 0) {
+                long bit = Long.lowestOneBit(bits);
+                bits &= ~bit;
+                long score = score(c.mask, c.value ^ bit);
+                if (score < 0)
+                    candidates &= ~bit;
+                else if (score > bestScore) {
+                    bestScore = score;
+                    bestBit = bit;
+                }
+            }
+            if (bestBit == 0)
+                break;
+            c.mask &= ~bestBit;
+            c.value &= ~bestBit;
+            candidates &= ~bestBit;
+        }
+    }
+
+    /**
+     * Scores the half of the cube which is added if a literal is removed.
+     * The half is the cube given by mask and value.
+     *
+     * @return the score or -1 if the half contains a minterm of the off-set
+     */
+    private long score(long mask, long value) {
+        long free = ~mask & full;
+        long uncovered = 0;
+        long ones = 0;
+        long sub = 0;
+        do {
+            int m = (int) (value | sub);
+            if (isSet(off, m))
+                return -1;
+            if (isSet(on, m)) {
+                ones++;
+                if (count[index(m)] == 0)
+                    uncovered++;
+            }
+            sub = (sub - free) & free;
+        } while (sub != 0);
+        return (uncovered << 32) + ones;
+    }
+
+    /**
+     * Removes all cubes which are not needed to cover the on-set.
+     * Small cubes are removed first.
+     */
+    private void irredundant(ArrayList<Cube> cover) {
+        cover.sort(SMALL_FIRST);
+        ArrayList<Cube> result = new ArrayList<>(cover.size());
+        for (Cube c : cover) {
+            if (isRedundant(c))
+                addCount(c, -1);
+            else
+                result.add(c);
+        }
+        cover.clear();
+        cover.addAll(result);
+    }
+
+    private boolean isRedundant(Cube c) {
+        long free = ~c.mask & full;
+        long sub = 0;
+        do {
+            int m = (int) (c.value | sub);
+            if (isSet(on, m) && count[index(m)] < 2)
+                return false;
+            sub = (sub - free) & free;
+        } while (sub != 0);
+        return true;
+    }
+
+    /**
+     * Reduces every cube to the smallest cube which covers all minterms of the on-set
+     * which are not covered by an other cube.
+     * Large cubes are reduced first.
+     */
+    private void reduce(ArrayList<Cube> cover) {
+        cover.sort(LARGE_FIRST);
+        ArrayList<Cube> result = new ArrayList<>(cover.size());
+        for (Cube c : cover) {
+            long free = ~c.mask & full;
+            long and = full;
+            long or = 0;
+            boolean found = false;
+            long sub = 0;
+            do {
+                int m = (int) (c.value | sub);
+                if (isSet(on, m) && count[index(m)] == 1) {
+                    and &= m;
+                    or |= m;
+                    found = true;
+                }
+                sub = (sub - free) & free;
+            } while (sub != 0);
+
+            if (found) {
+                long agree = ~(and ^ or) & full;
+                Cube r = new Cube(agree, and & agree);
+                addCountOutside(c, r, -1);
+                c.mask = r.mask;
+                c.value = r.value;
+                result.add(c);
+            } else
+                addCount(c, -1);
+        }
+        cover.clear();
+        cover.addAll(result);
+    }
+
+    private void addCount(Cube c, int delta) {
+        long free = ~c.mask & full;
+        long sub = 0;
+        do {
+            int m = (int) (c.value | sub);
+            if (isSet(on, m))
+                count[index(m)] += delta;
+            sub = (sub - free) & free;
+        } while (sub != 0);
+    }
+
+    /**
+     * Adds one to the count of all minterms of the cube c which are not contained in the inner cube
+     */
+    private void addCountOutside(Cube c, Cube inner) {
+        addCountOutside(c, inner, 1);
+    }
+
+    private void addCountOutside(Cube c, Cube inner, int delta) {
+        long free = ~c.mask & full;
+        long sub = 0;
+        do {
+            int m = (int) (c.value | sub);
+            if ((m & inner.mask) != inner.value && isSet(on, m))
+                count[index(m)] += delta;
+            sub = (sub - free) & free;
+        } while (sub != 0);
+    }
+
+    /**
+     * @return the index of the given minterm of the on-set in the count array
+     */
+    private int index(int m) {
+        int w = m >>> 6;
+        return rank[w] + Long.bitCount(on[w] & ((1L << m) - 1));
+    }
+
+    private static boolean isSet(long[] bits, int m) {
+        return (bits[m >>> 6] & (1L << m)) != 0;
+    }
+
+    private long cost(ArrayList<Cube> cover) {
+        long literals = 0;
+        for (Cube c : cover)
+            literals += Long.bitCount(c.mask);
+        return ((long) cover.size() << 32) + literals;
+    }
+
+    private static ArrayList<Cube> copy(ArrayList<Cube> cover) {
+        ArrayList<Cube> c = new ArrayList<>(cover.size());
+        for (Cube cube : cover)
+            c.add(new Cube(cube.mask, cube.value));
+        return c;
+    }
+
+    private Expression createExpression(List<Variable> variables, ArrayList<Cube> cover) {
+        if (cover.isEmpty())
+            return Constant.ZERO;
+
+        ArrayList<Expression> terms = new ArrayList<>(cover.size());
+        for (Cube c : cover) {
+            ArrayList<Expression> literals = new ArrayList<>();
+            for (int i = 0; i < vars; i++) {
+                long bit = 1L << (vars - 1 - i);
+                if ((c.mask & bit) != 0) {
+                    if ((c.value & bit) != 0)
+                        literals.add(variables.get(i));
+                    else
+                        literals.add(not(variables.get(i)));
+                }
+            }
+            if (literals.isEmpty())
+                return Constant.ONE;
+            terms.add(and(literals));
+        }
+        return or(terms);
+    }
+
+    /**
+     * A cube is a product term.
+     * A minterm m is contained in the cube if {@code (m & mask) == value}.
+     */
+    static final class Cube implements Comparable<Cube> {
+        private long mask;
+        private long value;
+
+        private Cube(long mask, long value) {
+            this.mask = mask;
+            this.value = value;
+        }
+
+        /**
+         * @return the number of literals, the less literals the larger the cube
+         */
+        int literals() {
+            return Long.bitCount(mask);
+        }
+
+        /**
+         * @return the mask of the variables used in this cube
+         */
+        long getMask() {
+            return mask;
+        }
+
+        /**
+         * @return the values of the variables used in this cube
+         */
+        long getValue() {
+            return value;
+        }
+
+        @Override
+        public int compareTo(Cube o) {
+            int c = Long.compare(o.mask, mask);
+            if (c != 0)
+                return c;
+            return Long.compare(value, o.value);
+        }
+
+        @Override
+        public String toString() {
+            return Long.toBinaryString(mask) + "/" + Long.toBinaryString(value);
+        }
+    }
+}
@@ -5,8 +5,12 @@
  */
 package de.neemann.digital.analyse;
 
+import de.neemann.digital.analyse.bdd.BDD;
+import de.neemann.digital.analyse.bdd.BDDCreator;
 import de.neemann.digital.analyse.expression.BitSetter;
+import de.neemann.digital.analyse.quinemc.BoolTable;
 import de.neemann.digital.analyse.quinemc.BoolTableByteArray;
+import de.neemann.digital.analyse.quinemc.ThreeStateValue;
 import de.neemann.digital.core.*;
 import de.neemann.digital.core.basic.And;
 import de.neemann.digital.core.basic.Not;
@@ -18,13 +22,20 @@ import de.neemann.digital.core.flipflops.FlipflopT;
 import de.neemann.digital.core.wiring.Clock;
 import de.neemann.digital.core.wiring.Splitter;
 import de.neemann.digital.draw.elements.PinException;
+import de.neemann.digital.draw.library.ElementNotFoundException;
 import de.neemann.digital.gui.Main;
 import de.neemann.digital.lang.Lang;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Analyses a given model.
@@ -33,12 +44,17 @@ import java.util.List;
 public class ModelAnalyser {
     private static final Logger LOGGER = LoggerFactory.getLogger(ModelAnalyser.class);
     private static final int MAX_INPUTS_ALLOWED = 24;
+    private static final int MIN_ROWS_PER_WORKER = 1 << 10;
+    private static final int MAX_BDD_NODES = 1 << 20;
 
     private final Model model;
     private final ArrayList<Signal> inputs;
     private final ArrayList<Signal> outputs;
     private int uniqueIndex = 0;
     private ModelAnalyserInfo modelAnalyzerInfo;
+    private int workers = 1;
+    private ModelSupplier modelSupplier;
+    private boolean cycleFree;
 
     /**
      * Creates a new instance
@@ -107,6 +123,22 @@ public class ModelAnalyser {
             throw new AnalyseException(Lang.get("err_analyseNoOutputs"));
     }
 
+    /**
+     * Enables the parallel calculation of the truth table.
+     * The table rows are split into ranges and every range is calculated by its own model instance.
+     * The model instances are created by the given supplier. Parallel calculation is only used
+     * if the circuit contains no cycles and the table is large enough.
+     *
+     * @param workers       the number of workers to use, a value smaller than two disables the parallel calculation
+     * @param modelSupplier creates further independent instances of the model to analyse
+     * @return this for chained calls
+     */
+    public ModelAnalyser setWorkers(int workers, ModelSupplier modelSupplier) {
+        this.workers = workers;
+        this.modelSupplier = modelSupplier;
+        return this;
+    }
+
     private ModelAnalyserInfo getModelAnalyzerInfo() {
         return modelAnalyzerInfo;
     }
@@ -361,8 +393,10 @@ public class ModelAnalyser {
         for (Signal s : inputs)
             tt.addVariable(s.getName());
 
-        if (!Main.isExperimentalMode())
+        if (!Main.isExperimentalMode()) {
             CycleDetector.checkForCycles(inputs);
+            cycleFree = true;
+        }
 
         DependencyAnalyser da = new DependencyAnalyser(this);
         long steps = da.getRequiredSteps(this);
@@ -372,11 +406,12 @@ public class ModelAnalyser {
 
         long time = System.currentTimeMillis();
 
+        BDDCreator bdds = createBDDs();
 
         if (tableRows <= steps || tableRows <= 128)
-            simpleFiller(tt);
+            simpleFiller(tt, bdds);
         else
-            dependantFiller(tt, da);
+            dependantFiller(tt, da, bdds);
 
         time = System.currentTimeMillis() - time;
         LOGGER.debug("model analysis: " + time / 1000.0 + " sec");
@@ -384,18 +419,46 @@ public class ModelAnalyser {
         return tt;
     }
 
-    private void simpleFiller(TruthTable tt) throws NodeException, AnalyseException {
+    /**
+     * Creates the BDDs of the outputs.
+     * If this is possible, the table rows are calculated from the BDDs, so the model is not simulated at all.
+     * Returns null if the BDDs could not be created, e.g. because the model contains a flip-flop
+     * or a node which is not supported by the {@link BDDCreator}, or if the BDDs become too large.
+     */
+    private BDDCreator createBDDs() {
+        BDDCreator bdds;
+        try {
+            bdds = new BDDCreator(model, new BDD(MAX_BDD_NODES));
+        } catch (AnalyseException e) {
+            LOGGER.debug("BDDs not created: " + e.getMessage());
+            return null;
+        }
+        for (Signal s : inputs)
+            if (!bdds.getInputNames().contains(s.getName()))
+                return null;
+        for (Signal s : outputs)
+            if (bdds.getOutput(s.getName()) < 0)
+                return null;
+        return bdds;
+    }
+
+    /**
+     * Fills the given table from the BDD of the given output
+     */
+    private static void fillFromBDD(BDDCreator bdds, Signal output, List<Signal> ins, BoolTableByteArray table) {
+        ArrayList<String> names = new ArrayList<>(ins.size());
+        for (Signal s : ins)
+            names.add(s.getName());
+        BoolTable bdd = bdds.createBoolTable(output.getName(), names);
+        for (int row = 0; row < table.size(); row++)
+            table.set(row, bdd.get(row) == ThreeStateValue.one);
+    }
+
+    private void simpleFiller(TruthTable tt, BDDCreator bdds) throws NodeException, AnalyseException {
         if (inputs.size() > MAX_INPUTS_ALLOWED)
             throw new AnalyseException(Lang.get("err_toManyInputs_max_N0_is_N1", MAX_INPUTS_ALLOWED, inputs.size()));
 
 
-        BitSetter bitsetter = new BitSetter(inputs.size()) {
-            @Override
-            public void setBit(int row, int bit, boolean value) {
-                inputs.get(bit).getValue().setBool(value);
-            }
-        };
-
         int rows = 1 << inputs.size();
         ArrayList<BoolTableByteArray> data = new ArrayList<>();
         for (Signal s : outputs) {
@@ -404,8 +467,47 @@ public class ModelAnalyser {
             tt.addResult(s.getName(), e);
         }
 
+        if (bdds != null) {
+            for (int i = 0; i < outputs.size(); i++)
+                fillFromBDD(bdds, outputs.get(i), inputs, data.get(i));
+            return;
+        }
+
+        ArrayList<ModelAnalyser> analysers = createWorkers(rows);
+        if (analysers.size() == 1)
+            fillRows(0, rows, data);
+        else {
+            ArrayList<Callable<Void>> tasks = new ArrayList<>();
+            final int n = analysers.size();
+            for (int w = 0; w < n; w++) {
+                final ModelAnalyser ma = analysers.get(w);
+                final int from = (int) ((long) rows * w / n);
+                final int to = (int) ((long) rows * (w + 1) / n);
+                tasks.add(() -> {
+                    ma.fillRows(from, to, data);
+                    return null;
+                });
+            }
+            runParallel(tasks, analysers);
+        }
+    }
+
+    private void fillRows(int from, int to, ArrayList<BoolTableByteArray> data) throws NodeException {
         model.init();
-        for (int row = 0; row < rows; row++) {
+        LaneSimulator lanes = LaneSimulator.create(inputs, outputs, model);
+        if (lanes != null) {
+            fillLanes(lanes, from, to, data);
+            return;
+        }
+
+        BitSetter bitsetter = new BitSetter(inputs.size()) {
+            @Override
+            public void setBit(int row, int bit, boolean value) {
+                inputs.get(bit).getValue().setBool(value);
+            }
+        };
+
+        for (int row = from; row < to; row++) {
             bitsetter.fill(row);
             model.doStep();
             for (int i = 0; i < outputs.size(); i++) {
@@ -414,33 +516,179 @@ public class ModelAnalyser {
         }
     }
 
-    private void dependantFiller(TruthTable tt, DependencyAnalyser da) throws NodeException, AnalyseException {
-        model.init();
+    private void dependantFiller(TruthTable tt, DependencyAnalyser da, BDDCreator bdds) throws NodeException, AnalyseException {
+        ArrayList<ArrayList<Signal>> insList = new ArrayList<>();
+        long totalRows = 0;
         for (Signal out : outputs) {
-
             ArrayList<Signal> ins = reorder(da.getInputs(out), inputs);
             if (ins.size() > MAX_INPUTS_ALLOWED)
                 throw new AnalyseException(Lang.get("err_toManyInputs_max_N0_is_N1", MAX_INPUTS_ALLOWED, ins.size()));
+            insList.add(ins);
+            totalRows += 1L << ins.size();
+        }
 
-            int rows = 1 << ins.size();
-            BoolTableByteArray e = new BoolTableByteArray(rows);
-            BitSetter bitsetter = new BitSetter(ins.size()) {
-                @Override
-                public void setBit(int row, int bit, boolean value) {
-                    ins.get(bit).getValue().setBool(value);
-                }
-            };
+        BoolTableByteArray[] results = new BoolTableByteArray[outputs.size()];
+        if (bdds != null) {
+            for (int i = 0; i < outputs.size(); i++) {
+                results[i] = new BoolTableByteArray(1 << insList.get(i).size());
+                fillFromBDD(bdds, outputs.get(i), insList.get(i), results[i]);
+            }
+        } else {
+            fillOutputs(results, insList, totalRows);
+        }
+
+        for (int i = 0; i < outputs.size(); i++)
+            tt.addResult(outputs.get(i).getName(), new BoolTableExpanded(results[i], insList.get(i), inputs));
+    }
+
+    private void fillOutputs(BoolTableByteArray[] results, ArrayList<ArrayList<Signal>> insList, long totalRows) throws NodeException, AnalyseException {
+        ArrayList<ModelAnalyser> analysers = createWorkers(Math.min(totalRows, Integer.MAX_VALUE));
+        if (analysers.size() == 1) {
+            model.init();
+            for (int i = 0; i < outputs.size(); i++)
+                results[i] = fillOutput(i, insList.get(i));
+        } else {
+            // every worker takes the next output which is not yet calculated
+            AtomicInteger nextOutput = new AtomicInteger();
+            ArrayList<Callable<Void>> tasks = new ArrayList<>();
+            for (ModelAnalyser ma : analysers)
+                tasks.add(() -> {
+                    ma.model.init();
+                    int i = nextOutput.getAndIncrement();
+                    while (i < outputs.size()) {
+                        results[i] = ma.fillOutput(i, ma.mapInputs(insList.get(i), inputs));
+                        i = nextOutput.getAndIncrement();
+                    }
+                    return null;
+                });
+            runParallel(tasks, analysers);
+        }
+    }
+
+    private BoolTableByteArray fillOutput(int outputIndex, ArrayList<Signal> ins) throws NodeException {
+        Signal out = outputs.get(outputIndex);
+        int rows = 1 << ins.size();
+        BoolTableByteArray e = new BoolTableByteArray(rows);
+        BitSetter bitsetter = new BitSetter(ins.size()) {
+            @Override
+            public void setBit(int row, int bit, boolean value) {
+                ins.get(bit).getValue().setBool(value);
+            }
+        };
+
+        LaneSimulator lanes = LaneSimulator.create(ins, Collections.singletonList(out), model);
+        if (lanes != null) {
+            fillLanes(lanes, 0, rows, Collections.singletonList(e));
+            return e;
+        }
+
+        for (int row = 0; row < rows; row++) {
+            bitsetter.fill(row);
+            model.doStep();
+            e.set(row, out.getValue().getBool());
+        }
+        return e;
+    }
+
+    /**
+     * Fills the rows from (inclusive) to (exclusive) of the given tables 64 rows at a time.
+     * The table i holds the output i of the lane simulator. Every block of 64 rows is calculated
+     * only once for all outputs.
+     * Since the model is not simulated, the state of the model is not modified.
+     */
+    private static void fillLanes(LaneSimulator lanes, int from, int to, List<BoolTableByteArray> tables) {
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+            lanes.setRows(word);
+            lanes.calculate();
+            int base = word << 6;
+            int start = Math.max(from, base);
+            int end = Math.min(to, base + LaneSimulator.LANES);
+            for (int i = 0; i < tables.size(); i++) {
+                long value = lanes.getOutput(i);
+                BoolTableByteArray table = tables.get(i);
+                for (int row = start; row < end; row++)
+                    table.set(row, ((value >>> (row - base)) & 1) != 0);
+            }
+        }
+    }
+
+    /**
+     * Maps the given signals of an other analyser to the corresponding signals of this analyser.
+     */
+    private ArrayList<Signal> mapInputs(ArrayList<Signal> ins, ArrayList<Signal> otherInputs) {
+        ArrayList<Signal> mapped = new ArrayList<>(ins.size());
+        for (Signal s : ins)
+            mapped.add(inputs.get(otherInputs.indexOf(s)));
+        return mapped;
+    }
+
+    /**
+     * Creates the analysers used to fill the table.
+     * The first analyser is always this instance. Further analysers are only created if the
+     * table is large enough and the circuit contains no cycles.
+     */
+    private ArrayList<ModelAnalyser> createWorkers(long rows) throws AnalyseException {
+        ArrayList<ModelAnalyser> analysers = new ArrayList<>();
+        analysers.add(this);
+        if (modelSupplier == null || !cycleFree)
+            return analysers;
 
-            for (int row = 0; row < rows; row++) {
-                bitsetter.fill(row);
-                model.doStep();
-                e.set(row, out.getValue().getBool());
+        int n = (int) Math.min(workers, rows / MIN_ROWS_PER_WORKER);
+        try {
+            // the models are created sequentially because the circuit is modified during model creation
+            for (int i = 1; i < n; i++) {
+                ModelAnalyser ma = new ModelAnalyser(modelSupplier.createModel());
+                if (!ma.inputs.equals(inputs) || !ma.outputs.equals(outputs)) {
+                    LOGGER.warn("model instances differ, analyse model serial");
+                    analysers.subList(1, analysers.size()).clear();
+                    return analysers;
+                }
+                analysers.add(ma);
             }
+        } catch (PinException | NodeException | ElementNotFoundException e) {
+            throw new AnalyseException(e);
+        }
+        LOGGER.debug("analyse model using " + analysers.size() + " workers");
+        return analysers;
+    }
 
-            tt.addResult(out.getName(), new BoolTableExpanded(e, ins, inputs));
+    private static void runParallel(ArrayList<Callable<Void>> tasks, ArrayList<ModelAnalyser> analysers) throws NodeException, AnalyseException {
+        ForkJoinPool pool = new ForkJoinPool(tasks.size());
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks))
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalyseException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NodeException)
+                throw (NodeException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new AnalyseException((Exception) cause);
+        } finally {
+            pool.shutdown();
+            for (int i = 1; i < analysers.size(); i++)
+                analysers.get(i).model.close();
         }
     }
 
+    /**
+     * Creates new and independent instances of the model to analyse.
+     */
+    public interface ModelSupplier {
+        /**
+         * @return a new instance of the model
+         * @throws PinException             PinException
+         * @throws NodeException            NodeException
+         * @throws ElementNotFoundException ElementNotFoundException
+         */
+        Model createModel() throws PinException, NodeException, ElementNotFoundException;
+    }
+
     private ArrayList<Signal> reorder(ArrayList<Signal> ins, ArrayList<Signal> originalOrder) {
         ArrayList<Signal> newList = new ArrayList<>();
         for (Signal i : originalOrder)
@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse.bdd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A reduced ordered binary decision diagram.
+ * All functions are stored in a single shared graph. A function is represented by the
+ * index of its root node, so two functions are equal if and only if they are represented
+ * by the same int value.
+ * A unique table ensures that every node exists only once, and a computed cache
+ * avoids the repeated calculation of the same if-then-else operation.
+ * <p>
+ * The variables are ordered in the sequence of their creation. Variables are identified by their
+ * name, so two circuits which share the same instance use the same variable for inputs with
+ * the same name.
+ * <p>
+ * This class is not thread safe.
+ */
+public final class BDD {
+    /**
+     * The constant false function
+     */
+    public static final int ZERO = 0;
+    /**
+     * The constant one function
+     */
+    public static final int ONE = 1;
+
+    private static final int TERMINAL_LEVEL = Integer.MAX_VALUE;
+    private static final int DEFAULT_MAX_NODES = 1 << 22;
+
+    private final ArrayList<String> names;
+    private final HashMap<String, Integer> nameIndex;
+    private final int maxNodes;
+    private int[] level;
+    private int[] low;
+    private int[] high;
+    private int size;
+    private int[] unique;
+    private int uniqueMask;
+    private int[] cacheF;
+    private int[] cacheG;
+    private int[] cacheH;
+    private int[] cacheR;
+    private int cacheMask;
+
+    /**
+     * Creates a new instance
+     */
+    public BDD() {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Creates a new instance
+     *
+     * @param maxNodes the maximum number of nodes, including the two terminal nodes
+     */
+    public BDD(int maxNodes) {
+        this.maxNodes = maxNodes;
+        names = new ArrayList<>();
+        nameIndex = new HashMap<>();
+        int capacity = 1 << 10;
+        level = new int[capacity];
+        low = new int[capacity];
+        high = new int[capacity];
+        level[ZERO] = TERMINAL_LEVEL;
+        level[ONE] = TERMINAL_LEVEL;
+        low[ONE] = ONE;
+        high[ONE] = ONE;
+        size = 2;
+        unique = new int[capacity * 2];
+        uniqueMask = unique.length - 1;
+        createCache(capacity);
+    }
+
+    private void createCache(int capacity) {
+        cacheF = new int[capacity];
+        cacheG = new int[capacity];
+        cacheH = new int[capacity];
+        cacheR = new int[capacity];
+        Arrays.fill(cacheF, -1);
+        cacheMask = capacity - 1;
+    }
+
+    /**
+     * Returns the function which is true if the variable with the given name is true.
+     * If there is no such variable, a new variable is created.
+     *
+     * @param name the name of the variable
+     * @return the function
+     */
+    public int variable(String name) {
+        Integer index = nameIndex.get(name);
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            nameIndex.put(name, index);
+        }
+        return mk(index, ZERO, ONE);
+    }
+
+    /**
+     * Returns the index of the variable with the given name
+     *
+     * @param name the name of the variable
+     * @return the index or -1 if there is no such variable
+     */
+    public int getVariableIndex(String name) {
+        Integer index = nameIndex.get(name);
+        if (index == null)
+            return -1;
+        return index;
+    }
+
+    /**
+     * @return the number of variables
+     */
+    public int getVariableCount() {
+        return names.size();
+    }
+
+    /**
+     * Returns the name of a variable
+     *
+     * @param index the index of the variable
+     * @return the name
+     */
+    public String getVariableName(int index) {
+        return names.get(index);
+    }
+
+    /**
+     * @return the number of nodes in the graph including the two terminal nodes
+     */
+    public int getNodeCount() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the variable which is tested by the given node.
+     *
+     * @param f the node
+     * @return the variable index or -1 if the node is a constant
+     */
+    public int getVariable(int f) {
+        int l = level[f];
+        return l == TERMINAL_LEVEL ? -1 : l;
+    }
+
+    /**
+     * Returns the function which is used if the variable of the given node is false
+     *
+     * @param f the node
+     * @return the low child
+     */
+    public int getLow(int f) {
+        return low[f];
+    }
+
+    /**
+     * Returns the function which is used if the variable of the given node is true
+     *
+     * @param f the node
+     * @return the high child
+     */
+    public int getHigh(int f) {
+        return high[f];
+    }
+
+    /**
+     * Creates a constant function
+     *
+     * @param value the value
+     * @return the function
+     */
+    public static int constant(boolean value) {
+        return value ? ONE : ZERO;
+    }
+
+    /**
+     * Creates the negation of the given function
+     *
+     * @param f the function
+     * @return not f
+     */
+    public int not(int f) {
+        return ite(f, ZERO, ONE);
+    }
+
+    /**
+     * Creates the conjunction of the given functions
+     *
+     * @param f the first function
+     * @param g the second function
+     * @return f and g
+     */
+    public int and(int f, int g) {
+        return ite(f, g, ZERO);
+    }
+
+    /**
+     * Creates the disjunction of the given functions
+     *
+     * @param f the first function
+     * @param g the second function
+     * @return f or g
+     */
+    public int or(int f, int g) {
+        return ite(f, ONE, g);
+    }
+
+    /**
+     * Creates the exclusive or of the given functions
+     *
+     * @param f the first function
+     * @param g the second function
+     * @return f xor g
+     */
+    public int xor(int f, int g) {
+        return ite(f, not(g), g);
+    }
+
+    /**
+     * The if-then-else operation all other operations are based on.
+     *
+     * @param f the condition
+     * @param g the function used if f is true
+     * @param h the function used if f is false
+     * @return (f and g) or (not f and h)
+     */
+    public int ite(int f, int g, int h) {
+        if (f == ONE)
+            return g;
+        if (f == ZERO)
+            return h;
+        if (g == h)
+            return g;
+        if (g == ONE && h == ZERO)
+            return f;
+
+        int slot = hash(f, g, h) & cacheMask;
+        if (cacheF[slot] == f && cacheG[slot] == g && cacheH[slot] == h)
+            return cacheR[slot];
+
+        int top = Math.min(level[f], Math.min(level[g], level[h]));
+        int r0 = ite(cofactor(f, top, false), cofactor(g, top, false), cofactor(h, top, false));
+        int r1 = ite(cofactor(f, top, true), cofactor(g, top, true), cofactor(h, top, true));
+        int r = mk(top, r0, r1);
+
+        // the cache may be replaced while the node is created
+        slot = hash(f, g, h) & cacheMask;
+        cacheF[slot] = f;
+        cacheG[slot] = g;
+        cacheH[slot] = h;
+        cacheR[slot] = r;
+        return r;
+    }
+
+    private int cofactor(int f, int var, boolean value) {
+        if (level[f] != var)
+            return f;
+        return value ? high[f] : low[f];
+    }
+
+    /**
+     * Evaluates the function
+     *
+     * @param f      the function
+     * @param values the values of the variables, indexed by the variable index
+     * @return the functions value
+     */
+    public boolean evaluate(int f, boolean[] values) {
+        while (f > ONE)
+            f = values[level[f]] ? high[f] : low[f];
+        return f == ONE;
+    }
+
+    /**
+     * Returns an assignment of the variables which makes the given function true.
+     * The returned array contains a value for every variable: 1 if the variable needs to be true,
+     * 0 if it needs to be false and -1 if the value of the variable does not matter.
+     *
+     * @param f the function
+     * @return the assignment or null if the function is never true
+     */
+    public int[] satisfy(int f) {
+        if (f == ZERO)
+            return null;
+        int[] values = new int[names.size()];
+        Arrays.fill(values, -1);
+        while (f > ONE) {
+            if (low[f] != ZERO) {
+                values[level[f]] = 0;
+                f = low[f];
+            } else {
+                values[level[f]] = 1;
+                f = high[f];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the number of assignments of the given variables which make the function true.
+     * The function must only depend on variables with an index smaller than the given number of variables.
+     *
+     * @param f    the function
+     * @param vars the number of variables
+     * @return the number of assignments
+     */
+    public double satCount(int f, int vars) {
+        return satCount(f, vars, new HashMap<>()) * Math.pow(2, levelOf(f, vars));
+    }
+
+    private double satCount(int f, int vars, HashMap<Integer, Double> map) {
+        if (f <= ONE)
+            return f;
+        Double c = map.get(f);
+        if (c == null) {
+            int l = level[f];
+            int lo = low[f];
+            int hi = high[f];
+            c = satCount(lo, vars, map) * Math.pow(2, levelOf(lo, vars) - l - 1)
+                    + satCount(hi, vars, map) * Math.pow(2, levelOf(hi, vars) - l - 1);
+            map.put(f, c);
+        }
+        return c;
+    }
+
+    private int levelOf(int f, int vars) {
+        int l = level[f];
+        return l == TERMINAL_LEVEL ? vars : l;
+    }
+
+    private int mk(int var, int lo, int hi) {
+        if (lo == hi)
+            return lo;
+
+        int slot = hash(var, lo, hi) & uniqueMask;
+        while (true) {
+            int n = unique[slot];
+            if (n == 0)
+                break;
+            if (level[n] == var && low[n] == lo && high[n] == hi)
+                return n;
+            slot = (slot + 1) & uniqueMask;
+        }
+
+        if (size >= maxNodes)
+            throw new TooLargeException(maxNodes);
+        if (size == level.length) {
+            grow();
+            // the unique table is rehashed in grow
+            slot = findFreeSlot(var, lo, hi);
+        }
+
+        int n = size++;
+        level[n] = var;
+        low[n] = lo;
+        high[n] = hi;
+        unique[slot] = n;
+        return n;
+    }
+
+    private int findFreeSlot(int var, int lo, int hi) {
+        int slot = hash(var, lo, hi) & uniqueMask;
+        while (unique[slot] != 0)
+            slot = (slot + 1) & uniqueMask;
+        return slot;
+    }
+
+    private void grow() {
+        int capacity = level.length * 2;
+        level = Arrays.copyOf(level, capacity);
+        low = Arrays.copyOf(low, capacity);
+        high = Arrays.copyOf(high, capacity);
+
+        unique = new int[capacity * 2];
+        uniqueMask = unique.length - 1;
+        for (int n = 2; n < size; n++)
+            unique[findFreeSlot(level[n], low[n], high[n])] = n;
+
+        createCache(capacity);
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b * 0x85EBCA6B + c * 0xC2B2AE35;
+        return h ^ (h >>> 15);
+    }
+
+    /**
+     * Thrown if the maximum number of nodes is exceeded
+     */
+    public static final class TooLargeException extends RuntimeException {
+        private TooLargeException(int maxNodes) {
+            super("BDD exceeds " + maxNodes + " nodes");
+        }
+    }
+}
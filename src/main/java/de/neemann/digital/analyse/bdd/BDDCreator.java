@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse.bdd;
+
+import de.neemann.digital.analyse.AnalyseException;
+import de.neemann.digital.analyse.DriverMap;
+import de.neemann.digital.core.*;
+import de.neemann.digital.core.basic.*;
+import de.neemann.digital.core.wiring.Decoder;
+import de.neemann.digital.core.wiring.Multiplexer;
+import de.neemann.digital.core.wiring.Splitter;
+import de.neemann.digital.draw.elements.PinException;
+import de.neemann.digital.draw.model.InverterConfig;
+import de.neemann.digital.lang.Lang;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Creates the BDDs of the outputs of a combinational model.
+ * Models which contain nodes with a state are rejected.
+ * The nodes of the model are not simulated. Instead the BDD of every output is built by
+ * walking backwards from the output through the nodes which drive the values.
+ * So the number of inputs is not limited by the number of table rows which
+ * can be enumerated.
+ * <p>
+ * Supported are the basic gates, multiplexers, decoders, splitters and inverted inputs.
+ * Multi bit inputs and outputs are split into single bits which are named like it is done
+ * by the {@link de.neemann.digital.analyse.ModelAnalyser}.
+ * The variables of the BDD are ordered by the significance of the input bits, so equally significant
+ * bits of different inputs are neighbours. The order of the variables in the truth table is not affected.
+ */
+public class BDDCreator {
+    private final BDD bdd;
+    private final ArrayList<String> inputNames;
+    private final ArrayList<String> outputNames;
+    private final ArrayList<Integer> outputFunctions;
+    private final DriverMap drivers;
+    private final HashMap<ObservableValue, int[]> values;
+    private final HashSet<ObservableValue> inProgress;
+
+    /**
+     * Creates a new instance
+     *
+     * @param model the model
+     * @throws AnalyseException AnalyseException
+     */
+    public BDDCreator(Model model) throws AnalyseException {
+        this(model, new BDD());
+    }
+
+    /**
+     * Creates a new instance.
+     * If two models share the same BDD instance, inputs with the same name are
+     * represented by the same variable.
+     *
+     * @param model the model
+     * @param bdd   the BDD to use
+     * @throws AnalyseException AnalyseException
+     */
+    public BDDCreator(Model model, BDD bdd) throws AnalyseException {
+        this.bdd = bdd;
+        inputNames = new ArrayList<>();
+        outputNames = new ArrayList<>();
+        outputFunctions = new ArrayList<>();
+        values = new HashMap<>();
+        inProgress = new HashSet<>();
+
+        for (Node n : model)
+            if (n.hasState())
+                throw new AnalyseException(Lang.get("err_cannotAnalyse_N", n.getClass().getSimpleName()));
+
+        // The bits of multi bit inputs are interleaved, starting with the most significant bits.
+        // So the bits of the operands of adders and comparators which are combined with each other
+        // are neighbours in the variable order. Otherwise the BDDs of these circuits grow exponentially.
+        ArrayList<Signal> inputs = model.getInputs();
+        int maxBits = 0;
+        for (Signal s : inputs)
+            maxBits = Math.max(maxBits, s.getValue().getBits());
+        int[][] inputFunctions = new int[inputs.size()][];
+        for (int j = 0; j < inputs.size(); j++)
+            inputFunctions[j] = new int[inputs.get(j).getValue().getBits()];
+        for (int i = maxBits - 1; i >= 0; i--)
+            for (int j = 0; j < inputs.size(); j++)
+                if (i < inputFunctions[j].length)
+                    inputFunctions[j][i] = bdd.variable(getName(inputs.get(j), i));
+
+        for (int j = 0; j < inputs.size(); j++) {
+            Signal s = inputs.get(j);
+            int[] f = inputFunctions[j];
+            for (int i = f.length - 1; i >= 0; i--)
+                inputNames.add(getName(s, i));
+            values.put(s.getValue(), f);
+        }
+
+        try {
+            drivers = new DriverMap(model, inputs);
+
+            for (Signal s : model.getOutputs()) {
+                int[] f = get(s.getValue());
+                for (int i = f.length - 1; i >= 0; i--) {
+                    outputNames.add(getName(s, i));
+                    outputFunctions.add(f[i]);
+                }
+            }
+        } catch (PinException e) {
+            throw new AnalyseException(e);
+        } catch (BDD.TooLargeException e) {
+            throw new AnalyseException(e);
+        }
+    }
+
+    private static String getName(Signal s, int bit) {
+        if (s.getValue().getBits() == 1)
+            return s.getName();
+        return s.getName() + bit;
+    }
+
+    private int[] get(ObservableValue value) throws AnalyseException, PinException {
+        int[] f = values.get(value);
+        if (f != null)
+            return f;
+
+        if (!inProgress.add(value))
+            throw new AnalyseException(Lang.get("err_circuitHasCycles"));
+
+        ArrayList<NodeInterface> list = drivers.get(value);
+        if (list == null || list.isEmpty()) {
+            if (!value.isConstant())
+                throw new AnalyseException(Lang.get("err_cannotAnalyse_N", value.getName()));
+            f = constant(value.getValue(), value.getBits());
+        } else if (list.get(0) instanceof Splitter.BitCopy)
+            f = createSplitterOutput(value, list);
+        else if (list.size() == 1)
+            f = create(list.get(0), value);
+        else
+            throw new AnalyseException(Lang.get("err_cannotAnalyse_N", value.getName()));
+
+        inProgress.remove(value);
+        values.put(value, f);
+        return f;
+    }
+
+    private int[] create(NodeInterface node, ObservableValue value) throws AnalyseException, PinException {
+        if (node instanceof And || node instanceof Or || node instanceof XOr) {
+            FanIn fanIn = (FanIn) node;
+            int bits = fanIn.getOutput().getBits();
+            int[] r = null;
+            for (ObservableValue in : fanIn.getInputs()) {
+                int[] f = get(in);
+                if (r == null)
+                    r = f.clone();
+                else
+                    for (int i = 0; i < bits; i++)
+                        r[i] = combine(node, r[i], f[i]);
+            }
+            if (r == null)
+                throw new AnalyseException(Lang.get("err_cannotAnalyse_N", node.getClass().getSimpleName()));
+            if (node instanceof NAnd || node instanceof NOr || node instanceof XNOr)
+                for (int i = 0; i < bits; i++)
+                    r[i] = bdd.not(r[i]);
+            return r;
+        } else if (node instanceof Not)
+            return not(get(((Not) node).getInput()));
+        else if (node instanceof InverterConfig.Inverter)
+            return not(get(((InverterConfig.Inverter) node).getInput()));
+        else if (node instanceof Multiplexer)
+            return createMultiplexer((Multiplexer) node);
+        else if (node instanceof Decoder)
+            return createDecoder((Decoder) node, value);
+        else
+            throw new AnalyseException(Lang.get("err_cannotAnalyse_N", node.getClass().getSimpleName()));
+    }
+
+    private int combine(NodeInterface node, int a, int b) {
+        if (node instanceof And)
+            return bdd.and(a, b);
+        if (node instanceof Or)
+            return bdd.or(a, b);
+        return bdd.xor(a, b);
+    }
+
+    private int[] not(int[] f) {
+        int[] r = new int[f.length];
+        for (int i = 0; i < f.length; i++)
+            r[i] = bdd.not(f[i]);
+        return r;
+    }
+
+    private int[] createMultiplexer(Multiplexer mux) throws AnalyseException, PinException {
+        int[] sel = get(mux.getSelector());
+        ArrayList<int[]> inputs = new ArrayList<>();
+        for (ObservableValue in : mux.getInputs())
+            inputs.add(get(in));
+        int bits = mux.getOutput().getBits();
+        int[] r = new int[bits];
+        for (int b = 0; b < bits; b++)
+            r[b] = select(sel, sel.length, inputs, 0, b);
+        return r;
+    }
+
+    /**
+     * Selects the bit b of the input number (offset + selector value),
+     * using the lower selBits bits of the selector.
+     */
+    private int select(int[] sel, int selBits, ArrayList<int[]> inputs, int offset, int b) {
+        if (selBits == 0)
+            return inputs.get(offset)[b];
+        int half = 1 << (selBits - 1);
+        int lo = select(sel, selBits - 1, inputs, offset, b);
+        int hi = select(sel, selBits - 1, inputs, offset + half, b);
+        return bdd.ite(sel[selBits - 1], hi, lo);
+    }
+
+    private int[] createDecoder(Decoder decoder, ObservableValue value) throws AnalyseException, PinException {
+        int[] sel = get(decoder.getSelector());
+        ObservableValues outputs = decoder.getOutputs();
+        int[] result = null;
+        for (int n = 0; n < outputs.size(); n++) {
+            int f = BDD.ONE;
+            for (int i = 0; i < sel.length; i++)
+                f = bdd.and(f, (n & (1 << i)) != 0 ? sel[i] : bdd.not(sel[i]));
+            int[] r = new int[]{f};
+            ObservableValue out = outputs.get(n);
+            if (out == value)
+                result = r;
+            else
+                values.put(out, r);
+        }
+        return result;
+    }
+
+    private int[] createSplitterOutput(ObservableValue value, ArrayList<NodeInterface> list) throws AnalyseException, PinException {
+        int[] r = constant(0, value.getBits());
+        for (NodeInterface n : list) {
+            if (!(n instanceof Splitter.BitCopy))
+                throw new AnalyseException(Lang.get("err_cannotAnalyse_N", value.getName()));
+            Splitter.BitCopy bc = (Splitter.BitCopy) n;
+            int[] in = get(bc.getInput());
+            for (int i = 0; i < bc.getBits(); i++)
+                r[bc.getOutputPos() + i] = in[bc.getInputPos() + i];
+        }
+        return r;
+    }
+
+    private static int[] constant(long value, int bits) {
+        int[] r = new int[bits];
+        for (int i = 0; i < bits; i++)
+            r[i] = BDD.constant((value & (1L << i)) != 0);
+        return r;
+    }
+
+    /**
+     * @return the BDD which contains the functions
+     */
+    public BDD getBDD() {
+        return bdd;
+    }
+
+    /**
+     * @return the names of the single bit inputs
+     */
+    public List<String> getInputNames() {
+        return inputNames;
+    }
+
+    /**
+     * @return the names of the single bit outputs
+     */
+    public List<String> getOutputNames() {
+        return outputNames;
+    }
+
+    /**
+     * Returns the function of an output
+     *
+     * @param name the name of the single bit output
+     * @return the function or -1 if there is no such output
+     */
+    public int getOutput(String name) {
+        int i = outputNames.indexOf(name);
+        if (i < 0)
+            return -1;
+        return outputFunctions.get(i);
+    }
+
+    /**
+     * Creates a bool table of an output.
+     * The table does not store the results, instead the BDD is evaluated if a row is accessed.
+     *
+     * @param output the name of the single bit output
+     * @param inputs the names of the single bit inputs which define the rows of the table,
+     *               the first input is the most significant bit of the row number
+     * @return the table
+     */
+    public BoolTableBDD createBoolTable(String output, List<String> inputs) {
+        int f = getOutput(output);
+        if (f < 0)
+            throw new IllegalArgumentException("output " + output + " not found");
+        ArrayList<Integer> vars = new ArrayList<>(inputs.size());
+        for (String name : inputs) {
+            int v = bdd.getVariableIndex(name);
+            if (v < 0)
+                throw new IllegalArgumentException("input " + name + " not found");
+            vars.add(v);
+        }
+        return new BoolTableBDD(bdd, f, vars);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse.bdd;
+
+import de.neemann.digital.analyse.quinemc.BoolTable;
+import de.neemann.digital.analyse.quinemc.ThreeStateValue;
+
+import java.util.List;
+
+/**
+ * A bool table which is backed by a BDD.
+ * The rows are not stored but calculated on demand by following a single path in the BDD.
+ * The first variable is the most significant bit of the row number.
+ */
+public class BoolTableBDD implements BoolTable {
+    private static final int MAX_VARIABLES = 31;
+
+    private final BDD bdd;
+    private final int function;
+    private final int[] bitOfVariable;
+    private final int size;
+
+    /**
+     * Creates a new instance
+     *
+     * @param bdd       the BDD
+     * @param function  the function
+     * @param variables the variable indices which define the rows of the table
+     * @throws IllegalArgumentException if there are so many variables that the rows can not be numbered by an int
+     */
+    public BoolTableBDD(BDD bdd, int function, List<Integer> variables) {
+        this.bdd = bdd;
+        this.function = function;
+        int n = variables.size();
+        if (n >= MAX_VARIABLES)
+            throw new IllegalArgumentException("a table with " + n + " variables is too large, the maximum is " + (MAX_VARIABLES - 1));
+        size = 1 << n;
+        bitOfVariable = new int[bdd.getVariableCount()];
+        for (int i = 0; i < bitOfVariable.length; i++)
+            bitOfVariable[i] = -1;
+        for (int i = 0; i < n; i++)
+            bitOfVariable[variables.get(i)] = n - 1 - i;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ThreeStateValue get(int i) {
+        int f = function;
+        while (f > BDD.ONE) {
+            int bit = bitOfVariable[bdd.getVariable(f)];
+            if (bit < 0)
+                throw new IllegalStateException("function depends on variable " + bdd.getVariableName(bdd.getVariable(f)) + " which is not part of the table");
+            f = (i & (1 << bit)) != 0 ? bdd.getHigh(f) : bdd.getLow(f);
+        }
+        return ThreeStateValue.value(f == BDD.ONE);
+    }
+}
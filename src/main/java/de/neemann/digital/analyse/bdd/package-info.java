@@ -0,0 +1,11 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+
+/**
+ * A binary decision diagram package used to analyse combinational circuits
+ * without enumerating all table rows.
+ */
+package de.neemann.digital.analyse.bdd;
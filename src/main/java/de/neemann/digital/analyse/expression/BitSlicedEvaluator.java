@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse.expression;
+
+import de.neemann.digital.lang.Lang;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Calculates the complete truth table of an expression.
+ * The expression is compiled to a simple stack program which works on 64 table rows at once:
+ * Every bit of a long word represents a row of the table, so an AND, OR, XOR or NOT operation
+ * calculates 64 rows with a single instruction.
+ * <p>
+ * The row numbering is the same as used by the {@link ContextFiller}: The first variable
+ * is the most significant bit of the row number.
+ * <p>
+ * If the expression is a sum of products, like the expressions created by the minimizers,
+ * the table is filled product by product instead. In this case only the words which
+ * are covered by a product are touched.
+ */
+public final class BitSlicedEvaluator {
+    private static final long[] PATTERN = {
+            0xAAAAAAAAAAAAAAAAL,
+            0xCCCCCCCCCCCCCCCCL,
+            0xF0F0F0F0F0F0F0F0L,
+            0xFF00FF00FF00FF00L,
+            0xFFFF0000FFFF0000L,
+            0xFFFFFFFF00000000L};
+
+    private static final int OP_VAR = 0;
+    private static final int OP_CONST = 1;
+    private static final int OP_NOT = 2;
+    private static final int OP_AND = 3;
+    private static final int OP_OR = 4;
+    private static final int OP_XOR = 5;
+    private static final int OP_CALC = 6;
+
+    private final List<Variable> variables;
+    private final HashMap<Variable, Integer> varIndex;
+    private final ArrayList<Expression> calcExpressions;
+    private long[] cubes;
+    private int[] ops;
+    private int[] args;
+    private int size;
+    private int depth;
+    private int maxDepth;
+
+    /**
+     * Compiles the given expression
+     *
+     * @param expression the expression
+     * @param variables  the variables which define the rows of the table
+     * @throws ExpressionException thrown if the expression contains a variable not contained in the given list
+     */
+    public BitSlicedEvaluator(Expression expression, List<Variable> variables) throws ExpressionException {
+        this.variables = variables;
+        varIndex = new HashMap<>();
+        for (int i = 0; i < variables.size(); i++)
+            varIndex.put(variables.get(i), i);
+        calcExpressions = new ArrayList<>();
+        ops = new int[16];
+        args = new int[16];
+        compile(expression);
+        cubes = createCubes(expression);
+    }
+
+    /**
+     * Creates the products of a sum of products.
+     * Every product is stored as two longs: the mask of the variables used and their values,
+     * using the bit position of the variable in the row number.
+     *
+     * @param e the expression
+     * @return the cubes or null if the expression is not a sum of products
+     */
+    private long[] createCubes(Expression e) {
+        if (variables.size() <= PATTERN.length)
+            return null;
+        while (e instanceof NamedExpression)
+            e = ((NamedExpression) e).getExpression();
+
+        ArrayList<Expression> products;
+        if (e instanceof Operation.Or)
+            products = ((Operation) e).getExpressions();
+        else {
+            products = new ArrayList<>();
+            products.add(e);
+        }
+
+        long[] c = new long[products.size() * 2];
+        int n = 0;
+        for (Expression p : products) {
+            ArrayList<Expression> literals;
+            if (p instanceof Operation.And)
+                literals = ((Operation) p).getExpressions();
+            else {
+                literals = new ArrayList<>();
+                literals.add(p);
+            }
+            long mask = 0;
+            long value = 0;
+            boolean empty = false;
+            for (Expression literal : literals) {
+                Expression l = literal;
+                boolean inv = false;
+                if (l instanceof Not) {
+                    l = ((Not) l).getExpression();
+                    inv = true;
+                }
+                if (!(l instanceof Variable))
+                    return null;
+                long bit = 1L << (variables.size() - 1 - varIndex.get(l));
+                long v = inv ? 0 : bit;
+                if ((mask & bit) != 0 && (value & bit) != v)
+                    empty = true;
+                mask |= bit;
+                value |= v;
+            }
+            if (!empty) {
+                c[n++] = mask;
+                c[n++] = value;
+            }
+        }
+        return n == c.length ? c : Arrays.copyOf(c, n);
+    }
+
+    private void compile(Expression e) throws ExpressionException {
+        if (e instanceof Variable) {
+            Integer index = varIndex.get(e);
+            if (index == null)
+                throw new ExpressionException(Lang.get("err_varNotDefined_N", e));
+            add(OP_VAR, index, 1);
+        } else if (e instanceof Constant) {
+            add(OP_CONST, ((Constant) e).getValue() ? 1 : 0, 1);
+        } else if (e instanceof NamedExpression) {
+            compile(((NamedExpression) e).getExpression());
+        } else if (e instanceof Not) {
+            compile(((Not) e).getExpression());
+            add(OP_NOT, 0, 0);
+        } else if (e instanceof Operation) {
+            ArrayList<Expression> list = ((Operation) e).getExpressions();
+            for (Expression c : list)
+                compile(c);
+            int op;
+            if (e instanceof Operation.And)
+                op = OP_AND;
+            else if (e instanceof Operation.Or)
+                op = OP_OR;
+            else
+                op = OP_XOR;
+            add(op, list.size(), 1 - list.size());
+        } else {
+            // unknown expression, is calculated row by row
+            calcExpressions.add(e);
+            add(OP_CALC, calcExpressions.size() - 1, 1);
+        }
+    }
+
+    private void add(int op, int arg, int stackChange) {
+        if (size == ops.length) {
+            int[] o = new int[size * 2];
+            int[] a = new int[size * 2];
+            System.arraycopy(ops, 0, o, 0, size);
+            System.arraycopy(args, 0, a, 0, size);
+            ops = o;
+            args = a;
+        }
+        ops[size] = op;
+        args[size] = arg;
+        size++;
+        depth += stackChange;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    /**
+     * Calculates the truth table.
+     * Row i of the table is stored in bit {@code i & 63} of word {@code i >> 6}.
+     * Use {@link #get(long[], int)} to read a row.
+     *
+     * @return the packed truth table
+     * @throws ExpressionException ExpressionException
+     */
+    public long[] calculate() throws ExpressionException {
+        int rows = 1 << variables.size();
+        long[] table = new long[(rows + 63) >>> 6];
+        if (cubes != null) {
+            fillCubes(table);
+            return table;
+        }
+        long[] stack = new long[Math.max(1, maxDepth)];
+        ContextFiller cf = calcExpressions.isEmpty() ? null : new ContextFiller(variables);
+        for (int w = 0; w < table.length; w++)
+            table[w] = calcWord(w, stack, cf);
+        if (rows < 64)
+            table[0] &= (1L << rows) - 1;
+        return table;
+    }
+
+    private long calcWord(int w, long[] stack, ContextFiller cf) throws ExpressionException {
+        int sp = 0;
+        for (int pc = 0; pc < size; pc++) {
+            final int arg = args[pc];
+            long r;
+            switch (ops[pc]) {
+                case OP_VAR:
+                    stack[sp++] = varWord(arg, w);
+                    break;
+                case OP_CONST:
+                    stack[sp++] = arg == 0 ? 0 : -1L;
+                    break;
+                case OP_NOT:
+                    stack[sp - 1] = ~stack[sp - 1];
+                    break;
+                case OP_AND:
+                    r = -1L;
+                    for (int i = 0; i < arg; i++)
+                        r &= stack[--sp];
+                    stack[sp++] = r;
+                    break;
+                case OP_OR:
+                    r = 0;
+                    for (int i = 0; i < arg; i++)
+                        r |= stack[--sp];
+                    stack[sp++] = r;
+                    break;
+                case OP_XOR:
+                    r = 0;
+                    for (int i = 0; i < arg; i++)
+                        r ^= stack[--sp];
+                    stack[sp++] = r;
+                    break;
+                default:
+                    stack[sp++] = calcRows(calcExpressions.get(arg), w, cf);
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    private void fillCubes(long[] table) {
+        final int low = PATTERN.length;
+        final long highFull = (1L << (variables.size() - low)) - 1;
+        for (int i = 0; i < cubes.length; i += 2) {
+            long mask = cubes[i];
+            long value = cubes[i + 1];
+            long word = -1L;
+            for (int b = 0; b < low; b++) {
+                long bit = 1L << b;
+                if ((mask & bit) != 0)
+                    word &= (value & bit) != 0 ? PATTERN[b] : ~PATTERN[b];
+            }
+            long highValue = value >>> low;
+            long free = ~(mask >>> low) & highFull;
+            long sub = 0;
+            do {
+                table[(int) (highValue | sub)] |= word;
+                sub = (sub - free) & free;
+            } while (sub != 0);
+        }
+    }
+
+    private long varWord(int var, int w) {
+        return getRowBits(variables.size() - 1 - var, w);
+    }
+
+    /**
+     * Returns the value of a bit of the row number in the 64 rows {@code word * 64} up to
+     * {@code word * 64 + 63} of a table. Bit i of the result belongs to row {@code word * 64 + i}.
+     *
+     * @param bit  the bit of the row number
+     * @param word the number of the 64 row block
+     * @return the 64 values of the bit
+     */
+    public static long getRowBits(int bit, int word) {
+        if (bit < PATTERN.length)
+            return PATTERN[bit];
+        return ((word >>> (bit - PATTERN.length)) & 1) != 0 ? -1L : 0;
+    }
+
+    private long calcRows(Expression e, int w, ContextFiller cf) throws ExpressionException {
+        int rows = 1 << variables.size();
+        long r = 0;
+        for (int b = 0; b < 64; b++) {
+            int row = (w << 6) + b;
+            if (row >= rows)
+                break;
+            if (e.calculate(cf.setContextTo(row)))
+                r |= 1L << b;
+        }
+        return r;
+    }
+
+    /**
+     * Returns a row of a packed truth table
+     *
+     * @param table the table created by {@link #calculate()}
+     * @param row   the row
+     * @return the value of the given row
+     */
+    public static boolean get(long[] table, int row) {
+        return (table[row >>> 6] & (1L << row)) != 0;
+    }
+}
@@ -6,6 +6,7 @@
 package de.neemann.digital.analyse.expression;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
 /**
@@ -43,14 +44,9 @@ public class Equals {
         ArrayList<Variable> vars = new ArrayList<>(variables.size());
         vars.addAll(variables);
 
-        ContextFiller cf = new ContextFiller(vars);
-        int count = 1 << vars.size();
-        for (int i = 0; i < count; i++) {
-            cf.setContextTo(i);
-            if (a.calculate(cf) != b.calculate(cf))
-                return false;
-        }
-        return true;
+        long[] ta = new BitSlicedEvaluator(a, vars).calculate();
+        long[] tb = new BitSlicedEvaluator(b, vars).calculate();
+        return Arrays.equals(ta, tb);
     }
 
 
@@ -6,16 +6,20 @@
 package de.neemann.digital.analyse.quinemc;
 
 
+import de.neemann.digital.analyse.expression.BitSlicedEvaluator;
 import de.neemann.digital.analyse.expression.ContextFiller;
 import de.neemann.digital.analyse.expression.Expression;
 import de.neemann.digital.analyse.expression.ExpressionException;
 
 /**
- * Creates a bool table from the given expression
+ * Creates a bool table from the given expression.
+ * The complete table is calculated by a {@link BitSlicedEvaluator} when the first value is requested.
+ * The table may be requested by several threads concurrently, so the calculation is synchronized.
  */
 public class BoolTableExpression implements BoolTable {
     private final Expression expression;
     private final ContextFiller context;
+    private volatile long[] table;
 
     /**
      * Creates a new instance
@@ -35,11 +39,24 @@ public class BoolTableExpression implements BoolTable {
 
     @Override
     public ThreeStateValue get(int i) {
-        context.setContextTo(i);
-        try {
-            return ThreeStateValue.value(expression.calculate(context));
-        } catch (ExpressionException e) {
-            throw new RuntimeException(e); // ToDo!!
+        return ThreeStateValue.value(BitSlicedEvaluator.get(getTable(), i));
+    }
+
+    private long[] getTable() {
+        long[] t = table;
+        if (t == null) {
+            synchronized (this) {
+                t = table;
+                if (t == null) {
+                    try {
+                        t = new BitSlicedEvaluator(expression, context.getVariables()).calculate();
+                    } catch (ExpressionException e) {
+                        throw new RuntimeException(e); // ToDo!!
+                    }
+                    table = t;
+                }
+            }
         }
+        return t;
     }
 }
@@ -14,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 import static de.neemann.digital.analyse.expression.Operation.or;
 
@@ -22,6 +23,7 @@ import static de.neemann.digital.analyse.expression.Operation.or;
  */
 public class QuineMcCluskey {
     private static final Logger LOGGER = LoggerFactory.getLogger(QuineMcCluskey.class);
+    private static final int PARALLEL_THRESHOLD = 4096;
 
     private final List<Variable> variables;
     private final ArrayList<TableRow> primes;
@@ -139,35 +141,89 @@ public class QuineMcCluskey {
     public void simplifyStep() {
         TableRows newRows = new TableRows();
 
-        for (TableRows.InnerList list : rows.listIterable())
-            for (int i = 0; i < list.size() - 1; i++)
-                for (int j = i + 1; j < list.size(); j++) {
+        for (TableRows.InnerList list : rows.listIterable()) {
+            TableRow[][] merged = mergeRows(list);
+            for (int i = 0; i < merged.length; i++)
+                if (merged[i] != null) {
                     TableRow r1 = list.get(i);
-                    TableRow r2 = list.get(j);
-
-                    int index = r1.checkCompatible(r2);
-                    if (index >= 0) {
-                        // can optimize;
-                        TableRow newRow = new TableRow(r1);
-                        newRow.setToOptimized(index);
-
-                        if (!newRows.contains(newRow)) {
-                            newRow.addSource(r1.getSource());
-                            newRow.addSource(r2.getSource());
+                    for (TableRow newRow : merged[i]) {
+                        if (!newRows.contains(newRow))
                             newRows.add(newRow);
-                        }
                         r1.setUsed();
-                        r2.setUsed();
                     }
                 }
+        }
 
         for (TableRow row : rows)
-            if (!row.isUsed() && row.getSource().size() > 0)
+            if (!row.isUsed() && row.getSourceSize() > 0)
                 primes.add(row);
 
         rows = newRows;
     }
 
+    /**
+     * Merges all rows of the given list which differ in a single bit.
+     * All rows in the list have the same optimized flags, so the partners of a row are found by
+     * flipping a single bit and searching for the resulting state.
+     * Large lists are processed in parallel on the common fork join pool.
+     * The merged rows of row i are created in ascending order of its partners, so
+     * the result is the same as comparing all pairs of rows.
+     *
+     * @param list the list of rows with equal optimized flags
+     * @return the merged rows, the array element i contains the rows created by merging row i with the following rows
+     */
+    private TableRow[][] mergeRows(TableRows.InnerList list) {
+        final int n = list.size();
+        final long[] states = new long[n];
+        for (int i = 0; i < n; i++)
+            states[i] = list.get(i).getState();
+        Arrays.sort(states);
+        // the states in a list are unique
+        final int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[Arrays.binarySearch(states, list.get(i).getState())] = i;
+
+        TableRow[][] merged = new TableRow[n][];
+        IntStream range = IntStream.range(0, n);
+        if (n >= PARALLEL_THRESHOLD)
+            range = range.parallel();
+        range.forEach(i -> merged[i] = mergeRow(list, i, states, order));
+        return merged;
+    }
+
+    private TableRow[] mergeRow(TableRows.InnerList list, int i, long[] states, int[] order) {
+        TableRow r1 = list.get(i);
+        long state = r1.getState();
+        long free = ~r1.getOptimizedFlags() & (r1.size() == 64 ? -1L : (1L << r1.size()) - 1);
+        int[] partners = null;
+        int count = 0;
+        while (free != 0) {
+            long bit = Long.lowestOneBit(free);
+            free &= ~bit;
+            int p = Arrays.binarySearch(states, state ^ bit);
+            if (p >= 0 && order[p] > i) {
+                if (partners == null)
+                    partners = new int[Long.bitCount(free) + 1];
+                partners[count++] = order[p];
+            }
+        }
+        if (partners == null)
+            return null;
+
+        Arrays.sort(partners, 0, count);
+        TableRow[] result = new TableRow[count];
+        for (int k = 0; k < count; k++) {
+            TableRow r2 = list.get(partners[k]);
+            TableRow newRow = new TableRow(r1);
+            newRow.setToOptimized(r1.checkCompatible(r2));
+            newRow.addSource(r1);
+            newRow.addSource(r2);
+            r2.setUsed();
+            result[k] = newRow;
+        }
+        return result;
+    }
+
     /**
      * @return true id simplification is complete
      */
@@ -251,48 +307,127 @@ public class QuineMcCluskey {
     }
 
     /**
-     * Simplify the primes
+     * Simplify the primes.
+     * At first all primes which are covered by an other prime and all columns which
+     * dominate an other column are removed. The remaining primes are handed to the prime selector.
+     * The columns are numbered densely and the primes and columns are stored as int arrays
+     * to make the dominance checks fast.
      *
      * @param primeSelector the prime selector to use
      */
     public void simplifyPrimes(PrimeSelector primeSelector) {
+        final int[] colValues = collectColumns(primes);
+        final int colCount = colValues.length;
 
-        TreeSet<Integer> columns = new TreeSet<>();
-        for (TableRow r : primes)
-            columns.addAll(r.getSource());
+        // the dense columns covered by each prime
+        ArrayList<int[]> primeCols = new ArrayList<>(primes.size());
+        for (TableRow r : primes) {
+            int[] c = new int[r.getSourceSize()];
+            for (int i = 0; i < c.length; i++)
+                c[i] = Arrays.binarySearch(colValues, r.getSourceItem(i));
+            primeCols.add(c);
+        }
 
         LOGGER.debug("initial primes " + primes.size());
 
+        final boolean[] colDeleted = new boolean[colCount];
+        final int[] hits = new int[Math.max(primes.size(), colCount)];
+        final int[] touched = new int[hits.length];
         // remove all primes which are easy to remove
         while (true) {
             // find rows to delete
-            HashSet<TableRow> rowsToDelete = new HashSet<>();
-            for (TableRow r1 : primes)
-                for (TableRow r2 : primes) {
-                    if ((r1 != r2) && !rowsToDelete.contains(r1) && r1.getSource().containsAll(r2.getSource()))
-                        rowsToDelete.add(r2);
+            int[][] colPrimes = createColPrimes(primeCols, colCount);
+            boolean[] rowDeleted = new boolean[primes.size()];
+            boolean rowsToDelete = false;
+            int[] empty = new int[primes.size()];
+            int emptyCount = 0;
+            for (int r = 0; r < primes.size(); r++)
+                if (primeCols.get(r).length == 0)
+                    empty[emptyCount++] = r;
+            for (int r1 = 0; r1 < primes.size(); r1++) {
+                if (rowDeleted[r1])
+                    continue;
+                // every row whose columns are all contained in r1 is covered by r1
+                int t = 0;
+                for (int c : primeCols.get(r1))
+                    for (int r2 : colPrimes[c])
+                        if (hits[r2]++ == 0)
+                            touched[t++] = r2;
+                for (int i = 0; i < t; i++) {
+                    int r2 = touched[i];
+                    if (r2 != r1 && hits[r2] == primeCols.get(r2).length) {
+                        rowDeleted[r2] = true;
+                        rowsToDelete = true;
+                    }
+                    hits[r2] = 0;
                 }
+                // a row without columns is covered by every other row
+                for (int i = 0; i < emptyCount; i++)
+                    if (empty[i] != r1) {
+                        rowDeleted[empty[i]] = true;
+                        rowsToDelete = true;
+                    }
+            }
 
-            primes.removeAll(rowsToDelete);
+            if (rowsToDelete) {
+                ArrayList<TableRow> newPrimes = new ArrayList<>(primes.size());
+                ArrayList<int[]> newPrimeCols = new ArrayList<>(primes.size());
+                for (int r = 0; r < primes.size(); r++)
+                    if (!rowDeleted[r]) {
+                        newPrimes.add(primes.get(r));
+                        newPrimeCols.add(primeCols.get(r));
+                    }
+                primes.clear();
+                primes.addAll(newPrimes);
+                primeCols = newPrimeCols;
+                colPrimes = createColPrimes(primeCols, colCount);
+            }
 
             // find the cols to delete
-            HashSet<Integer> colsToDelete = new HashSet<>();
-            for (int c1 : columns) {
-                for (int c2 : columns) {
-                    if ((c1 != c2) && !colsToDelete.contains(c1) && smaller(c1, c2, primes))
-                        colsToDelete.add(c2);
+            boolean colsToDelete = false;
+            for (int c1 = 0; c1 < colCount; c1++) {
+                if (colDeleted[c1])
+                    continue;
+                // c1 is smaller than every column which is contained in all primes containing c1
+                int[] p1 = colPrimes[c1];
+                if (p1.length == 0) {
+                    // not contained in any prime, smaller than every other column
+                    for (int c2 = 0; c2 < colCount; c2++)
+                        if (c2 != c1 && !colDeleted[c2]) {
+                            colDeleted[c2] = true;
+                            colsToDelete = true;
+                        }
+                    continue;
+                }
+                int t = 0;
+                for (int r : p1)
+                    for (int c : primeCols.get(r))
+                        if (hits[c]++ == 0)
+                            touched[t++] = c;
+                for (int i = 0; i < t; i++) {
+                    int c2 = touched[i];
+                    if (c2 != c1 && !colDeleted[c2] && hits[c2] == p1.length) {
+                        colDeleted[c2] = true;
+                        colsToDelete = true;
+                    }
+                    hits[c2] = 0;
                 }
             }
 
-            if (colsToDelete.isEmpty() && rowsToDelete.isEmpty())
+            if (!colsToDelete && !rowsToDelete)
                 break;
 
-            for (TableRow p : primes)
-                p.getSource().removeAll(colsToDelete);
-
-            columns.removeAll(colsToDelete);
+            for (int r = 0; r < primeCols.size(); r++)
+                primeCols.set(r, removeDeleted(primeCols.get(r), colDeleted));
         }
 
+        TreeSet<Integer> columns = new TreeSet<>();
+        for (int c = 0; c < colCount; c++)
+            if (!colDeleted[c])
+                columns.add(colValues[c]);
+        for (TableRow p : primes)
+            p.retainSource(i -> !colDeleted[Arrays.binarySearch(colValues, i)]);
+
         LOGGER.debug("residual primes " + primes.size());
 
         // try to reduce the number of primes needed
@@ -305,12 +440,50 @@ public class QuineMcCluskey {
         }
     }
 
-    private boolean smaller(int c1, int c2, ArrayList<TableRow> primes) {
-        for (TableRow r : primes) {
-            Collection<Integer> s = r.getSource();
-            if (s.contains(c1) && !s.contains(c2))
-                return false;
-        }
-        return true;
+    private static int[] collectColumns(ArrayList<TableRow> primes) {
+        int size = 0;
+        for (TableRow r : primes)
+            size += r.getSourceSize();
+        int[] cols = new int[size];
+        int n = 0;
+        for (TableRow r : primes)
+            for (int i = 0; i < r.getSourceSize(); i++)
+                cols[n++] = r.getSourceItem(i);
+        Arrays.sort(cols);
+        int u = 0;
+        for (int i = 0; i < n; i++)
+            if (u == 0 || cols[u - 1] != cols[i])
+                cols[u++] = cols[i];
+        return Arrays.copyOf(cols, u);
+    }
+
+    private static int[][] createColPrimes(ArrayList<int[]> primeCols, int colCount) {
+        int[] count = new int[colCount];
+        for (int[] cols : primeCols)
+            for (int c : cols)
+                count[c]++;
+        int[][] colPrimes = new int[colCount][];
+        for (int c = 0; c < colCount; c++)
+            colPrimes[c] = new int[count[c]];
+        Arrays.fill(count, 0);
+        for (int r = 0; r < primeCols.size(); r++)
+            for (int c : primeCols.get(r))
+                colPrimes[c][count[c]++] = r;
+        return colPrimes;
+    }
+
+    private static int[] removeDeleted(int[] cols, boolean[] colDeleted) {
+        int n = 0;
+        for (int c : cols)
+            if (!colDeleted[c])
+                n++;
+        if (n == cols.length)
+            return cols;
+        int[] r = new int[n];
+        n = 0;
+        for (int c : cols)
+            if (!colDeleted[c])
+                r[n++] = c;
+        return r;
     }
 }
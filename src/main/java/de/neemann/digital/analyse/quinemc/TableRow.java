@@ -10,20 +10,20 @@ import de.neemann.digital.analyse.expression.Constant;
 import de.neemann.digital.analyse.expression.Expression;
 import de.neemann.digital.analyse.expression.Variable;
 
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
-import java.util.TreeSet;
+import java.util.*;
+import java.util.function.IntPredicate;
 
 import static de.neemann.digital.analyse.expression.Not.not;
 import static de.neemann.digital.analyse.expression.Operation.and;
 
 /**
- * Represents a row in a QMC table
+ * Represents a row in a QMC table.
+ * The indices of the source rows are stored in a sorted int array to avoid boxing.
  */
 public final class TableRow implements Comparable<TableRow> {
+    private static final int[] EMPTY = new int[0];
 
-    private final TreeSet<Integer> source;
+    private int[] source;
     private boolean used = false;
     private long optimizedFlags;
     private long state;
@@ -47,7 +47,7 @@ public final class TableRow implements Comparable<TableRow> {
      */
     public TableRow(int cols) {
         this.cols = cols;
-        source = new TreeSet<>();
+        source = EMPTY;
     }
 
     /**
@@ -61,7 +61,7 @@ public final class TableRow implements Comparable<TableRow> {
     public TableRow(int cols, int bitValue, int index, boolean dontCare) {
         this(cols, bitValue);
         if (!dontCare)
-            source.add(index);
+            source = new int[]{index};
     }
 
     /**
@@ -87,6 +87,16 @@ public final class TableRow implements Comparable<TableRow> {
         optimizedFlags |= 1L << index;
     }
 
+    /**
+     * Returns the state of the row.
+     * All Variables which are one in this row are marked by a one bit at their position.
+     *
+     * @return the state
+     */
+    long getState() {
+        return state;
+    }
+
     /**
      * Returns the optimized flags.
      * All Variables which are deleted/optimized in this row are marked by a one bit at their position.
@@ -111,7 +121,7 @@ public final class TableRow implements Comparable<TableRow> {
                 sb.append('0');
         }
 
-        for (Integer i : source)
+        for (int i : source)
             sb.append(",").append(i);
         return sb.toString();
     }
@@ -164,10 +174,27 @@ public final class TableRow implements Comparable<TableRow> {
     }
 
     /**
-     * @return the source line numbers
+     * @return the source line numbers, the returned collection is not modifiable
      */
     public Collection<Integer> getSource() {
-        return source;
+        return new SourceView();
+    }
+
+    /**
+     * @return the number of source line numbers
+     */
+    int getSourceSize() {
+        return source.length;
+    }
+
+    /**
+     * Returns the i'th source line number, the numbers are sorted in ascending order
+     *
+     * @param i the index
+     * @return the source line number
+     */
+    int getSourceItem(int i) {
+        return source[i];
     }
 
     /**
@@ -176,7 +203,16 @@ public final class TableRow implements Comparable<TableRow> {
      * @param s the sources to add
      */
     public void addSource(Collection<Integer> s) {
-        source.addAll(s);
+        int[] a = new int[s.size()];
+        int n = 0;
+        for (int i : s)
+            a[n++] = i;
+        Arrays.sort(a);
+        int n2 = 0;
+        for (int i = 0; i < a.length; i++)
+            if (i == 0 || a[i] != a[i - 1])
+                a[n2++] = a[i];
+        source = union(source, Arrays.copyOf(a, n2));
     }
 
     /**
@@ -190,6 +226,55 @@ public final class TableRow implements Comparable<TableRow> {
         return this;
     }
 
+    /**
+     * Adds the sources of the given row to this row
+     *
+     * @param r the row which sources are to add
+     */
+    void addSource(TableRow r) {
+        source = union(source, r.source);
+    }
+
+    /**
+     * Removes all sources which are not accepted by the given filter
+     *
+     * @param filter the filter
+     */
+    void retainSource(IntPredicate filter) {
+        int n = 0;
+        int[] s = new int[source.length];
+        for (int i : source)
+            if (filter.test(i))
+                s[n++] = i;
+        source = n == s.length ? s : Arrays.copyOf(s, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0)
+            return b;
+        if (b.length == 0)
+            return a;
+        int[] r = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j])
+                r[n++] = a[i++];
+            else if (a[i] > b[j])
+                r[n++] = b[j++];
+            else {
+                r[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length)
+            r[n++] = a[i++];
+        while (j < b.length)
+            r[n++] = b[j++];
+        return n == r.length ? r : Arrays.copyOf(r, n);
+    }
+
     /**
      * Returns an expression build with the given variables
      *
@@ -235,4 +320,36 @@ public final class TableRow implements Comparable<TableRow> {
 
         return Long.numberOfTrailingZeros(v);
     }
+
+    private final class SourceView extends AbstractCollection<Integer> {
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && Arrays.binarySearch(source, (Integer) o) >= 0;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            final int[] s = source;
+            return new Iterator<Integer>() {
+                private int i;
+
+                @Override
+                public boolean hasNext() {
+                    return i < s.length;
+                }
+
+                @Override
+                public Integer next() {
+                    if (i >= s.length)
+                        throw new NoSuchElementException();
+                    return s[i++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return source.length;
+        }
+    }
 }
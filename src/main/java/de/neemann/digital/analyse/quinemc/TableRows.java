@@ -6,6 +6,7 @@
 package de.neemann.digital.analyse.quinemc;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
@@ -156,12 +157,12 @@ public final class TableRows implements Iterable<TableRow> {
      * A list of rows with the same optimized mask
      */
     public static final class InnerList implements Iterable<TableRow> {
-        private ArrayList<TableRow> innerList;
-//        private HashSet<TableRow> innerSet;
+        private final ArrayList<TableRow> innerList;
+        private final HashSet<TableRow> innerSet;
 
         private InnerList() {
             innerList = new ArrayList<>();
-//            innerSet=new HashSet<>();
+            innerSet = new HashSet<>();
         }
 
         /**
@@ -169,8 +170,7 @@ public final class TableRows implements Iterable<TableRow> {
          * @return true if this list contains the given row
          */
         public boolean contains(TableRow r) {
-            return innerList.contains(r);
-//            return innerSet.contains(r);
+            return innerSet.contains(r);
         }
 
         /**
@@ -190,7 +190,7 @@ public final class TableRows implements Iterable<TableRow> {
          */
         public void add(TableRow tableRow) {
             innerList.add(tableRow);
-//            innerSet.add(tableRow);
+            innerSet.add(tableRow);
         }
 
         /**
@@ -9,31 +9,57 @@ package de.neemann.digital.analyse.quinemc.primeselector;
 import de.neemann.digital.analyse.quinemc.TableRow;
 
 import java.util.ArrayList;
+import java.util.PriorityQueue;
 import java.util.TreeSet;
 
 /**
- * Tries at first the primes containing the most indices
+ * Tries at first the primes containing the most indices.
+ * The number of open indices covered by a prime can only decrease, so a count calculated
+ * earlier is an upper bound. Thus only the prime on top of the queue needs to be recounted.
  */
 public class LargestFirst implements PrimeSelector {
     @Override
     public void select(ArrayList<TableRow> primes, ArrayList<TableRow> primesAvail, TreeSet<Integer> termIndices) {
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        for (int i = 0; i < primesAvail.size(); i++)
+            queue.add(new Candidate(primesAvail.get(i), i, termIndices));
+
         while (!termIndices.isEmpty()) {
-            TableRow bestRow = null;
-            int maxCount = 0;
-            for (TableRow tr : primesAvail) {
-                int count = 0;
-                for (int i : tr.getSource()) {
-                    if (termIndices.contains(i))
-                        count++;
-                }
-                if (count > maxCount) {
-                    maxCount = count;
-                    bestRow = tr;
-                }
-            }
-            primes.add(bestRow);
-            primesAvail.remove(bestRow);
-            termIndices.removeAll(bestRow.getSource());
+            Candidate c = queue.poll();
+            c.count(termIndices);
+            Candidate next = queue.peek();
+            if (next == null || c.compareTo(next) <= 0) {
+                primes.add(c.row);
+                primesAvail.remove(c.row);
+                termIndices.removeAll(c.row.getSource());
+            } else
+                queue.add(c);
+        }
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+        private final TableRow row;
+        private final int index;
+        private int count;
+
+        private Candidate(TableRow row, int index, TreeSet<Integer> termIndices) {
+            this.row = row;
+            this.index = index;
+            count(termIndices);
+        }
+
+        private void count(TreeSet<Integer> termIndices) {
+            count = 0;
+            for (int i : row.getSource())
+                if (termIndices.contains(i))
+                    count++;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            if (count != o.count)
+                return Integer.compare(o.count, count);
+            return Integer.compare(index, o.index);
         }
     }
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.core;
+
+import de.neemann.digital.core.switching.Switch;
+import de.neemann.digital.core.wiring.Delay;
+import de.neemann.digital.core.wiring.bus.BusModelStateObserver;
+import de.neemann.digital.core.wiring.bus.CommonBusValue;
+import de.neemann.digital.draw.elements.PinException;
+import de.neemann.digital.lang.Lang;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * A levelized simulation engine.
+ * All combinatorial nodes of the model are sorted topologically once. During a step the nodes which
+ * have a state (flip-flops, registers, memories and so on) are calculated like in a micro step of the
+ * event driven loop: All inputs are read, after that all outputs are written.
+ * All combinatorial nodes which need an update are then calculated in the order of their level.
+ * Since every combinatorial node is calculated after all its predecessors, every node is calculated only once.
+ * <p>
+ * The engine ignores the propagation delays of the gates. So glitches are not visible.
+ * That is why the engine is only used if {@link Model#doStep(boolean)} is called without noise.
+ * If the model contains combinatorial cycles, busses, switches or explicit delays
+ * the engine can not be created and the model uses the event driven loop.
+ */
+final class LevelizedEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LevelizedEngine.class);
+
+    private final Model model;
+    private final ArrayList<Node>[] buckets;
+    private ArrayList<Node> stateNodes;
+    private ArrayList<Node> stateNodesNext;
+    private int minLevel;
+    private int maxLevel;
+    private boolean running;
+
+    /**
+     * Creates the levelized engine for the given model.
+     *
+     * @param model the model
+     * @return the engine or null if the model can not be levelized
+     */
+    static LevelizedEngine create(Model model) {
+        if (model.getObserver(BusModelStateObserver.class) != null) {
+            LOGGER.debug("model contains busses, levelized engine disabled");
+            return null;
+        }
+
+        HashMap<Node, ArrayList<Node>> successors = new HashMap<>();
+        HashMap<Node, Integer> inDegree = new HashMap<>();
+        try {
+            for (Node n : model) {
+                if (n instanceof Delay)
+                    return null;
+                if (!n.hasState())
+                    inDegree.put(n, 0);
+            }
+
+            for (Node n : model) {
+                HashSet<Node> consumers = new HashSet<>();
+                if (!collectConsumers(n.getOutputs(), consumers, new HashSet<>()))
+                    return null;
+                ArrayList<Node> comb = new ArrayList<>();
+                for (Node c : consumers)
+                    if (inDegree.containsKey(c)) {
+                        comb.add(c);
+                        if (!n.hasState())
+                            inDegree.put(c, inDegree.get(c) + 1);
+                    }
+                successors.put(n, comb);
+            }
+        } catch (PinException e) {
+            LOGGER.debug("could not levelize model", e);
+            return null;
+        }
+
+        // Kahn's algorithm, the stateful nodes are the sources
+        ArrayList<Node> queue = new ArrayList<>();
+        for (Node n : model)
+            if (n.hasState())
+                n.setLevel(-1);
+            else {
+                n.setLevel(0);
+                if (inDegree.get(n) == 0)
+                    queue.add(n);
+            }
+
+        int maxLevel = 0;
+        int pos = 0;
+        while (pos < queue.size()) {
+            Node n = queue.get(pos++);
+            for (Node s : successors.get(n)) {
+                s.setLevel(Math.max(s.getLevel(), n.getLevel() + 1));
+                maxLevel = Math.max(maxLevel, s.getLevel());
+                int d = inDegree.get(s) - 1;
+                inDegree.put(s, d);
+                if (d == 0)
+                    queue.add(s);
+            }
+        }
+
+        if (pos < inDegree.size()) {
+            LOGGER.debug("model contains combinatorial cycles, levelized engine disabled");
+            for (Node n : model)
+                n.setLevel(-1);
+            return null;
+        }
+
+        LOGGER.debug("levelized model with " + (maxLevel + 1) + " levels");
+        return new LevelizedEngine(model, maxLevel + 1);
+    }
+
+    /**
+     * Collects all nodes which are notified if one of the given values changes.
+     * Observers without a delay are followed transitively.
+     *
+     * @return false if there is an observer the engine is not able to handle
+     */
+    private static boolean collectConsumers(ObservableValues values, HashSet<Node> consumers, HashSet<Observer> visited) throws PinException {
+        for (ObservableValue v : values)
+            for (Observer o : v.getObservers()) {
+                if (!visited.add(o))
+                    continue;
+                if (o instanceof Node)
+                    consumers.add((Node) o);
+                else if (o instanceof Switch || o instanceof CommonBusValue)
+                    return false;
+                else if (o instanceof NodeInterface) {
+                    if (!collectConsumers(((NodeInterface) o).getOutputs(), consumers, visited))
+                        return false;
+                }
+            }
+        return true;
+    }
+
+    private LevelizedEngine(Model model, int levels) {
+        this.model = model;
+        buckets = new ArrayList[levels];
+        for (int i = 0; i < levels; i++)
+            buckets[i] = new ArrayList<>();
+        stateNodes = new ArrayList<>();
+        stateNodesNext = new ArrayList<>();
+        minLevel = levels;
+        maxLevel = -1;
+    }
+
+    /**
+     * Adds a node to the update list.
+     *
+     * @param node the node to update
+     * @return false if the node is not handled by the engine
+     */
+    boolean addToUpdateList(Node node) {
+        if (!running)
+            return false;
+
+        int level = node.getLevel();
+        if (level < 0)
+            stateNodesNext.add(node);
+        else {
+            buckets[level].add(node);
+            if (level < minLevel) minLevel = level;
+            if (level > maxLevel) maxLevel = level;
+        }
+        return true;
+    }
+
+    /**
+     * Performs a step.
+     *
+     * @param nodesToUpdate the nodes collected by the model which need an update
+     * @param maxRounds     the maximum number of rounds before an oscillation is detected
+     * @throws NodeException NodeException
+     */
+    void doStep(ArrayList<Node> nodesToUpdate, int maxRounds) throws NodeException {
+        for (Node n : nodesToUpdate) {
+            int level = n.getLevel();
+            if (level < 0)
+                stateNodesNext.add(n);
+            else {
+                buckets[level].add(n);
+                if (level < minLevel) minLevel = level;
+                if (level > maxLevel) maxLevel = level;
+            }
+        }
+        nodesToUpdate.clear();
+
+        running = true;
+        try {
+            int rounds = 0;
+            while (!stateNodesNext.isEmpty() || maxLevel >= 0) {
+                if (rounds++ > maxRounds) {
+                    HashSet<Node> oscillating = new HashSet<>(stateNodesNext);
+                    clear();
+                    throw new NodeException(Lang.get("err_seemsToOscillate")).addNodes(oscillating);
+                }
+
+                ArrayList<Node> sn = stateNodesNext;
+                stateNodesNext = stateNodes;
+                stateNodes = sn;
+
+                model.incStepCounter();
+                for (Node n : stateNodes)
+                    n.readInputs();
+                for (Node n : stateNodes)
+                    n.writeOutputs();
+                stateNodes.clear();
+
+                model.incStepCounter();
+                while (minLevel <= maxLevel) {
+                    // the successors of a node always have a higher level, so the bucket does not grow
+                    ArrayList<Node> bucket = buckets[minLevel++];
+                    for (int i = 0; i < bucket.size(); i++) {
+                        Node n = bucket.get(i);
+                        n.readInputs();
+                        n.writeOutputs();
+                    }
+                    bucket.clear();
+                }
+                minLevel = buckets.length;
+                maxLevel = -1;
+            }
+        } finally {
+            running = false;
+            // nodes which become dirty after the step has completed need to be registered again
+            model.incStepCounter();
+        }
+    }
+
+    private void clear() {
+        stateNodesNext.clear();
+        for (ArrayList<Node> b : buckets)
+            b.clear();
+        minLevel = buckets.length;
+        maxLevel = -1;
+    }
+}
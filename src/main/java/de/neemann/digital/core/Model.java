@@ -10,6 +10,7 @@ import de.neemann.digital.core.wiring.AsyncSeq;
 import de.neemann.digital.core.wiring.Break;
 import de.neemann.digital.core.wiring.Clock;
 import de.neemann.digital.core.wiring.Reset;
+import de.neemann.digital.draw.elements.PinException;
 import de.neemann.digital.gui.components.WindowPosManager;
 import de.neemann.digital.lang.Lang;
 import org.slf4j.Logger;
@@ -75,6 +76,8 @@ public class Model implements Iterable<Node>, SyncAccess {
     private boolean isInvalidSignal = false;
     private AsyncSeq asyncInfos;
     private boolean asyncMode = false;
+    private LevelizedEngine levelizedEngine;
+    private SignalStore signalStore;
 
     private final ArrayList<ModelStateObserver> observers;
     private ArrayList<ModelStateObserver> observersStep;
@@ -108,6 +111,31 @@ public class Model implements Iterable<Node>, SyncAccess {
         return this;
     }
 
+    /**
+     * Enables the levelized simulation engine.
+     * The combinatorial part of the model is sorted topologically and every full step is calculated
+     * without any gate delays. Steps with noise and micro steps always use the event driven loop.
+     * If the model contains combinatorial cycles, busses, switches or delays, the levelized engine
+     * can not be used and the model stays in the event driven mode.
+     * Needs to be called after all nodes are added and before {@link #init()} is called.
+     *
+     * @return true if the levelized engine is used
+     */
+    public boolean enableLevelizedEngine() {
+        if (state != State.BUILDING)
+            throw new RuntimeException(Lang.get("err_isAlreadyInitialized"));
+
+        levelizedEngine = LevelizedEngine.create(this);
+        return levelizedEngine != null;
+    }
+
+    /**
+     * @return true if the levelized engine is used
+     */
+    public boolean isLevelized() {
+        return levelizedEngine != null;
+    }
+
     /**
      * Sets the window position manager.
      * Allows the model to place new and close old gui windows.
@@ -174,6 +202,7 @@ public class Model implements Iterable<Node>, SyncAccess {
      * @throws NodeException NodeException
      */
     public void init(boolean noise) throws NodeException {
+        signalStore = new SignalStore(collectValues());
         nodesToUpdateNext.addAll(nodes);
         state = State.INITIALIZING;
         doStep(noise);
@@ -188,6 +217,38 @@ public class Model implements Iterable<Node>, SyncAccess {
         fireEvent(ModelEvent.STARTED);
     }
 
+    private Collection<ObservableValue> collectValues() throws NodeException {
+        LinkedHashSet<ObservableValue> values = new LinkedHashSet<>();
+        for (Node n : nodes)
+            try {
+                collectValues(n.getOutputs(), values);
+            } catch (PinException e) {
+                throw new NodeException(e.getMessage(), n, -1, ObservableValues.EMPTY_LIST, e);
+            }
+        for (Signal s : signals)
+            if (s.getValue() != null)
+                values.add(s.getValue());
+        return values;
+    }
+
+    private void collectValues(ObservableValues outputs, LinkedHashSet<ObservableValue> values) throws PinException {
+        for (ObservableValue v : outputs)
+            if (values.add(v))
+                for (Observer o : v.getObservers())
+                    if (o instanceof NodeInterface && !(o instanceof Node))
+                        collectValues(((NodeInterface) o).getOutputs(), values);
+    }
+
+    /**
+     * Returns the store which holds all the values of this model.
+     * The store is created if the model is initialized.
+     *
+     * @return the signal store or null if the model is not yet initialized
+     */
+    public SignalStore getSignalStore() {
+        return signalStore;
+    }
+
     /**
      * Closes the model.
      * A STOPPED event is fired.
@@ -218,7 +279,16 @@ public class Model implements Iterable<Node>, SyncAccess {
      * @param node the node
      */
     final void addToUpdateList(Node node) {
-        nodesToUpdateNext.add(node);
+        if (levelizedEngine == null || !levelizedEngine.addToUpdateList(node))
+            nodesToUpdateNext.add(node);
+    }
+
+    /**
+     * Increments the step counter.
+     * Used by the {@link LevelizedEngine} to separate its phases.
+     */
+    final void incStepCounter() {
+        version++;
     }
 
     /**
@@ -240,7 +310,11 @@ public class Model implements Iterable<Node>, SyncAccess {
      * @throws NodeException NodeException
      */
     public void doStep(boolean noise) throws NodeException {
-        if (needsUpdate()) {
+        if (levelizedEngine != null && !noise && state != State.INITIALIZING) {
+            if (needsUpdate())
+                levelizedEngine.doStep(nodesToUpdateNext, MAX_LOOP_COUNTER);
+            fireEvent(ModelEvent.STEP);
+        } else if (needsUpdate()) {
             int counter = 0;
             while (needsUpdate()) {
                 if (counter++ > MAX_LOOP_COUNTER) {
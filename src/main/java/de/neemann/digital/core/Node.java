@@ -24,6 +24,8 @@ public abstract class Node implements NodeInterface {
     private final boolean hasState;
     private Model model;
     private int version;
+    // the level used by the levelized engine, -1 if the node is not levelized
+    private int level = -1;
     // used to store the origin of this node
     // only used to create better error messages
     private File origin;
@@ -117,6 +119,23 @@ public abstract class Node implements NodeInterface {
         this.origin = origin;
     }
 
+    /**
+     * Sets the level of this node.
+     * Used by the {@link LevelizedEngine}.
+     *
+     * @param level the level
+     */
+    void setLevel(int level) {
+        this.level = level;
+    }
+
+    /**
+     * @return the level of this node, -1 if the node is not levelized
+     */
+    int getLevel() {
+        return level;
+    }
+
     /**
      * @return the model this node belongs to
      */
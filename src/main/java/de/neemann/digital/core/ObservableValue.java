@@ -20,10 +20,13 @@ public class ObservableValue extends Observable implements PinDescription {
     private final long mask;
     private final long signedFlag;
     private final int bits;
-    // the value, high z bits are always set to zero
+    // the value, high z bits are always set to zero, only used if not bound to a store
     private long value;
-    // the high z state of each bit
+    // the high z state of each bit, only used if not bound to a store
     private long highZ;
+    // the store this value lives in after the model is initialized, null before
+    private SignalStore store;
+    private int storeIndex;
     private boolean bidirectional;
     private boolean isConstant = false;
     private String description;
@@ -87,18 +90,79 @@ public class ObservableValue extends Observable implements PinDescription {
     public ObservableValue set(long value, long highZ) {
         value = getValueBits(value);
         highZ = getValueBits(highZ);
-        if (highZ != this.highZ || ((~highZ & (value ^ this.value))) != 0) {
+        if (highZ != getHighZ() || ((~highZ & (value ^ getValue()))) != 0) {
 
             if (isConstant)
                 throw new RuntimeException("tried to modify a constant value!");
 
-            this.highZ = highZ;
-            this.value = value & (~highZ);  // high Z bits are set to zero
+            value = value & (~highZ);  // high Z bits are set to zero
+            if (store == null) {
+                this.value = value;
+                this.highZ = highZ;
+            } else
+                store.set(storeIndex, value, highZ);
             fireHasChanged();
         }
         return this;
     }
 
+    /**
+     * Moves this value to the given store.
+     * After that the value is only stored in the given store, the fields of this value are not used anymore.
+     *
+     * @param store the store
+     * @param index the index of this value in the store
+     */
+    void bind(SignalStore store, int index) {
+        long v = getValue();
+        long z = getHighZ();
+        this.store = store;
+        this.storeIndex = index;
+        store.set(index, v, z);
+    }
+
+    /**
+     * Returns the index of this value in the given store.
+     *
+     * @param store the store
+     * @return the index or -1 if this value is not stored in the given store
+     */
+    int getStoreIndex(SignalStore store) {
+        if (this.store == store)
+            return storeIndex;
+        return -1;
+    }
+
+    @Override
+    public void fireHasChanged() {
+        if (store == null)
+            super.fireHasChanged();
+        else
+            store.fireHasChanged(storeIndex);
+    }
+
+    @Override
+    public Observer addObserver(Observer observer) {
+        Observer o = super.addObserver(observer);
+        if (store != null)
+            store.observersModified();
+        return o;
+    }
+
+    @Override
+    public void removeObserver(Observer observer) {
+        super.removeObserver(observer);
+        if (store != null)
+            store.observersModified();
+    }
+
+    @Override
+    public void removeObserver(Class<? extends Observer> observerClass) {
+        super.removeObserver(observerClass);
+        if (store != null)
+            store.observersModified();
+    }
+
     /**
      * Adds an observer to this value.
      *
@@ -123,7 +187,9 @@ public class ObservableValue extends Observable implements PinDescription {
      * @return the value
      */
     public long getValue() {
-        return value;
+        if (store == null)
+            return value;
+        return store.getValue(storeIndex);
     }
 
     /**
@@ -132,7 +198,9 @@ public class ObservableValue extends Observable implements PinDescription {
      * @return the high z bit mask
      */
     public long getHighZ() {
-        return highZ;
+        if (store == null)
+            return highZ;
+        return store.getHighZ(storeIndex);
     }
 
     /**
@@ -141,6 +209,8 @@ public class ObservableValue extends Observable implements PinDescription {
      * @return the value as string
      */
     public String getValueString() {
+        final long highZ = getHighZ();
+        final long value = getValue();
         if (highZ != 0)
             if (highZ == mask)
                 return "Z";
@@ -246,7 +316,7 @@ public class ObservableValue extends Observable implements PinDescription {
      * @return true if one of the bits is in high z state
      */
     public boolean isHighZ() {
-        return highZ != 0;
+        return getHighZ() != 0;
     }
 
     @Override
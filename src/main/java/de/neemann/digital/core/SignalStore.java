@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Model wide store of all signal values.
+ * The values and the high z states of all {@link ObservableValue}s of a model are stored in
+ * primitive arrays. The observers of all values are stored in a single array. The observers of the
+ * value with index i are found at the indices observerStart[i] to observerStart[i+1]-1.
+ * The store is created if the model is initialized. After that the {@link ObservableValue}s are
+ * only handles into this store. Values which are not part of a model keep their state in their own fields.
+ * <p>
+ * The observer lists of the {@link ObservableValue}s stay the owner of the observers. If one of these
+ * lists is modified after the model is initialized, the observer index is rebuilt before the next event is fired.
+ * <p>
+ * Because all values are stored in two arrays, a snapshot of the whole model can be created by
+ * simply copying this arrays.
+ */
+public final class SignalStore {
+    private final ObservableValue[] signals;
+    private final long[] values;
+    private final long[] highZ;
+    private Observer[] observers;
+    private int[] observerStart;
+    private boolean observersModified;
+
+    /**
+     * Creates a new store and binds the given values to it.
+     *
+     * @param signals the values to store
+     */
+    SignalStore(Collection<ObservableValue> signals) {
+        this.signals = signals.toArray(new ObservableValue[0]);
+        values = new long[this.signals.length];
+        highZ = new long[this.signals.length];
+        for (int i = 0; i < this.signals.length; i++)
+            this.signals[i].bind(this, i);
+        createObserverIndex();
+    }
+
+    private void createObserverIndex() {
+        int count = 0;
+        for (ObservableValue v : signals)
+            count += v.observerCount();
+
+        observers = new Observer[count];
+        observerStart = new int[signals.length + 1];
+        int pos = 0;
+        for (int i = 0; i < signals.length; i++) {
+            observerStart[i] = pos;
+            for (Observer o : signals[i].getObservers())
+                observers[pos++] = o;
+        }
+        observerStart[signals.length] = pos;
+        observersModified = false;
+    }
+
+    /**
+     * @return the number of values in this store
+     */
+    public int size() {
+        return signals.length;
+    }
+
+    long getValue(int index) {
+        return values[index];
+    }
+
+    long getHighZ(int index) {
+        return highZ[index];
+    }
+
+    void set(int index, long value, long highZ) {
+        this.values[index] = value;
+        this.highZ[index] = highZ;
+    }
+
+    /**
+     * Called if the observers of one of the stored values are modified.
+     */
+    void observersModified() {
+        observersModified = true;
+    }
+
+    /**
+     * Notifies all observers of the value with the given index.
+     *
+     * @param index the index of the value
+     */
+    void fireHasChanged(int index) {
+        if (observersModified)
+            createObserverIndex();
+
+        final Observer[] o = observers;
+        final int end = observerStart[index + 1];
+        for (int i = observerStart[index]; i < end; i++)
+            o[i].hasChanged();
+    }
+
+    /**
+     * Creates a snapshot of all values in this store.
+     *
+     * @return the snapshot
+     */
+    public Snapshot createSnapshot() {
+        Snapshot s = new Snapshot(this);
+        s.update();
+        return s;
+    }
+
+    /**
+     * @return all the values in this store
+     */
+    public ArrayList<ObservableValue> getSignals() {
+        ArrayList<ObservableValue> list = new ArrayList<>(signals.length);
+        for (ObservableValue v : signals)
+            list.add(v);
+        return list;
+    }
+
+    /**
+     * A snapshot of all values stored in a {@link SignalStore}.
+     */
+    public static final class Snapshot {
+        private final SignalStore store;
+        private final long[] values;
+        private final long[] highZ;
+
+        private Snapshot(SignalStore store) {
+            this.store = store;
+            values = new long[store.values.length];
+            highZ = new long[store.highZ.length];
+        }
+
+        /**
+         * Copies the actual state of the store to this snapshot.
+         * The model must not be modified while this method runs.
+         */
+        public void update() {
+            System.arraycopy(store.values, 0, values, 0, values.length);
+            System.arraycopy(store.highZ, 0, highZ, 0, highZ.length);
+        }
+
+        /**
+         * Returns the value of the given signal at the time the snapshot was taken.
+         * If the signal is not part of the store, the actual value is returned.
+         *
+         * @param value the value
+         * @return the value
+         */
+        public long getValue(ObservableValue value) {
+            int i = value.getStoreIndex(store);
+            if (i < 0)
+                return value.getValue();
+            return values[i];
+        }
+
+        /**
+         * Returns the high z state of the given signal at the time the snapshot was taken.
+         * If the signal is not part of the store, the actual high z state is returned.
+         *
+         * @param value the value
+         * @return the high z state
+         */
+        public long getHighZ(ObservableValue value) {
+            int i = value.getStoreIndex(store);
+            if (i < 0)
+                return value.getHighZ();
+            return highZ[i];
+        }
+    }
+}
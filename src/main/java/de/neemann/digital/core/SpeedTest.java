@@ -68,6 +68,7 @@ public class SpeedTest {
         System.out.println("cycles: " + cycles);
         System.out.println("time  : " + time + "s");
         System.out.println("freq  :" + frequency);
+        System.out.println("engine: " + (model.isLevelized() ? "levelized" : "event driven"));
 
         return frequency;
     }
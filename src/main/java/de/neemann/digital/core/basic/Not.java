@@ -69,4 +69,11 @@ public class Not extends Node implements Element {
     public ObservableValue getOutput() {
         return output;
     }
+
+    /**
+     * @return the input
+     */
+    public ObservableValue getInput() {
+        return input;
+    }
 }
@@ -9,6 +9,7 @@ import de.neemann.digital.hdl.hgs.HGSMap;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -112,6 +113,32 @@ public class ElementAttributes implements HGSMap {
         return this;
     }
 
+    /**
+     * Sets a value without comparing it to the default value and without notifying the listeners.
+     * Used to restore the attributes read from a file.
+     *
+     * @param key   the name of the key
+     * @param value the value
+     * @return this to chain calls
+     */
+    public ElementAttributes setStored(String key, Object value) {
+        if (attributes == null)
+            attributes = new HashMap<>();
+        attributes.put(key, value);
+        return this;
+    }
+
+    /**
+     * Returns all stored values, including the values which are equal to the default value.
+     *
+     * @return the stored values, the map is not modifiable
+     */
+    public Map<String, Object> getStored() {
+        if (attributes == null)
+            return Collections.emptyMap();
+        return Collections.unmodifiableMap(attributes);
+    }
+
     private void fireValueChanged() {
         if (listeners != null)
             for (AttributeListener l : listeners)
@@ -228,7 +228,7 @@ public final class Keys {
      * number of address bits of memory
      */
     public static final Key<Integer> ADDR_BITS
-            = new Key.KeyBits("AddrBits", 2).setMax(24); // needs to have the same default value as INPUT_COUNT!!!  see de.neemann.digital.gui.components.EditorFactory#DataFieldEditor
+            = new Key.KeyBits("AddrBits", 2).setMax(30); // needs to have the same default value as INPUT_COUNT!!!  see de.neemann.digital.gui.components.EditorFactory#DataFieldEditor
 
     /**
      * indicates a diode as blown fuse or as programmed
@@ -312,6 +312,12 @@ public final class Keys {
     public static final Key<Boolean> AUTO_RELOAD_ROM
             = new Key<>("autoReload", false).setSecondary();
 
+    /**
+     * Byte order used if a memory image containing bytes is loaded
+     */
+    public static final Key<Boolean> BIG_ENDIAN
+            = new Key<>("bigEndian", false).setSecondary();
+
     /**
      * flag to show the data table window
      */
@@ -330,6 +336,12 @@ public final class Keys {
     public static final Key<Boolean> SHOW_DATA_GRAPH_MICRO
             = new Key<>("showDataGraphMicro", false).setSecondary();
 
+    /**
+     * flag to enable the levelized simulation engine
+     */
+    public static final Key<Boolean> LEVELIZED_SIMULATION
+            = new Key<>("levelizedSimulation", false).setSecondary();
+
     /**
      * flag to enable the single gate mode in the embedded data view
      */
@@ -591,6 +603,12 @@ public final class Keys {
      */
     public static final Key<String> EXTERNAL_OUTPUTS
             = new Key<>("externalOutputs", "out");
+    /**
+     * The clock input of the external process.
+     * If set, the process is only contacted at a rising edge of this input.
+     */
+    public static final Key<String> EXTERNAL_CLOCK
+            = new Key<>("externalClock", "");
     /**
      * The code to be executed by the external process
      */
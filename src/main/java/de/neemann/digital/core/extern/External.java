@@ -13,9 +13,17 @@ import de.neemann.gui.ErrorMessage;
 
 import javax.swing.*;
 import java.io.IOException;
+import java.util.ArrayList;
 
 /**
- * The external component
+ * The external component.
+ * If a clock input is given, the process is assumed to be sensitive only to the rising edge
+ * of this input. In this case the process is not contacted at every input change. Instead the
+ * last input values seen before the clock edge are sent together with the values at the clock edge
+ * in a single message, and the replies are consumed in order.
+ * So a batch contains at most two sets of values, and there is a single round trip per clock edge.
+ * Larger batches are not possible: The inputs after a clock edge usually depend on the outputs the
+ * process returns for this edge, so they are not known before the reply is read.
  */
 public class External extends Node implements Element {
 
@@ -38,6 +46,7 @@ public class External extends Node implements Element {
             .addAttribute(Keys.WIDTH)
             .addAttribute(Keys.EXTERNAL_INPUTS)
             .addAttribute(Keys.EXTERNAL_OUTPUTS)
+            .addAttribute(Keys.EXTERNAL_CLOCK)
             .addAttribute(Keys.EXTERNAL_CODE)
             .addAttribute(Keys.APPLICATION_TYPE);
 
@@ -47,8 +56,17 @@ public class External extends Node implements Element {
     private final ObservableValues outputs;
     private final String code;
     private final String label;
+    private final String clockName;
+    private final ArrayList<ObservableValues> batch;
     private ObservableValues inputs;
     private ProcessInterface processInterface;
+    private int clockIndex = -1;
+    private ObservableValues pending;
+    private ObservableValues skipped;
+    private boolean pendingModified;
+    private boolean lastClock;
+    private boolean sent;
+    private boolean first = true;
 
     /**
      * Creates a new instance
@@ -63,6 +81,8 @@ public class External extends Node implements Element {
         label = attr.getCleanLabel();
         type = attr.get(Keys.APPLICATION_TYPE);
         code = attr.get(Keys.EXTERNAL_CODE);
+        clockName = attr.get(Keys.EXTERNAL_CLOCK).trim();
+        batch = new ArrayList<>();
     }
 
     @Override
@@ -70,13 +90,47 @@ public class External extends Node implements Element {
         this.inputs = inputs;
         for (int i = 0; i < inputs.size(); i++)
             inputs.get(i).checkBits(ins.getPort(i).getBits(), this, i).addObserverToValue(this);
+
+        if (!clockName.isEmpty()) {
+            for (int i = 0; i < ins.size(); i++)
+                if (ins.getPort(i).getName().equals(clockName))
+                    clockIndex = i;
+            if (clockIndex < 0)
+                throw new NodeException(Lang.get("err_externalClock_N_notFound", clockName), this, -1, null);
+            pending = ins.createOutputs();
+            skipped = outs.createOutputs();
+        }
     }
 
 
     @Override
     public void readInputs() throws NodeException {
         try {
-            processInterface.writeValues(inputs);
+            if (clockIndex < 0) {
+                processInterface.writeValues(inputs);
+                return;
+            }
+
+            boolean clock = inputs.get(clockIndex).getBool();
+            boolean risingEdge = clock && !lastClock;
+            lastClock = clock;
+            if (risingEdge || first) {
+                first = false;
+                batch.clear();
+                if (pendingModified)
+                    batch.add(pending);
+                batch.add(inputs);
+                processInterface.writeBatch(batch);
+                pendingModified = false;
+                sent = true;
+            } else {
+                for (int i = 0; i < inputs.size(); i++) {
+                    ObservableValue in = inputs.get(i);
+                    pending.get(i).set(in.getValue(), in.getHighZ());
+                }
+                pendingModified = true;
+                sent = false;
+            }
         } catch (IOException e) {
             throw new NodeException(Lang.get("err_errorWritingDataToProcess"), this, -1, inputs, e);
         }
@@ -85,7 +139,14 @@ public class External extends Node implements Element {
     @Override
     public void writeOutputs() throws NodeException {
         try {
-            processInterface.readValues(outputs);
+            if (clockIndex < 0)
+                processInterface.readValues(outputs);
+            else if (sent) {
+                for (int i = 1; i < batch.size(); i++)
+                    processInterface.readValues(skipped);
+                processInterface.readValues(outputs);
+                sent = false;
+            }
         } catch (IOException e) {
             throw new NodeException(Lang.get("err_errorReadingDataToProcess"), this, -1, outputs, e);
         }
@@ -103,11 +164,20 @@ public class External extends Node implements Element {
             if (app == null)
                 throw new NodeException(Lang.get("err_errorCreatingProcess"), this, -1, null);
 
-            processInterface = app.start(label, code, ins, outs);
+            attach(model, app.start(label, code, ins, outs));
         } catch (IOException e) {
             throw new NodeException(Lang.get("err_errorCreatingProcess"), this, -1, null, e);
         }
+    }
 
+    /**
+     * Connects this node to the given process
+     *
+     * @param model            the model
+     * @param processInterface the process
+     */
+    void attach(Model model, ProcessInterface processInterface) {
+        this.processInterface = processInterface;
         model.addObserver(event -> {
             if (event.equals(ModelEvent.STOPPED)) {
                 try {
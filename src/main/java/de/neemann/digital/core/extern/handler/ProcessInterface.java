@@ -9,6 +9,7 @@ import de.neemann.digital.core.ObservableValues;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * A process interface.
@@ -25,6 +26,19 @@ public interface ProcessInterface extends Closeable {
      */
     void writeValues(ObservableValues values) throws IOException;
 
+    /**
+     * Transfers several sets of values to the external process in a single message.
+     * The process sends a reply for every set. The replies are read in order by calling
+     * {@link #readValues(ObservableValues)} once for every set.
+     *
+     * @param batch the sets of values to transfer
+     * @throws IOException IOException
+     */
+    default void writeBatch(List<ObservableValues> batch) throws IOException {
+        for (ObservableValues values : batch)
+            writeValues(values);
+    }
+
     /**
      * Reads values from the externalö process and writes them to the given values
      *
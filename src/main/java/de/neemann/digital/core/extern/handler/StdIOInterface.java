@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Communicates with an external process by sending values and receiving results via the stdio.
@@ -22,10 +23,23 @@ import java.util.LinkedList;
  * If the application wants to send values back, a new line needs to start with the string "Digital:".
  * After that all bit of all values needs to be send. The lsb needs to be send first.
  * The last bit needs to be followed by an end of line character.
+ * <p>
+ * If the application prints the line "Digital-Protocol:packed", the packed format is used to send the
+ * values to the application. In this format all bits of all values are concatenated to a single
+ * bit vector, the lsb of the first value becomes bit zero. A line starts with the character '#',
+ * which is followed by the hex digits of the values and after that by the hex digits of the high z mask.
+ * The most significant digit comes first, both parts have the same number of digits.
+ * The high z part can be omitted if no bit is in high z state.
+ * The application can send values back in the same format by a line starting with "Digital:#".
+ * The format of the values received is detected for every line, so an application which does not
+ * announce the packed format keeps working with the text format.
  */
 public class StdIOInterface implements ProcessInterface {
     private static final Logger LOGGER = LoggerFactory.getLogger(StdIOInterface.class);
     private static final String PREFIX = "Digital:";
+    private static final String PACKED_PROTOCOL = "Digital-Protocol:packed";
+    private static final char PACKED = '#';
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
     private static final int MAX_CONSOLE_LINES = 30;
     private static final long TIMEOUT = 5000;
     private final Process process;
@@ -36,6 +50,8 @@ public class StdIOInterface implements ProcessInterface {
     private final Object lock = new Object();
     private String dataFound;
     private boolean terminated = false;
+    private volatile boolean packed = false;
+    private char[] buffer = new char[0];
 
 
     /**
@@ -79,7 +95,10 @@ public class StdIOInterface implements ProcessInterface {
                     consoleOut.add(line);
                     while (consoleOut.size() > MAX_CONSOLE_LINES)
                         consoleOut.removeFirst();
-                    if (line.startsWith(PREFIX)) {
+                    if (line.equals(PACKED_PROTOCOL)) {
+                        LOGGER.debug("packed protocol enabled");
+                        packed = true;
+                    } else if (line.startsWith(PREFIX)) {
                         synchronized (lock) {
                             while (dataFound != null)
                                 lock.wait();
@@ -128,36 +147,62 @@ public class StdIOInterface implements ProcessInterface {
     @Override
     public void writeValues(ObservableValues values) throws IOException {
         try {
-            for (ObservableValue v : values) {
-                final int bits = v.getBits();
-                final long value = v.getValue();
-                final long highZ = v.getHighZ();
-                long mask = 1;
-                for (int i = 0; i < bits; i++) {
-                    if ((highZ & mask) != 0)
-                        writer.write('Z');
-                    else {
-                        if ((value & mask) != 0)
-                            writer.write('1');
-                        else
-                            writer.write('0');
-                    }
-                    mask <<= 1;
-                }
-            }
-            writer.write("\n");
+            write(values);
             writer.flush();
         } catch (IOException e) {
             throw new IOException(Lang.get("err_writingToStdOut_O", getConsoleOut()), e);
         }
     }
 
+    @Override
+    public void writeBatch(List<ObservableValues> batch) throws IOException {
+        try {
+            for (ObservableValues values : batch)
+                write(values);
+            writer.flush();
+        } catch (IOException e) {
+            throw new IOException(Lang.get("err_writingToStdOut_O", getConsoleOut()), e);
+        }
+    }
+
+    private void write(ObservableValues values) throws IOException {
+        if (packed) {
+            writer.write(encodePacked(values));
+            writer.write("\n");
+            return;
+        }
+
+        for (ObservableValue v : values) {
+            final int bits = v.getBits();
+            final long value = v.getValue();
+            final long highZ = v.getHighZ();
+            long mask = 1;
+            for (int i = 0; i < bits; i++) {
+                if ((highZ & mask) != 0)
+                    writer.write('Z');
+                else {
+                    if ((value & mask) != 0)
+                        writer.write('1');
+                    else
+                        writer.write('0');
+                }
+                mask <<= 1;
+            }
+        }
+        writer.write("\n");
+    }
+
     @Override
     public void readValues(ObservableValues values) throws IOException {
         String line = readLine();
         if (line != null) {
             int pos = PREFIX.length();
             int len = line.length();
+            if (pos < len && line.charAt(pos) == PACKED) {
+                decodePacked(line, pos + 1, values);
+                return;
+            }
+
             for (ObservableValue v : values) {
                 final int bits = v.getBits();
 
@@ -195,6 +240,104 @@ public class StdIOInterface implements ProcessInterface {
             throw new IOException(Lang.get("err_processTerminatedUnexpected_O", getConsoleOutNoWarn(consoleOut)));
     }
 
+    /**
+     * Encodes the given values in the packed format.
+     *
+     * @param values the values to encode
+     * @return the encoded values, starting with the '#' character
+     */
+    String encodePacked(ObservableValues values) {
+        int digits = (totalBits(values) + 3) / 4;
+        long highZ = 0;
+        for (ObservableValue v : values)
+            highZ |= v.getHighZ();
+        int len = highZ == 0 ? digits + 1 : digits * 2 + 1;
+        if (buffer.length != len)
+            buffer = new char[len];
+
+        buffer[0] = PACKED;
+        writeDigits(values, false, digits);
+        if (highZ != 0)
+            writeDigits(values, true, digits * 2);
+        return new String(buffer);
+    }
+
+    /**
+     * Writes the digits of the values or the high z masks from right to left to the buffer.
+     */
+    private void writeDigits(ObservableValues values, boolean highZ, int last) {
+        int pos = last;
+        long acc = 0;
+        int accBits = 0;
+        for (ObservableValue v : values) {
+            long bits = highZ ? v.getHighZ() : v.getValue();
+            int n = v.getBits();
+            while (n > 0) {
+                int take = Math.min(n, 4 - accBits);
+                acc |= (bits & ((1L << take) - 1)) << accBits;
+                accBits += take;
+                bits >>>= take;
+                n -= take;
+                if (accBits == 4) {
+                    buffer[pos--] = HEX[(int) acc];
+                    acc = 0;
+                    accBits = 0;
+                }
+            }
+        }
+        if (accBits > 0)
+            buffer[pos] = HEX[(int) acc];
+    }
+
+    /**
+     * Decodes values sent in the packed format.
+     *
+     * @param line   the line received
+     * @param start  the position of the first digit
+     * @param values the values to write to
+     * @throws IOException IOException
+     */
+    void decodePacked(String line, int start, ObservableValues values) throws IOException {
+        int digits = (totalBits(values) + 3) / 4;
+        int available = line.length() - start;
+        if (available < digits)
+            throw new IOException(Lang.get("err_notEnoughDataReceived_O", getConsoleOut()));
+        boolean withHighZ = available >= digits * 2;
+
+        int bitPos = 0;
+        for (ObservableValue v : values) {
+            final int bits = v.getBits();
+            long value = 0;
+            long highZ = 0;
+            for (int i = 0; i < bits; i++, bitPos++) {
+                int digitPos = start + digits - 1 - (bitPos >> 2);
+                int shift = bitPos & 3;
+                if ((hexValue(line.charAt(digitPos)) >> shift & 1) != 0)
+                    value |= 1L << i;
+                if (withHighZ && (hexValue(line.charAt(digitPos + digits)) >> shift & 1) != 0)
+                    highZ |= 1L << i;
+            }
+            v.set(value, highZ);
+        }
+    }
+
+    private int hexValue(char c) throws IOException {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        throw new IOException(Lang.get("err_invalidCharacterReceived_N_O", "" + c, getConsoleOut()));
+    }
+
+    private static int totalBits(ObservableValues values) {
+        int bits = 0;
+        for (ObservableValue v : values)
+            bits += v.getBits();
+        return bits;
+    }
+
     /**
      * Returns the console out without warnings.
      * Used to remove not needed content which obfuscates the real error cause.
@@ -45,6 +45,20 @@ public class PowerSupply extends Node implements Element {
         gnd = inputs.get(1).checkBits(1, null, 1).addObserverToValue(this);
     }
 
+    /**
+     * @return the VDD input, which has to be one
+     */
+    public ObservableValue getVddInput() {
+        return vcc;
+    }
+
+    /**
+     * @return the GND input, which has to be zero
+     */
+    public ObservableValue getGndInput() {
+        return gnd;
+    }
+
     @Override
     public ObservableValues getOutputs() throws PinException {
         return ObservableValues.EMPTY_LIST;
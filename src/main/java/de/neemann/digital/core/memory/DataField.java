@@ -14,6 +14,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
+ * Stores the data of a memory component.
+ * The data is stored in fixed-size pages which are allocated the first time a non-zero value
+ * is written to them. Pages which were never written read as zero. So a large address space
+ * costs only memory for the pages actually in use.
  */
 public class DataField implements HGSArray {
 
@@ -22,8 +26,18 @@ public class DataField implements HGSArray {
      */
     public static final DataField DEFAULT = new DataField(0);
 
+    /**
+     * Zero runs of at least this length are written as a single run
+     */
+    private static final int MIN_ZERO_RUN = 16;
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
     private final int size;
-    private long[] data;
+    private long[][] pages;
+    private int length;
+    private int filled;
 
     private final transient ArrayList<DataListener> listeners = new ArrayList<>();
 
@@ -33,7 +47,9 @@ public class DataField implements HGSArray {
      * @param size size
      */
     public DataField(int size) {
-        this(new long[size], size);
+        this.size = size;
+        this.length = size;
+        pages = new long[pageCount(size)][];
     }
 
     /**
@@ -44,7 +60,11 @@ public class DataField implements HGSArray {
      */
     public DataField(long[] data, int size) {
         this.size = size;
-        this.data = data;
+        this.length = data.length;
+        pages = new long[pageCount(Math.max(size, data.length))][];
+        for (int i = 0; i < data.length; i++)
+            if (data[i] != 0)
+                set(i, data[i]);
     }
 
     /**
@@ -55,7 +75,14 @@ public class DataField implements HGSArray {
      * @param newSize   new size
      */
     public DataField(DataField dataField, int newSize) {
-        this(Arrays.copyOf(dataField.data, newSize), newSize);
+        this(dataField, newSize, newSize);
+    }
+
+    private DataField(DataField dataField, int length, int size) {
+        this.size = size;
+        this.length = length;
+        pages = new long[pageCount(Math.max(size, length))][];
+        copyPages(dataField, length);
     }
 
     /**
@@ -69,14 +96,15 @@ public class DataField implements HGSArray {
     }
 
     /**
-     * Creates a new instance and fills it with the data in the given reader
+     * Creates a new instance and fills it with the data in the given reader.
+     * Besides single values also runs of the form "count*value" are accepted.
      *
      * @param reader the reader
      * @throws IOException IOException
      */
     public DataField(Reader reader) throws IOException {
         try (BufferedReader br = new BufferedReader(reader)) {
-            data = new long[1024];
+            pages = new long[1][];
             String header = br.readLine();
             if (header == null || !header.equals("v2.0 raw"))
                 throw new IOException(Lang.get("err_invalidFileFormat"));
@@ -90,20 +118,97 @@ public class DataField implements HGSArray {
                     else
                         line = line.trim();
                     if (line.length() > 0) {
+                        int count = 1;
+                        int r = line.indexOf('*');
+                        if (r >= 0) {
+                            count = Integer.parseInt(line.substring(0, r).trim());
+                            line = line.substring(r + 1).trim();
+                        }
                         long v = Bits.decode(line, 0, 16);
-                        if (pos == data.length)
-                            data = Arrays.copyOf(data, data.length * 2);
-                        data[pos] = v;
-                        pos++;
+                        for (int i = 0; i < count; i++) {
+                            if (v != 0)
+                                set(pos, v);
+                            pos++;
+                        }
                     }
-                } catch (Bits.NumberFormatException e) {
+                } catch (Bits.NumberFormatException | NumberFormatException e) {
                     throw new IOException(e);
                 }
             }
             size = pos;
+            length = pos;
+            if (pages.length < pageCount(pos))
+                pages = Arrays.copyOf(pages, pageCount(pos));
+        }
+    }
+
+    /**
+     * Creates a new instance which is filled by the given filler.
+     * The size of the new instance is given by the highest address written.
+     *
+     * @param filler the filler
+     * @throws IOException IOException
+     */
+    DataField(Filler filler) throws IOException {
+        pages = new long[1][];
+        filler.fill(this);
+        size = filled;
+        length = filled;
+        if (pages.length < pageCount(filled))
+            pages = Arrays.copyOf(pages, pageCount(filled));
+    }
+
+    private static int pageCount(int words) {
+        return (words + PAGE_MASK) >>> PAGE_BITS;
+    }
+
+    /**
+     * Ors the given bits to the value at the given address.
+     * Only used while the data field is filled by a {@link Filler}.
+     *
+     * @param addr the address
+     * @param bits the bits to set
+     */
+    void or(int addr, long bits) {
+        if (addr >= filled)
+            filled = addr + 1;
+        if (bits != 0) {
+            long[] p = (addr >>> PAGE_BITS) < pages.length ? pages[addr >>> PAGE_BITS] : null;
+            set(addr, (p == null ? 0 : p[addr & PAGE_MASK]) | bits);
         }
     }
 
+    /**
+     * Sets a value without any checks. Allocates the page if necessary.
+     */
+    private void set(int addr, long value) {
+        int page = addr >>> PAGE_BITS;
+        if (page >= pages.length)
+            pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+        long[] p = pages[page];
+        if (p == null) {
+            p = new long[PAGE_SIZE];
+            pages[page] = p;
+        }
+        p[addr & PAGE_MASK] = value;
+    }
+
+    /**
+     * Copies the data of the given data field up to the given length to this data field.
+     * Only the pages in use are copied.
+     */
+    private void copyPages(DataField dataField, int len) {
+        int count = Math.min(pageCount(len), dataField.pages.length);
+        for (int i = 0; i < count; i++) {
+            long[] p = dataField.pages[i];
+            if (p != null)
+                pages[i] = p.clone();
+        }
+        int last = len >>> PAGE_BITS;
+        if (last < count && pages[last] != null)
+            Arrays.fill(pages[last], len & PAGE_MASK, PAGE_SIZE, 0);
+    }
+
     /**
      * Save the stored data
      *
@@ -111,13 +216,52 @@ public class DataField implements HGSArray {
      * @throws IOException IOException
      */
     public void saveTo(File file) throws IOException {
-        DataField df = getMinimized();
         try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "utf-8"))) {
             w.write("v2.0 raw");
             w.newLine();
-            for (long l : df.getData()) {
-                w.write(Long.toHexString(l));
+            writeRuns((value, count) -> {
+                if (count > 1)
+                    w.write(count + "*");
+                w.write(Long.toHexString(value));
                 w.newLine();
+            });
+        }
+    }
+
+    /**
+     * Passes the stored data up to the last non-zero value to the given writer.
+     * Runs of at least {@value #MIN_ZERO_RUN} zeros are passed as a single run, all other values one by one.
+     * Pages which were never written are skipped without reading them.
+     *
+     * @param writer the writer
+     * @param <E>    the exception thrown by the writer
+     * @throws E the exception thrown by the writer
+     */
+    public <E extends Exception> void writeRuns(RunWriter<E> writer) throws E {
+        int end = getMinimizedLength();
+        int addr = 0;
+        while (addr < end) {
+            int zeros = 0;
+            while (addr + zeros < end) {
+                long[] p = pages[(addr + zeros) >>> PAGE_BITS];
+                if (p == null)
+                    zeros += PAGE_SIZE - ((addr + zeros) & PAGE_MASK);
+                else if (p[(addr + zeros) & PAGE_MASK] == 0)
+                    zeros++;
+                else
+                    break;
+            }
+            if (zeros >= MIN_ZERO_RUN) {
+                writer.write(0, zeros);
+                addr += zeros;
+            } else {
+                for (int i = 0; i < zeros; i++)
+                    writer.write(0, 1);
+                addr += zeros;
+                if (addr < end) {
+                    writer.write(getDataWord(addr), 1);
+                    addr++;
+                }
             }
         }
     }
@@ -127,8 +271,7 @@ public class DataField implements HGSArray {
      * Is not called during simulation! Is only called during editing.
      */
     public void clearAll() {
-        if (data != null)
-            Arrays.fill(data, 0);
+        Arrays.fill(pages, null);
 
         // all the data have changed!
         fireChanged(-1);
@@ -143,11 +286,17 @@ public class DataField implements HGSArray {
      */
     public DataField setData(int addr, long value) {
         if (addr < size) {
-            if (addr >= data.length)
-                data = Arrays.copyOf(data, size);
+            if (addr >= length)
+                length = size;
 
-            if (data[addr] != value) {
-                data[addr] = value;
+            long[] p = pages[addr >>> PAGE_BITS];
+            if (p == null) {
+                if (value != 0) {
+                    set(addr, value);
+                    fireChanged(addr);
+                }
+            } else if (p[addr & PAGE_MASK] != value) {
+                p[addr & PAGE_MASK] = value;
                 fireChanged(addr);
             }
         }
@@ -161,10 +310,12 @@ public class DataField implements HGSArray {
      * @return the value
      */
     public long getDataWord(int addr) {
-        if (addr >= data.length)
+        if (addr >= length)
             return 0;
-        else
-            return data[addr];
+        long[] p = pages[addr >>> PAGE_BITS];
+        if (p == null)
+            return 0;
+        return p[addr & PAGE_MASK];
     }
 
     /**
@@ -176,6 +327,27 @@ public class DataField implements HGSArray {
         return size;
     }
 
+    /**
+     * @return true if all values are zero
+     */
+    public boolean isEmpty() {
+        return getMinimizedLength() == 0;
+    }
+
+    private int getMinimizedLength() {
+        int pos = length;
+        while (pos > 0) {
+            long[] p = pages[(pos - 1) >>> PAGE_BITS];
+            if (p == null)
+                pos = (pos - 1) & ~PAGE_MASK;
+            else if (p[(pos - 1) & PAGE_MASK] == 0)
+                pos--;
+            else
+                break;
+        }
+        return pos;
+    }
+
     /**
      * Returns a new minimal {@link DataField}.
      * All trailing zeros are removed.
@@ -183,12 +355,11 @@ public class DataField implements HGSArray {
      * @return the new {@link DataField}
      */
     public DataField getMinimized() {
-        int pos = data.length;
-        while (pos > 0 && data[pos - 1] == 0) pos--;
-        if (pos == data.length)
+        int pos = getMinimizedLength();
+        if (pos == length)
             return this;
         else
-            return new DataField(Arrays.copyOf(data, pos), size);
+            return new DataField(this, pos, size);
     }
 
     /**
@@ -231,13 +402,15 @@ public class DataField implements HGSArray {
      * @param dataField the data to set to this data field
      */
     public void setDataFrom(DataField dataField) {
-        data = Arrays.copyOf(dataField.data, size);
+        length = size;
+        pages = new long[pageCount(size)][];
+        copyPages(dataField, size);
         fireChanged(-1);
     }
 
     @Override
     public int hgsArraySize() {
-        return data.length;
+        return length;
     }
 
     @Override
@@ -258,9 +431,47 @@ public class DataField implements HGSArray {
     }
 
     /**
+     * Fills a new data field
+     */
+    interface Filler {
+        /**
+         * Writes the data to the given data field by calling {@link DataField#or(int, long)}
+         *
+         * @param dataField the data field to fill
+         * @throws IOException IOException
+         */
+        void fill(DataField dataField) throws IOException;
+    }
+
+    /**
+     * Receives the data of a data field.
+     *
+     * @param <E> the exception thrown by the writer
+     */
+    public interface RunWriter<E extends Exception> {
+        /**
+         * Called with the next value
+         *
+         * @param value the value
+         * @param count the number of times the value is repeated
+         * @throws E the exception thrown by the writer
+         */
+        void write(long value, int count) throws E;
+    }
+
+    /**
+     * Returns a copy of the data as a plain array.
+     * Should only be used for small data fields because every page is allocated.
+     *
      * @return the raw data
      */
     public long[] getData() {
+        long[] data = new long[length];
+        for (int i = 0; i < pageCount(length); i++) {
+            long[] p = pages[i];
+            if (p != null)
+                System.arraycopy(p, 0, data, i << PAGE_BITS, Math.min(PAGE_SIZE, length - (i << PAGE_BITS)));
+        }
         return data;
     }
 }
@@ -12,12 +12,15 @@ import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 import de.neemann.digital.core.Bits;
 
-import java.util.Arrays;
 import java.util.StringTokenizer;
 
 /**
  * Optimized converter for data fields
  * <p>
+ * Long runs of zeros are written as "count*0", so the unused pages of a large memory
+ * don't blow up the circuit file.
+ * Releases which only support the file format version 1 are not able to read this runs.
+ * Because of that the circuit file format version was raised to 2, see {@link de.neemann.digital.draw.elements.Circuit}.
  */
 public class DataFieldConverter implements Converter {
     @Override
@@ -28,26 +31,27 @@ public class DataFieldConverter implements Converter {
     @Override
     public void marshal(Object o, HierarchicalStreamWriter writer, MarshallingContext marshallingContext) {
         DataField df = (DataField) o;
-        df = df.getMinimized();
         //writer.startNode("data");
         writer.addAttribute("size", Integer.toString(df.size()));
         StringBuilder data = new StringBuilder();
-        int pos = 0;
-        for (long d : df.getData()) {
+        int[] pos = new int[1];
+        df.writeRuns((value, count) -> {
             if (data.length() > 0) {
                 data.append(",");
-                pos++;
+                pos[0]++;
             }
 
-            if (pos > 80) {
+            if (pos[0] > 80) {
                 data.append("\n");
-                pos = 0;
+                pos[0] = 0;
             }
 
-            final String s = Long.toHexString(d);
+            String s = Long.toHexString(value);
+            if (count > 1)
+                s = count + "*" + s;
             data.append(s);
-            pos += s.length();
-        }
+            pos[0] += s.length();
+        });
         writer.setValue(data.toString());
         //writer.endNode();
     }
@@ -68,20 +72,41 @@ public class DataFieldConverter implements Converter {
             }
             return df;
         } else {
-            try {
-                // new type
-                int size = Integer.parseInt(reader.getAttribute("size"));
-                long[] data = new long[size];
-                StringTokenizer st = new StringTokenizer(reader.getValue(), ",");
-                int i = 0;
-                while (st.hasMoreTokens()) {
-                    data[i] = Bits.decode(st.nextToken().trim(), 0, 16);
-                    i++;
+            // new type
+            return parse(Integer.parseInt(reader.getAttribute("size")), reader.getValue());
+        }
+    }
+
+    /**
+     * Creates a data field from its stored representation
+     *
+     * @param size the size of the data field
+     * @param data the comma separated values
+     * @return the data field
+     */
+    public static DataField parse(int size, String data) {
+        try {
+            DataField df = new DataField(size);
+            StringTokenizer st = new StringTokenizer(data, ",");
+            int i = 0;
+            while (st.hasMoreTokens()) {
+                String token = st.nextToken().trim();
+                int count = 1;
+                int r = token.indexOf('*');
+                if (r >= 0) {
+                    count = Integer.parseInt(token.substring(0, r).trim());
+                    token = token.substring(r + 1).trim();
                 }
-                return new DataField(Arrays.copyOf(data, i), size);
-            } catch (Bits.NumberFormatException e) {
-                throw new RuntimeException(e);
+                long value = Bits.decode(token, 0, 16);
+                if (value == 0)
+                    i += count;
+                else
+                    for (int j = 0; j < count; j++)
+                        df.setData(i++, value);
             }
+            return df.getMinimized();
+        } catch (Bits.NumberFormatException e) {
+            throw new RuntimeException(e);
         }
     }
 
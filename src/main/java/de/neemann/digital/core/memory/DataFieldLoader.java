@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.core.memory;
+
+import de.neemann.digital.lang.Lang;
+
+import java.io.*;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Loads the content of a memory from a file.
+ * Supported are the "v2.0 raw" format, Intel HEX, Motorola S-record and raw binary files.
+ * Files with the extension ".bin" are read as raw binary, the format of all other files is
+ * detected by their first line.
+ * <p>
+ * Intel HEX, S-record and binary files contain bytes. If a data word is wider than eight
+ * bits, several consecutive bytes are combined to a single word.
+ * <p>
+ * The parsed images are cached. The cache key contains the path and the modification time
+ * of the file, so a modified file is parsed again.
+ */
+public final class DataFieldLoader {
+    private static final int CACHE_SIZE = 8;
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final Map<String, SoftReference<DataField>> CACHE = new LinkedHashMap<String, SoftReference<DataField>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SoftReference<DataField>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private DataFieldLoader() {
+    }
+
+    /**
+     * Loads the given file.
+     *
+     * @param file      the file to load
+     * @param dataBits  the number of bits of a data word
+     * @param bigEndian true if the most significant byte of a word comes first
+     * @return the data, a new instance which can be modified by the caller
+     * @throws IOException IOException
+     */
+    public static DataField load(File file, int dataBits, boolean bigEndian) throws IOException {
+        String key = file.getAbsolutePath() + "|" + file.lastModified() + "|" + file.length() + "|" + dataBits + "|" + bigEndian;
+        DataField df;
+        synchronized (CACHE) {
+            SoftReference<DataField> ref = CACHE.get(key);
+            df = ref == null ? null : ref.get();
+        }
+        if (df == null) {
+            df = read(file, dataBits, bigEndian);
+            synchronized (CACHE) {
+                CACHE.put(key, new SoftReference<>(df));
+            }
+        }
+        return new DataField(df, df.size());
+    }
+
+    private static DataField read(File file, int dataBits, boolean bigEndian) throws IOException {
+        int bytesPerWord = Math.max(1, (dataBits + 7) / 8);
+        if (file.getName().toLowerCase(Locale.ENGLISH).endsWith(".bin"))
+            return readBinary(file, bytesPerWord, bigEndian);
+
+        String first;
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            do {
+                first = r.readLine();
+            } while (first != null && first.trim().isEmpty());
+        }
+        if (first == null)
+            throw new IOException(Lang.get("err_invalidFileFormat"));
+        first = first.trim();
+
+        if (first.startsWith(":"))
+            return readIntelHex(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), bytesPerWord, bigEndian);
+        if (first.length() > 1 && first.charAt(0) == 'S' && Character.isDigit(first.charAt(1)))
+            return readSRecord(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), bytesPerWord, bigEndian);
+        return new DataField(file);
+    }
+
+    /**
+     * Reads a raw binary file.
+     * The file is read in blocks and the bytes are written directly to the data field.
+     *
+     * @param file         the file
+     * @param bytesPerWord the number of bytes in a word
+     * @param bigEndian    true if the most significant byte of a word comes first
+     * @return the data
+     * @throws IOException IOException
+     */
+    static DataField readBinary(File file, int bytesPerWord, boolean bigEndian) throws IOException {
+        if (file.length() > Integer.MAX_VALUE)
+            throw new IOException(Lang.get("err_invalidFileFormat"));
+        try (InputStream in = new FileInputStream(file)) {
+            return new DataField(df -> {
+                ByteWriter w = new ByteWriter(df, bytesPerWord, bigEndian);
+                byte[] buffer = new byte[BLOCK_SIZE];
+                int pos = 0;
+                int len;
+                while ((len = in.read(buffer)) > 0) {
+                    for (int i = 0; i < len; i++)
+                        w.write(pos + i, buffer[i]);
+                    pos += len;
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads an Intel HEX file.
+     * The record types data, end of file, extended segment address and extended linear address are
+     * evaluated, the start address records are ignored.
+     *
+     * @param reader       the reader
+     * @param bytesPerWord the number of bytes in a word
+     * @param bigEndian    true if the most significant byte of a word comes first
+     * @return the data
+     * @throws IOException IOException
+     */
+    static DataField readIntelHex(Reader reader, int bytesPerWord, boolean bigEndian) throws IOException {
+        try (BufferedReader r = new BufferedReader(reader)) {
+            return new DataField(df -> {
+                ByteWriter w = new ByteWriter(df, bytesPerWord, bigEndian);
+                long base = 0;
+                String line;
+                while ((line = r.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty())
+                        continue;
+                    byte[] rec = decodeRecord(line, 1);
+                    if (rec.length < 5 || (rec[0] & 0xff) != rec.length - 5 || checksum(rec) != 0)
+                        throw new IOException(Lang.get("err_invalidFileFormat") + ": " + line);
+                    int addr = ((rec[1] & 0xff) << 8) | (rec[2] & 0xff);
+                    if ((rec[3] == 2 || rec[3] == 4) && rec.length < 7)
+                        throw new IOException(Lang.get("err_invalidFileFormat") + ": " + line);
+                    switch (rec[3]) {
+                        case 0:
+                            for (int i = 0; i < rec.length - 5; i++)
+                                w.write(base + addr + i, rec[4 + i]);
+                            break;
+                        case 1:
+                            return;
+                        case 2:
+                            base = (((rec[4] & 0xff) << 8) | (rec[5] & 0xff)) * 16L;
+                            break;
+                        case 4:
+                            base = (long) (((rec[4] & 0xff) << 8) | (rec[5] & 0xff)) << 16;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads a Motorola S-record file.
+     * The data records S1, S2 and S3 are evaluated, all other records are ignored.
+     *
+     * @param reader       the reader
+     * @param bytesPerWord the number of bytes in a word
+     * @param bigEndian    true if the most significant byte of a word comes first
+     * @return the data
+     * @throws IOException IOException
+     */
+    static DataField readSRecord(Reader reader, int bytesPerWord, boolean bigEndian) throws IOException {
+        try (BufferedReader r = new BufferedReader(reader)) {
+            return new DataField(df -> {
+                ByteWriter w = new ByteWriter(df, bytesPerWord, bigEndian);
+                String line;
+                while ((line = r.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty())
+                        continue;
+                    if (line.length() < 4 || line.charAt(0) != 'S')
+                        throw new IOException(Lang.get("err_invalidFileFormat") + ": " + line);
+                    byte[] rec = decodeRecord(line, 2);
+                    if (rec.length < 2 || (rec[0] & 0xff) != rec.length - 1 || (checksum(rec) & 0xff) != 0xff)
+                        throw new IOException(Lang.get("err_invalidFileFormat") + ": " + line);
+                    int addrBytes;
+                    switch (line.charAt(1)) {
+                        case '1':
+                            addrBytes = 2;
+                            break;
+                        case '2':
+                            addrBytes = 3;
+                            break;
+                        case '3':
+                            addrBytes = 4;
+                            break;
+                        default:
+                            continue;
+                    }
+                    long addr = 0;
+                    for (int i = 0; i < addrBytes; i++)
+                        addr = (addr << 8) | (rec[1 + i] & 0xff);
+                    for (int i = 1 + addrBytes; i < rec.length - 1; i++)
+                        w.write(addr++, rec[i]);
+                }
+            });
+        }
+    }
+
+    private static byte[] decodeRecord(String line, int start) throws IOException {
+        int len = line.length() - start;
+        if ((len & 1) != 0)
+            throw new IOException(Lang.get("err_invalidFileFormat") + ": " + line);
+        byte[] rec = new byte[len / 2];
+        for (int i = 0; i < rec.length; i++) {
+            int hi = Character.digit(line.charAt(start + i * 2), 16);
+            int lo = Character.digit(line.charAt(start + i * 2 + 1), 16);
+            if (hi < 0 || lo < 0)
+                throw new IOException(Lang.get("err_invalidFileFormat") + ": " + line);
+            rec[i] = (byte) ((hi << 4) | lo);
+        }
+        return rec;
+    }
+
+    private static int checksum(byte[] rec) {
+        int sum = 0;
+        for (byte b : rec)
+            sum += b & 0xff;
+        return sum & 0xff;
+    }
+
+    /**
+     * Combines bytes to data words
+     */
+    private static final class ByteWriter {
+        private final DataField df;
+        private final int bytesPerWord;
+        private final boolean bigEndian;
+
+        private ByteWriter(DataField df, int bytesPerWord, boolean bigEndian) {
+            this.df = df;
+            this.bytesPerWord = bytesPerWord;
+            this.bigEndian = bigEndian;
+        }
+
+        private void write(long byteAddr, byte b) throws IOException {
+            long word = byteAddr / bytesPerWord;
+            if (word >= Integer.MAX_VALUE)
+                throw new IOException(Lang.get("err_invalidFileFormat"));
+            int lane = (int) (byteAddr % bytesPerWord);
+            if (bigEndian)
+                lane = bytesPerWord - 1 - lane;
+            df.or((int) word, (b & 0xffL) << (lane * 8));
+        }
+    }
+}
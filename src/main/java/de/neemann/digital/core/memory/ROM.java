@@ -38,7 +38,8 @@ public class ROM extends Node implements Element, ROMInterface {
             .addAttribute(Keys.LABEL)
             .addAttribute(Keys.DATA)
             .addAttribute(Keys.IS_PROGRAM_MEMORY)
-            .addAttribute(Keys.AUTO_RELOAD_ROM);
+            .addAttribute(Keys.AUTO_RELOAD_ROM)
+            .addAttribute(Keys.BIG_ENDIAN);
 
     private DataField data;
     private final ObservableValue output;
@@ -47,6 +48,7 @@ public class ROM extends Node implements Element, ROMInterface {
     private final File hexFile;
     private final boolean autoLoad;
     private final boolean isProgramMemory;
+    private final boolean bigEndian;
     private ObservableValue addrIn;
     private ObservableValue selIn;
     private int addr;
@@ -69,6 +71,7 @@ public class ROM extends Node implements Element, ROMInterface {
         autoLoad = attr.get(Keys.AUTO_RELOAD_ROM);
         label = attr.getCleanLabel();
         isProgramMemory = attr.get(Keys.IS_PROGRAM_MEMORY);
+        bigEndian = attr.get(Keys.BIG_ENDIAN);
         if (autoLoad) {
             hexFile = attr.getFile(LAST_DATA_FILE_KEY);
         } else
@@ -111,7 +114,7 @@ public class ROM extends Node implements Element, ROMInterface {
     public void init(Model model) throws NodeException {
         if (autoLoad) {
             try {
-                data = new DataField(hexFile);
+                data = DataFieldLoader.load(hexFile, dataBits, bigEndian);
             } catch (IOException e) {
                 throw new NodeException(e.getMessage(), this, -1, null);
             }
@@ -132,6 +135,13 @@ public class ROM extends Node implements Element, ROMInterface {
     }
 
 
+    /**
+     * @return true if the most significant byte of a word comes first if a memory image is loaded
+     */
+    public boolean isBigEndian() {
+        return bigEndian;
+    }
+
     /**
      * @return true if this is program memory
      */
@@ -61,7 +61,7 @@ public class ROMManger {
      */
     public void addRom(String label, DataField data) {
         data = data.getMinimized();
-        if (data.getData().length > 0)
+        if (!data.isEmpty())
             roms.put(label, data);
     }
 
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.core.wiring;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Schedules the edges of several clocks in simulated time.
+ * Every clock toggles its output after each half period. The pending edges of all clocks are
+ * kept in a priority queue ordered by the simulated time at which they occur. So all clocks are
+ * driven by a single thread, run with exact frequency ratios and keep their relative phase,
+ * independent of how fast the model is calculated.
+ * <p>
+ * The simulated time is counted in ticks. The length of a tick is chosen so that every half
+ * period is an integer multiple of a tick. Only if this would require an unreasonable small tick,
+ * the half periods are rounded.
+ */
+public final class ClockScheduler {
+    private static final long MAX_TICKS_PER_SECOND = 1L << 40;
+
+    private final PriorityQueue<Edge> queue;
+    private final long ticksPerSecond;
+    private final int maxFrequency;
+    private long time;
+
+    /**
+     * Creates a new instance
+     *
+     * @param clocks the clocks to drive, all of them need a frequency larger than zero
+     */
+    public ClockScheduler(List<Clock> clocks) {
+        long tps = 1;
+        int maxF = 1;
+        for (Clock c : clocks) {
+            long p = 2L * Math.max(1, c.getFrequency());
+            maxF = Math.max(maxF, c.getFrequency());
+            long a = tps / gcd(tps, p);
+            if (a > MAX_TICKS_PER_SECOND / p) {
+                tps = MAX_TICKS_PER_SECOND;
+                break;
+            }
+            tps = a * p;
+        }
+        ticksPerSecond = tps;
+        maxFrequency = maxF;
+
+        queue = new PriorityQueue<>();
+        int index = 0;
+        for (Clock c : clocks) {
+            long p = 2L * Math.max(1, c.getFrequency());
+            long half = Math.max(1, Math.round((double) tps / p));
+            queue.add(new Edge(c.getClockOutput(), half, index++));
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Executes the next clock edge.
+     * All clocks which have an edge at the same time are toggled together,
+     * after that the model is updated.
+     * Has to be called while the model is locked.
+     *
+     * @param model the model to update
+     * @throws NodeException NodeException
+     */
+    public void step(Model model) throws NodeException {
+        time = queue.peek().next;
+        while (queue.peek().next == time) {
+            Edge e = queue.poll();
+            e.output.setValue(1 - e.output.getValue());
+            e.next += e.half;
+            queue.add(e);
+        }
+        model.doStep();
+    }
+
+    /**
+     * @return the simulated time of the last edge in ticks
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the simulated time of the next edge in ticks
+     */
+    public long getNextEdge() {
+        return queue.peek().next;
+    }
+
+    /**
+     * @return the number of ticks in a simulated second
+     */
+    public long getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * @return the frequency of the fastest clock
+     */
+    public int getMaxFrequency() {
+        return maxFrequency;
+    }
+
+    private static final class Edge implements Comparable<Edge> {
+        private final ObservableValue output;
+        private final long half;
+        private final int index;
+        private long next;
+
+        private Edge(ObservableValue output, long half, int index) {
+            this.output = output;
+            this.half = half;
+            this.index = index;
+            next = half;
+        }
+
+        @Override
+        public int compareTo(Edge o) {
+            int c = Long.compare(next, o.next);
+            if (c != 0)
+                return c;
+            return Integer.compare(index, o.index);
+        }
+    }
+}
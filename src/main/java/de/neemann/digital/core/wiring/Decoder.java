@@ -77,4 +77,10 @@ public class Decoder extends Node implements Element {
         selector = inputs.get(0).addObserverToValue(this).checkBits(selectorBits, this);
     }
 
+    /**
+     * @return the selector input
+     */
+    public ObservableValue getSelector() {
+        return selector;
+    }
 }
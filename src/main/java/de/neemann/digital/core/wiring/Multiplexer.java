@@ -74,4 +74,11 @@ public class Multiplexer extends FanIn {
         if (in.size() != (1 << selectorBits))
             throw new BitsException(Lang.get("err_selectorInputCountMismatch"), this, -1, selector);
     }
+
+    /**
+     * @return the selector input
+     */
+    public ObservableValue getSelector() {
+        return selector;
+    }
 }
@@ -114,85 +114,18 @@ public class Splitter implements Element {
             fillOutput(out);
     }
 
-    private void fillOutput(Port out) throws NodeException {
+    private void fillOutput(Port out) {
         for (Port in : inPorts) {
-            if (in.getPos() + in.getBits() <= out.getPos() || out.getPos() + out.getBits() <= in.getPos())
+            final int from = Math.max(in.getPos(), out.getPos());
+            final int to = Math.min(in.getPos() + in.getBits(), out.getPos() + out.getBits());
+            if (from >= to)
                 continue; // this input is not needed to fill the output!!!
 
-            // out is filled completely by the actual single input value!
-            if (out.getPos() >= in.getPos()
-                    && out.getPos() + out.getBits() <= in.getPos() + in.getBits()) {
-
-                final int bitPos = out.getPos() - in.getPos();
-                final ObservableValue inValue = inputs.get(in.number);
-                final ObservableValue outValue = outputs.get(out.number);
-                inValue.addObserverToValue(new NodeWithoutDelay(outValue) {
-                    @Override
-                    public void hasChanged() {
-                        outValue.set(inValue.getValue() >>> bitPos, inValue.getHighZ() >>> bitPos);
-                    }
-                });
-                break; // done!! out is completely filled!
-            }
-
-            // complete in value needs to be copied to a part of the output
-            if (out.getPos() <= in.getPos() && in.getPos() + in.getBits() <= out.getPos() + out.getBits()) {
-                final int bitPos = in.getPos() - out.getPos();
-                final long mask = ~Bits.up(Bits.mask(in.bits), bitPos);
-                final ObservableValue inValue = inputs.get(in.number);
-                final ObservableValue outValue = outputs.get(out.number);
-                inputs.get(in.number).addObserverToValue(new NodeWithoutDelay(outValue) {
-                    @Override
-                    public void hasChanged() {
-                        long in1 = inValue.getValue();
-                        long out1 = outValue.getValue();
-                        long inz1 = inValue.getHighZ();
-                        long outz1 = outValue.getHighZ();
-                        outValue.set((out1 & mask) | (in1 << bitPos), (outz1 & mask) | (inz1 << bitPos));
-                    }
-                });
-                continue; // done with this input, its completely copied to the output!
-            }
-
-            // If this point is reached, a part of the input needs to be copied to a part of the output!
-
-            // upper part of input needs to be copied to the lower part of the output
-            if (in.getPos() < out.getPos()) {
-                final int bitsToCopy = in.getPos() + in.getBits() - out.getPos();
-                final long mask = ~Bits.mask(bitsToCopy);
-                final int shift = out.getPos() - in.getPos();
-                final ObservableValue inValue = inputs.get(in.number);
-                final ObservableValue outValue = outputs.get(out.number);
-                inputs.get(in.number).addObserverToValue(new NodeWithoutDelay(outValue) {
-                    @Override
-                    public void hasChanged() {
-                        long in12 = inValue.getValue();
-                        long out12 = outValue.getValue();
-                        long inz12 = inValue.getHighZ();
-                        long outz12 = outValue.getHighZ();
-                        outValue.set((out12 & mask) | (in12 >>> shift), (outz12 & mask) | (inz12 >>> shift));
-                    }
-                });
-                continue;
-            }
-
-            // lower part of input needs to be copied to the upper part of the output
-            final int bitsToCopy = out.getPos() + out.getBits() - in.getPos();
-            final int shift = in.getPos() - out.getPos();
-            final long mask = ~Bits.up(Bits.mask(bitsToCopy), shift);
             final ObservableValue inValue = inputs.get(in.number);
             final ObservableValue outValue = outputs.get(out.number);
-            inputs.get(in.number).addObserverToValue(new NodeWithoutDelay(outValue) {
-                @Override
-                public void hasChanged() {
-                    long in13 = inValue.getValue();
-                    long out13 = outValue.getValue();
-                    long inz13 = inValue.getHighZ();
-                    long outz13 = outValue.getHighZ();
-                    outValue.set((out13 & mask) | (in13 << shift), (outz13 & mask) | (inz13 << shift));
-                }
-            });
-
+            inValue.addObserverToValue(new BitCopy(inValue, from - in.getPos(), outValue, from - out.getPos(), to - from));
+            if (to - from == out.getBits())
+                break; // done!! out is completely filled!
         }
     }
 
@@ -335,6 +268,78 @@ public class Splitter implements Element {
         }
     }
 
+    /**
+     * Copies a range of bits from an input value to an output value.
+     * The output may be filled by several of these nodes, each of them sets its own range of bits.
+     * If the output is filled completely by a single node, the old output value is not needed.
+     */
+    public static final class BitCopy extends NodeWithoutDelay {
+        private final ObservableValue input;
+        private final int inputPos;
+        private final ObservableValue output;
+        private final int outputPos;
+        private final int bits;
+        private final long mask;
+        private final boolean complete;
+
+        private BitCopy(ObservableValue input, int inputPos, ObservableValue output, int outputPos, int bits) {
+            super(output);
+            this.input = input;
+            this.inputPos = inputPos;
+            this.output = output;
+            this.outputPos = outputPos;
+            this.bits = bits;
+            this.mask = Bits.up(Bits.mask(bits), outputPos);
+            this.complete = bits == output.getBits();
+        }
+
+        @Override
+        public void hasChanged() {
+            if (complete) {
+                output.set(input.getValue() >>> inputPos, input.getHighZ() >>> inputPos);
+                return;
+            }
+            long value = (output.getValue() & ~mask) | (Bits.up(input.getValue() >>> inputPos, outputPos) & mask);
+            long highZ = (output.getHighZ() & ~mask) | (Bits.up(input.getHighZ() >>> inputPos, outputPos) & mask);
+            output.set(value, highZ);
+        }
+
+        /**
+         * @return the input value
+         */
+        public ObservableValue getInput() {
+            return input;
+        }
+
+        /**
+         * @return the position of the first bit copied from the input
+         */
+        public int getInputPos() {
+            return inputPos;
+        }
+
+        /**
+         * @return the output value
+         */
+        public ObservableValue getOutput() {
+            return output;
+        }
+
+        /**
+         * @return the position of the first bit written to the output
+         */
+        public int getOutputPos() {
+            return outputPos;
+        }
+
+        /**
+         * @return the number of bits copied
+         */
+        public int getBits() {
+            return bits;
+        }
+    }
+
     /**
      * A single splitter port.
      */
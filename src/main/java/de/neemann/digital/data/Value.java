@@ -85,7 +85,13 @@ public class Value {
         this.type = Type.NORMAL;
     }
 
-    private Value(long val, Type type) {
+    /**
+     * Creates a value of the given type
+     *
+     * @param val  the value
+     * @param type the type
+     */
+    Value(long val, Type type) {
         this.value = val;
         this.type = type;
     }
@@ -11,14 +11,25 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * Stores values in a table
+ * Stores values in a table.
+ * The values are stored column by column in primitive ring buffers, so adding a row and
+ * removing the oldest row if the maximum size is reached are O(1) operations.
+ * Values which can not be represented by a long value and a high z mask (e.g. the results
+ * of a test) are stored as objects in an additional column which is only created if needed.
  */
 public class ValueTable extends Observable implements Iterable<Value[]> {
+    private static final int INITIAL_CAPACITY = 16;
 
     private final String[] names;
-    private final ArrayList<Value[]> values;
+    private long[][] values;
+    private long[][] highZ;
+    private Value[][] objects;
+    private int capacity;
+    private int first;
+    private int rows;
     private ArrayList<Integer> tableRowIndex;
     private final long[] max;
     private int maxSize = 0;
@@ -39,7 +50,8 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      */
     public ValueTable(String... names) {
         this.names = names;
-        values = new ArrayList<>();
+        values = new long[names.length][0];
+        highZ = new long[names.length][0];
         max = new long[names.length];
     }
 
@@ -50,15 +62,49 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      */
     public ValueTable(ValueTable toCopy) {
         this.names = toCopy.names;
-        values = (ArrayList<Value[]>) toCopy.values.clone();
+        capacity = toCopy.rows;
+        rows = toCopy.rows;
+        values = new long[names.length][];
+        highZ = new long[names.length][];
+        for (int c = 0; c < names.length; c++) {
+            values[c] = toCopy.copyColumn(toCopy.values[c], capacity);
+            highZ[c] = toCopy.copyColumn(toCopy.highZ[c], capacity);
+        }
+        if (toCopy.objects != null) {
+            objects = new Value[names.length][];
+            for (int c = 0; c < names.length; c++)
+                if (toCopy.objects[c] != null)
+                    objects[c] = toCopy.copyColumn(toCopy.objects[c], capacity);
+        }
         max = toCopy.max.clone();
     }
 
+    /**
+     * Copies the rows stored in the given ring buffer column to a new array starting at index zero.
+     */
+    private long[] copyColumn(long[] column, int newCapacity) {
+        long[] n = new long[newCapacity];
+        copyRows(column, n);
+        return n;
+    }
+
+    private Value[] copyColumn(Value[] column, int newCapacity) {
+        Value[] n = new Value[newCapacity];
+        copyRows(column, n);
+        return n;
+    }
+
+    private void copyRows(Object column, Object target) {
+        int firstPart = Math.min(rows, capacity - first);
+        System.arraycopy(column, first, target, 0, firstPart);
+        System.arraycopy(column, 0, target, firstPart, rows - firstPart);
+    }
+
     /**
      * @return number of rows
      */
     public int getRows() {
-        return values.size();
+        return rows;
     }
 
     /**
@@ -66,7 +112,7 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      */
     public int getTableRows() {
         if (tableRowIndex == null)
-            return values.size();
+            return rows;
         else
             return tableRowIndex.size();
     }
@@ -78,23 +124,102 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      * @return this for chained calls
      */
     public ValueTable add(Value[] row) {
-        if (maxSize > 0 && values.size() >= maxSize) {
+        int slot = addRow();
+        for (int c = 0; c < row.length; c++) {
+            Value v = row[c];
+            values[c][slot] = v.getValue();
+            if (v.getClass() == Value.class && (v.getType() == Value.Type.NORMAL || v.getType() == Value.Type.HIGHZ)) {
+                highZ[c][slot] = v.isHighZ() ? -1 : 0;
+                if (objects != null && objects[c] != null)
+                    objects[c][slot] = null;
+            } else {
+                highZ[c][slot] = 0;
+                getObjectColumn(c)[slot] = v;
+            }
+            if (max[c] < v.getValue()) max[c] = v.getValue();
+        }
+
+        fireHasChanged();
+
+        return this;
+    }
+
+    /**
+     * Adds a row of values.
+     * The given arrays are copied, so the caller can reuse them.
+     *
+     * @param row      the values
+     * @param rowHighZ the high z masks of the values
+     * @return this for chained calls
+     */
+    public ValueTable add(long[] row, long[] rowHighZ) {
+        int slot = addRow();
+        for (int c = 0; c < row.length; c++) {
+            values[c][slot] = row[c];
+            highZ[c][slot] = rowHighZ[c];
+            if (objects != null && objects[c] != null)
+                objects[c][slot] = null;
+            if (max[c] < row[c]) max[c] = row[c];
+        }
+
+        fireHasChanged();
+
+        return this;
+    }
+
+    /**
+     * Reserves the slot for a new row.
+     * If the maximum size is reached, the oldest row is removed.
+     *
+     * @return the slot of the new row
+     */
+    private int addRow() {
+        if (maxSize > 0 && rows >= maxSize) {
 
             if (tableRowIndex != null)
                 throw new RuntimeException("delete not allowed if table index is present");
 
-            while (values.size() >= maxSize)
-                values.remove(0);
+            int toRemove = rows - maxSize + 1;
+            first = (first + toRemove) % capacity;
+            rows -= toRemove;
         }
+        if (rows == capacity)
+            grow();
+
         if (tableRowIndex != null)
-            tableRowIndex.add(values.size());
-        values.add(row);
+            tableRowIndex.add(rows);
+        int slot = slot(rows);
+        rows++;
+        return slot;
+    }
 
-        checkMax(row);
+    private void grow() {
+        int newCapacity = Math.max(INITIAL_CAPACITY, capacity * 2);
+        if (maxSize > 0)
+            newCapacity = Math.max(Math.min(newCapacity, maxSize), rows + 1);
+        for (int c = 0; c < names.length; c++) {
+            values[c] = copyColumn(values[c], newCapacity);
+            highZ[c] = copyColumn(highZ[c], newCapacity);
+            if (objects != null && objects[c] != null)
+                objects[c] = copyColumn(objects[c], newCapacity);
+        }
+        first = 0;
+        capacity = newCapacity;
+    }
 
-        fireHasChanged();
+    private Value[] getObjectColumn(int c) {
+        if (objects == null)
+            objects = new Value[names.length][];
+        if (objects[c] == null)
+            objects[c] = new Value[capacity];
+        return objects[c];
+    }
 
-        return this;
+    private int slot(int row) {
+        int slot = first + row;
+        if (slot >= capacity)
+            slot -= capacity;
+        return slot;
     }
 
     /**
@@ -105,19 +230,13 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
     public ValueTable omitInTable() {
         if (tableRowIndex == null) {
             tableRowIndex = new ArrayList<>();
-            for (int i = 0; i < values.size(); i++)
+            for (int i = 0; i < rows; i++)
                 tableRowIndex.add(i);
         }
         tableRowIndex.remove(tableRowIndex.size() - 1);
         return this;
     }
 
-
-    private void checkMax(Value[] row) {
-        for (int i = 0; i < row.length; i++)
-            if (max[i] < row[i].getValue()) max[i] = row[i].getValue();
-    }
-
     /**
      * provides the values
      *
@@ -126,7 +245,62 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      * @return the value stored at the given position
      */
     public Value getValue(int rowIndex, int columnIndex) {
-        return values.get(rowIndex)[columnIndex];
+        int slot = slot(checkRow(rowIndex));
+        if (objects != null && objects[columnIndex] != null) {
+            Value v = objects[columnIndex][slot];
+            if (v != null)
+                return v;
+        }
+        if (highZ[columnIndex][slot] != 0)
+            return new Value(values[columnIndex][slot], Value.Type.HIGHZ);
+        else
+            return new Value(values[columnIndex][slot]);
+    }
+
+    /**
+     * Returns the value stored at the given position without creating a {@link Value} instance.
+     *
+     * @param rowIndex    the row
+     * @param columnIndex the column
+     * @return the value stored at the given position
+     */
+    public long getLongValue(int rowIndex, int columnIndex) {
+        return values[columnIndex][slot(checkRow(rowIndex))];
+    }
+
+    /**
+     * Returns the state of the value stored at the given position without creating a {@link Value} instance.
+     *
+     * @param rowIndex    the row
+     * @param columnIndex the column
+     * @return the state of the value stored at the given position
+     */
+    public Value.State getState(int rowIndex, int columnIndex) {
+        if (objects != null && objects[columnIndex] != null) {
+            Value v = objects[columnIndex][slot(checkRow(rowIndex))];
+            if (v != null)
+                return v.getState();
+        }
+        return Value.State.NORMAL;
+    }
+
+    private int checkRow(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= rows)
+            throw new IndexOutOfBoundsException("row " + rowIndex + " of " + rows);
+        return rowIndex;
+    }
+
+    /**
+     * Returns a row of this table.
+     *
+     * @param rowIndex the row
+     * @return the values of the row
+     */
+    private Value[] getRow(int rowIndex) {
+        Value[] row = new Value[names.length];
+        for (int c = 0; c < names.length; c++)
+            row[c] = getValue(rowIndex, c);
+        return row;
     }
 
     /**
@@ -138,9 +312,9 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      */
     public Value getTableValue(int rowIndex, int columnIndex) {
         if (tableRowIndex == null)
-            return values.get(rowIndex)[columnIndex];
+            return getValue(rowIndex, columnIndex);
         else
-            return values.get(tableRowIndex.get(rowIndex))[columnIndex];
+            return getValue(tableRowIndex.get(rowIndex), columnIndex);
     }
 
     /**
@@ -164,7 +338,21 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
 
     @Override
     public Iterator<Value[]> iterator() {
-        return values.iterator();
+        return new Iterator<Value[]>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < rows;
+            }
+
+            @Override
+            public Value[] next() {
+                if (row >= rows)
+                    throw new NoSuchElementException();
+                return getRow(row++);
+            }
+        };
     }
 
     /**
@@ -214,7 +402,8 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
      * clear all values
      */
     public void clear() {
-        values.clear();
+        rows = 0;
+        first = 0;
         Arrays.fill(max, 0);
         fireHasChanged();
     }
@@ -238,14 +427,14 @@ public class ValueTable extends Observable implements Iterable<Value[]> {
         sb.append("\n");
 
         if (tableRowIndex == null)
-            for (Value[] row : values) {
+            for (Value[] row : this) {
                 for (Value v : row)
                     sb.append(v.toString()).append(" ");
                 sb.append("\n");
             }
         else
             for (int i : tableRowIndex) {
-                for (Value v : values.get(i))
+                for (Value v : getRow(i))
                     sb.append(v.toString()).append(" ");
                 sb.append("\n");
             }
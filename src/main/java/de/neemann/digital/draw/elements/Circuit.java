@@ -30,7 +30,10 @@ import de.neemann.digital.draw.shapes.custom.CustomShapeDescription;
 import de.neemann.digital.lang.Lang;
 import de.neemann.digital.testing.TestCaseDescription;
 import de.neemann.gui.language.Language;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.*;
 import java.util.*;
 
@@ -43,9 +46,16 @@ import static de.neemann.digital.core.element.PinInfo.input;
  * This class is also serialized to store a circuit on disk.
  */
 public class Circuit {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Circuit.class);
     private static final Set<Drawable> EMPTY_SET = Collections.emptySet();
+    /**
+     * The actual file format version.
+     * Version 2 allows runs of equal values ("count*value") in data fields, which older
+     * versions are not able to read.
+     */
+    static final int VERSION = 2;
 
-    private int version = 1;
+    private int version = VERSION;
     private ElementAttributes attributes;
     private final ArrayList<VisualElement> visualElements;
     private ArrayList<Wire> wires;
@@ -55,6 +65,11 @@ public class Circuit {
     private transient ArrayList<CircRect> recs;
     private transient ArrayList<ChangedListener> listeners;
     private transient File origin;
+    private transient GridIndex<VisualElement> elementIndex;
+    // the indexed elements which were moved or modified since the last query
+    private transient Set<VisualElement> elementsToReindex;
+    private transient GridIndex<Wire> wireIndex;
+    private transient ArrayList<Wire> indexedWires;
 
     /**
      * Creates a proper configured XStream instance
@@ -125,8 +140,7 @@ public class Circuit {
      */
     public static Circuit loadCircuit(InputStream in, ShapeFactory shapeFactory) throws IOException {
         try {
-            XStream xStream = getxStream();
-            Circuit circuit = (Circuit) xStream.fromXML(in);
+            Circuit circuit = readCircuit(in);
             for (VisualElement ve : circuit.getElements())
                 ve.setShapeFactory(shapeFactory);
 
@@ -140,6 +154,10 @@ public class Circuit {
                     e.setPos(e.getPos().mul(2));
                 circuit.version = 1;
             }
+            if (circuit.version > VERSION)
+                throw new IOException(Lang.get("err_fileFormatVersion_N_notSupported", circuit.version));
+            // all older versions are a subset of the actual version
+            circuit.version = VERSION;
             return circuit;
         } catch (RuntimeException e) {
             throw new IOException(Lang.get("err_invalidFileFormat"), e);
@@ -148,6 +166,37 @@ public class Circuit {
         }
     }
 
+    /**
+     * Reads the circuit using the {@link CircuitReader}.
+     * If the file contains values which are not supported by the reader, XStream is used.
+     */
+    private static Circuit readCircuit(InputStream in) throws IOException {
+        byte[] data = readAll(in);
+        try {
+            return CircuitReader.read(new ByteArrayInputStream(data));
+        } catch (CircuitReader.UnsupportedException | XMLStreamException | RuntimeException e) {
+            LOGGER.debug("circuit is read by XStream: " + e.getMessage());
+        }
+        return (Circuit) XStreamHolder.XSTREAM.fromXML(new ByteArrayInputStream(data));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) > 0)
+            out.write(buffer, 0, len);
+        return out.toByteArray();
+    }
+
+    /**
+     * The XStream instance used to read the files which are not supported by the {@link CircuitReader}.
+     * Is created only if needed.
+     */
+    private static final class XStreamHolder {
+        private static final XStream XSTREAM = getxStream();
+    }
+
     /**
      * Stores the circuit in the given file
      *
@@ -182,6 +231,23 @@ public class Circuit {
         wires = new ArrayList<>();
     }
 
+    /**
+     * Creates a circuit from the parts read from a file
+     *
+     * @param version             the file format version
+     * @param attributes          the attributes of the circuit, maybe null
+     * @param visualElements      the visual elements
+     * @param wires               the wires
+     * @param measurementOrdering the measurement ordering, maybe null
+     */
+    Circuit(int version, ElementAttributes attributes, ArrayList<VisualElement> visualElements, ArrayList<Wire> wires, List<String> measurementOrdering) {
+        this.version = version;
+        this.attributes = attributes;
+        this.visualElements = visualElements;
+        this.wires = wires;
+        this.measurementOrdering = measurementOrdering;
+    }
+
     /**
      * Creates a copy of the given circuit
      *
@@ -230,20 +296,27 @@ public class Circuit {
      * @param modelSync   sync interface to access the model. Is locked while drawing circuit
      */
     public void drawTo(Graphic graphic, Collection<Drawable> highLighted, Style highlight, SyncAccess modelSync) {
+        // reads the models state which is a fast operation
+        modelSync.access(this::readObservableValues);
+
+        // after that draw the model which is rather slow
+        drawTo(graphic, highLighted, highlight);
+    }
+
+    /**
+     * Draws this circuit using the given graphic instance.
+     * The models state is not read, so the state last read by {@link #readObservableValues()} is drawn.
+     *
+     * @param graphic     the graphic instance used
+     * @param highLighted a list of Drawables to highlight
+     * @param highlight   style used to draw the highlighted elements
+     */
+    public void drawTo(Graphic graphic, Collection<Drawable> highLighted, Style highlight) {
         if (!dotsPresent) {
             new DotCreator(wires).applyDots();
             dotsPresent = true;
         }
 
-        // reads the models state which is a fast operation
-        modelSync.access(() -> {
-            for (Wire w : wires)
-                w.readObservableValues();
-            for (VisualElement p : visualElements)
-                p.getShape().readObservableValues();
-        });
-
-        // after that draw the model which is rather slow
         graphic.openGroup();
         for (Wire w : wires)
             w.drawTo(graphic, highLighted.contains(w) ? highlight : null);
@@ -260,6 +333,18 @@ public class Circuit {
                 r.drawTo(graphic);
     }
 
+    /**
+     * Reads the state of the model to the wires and shapes.
+     * The state is used by the following drawing operations.
+     * Has to be called while the model is locked or by the thread which runs the model.
+     */
+    public void readObservableValues() {
+        for (Wire w : wires)
+            w.readObservableValues();
+        for (VisualElement p : visualElements)
+            p.getShape().readObservableValues();
+    }
+
     /**
      * Adds a ne VisualElement
      *
@@ -267,7 +352,9 @@ public class Circuit {
      */
     public void add(VisualElement visualElement) {
         visualElements.add(visualElement);
-        modified();
+        if (elementIndex != null && elementIndex.size() == visualElements.size() - 1)
+            addToIndex(elementIndex, visualElement);
+        setModifiedAndFire();
     }
 
     /**
@@ -282,9 +369,10 @@ public class Circuit {
         wires.add(newWire);
         WireConsistencyChecker checker = new WireConsistencyChecker(wires);
         wires = checker.check();
+        wireIndex = null;
 
         dotsPresent = false;
-        modified();
+        setModifiedAndFire();
     }
 
     /**
@@ -316,11 +404,11 @@ public class Circuit {
      */
     public ArrayList<Movable> getElementsToMove(Vector min, Vector max) {
         ArrayList<Movable> m = new ArrayList<>();
-        for (VisualElement vp : visualElements)
+        for (VisualElement vp : getElementIndex().query(min, max))
             if (vp.matches(min, max))
                 m.add(vp);
 
-        for (Wire w : wires) {
+        for (Wire w : getWireIndex().query(min, max)) {
             if (w.p1.inside(min, max))
                 m.add(w.getMovableP1());
             if (w.p2.inside(min, max))
@@ -341,11 +429,11 @@ public class Circuit {
      */
     public ArrayList<Drawable> getElementsToHighlight(Vector min, Vector max) {
         ArrayList<Drawable> m = new ArrayList<>();
-        for (VisualElement vp : visualElements)
+        for (VisualElement vp : getElementIndex().query(min, max))
             if (vp.matches(min, max))
                 m.add(vp);
 
-        for (Wire w : wires) {
+        for (Wire w : getWireIndex().query(min, max)) {
             if (w.p1.inside(min, max) || w.p2.inside(min, max))
                 m.add(w);
         }
@@ -367,11 +455,11 @@ public class Circuit {
      */
     public ArrayList<Movable> getElementsToCopy(Vector min, Vector max, ShapeFactory shapeFactory) {
         ArrayList<Movable> m = new ArrayList<>();
-        for (VisualElement vp : visualElements)
+        for (VisualElement vp : getElementIndex().query(min, max))
             if (vp.matches(min, max))
                 m.add(new VisualElement(vp).setShapeFactory(shapeFactory));
 
-        for (Wire w : wires)
+        for (Wire w : getWireIndex().query(min, max))
             if (w.p1.inside(min, max) && w.p2.inside(min, max))
                 m.add(new Wire(w));
 
@@ -389,28 +477,30 @@ public class Circuit {
      * @param max lower right corner of the rectangle
      */
     public void delete(Vector min, Vector max) {
-        Iterator<VisualElement> veIt = visualElements.iterator();
-        while (veIt.hasNext())
-            if (veIt.next().matches(min, max))
-                veIt.remove();
-
-        boolean wireDeleted = false;
-        Iterator<Wire> wIt = wires.iterator();
-        while (wIt.hasNext()) {
-            Wire w = wIt.next();
-            if (w.p1.inside(min, max) || w.p2.inside(min, max)) {
-                wIt.remove();
-                wireDeleted = true;
+        GridIndex<VisualElement> ei = getElementIndex();
+        Set<VisualElement> elementsToDelete = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (VisualElement ve : ei.query(min, max))
+            if (ve.matches(min, max)) {
+                elementsToDelete.add(ve);
+                ei.remove(ve);
             }
-        }
+        if (!elementsToDelete.isEmpty())
+            visualElements.removeIf(elementsToDelete::contains);
 
-        if (wireDeleted) {
+        Set<Wire> wiresToDelete = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Wire w : getWireIndex().query(min, max))
+            if (w.p1.inside(min, max) || w.p2.inside(min, max))
+                wiresToDelete.add(w);
+
+        if (!wiresToDelete.isEmpty()) {
+            wires.removeIf(wiresToDelete::contains);
             WireConsistencyChecker checker = new WireConsistencyChecker(wires);
             wires = checker.check();
+            wireIndex = null;
         }
 
         dotsPresent = false;
-        modified();
+        setModifiedAndFire();
     }
 
     /**
@@ -419,8 +509,11 @@ public class Circuit {
      * @param partToDelete the element to delete
      */
     public void delete(VisualElement partToDelete) {
-        if (visualElements.remove(partToDelete))
-            modified();
+        if (visualElements.remove(partToDelete)) {
+            if (elementIndex != null)
+                elementIndex.remove(partToDelete);
+            setModifiedAndFire();
+        }
     }
 
     /**
@@ -432,8 +525,9 @@ public class Circuit {
         if (wires.remove(wireToDelete)) {
             WireConsistencyChecker checker = new WireConsistencyChecker(wires);
             wires = checker.check();
+            wireIndex = null;
             dotsPresent = false;
-            modified();
+            setModifiedAndFire();
         }
     }
 
@@ -445,7 +539,7 @@ public class Circuit {
      * @return the first element or null if there is no element at the given position
      */
     public VisualElement getElementAt(Vector pos) {
-        for (VisualElement element : visualElements) {
+        for (VisualElement element : getElementIndex().query(pos, pos)) {
             if (element.matches(pos, false))
                 return element;
         }
@@ -461,7 +555,7 @@ public class Circuit {
      */
     public List<VisualElement> getElementListAt(Vector pos, boolean includeText) {
         ArrayList<VisualElement> list = new ArrayList<>();
-        for (VisualElement element : visualElements) {
+        for (VisualElement element : getElementIndex().query(pos, pos)) {
             if (element.matches(pos, includeText))
                 list.add(element);
         }
@@ -513,6 +607,12 @@ public class Circuit {
      * Sets this circuits state to modified
      */
     public void modified() {
+        elementIndex = null;
+        wireIndex = null;
+        setModifiedAndFire();
+    }
+
+    private void setModifiedAndFire() {
         modified = true;
         fireChangedEvent();
     }
@@ -549,12 +649,76 @@ public class Circuit {
      * @return the matching wire or null
      */
     public Wire getWireAt(Vector pos, int radius) {
-        for (Wire w : wires)
+        for (Wire w : getWireIndex().query(pos.add(-radius, -radius), pos.add(radius, radius)))
             if (w.contains(pos, radius))
                 return w;
         return null;
     }
 
+    /**
+     * Returns the index of the visual elements.
+     * The index is created if there is no index or if the list of elements
+     * was modified directly.
+     * The position of the elements is not checked, so {@link #modified()} needs to be called
+     * if elements are moved.
+     *
+     * @return the index
+     */
+    private GridIndex<VisualElement> getElementIndex() {
+        if (elementIndex == null || elementIndex.size() != visualElements.size()) {
+            elementIndex = new GridIndex<>();
+            elementsToReindex = null;
+            for (VisualElement ve : visualElements)
+                addToIndex(elementIndex, ve);
+        } else if (elementsToReindex != null) {
+            Set<VisualElement> moved = elementsToReindex;
+            elementsToReindex = null;
+            for (VisualElement ve : moved)
+                if (elementIndex.contains(ve))
+                    addToIndex(elementIndex, ve);
+        }
+        return elementIndex;
+    }
+
+    private void addToIndex(GridIndex<VisualElement> index, VisualElement ve) {
+        // the bounding box including the text contains the bounding box without the text
+        GraphicMinMax mm = ve.getMinMax(true);
+        index.add(ve, mm.getMin(), mm.getMax());
+        ve.setIndexedBy(this);
+    }
+
+    /**
+     * Called by an indexed element if it was moved or modified.
+     * The element is indexed again by the next query, so the index is up to date
+     * also while elements are dragged.
+     *
+     * @param ve the element
+     */
+    void elementGeometryChanged(VisualElement ve) {
+        if (elementIndex != null && elementIndex.contains(ve)) {
+            if (elementsToReindex == null)
+                elementsToReindex = Collections.newSetFromMap(new IdentityHashMap<>());
+            elementsToReindex.add(ve);
+        }
+    }
+
+    /**
+     * Returns the index of the wires.
+     * The index is created if there is no index or if the list of wires was replaced
+     * or modified directly.
+     *
+     * @return the index
+     */
+    private GridIndex<Wire> getWireIndex() {
+        if (wireIndex == null || indexedWires != wires || wireIndex.size() != wires.size()) {
+            wireIndex = new GridIndex<>();
+            for (Wire w : wires)
+                wireIndex.add(w, w.p1, w.p2);
+            indexedWires = wires;
+        }
+        return wireIndex;
+    }
+
     /**
      * Find specific visual elements
      *
@@ -690,6 +854,16 @@ public class Circuit {
         return origin;
     }
 
+    /**
+     * Sets the file origin of this circuit.
+     * Used if the circuit is not read by {@link #loadCircuit(File, ShapeFactory)}.
+     *
+     * @param origin the file this circuit was read from
+     */
+    public void setOrigin(File origin) {
+        this.origin = origin;
+    }
+
     private static final class CircRect {
         private final Vector pos;
         private final Vector size;
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.elements;
+
+import de.neemann.digital.core.Bits;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Key;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.core.element.Rotation;
+import de.neemann.digital.core.io.InValue;
+import de.neemann.digital.core.memory.DataFieldConverter;
+import de.neemann.digital.draw.graphics.Vector;
+import de.neemann.digital.draw.model.InverterConfig;
+import de.neemann.digital.testing.TestCaseDescription;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.awt.Color;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * Reads a circuit from a stream without using XStream.
+ * The reader walks through the xml file once and creates the visual elements, the wires and the
+ * attributes directly. Only the types of attribute values which are written by XStream for the
+ * usual components are supported. If an unknown value type or an XStream reference is found,
+ * a {@link UnsupportedException} is thrown and the circuit has to be read by XStream.
+ * Unknown elements which do not contain attribute values are skipped, like it is done by XStream.
+ */
+public final class CircuitReader {
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final XMLStreamReader r;
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory f = XMLInputFactory.newInstance();
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return f;
+    }
+
+    /**
+     * Reads a circuit
+     *
+     * @param in the stream to read
+     * @return the circuit
+     * @throws XMLStreamException   XMLStreamException
+     * @throws UnsupportedException if the file contains values which are not supported by this reader
+     */
+    public static Circuit read(InputStream in) throws XMLStreamException, UnsupportedException {
+        XMLStreamReader r;
+        synchronized (FACTORY) {
+            r = FACTORY.createXMLStreamReader(in);
+        }
+        try {
+            return new CircuitReader(r).readCircuit();
+        } finally {
+            r.close();
+        }
+    }
+
+    private CircuitReader(XMLStreamReader r) {
+        this.r = r;
+    }
+
+    private Circuit readCircuit() throws XMLStreamException, UnsupportedException {
+        r.nextTag();
+        check("circuit");
+        int version = 0;
+        ElementAttributes attributes = null;
+        ArrayList<VisualElement> visualElements = new ArrayList<>();
+        ArrayList<Wire> wires = new ArrayList<>();
+        ArrayList<String> measurementOrdering = null;
+        while (nextChild()) {
+            switch (r.getLocalName()) {
+                case "version":
+                    version = Integer.parseInt(text());
+                    break;
+                case "attributes":
+                    attributes = readAttributes();
+                    break;
+                case "visualElements":
+                    while (nextChild()) {
+                        check("visualElement");
+                        visualElements.add(readVisualElement());
+                    }
+                    break;
+                case "wires":
+                    while (nextChild()) {
+                        check("wire");
+                        wires.add(readWire());
+                    }
+                    break;
+                case "measurementOrdering":
+                    measurementOrdering = new ArrayList<>();
+                    while (nextChild()) {
+                        check("string");
+                        measurementOrdering.add(text());
+                    }
+                    break;
+                default:
+                    skip();
+            }
+        }
+        return new Circuit(version, attributes, visualElements, wires, measurementOrdering);
+    }
+
+    private VisualElement readVisualElement() throws XMLStreamException, UnsupportedException {
+        String elementName = null;
+        ElementAttributes attributes = null;
+        Vector pos = null;
+        while (nextChild()) {
+            switch (r.getLocalName()) {
+                case "elementName":
+                    elementName = text();
+                    break;
+                case "elementAttributes":
+                    attributes = readAttributes();
+                    break;
+                case "pos":
+                    pos = readVector();
+                    break;
+                default:
+                    skip();
+            }
+        }
+        if (elementName == null)
+            throw new UnsupportedException("visual element without name");
+
+        VisualElement ve = new VisualElement(elementName);
+        if (attributes != null)
+            ve.getElementAttributes().getValuesFrom(attributes);
+        if (pos != null)
+            ve.setPos(pos);
+        return ve;
+    }
+
+    private Wire readWire() throws XMLStreamException, UnsupportedException {
+        Vector p1 = null;
+        Vector p2 = null;
+        while (nextChild()) {
+            switch (r.getLocalName()) {
+                case "p1":
+                    p1 = readVector();
+                    break;
+                case "p2":
+                    p2 = readVector();
+                    break;
+                default:
+                    skip();
+            }
+        }
+        if (p1 == null || p2 == null)
+            throw new UnsupportedException("incomplete wire");
+        return new Wire(p1, p2);
+    }
+
+    private Vector readVector() throws XMLStreamException, UnsupportedException {
+        Vector v = new Vector(Integer.parseInt(attr("x")), Integer.parseInt(attr("y")));
+        skip();
+        return v;
+    }
+
+    private ElementAttributes readAttributes() throws XMLStreamException, UnsupportedException {
+        ElementAttributes attributes = new ElementAttributes();
+        while (nextChild()) {
+            check("entry");
+            if (!nextChild())
+                throw new UnsupportedException("empty entry");
+            check("string");
+            String key = text();
+            if (!nextChild())
+                throw new UnsupportedException("entry without value");
+            attributes.setStored(key, readValue(key));
+            if (nextChild())
+                throw new UnsupportedException("entry with more than one value");
+        }
+        return attributes;
+    }
+
+    private Object readValue(String key) throws XMLStreamException, UnsupportedException {
+        final String tag = r.getLocalName();
+        switch (tag) {
+            case "string":
+                return text();
+            case "int":
+                return Integer.valueOf(text().trim());
+            case "long":
+                return Long.valueOf(text().trim());
+            case "boolean":
+                return Boolean.valueOf(text().trim());
+            case "rotation": {
+                Rotation rot = new Rotation(Integer.parseInt(attr("rotation")));
+                skip();
+                return rot;
+            }
+            case "value":
+                return readInValue();
+            case "testData": {
+                String data = "";
+                while (nextChild()) {
+                    if (r.getLocalName().equals("dataString"))
+                        data = text();
+                    else
+                        skip();
+                }
+                return new TestCaseDescription(data);
+            }
+            case "data": {
+                String size = r.getAttributeValue(null, "size");
+                if (size == null)
+                    throw new UnsupportedException("old data field format");
+                return DataFieldConverter.parse(Integer.parseInt(size), text());
+            }
+            case "inverterConfig": {
+                InverterConfig ic = new InverterConfig();
+                while (nextChild()) {
+                    check("string");
+                    ic.add(text());
+                }
+                return ic;
+            }
+            case "awt-color":
+                return readColor();
+            case "file":
+                return new File(text());
+            case "intFormat":
+            case "barrelShifterMode":
+            case "direction":
+            case "appType":
+                return readEnum(key);
+            default:
+                throw new UnsupportedException("value type " + tag);
+        }
+    }
+
+    private InValue readInValue() throws XMLStreamException, UnsupportedException {
+        long value = Long.parseLong(attr("v"));
+        boolean highZ = Boolean.parseBoolean(r.getAttributeValue(null, "z"));
+        skip();
+        if (!highZ)
+            return new InValue(value);
+        if (value != 0)
+            throw new UnsupportedException("high z value with a value");
+        try {
+            return new InValue("Z");
+        } catch (Bits.NumberFormatException e) {
+            throw new UnsupportedException(e.getMessage());
+        }
+    }
+
+    private Color readColor() throws XMLStreamException, UnsupportedException {
+        int red = 0;
+        int green = 0;
+        int blue = 0;
+        int alpha = 255;
+        while (nextChild()) {
+            int v = Integer.parseInt(text().trim());
+            switch (r.getLocalName()) {
+                case "red":
+                    red = v;
+                    break;
+                case "green":
+                    green = v;
+                    break;
+                case "blue":
+                    blue = v;
+                    break;
+                case "alpha":
+                    alpha = v;
+                    break;
+                default:
+                    throw new UnsupportedException("color component " + r.getLocalName());
+            }
+        }
+        return new Color(red, green, blue, alpha);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readEnum(String key) throws XMLStreamException, UnsupportedException {
+        Key k = Keys.getKeyByName(key);
+        if (k == null || !(k.getDefault() instanceof Enum))
+            throw new UnsupportedException("unknown enum key " + key);
+        Class<? extends Enum> c = ((Enum) k.getDefault()).getDeclaringClass();
+        try {
+            return Enum.valueOf(c, text().trim());
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedException(e.getMessage());
+        }
+    }
+
+    /**
+     * Moves to the next child of the actual element.
+     * Returns false if the end of the actual element is reached.
+     */
+    private boolean nextChild() throws XMLStreamException, UnsupportedException {
+        if (r.nextTag() != XMLStreamConstants.START_ELEMENT)
+            return false;
+        if (r.getAttributeValue(null, "reference") != null || r.getAttributeValue(null, "class") != null)
+            throw new UnsupportedException("XStream reference at " + r.getLocalName());
+        return true;
+    }
+
+    /**
+     * Reads the text of the actual element and moves to its end
+     */
+    private String text() throws XMLStreamException {
+        return r.getElementText();
+    }
+
+    private String attr(String name) throws UnsupportedException {
+        String v = r.getAttributeValue(null, name);
+        if (v == null)
+            throw new UnsupportedException("missing attribute " + name + " at " + r.getLocalName());
+        return v;
+    }
+
+    private void check(String name) throws UnsupportedException {
+        if (!r.getLocalName().equals(name))
+            throw new UnsupportedException("unexpected element " + r.getLocalName());
+    }
+
+    /**
+     * Skips the actual element including all its children
+     */
+    private void skip() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int e = r.next();
+            if (e == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (e == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    /**
+     * Thrown if the file contains values which are not supported by this reader
+     */
+    public static final class UnsupportedException extends Exception {
+        private UnsupportedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.elements;
+
+import de.neemann.digital.core.Bits;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Key;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.core.element.Rotation;
+import de.neemann.digital.core.io.InValue;
+import de.neemann.digital.core.memory.DataField;
+import de.neemann.digital.draw.graphics.Vector;
+import de.neemann.digital.draw.model.InverterConfig;
+import de.neemann.digital.testing.TestCaseDescription;
+import de.neemann.gui.InfoDialog;
+
+import java.awt.Color;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores a parsed circuit in a compact binary form, which is read much faster than the xml file.
+ * Used to cache the circuits of the library between two program starts.
+ * Only the value types which are supported by the {@link CircuitReader} can be stored. If a circuit
+ * contains other values, {@link #write(Circuit, DataOutputStream)} throws an {@link IOException}
+ * and the circuit has to be read from its xml file.
+ * The format is not meant to be exchanged: It may change with every release. So the stored
+ * circuits are discarded if the {@link #FORMAT}, the file format version of the {@link Circuit}
+ * or the release of the program do not match. In this case the circuit has to be read from its
+ * xml file again, so the conversions done by {@link Circuit#loadCircuit(File, de.neemann.digital.draw.shapes.ShapeFactory)}
+ * are applied.
+ */
+public final class CircuitStore {
+    /**
+     * The version of the binary format
+     */
+    public static final int FORMAT = 2;
+
+    private static final int T_STRING = 0;
+    private static final int T_INT = 1;
+    private static final int T_LONG = 2;
+    private static final int T_BOOLEAN = 3;
+    private static final int T_ROTATION = 4;
+    private static final int T_IN_VALUE = 5;
+    private static final int T_TEST_DATA = 6;
+    private static final int T_DATA = 7;
+    private static final int T_INVERTER_CONFIG = 8;
+    private static final int T_COLOR = 9;
+    private static final int T_FILE = 10;
+    private static final int T_ENUM = 11;
+
+    private CircuitStore() {
+    }
+
+    /**
+     * Writes the circuit
+     *
+     * @param circuit the circuit
+     * @param out     the stream to write to
+     * @throws IOException IOException, also thrown if the circuit contains values which can not be stored
+     */
+    public static void write(Circuit circuit, DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT);
+        out.writeInt(Circuit.VERSION);
+        writeString(getRelease(), out);
+        writeAttributes(circuit.getAttributes(), out);
+
+        ArrayList<VisualElement> elements = circuit.getElements();
+        out.writeInt(elements.size());
+        for (VisualElement ve : elements) {
+            writeString(ve.getElementName(), out);
+            writeAttributes(ve.getElementAttributes(), out);
+            writeVector(ve.getPos(), out);
+        }
+
+        ArrayList<Wire> wires = circuit.getWires();
+        out.writeInt(wires.size());
+        for (Wire w : wires) {
+            writeVector(w.p1, out);
+            writeVector(w.p2, out);
+        }
+
+        List<String> mo = circuit.getMeasurementOrdering();
+        if (mo == null)
+            out.writeInt(-1);
+        else {
+            out.writeInt(mo.size());
+            for (String s : mo)
+                writeString(s, out);
+        }
+    }
+
+    /**
+     * Reads a circuit
+     *
+     * @param in the stream to read from
+     * @return the circuit
+     * @throws IOException IOException, also thrown if the circuit was stored by an other release
+     */
+    public static Circuit read(DataInputStream in) throws IOException {
+        int format = in.readInt();
+        if (format != FORMAT)
+            throw new IOException("format " + format + " is not supported");
+        int version = in.readInt();
+        if (version != Circuit.VERSION)
+            throw new IOException("file format version " + version + " is not supported");
+        String release = readString(in);
+        if (!release.equals(getRelease()))
+            throw new IOException("circuit was stored by release " + release);
+        ElementAttributes attributes = readAttributes(in);
+
+        int n = in.readInt();
+        ArrayList<VisualElement> elements = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            VisualElement ve = new VisualElement(readString(in));
+            ve.getElementAttributes().getValuesFrom(readAttributes(in));
+            ve.setPos(readVector(in));
+            elements.add(ve);
+        }
+
+        n = in.readInt();
+        ArrayList<Wire> wires = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            wires.add(new Wire(readVector(in), readVector(in)));
+
+        ArrayList<String> mo = null;
+        n = in.readInt();
+        if (n >= 0) {
+            mo = new ArrayList<>(n);
+            for (int i = 0; i < n; i++)
+                mo.add(readString(in));
+        }
+        return new Circuit(Circuit.VERSION, attributes, elements, wires, mo);
+    }
+
+    /**
+     * @return the release of the program which is stored in the header
+     */
+    static String getRelease() {
+        return ReleaseHolder.RELEASE;
+    }
+
+    private static void writeAttributes(ElementAttributes attributes, DataOutputStream out) throws IOException {
+        Map<String, Object> stored = attributes.getStored();
+        out.writeInt(stored.size());
+        for (Map.Entry<String, Object> e : stored.entrySet()) {
+            writeString(e.getKey(), out);
+            writeValue(e.getKey(), e.getValue(), out);
+        }
+    }
+
+    private static ElementAttributes readAttributes(DataInputStream in) throws IOException {
+        ElementAttributes attributes = new ElementAttributes();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            String key = readString(in);
+            attributes.setStored(key, readValue(key, in));
+        }
+        return attributes;
+    }
+
+    private static void writeValue(String key, Object value, DataOutputStream out) throws IOException {
+        if (value instanceof String) {
+            out.writeByte(T_STRING);
+            writeString((String) value, out);
+        } else if (value instanceof Integer) {
+            out.writeByte(T_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(T_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(T_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Rotation) {
+            out.writeByte(T_ROTATION);
+            out.writeInt(((Rotation) value).getRotation());
+        } else if (value instanceof InValue) {
+            out.writeByte(T_IN_VALUE);
+            InValue v = (InValue) value;
+            out.writeBoolean(v.isHighZ());
+            out.writeLong(v.getValue());
+        } else if (value instanceof TestCaseDescription) {
+            out.writeByte(T_TEST_DATA);
+            writeString(((TestCaseDescription) value).getDataString(), out);
+        } else if (value instanceof DataField) {
+            out.writeByte(T_DATA);
+            DataField df = (DataField) value;
+            out.writeInt(df.size());
+            df.writeRuns((v, count) -> {
+                out.writeInt(count);
+                out.writeLong(v);
+            });
+            out.writeInt(0);
+        } else if (value instanceof InverterConfig) {
+            out.writeByte(T_INVERTER_CONFIG);
+            Collection<String> names = ((InverterConfig) value).getNames();
+            out.writeInt(names.size());
+            for (String name : names)
+                writeString(name, out);
+        } else if (value instanceof Color) {
+            out.writeByte(T_COLOR);
+            out.writeInt(((Color) value).getRGB());
+        } else if (value instanceof File) {
+            out.writeByte(T_FILE);
+            writeString(((File) value).getPath(), out);
+        } else if (value instanceof Enum && getEnumClass(key) == ((Enum) value).getDeclaringClass()) {
+            out.writeByte(T_ENUM);
+            writeString(((Enum) value).name(), out);
+        } else
+            throw new IOException("value type " + value.getClass().getSimpleName() + " is not supported");
+    }
+
+    private static Object readValue(String key, DataInputStream in) throws IOException {
+        int type = in.readByte();
+        switch (type) {
+            case T_STRING:
+                return readString(in);
+            case T_INT:
+                return in.readInt();
+            case T_LONG:
+                return in.readLong();
+            case T_BOOLEAN:
+                return in.readBoolean();
+            case T_ROTATION:
+                return new Rotation(in.readInt());
+            case T_IN_VALUE: {
+                boolean highZ = in.readBoolean();
+                long value = in.readLong();
+                if (!highZ)
+                    return new InValue(value);
+                try {
+                    return new InValue("Z");
+                } catch (Bits.NumberFormatException e) {
+                    throw new IOException(e);
+                }
+            }
+            case T_TEST_DATA:
+                return new TestCaseDescription(readString(in));
+            case T_DATA: {
+                DataField df = new DataField(in.readInt());
+                int addr = 0;
+                int count;
+                while ((count = in.readInt()) > 0) {
+                    long value = in.readLong();
+                    if (value != 0)
+                        for (int i = 0; i < count; i++)
+                            df.setData(addr + i, value);
+                    addr += count;
+                }
+                return df;
+            }
+            case T_INVERTER_CONFIG: {
+                InverterConfig ic = new InverterConfig();
+                int n = in.readInt();
+                for (int i = 0; i < n; i++)
+                    ic.add(readString(in));
+                return ic;
+            }
+            case T_COLOR:
+                return new Color(in.readInt(), true);
+            case T_FILE:
+                return new File(readString(in));
+            case T_ENUM:
+                return readEnum(key, readString(in));
+            default:
+                throw new IOException("unknown value type " + type);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object readEnum(String key, String name) throws IOException {
+        Class<? extends Enum> c = getEnumClass(key);
+        if (c == null)
+            throw new IOException("unknown enum key " + key);
+        try {
+            return Enum.valueOf(c, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static Class<? extends Enum> getEnumClass(String key) {
+        Key k = Keys.getKeyByName(key);
+        if (k == null || !(k.getDefault() instanceof Enum))
+            return null;
+        return ((Enum) k.getDefault()).getDeclaringClass();
+    }
+
+    private static void writeVector(Vector v, DataOutputStream out) throws IOException {
+        out.writeInt(v.x);
+        out.writeInt(v.y);
+    }
+
+    private static Vector readVector(DataInputStream in) throws IOException {
+        int x = in.readInt();
+        return new Vector(x, in.readInt());
+    }
+
+    /**
+     * Strings are written with their length as an int, because
+     * {@link DataOutputStream#writeUTF(String)} is limited to 64k.
+     */
+    private static void writeString(String s, DataOutputStream out) throws IOException {
+        byte[] data = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The release is read from the manifest only once and only if needed.
+     */
+    private static final class ReleaseHolder {
+        private static final String RELEASE = readRelease();
+
+        private static String readRelease() {
+            InfoDialog info = InfoDialog.getInstance();
+            if (info == null)
+                return InfoDialog.UNKNOWN;
+            return info.getRevision();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.elements;
+
+import de.neemann.digital.draw.graphics.Vector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * A uniform grid which is used to find the elements and wires of a circuit
+ * located at a given position or inside a given rectangle without checking all of them.
+ * Every item is stored in all cells its bounding box touches.
+ * A query returns all items whose bounding box intersects the query rectangle, so the caller
+ * has to do the exact check on the returned candidates.
+ * The candidates are returned in the order the items were added to the index.
+ *
+ * @param <T> the type of the items stored
+ */
+final class GridIndex<T> {
+    private static final int CELL_BITS = 7;
+
+    private final HashMap<Long, ArrayList<Entry<T>>> cells;
+    private final IdentityHashMap<T, Entry<T>> entries;
+    private long nextOrder;
+    private int queryMark;
+
+    /**
+     * Creates a new empty index
+     */
+    GridIndex() {
+        cells = new HashMap<>();
+        entries = new IdentityHashMap<>();
+    }
+
+    /**
+     * @return the number of items in this index
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns true if the given item is in the index
+     *
+     * @param item the item
+     * @return true if the item is present
+     */
+    boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    /**
+     * Adds an item to the index.
+     * If the item is already present, it is moved to the new bounding box and keeps its order.
+     *
+     * @param item the item
+     * @param min  the upper left corner of the items bounding box
+     * @param max  the lower right corner of the items bounding box
+     */
+    void add(T item, Vector min, Vector max) {
+        Entry<T> old = entries.get(item);
+        long order = old == null ? nextOrder++ : old.order;
+        remove(item);
+        Entry<T> e = new Entry<>(item, order, min, max);
+        entries.put(item, e);
+        for (int cx = cell(e.minX); cx <= cell(e.maxX); cx++)
+            for (int cy = cell(e.minY); cy <= cell(e.maxY); cy++)
+                cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(e);
+    }
+
+    /**
+     * Removes an item from the index
+     *
+     * @param item the item to remove
+     */
+    void remove(T item) {
+        Entry<T> e = entries.remove(item);
+        if (e == null)
+            return;
+        for (int cx = cell(e.minX); cx <= cell(e.maxX); cx++)
+            for (int cy = cell(e.minY); cy <= cell(e.maxY); cy++) {
+                Long k = key(cx, cy);
+                ArrayList<Entry<T>> list = cells.get(k);
+                if (list != null) {
+                    list.remove(e);
+                    if (list.isEmpty())
+                        cells.remove(k);
+                }
+            }
+    }
+
+    /**
+     * Returns all items whose bounding box intersects the given rectangle.
+     *
+     * @param min upper left corner of the rectangle
+     * @param max lower right corner of the rectangle
+     * @return the items in the order they were added
+     */
+    ArrayList<T> query(Vector min, Vector max) {
+        ArrayList<Entry<T>> found = new ArrayList<>();
+        int mark = ++queryMark;
+        int cx0 = cell(min.x);
+        int cx1 = cell(max.x);
+        int cy0 = cell(min.y);
+        int cy1 = cell(max.y);
+        long cellsInRect = (long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+        if (cellsInRect > cells.size()) {
+            // large rectangle, it's cheaper to check all entries
+            for (Entry<T> e : entries.values())
+                if (e.intersects(min, max))
+                    found.add(e);
+        } else {
+            for (int cx = cx0; cx <= cx1; cx++)
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    ArrayList<Entry<T>> list = cells.get(key(cx, cy));
+                    if (list != null)
+                        for (Entry<T> e : list)
+                            if (e.mark != mark) {
+                                e.mark = mark;
+                                if (e.intersects(min, max))
+                                    found.add(e);
+                            }
+                }
+        }
+
+        found.sort((a, b) -> Long.compare(a.order, b.order));
+        ArrayList<T> items = new ArrayList<>(found.size());
+        for (Entry<T> e : found)
+            items.add(e.item);
+        return items;
+    }
+
+    private static int cell(int coordinate) {
+        return coordinate >> CELL_BITS;
+    }
+
+    private static Long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long order;
+        private final int minX;
+        private final int minY;
+        private final int maxX;
+        private final int maxY;
+        private int mark;
+
+        private Entry(T item, long order, Vector min, Vector max) {
+            this.item = item;
+            this.order = order;
+            minX = Math.min(min.x, max.x);
+            minY = Math.min(min.y, max.y);
+            maxX = Math.max(min.x, max.x);
+            maxY = Math.max(min.y, max.y);
+        }
+
+        private boolean intersects(Vector min, Vector max) {
+            return minX <= max.x && min.x <= maxX && minY <= max.y && min.y <= maxY;
+        }
+    }
+}
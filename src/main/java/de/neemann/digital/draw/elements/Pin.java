@@ -86,6 +86,13 @@ public class Pin extends PinInfo {
         return this;
     }
 
+    /**
+     * @return the visual element this pin belongs to
+     */
+    public VisualElement getVisualElement() {
+        return visualElement;
+    }
+
     @Override
     public String toString() {
         if (visualElement!=null)
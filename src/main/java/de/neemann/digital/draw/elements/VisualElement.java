@@ -37,6 +37,8 @@ public class VisualElement implements Drawable, Movable, AttributeListener {
     // shapes are recreated if attributes are changed, therefore a factory is necessary and not only a simple shape!
     private transient ShapeFactory shapeFactory;
     private transient Transform transform;
+    // the circuit whose element index contains this element, is notified if the geometry changes
+    private transient Circuit indexedBy;
 
     // these fields are stored to disk
     private final String elementName;
@@ -103,7 +105,7 @@ public class VisualElement implements Drawable, Movable, AttributeListener {
     @Override
     public void attributeChanged() {
         shape = null;
-        resetGeometry();
+        geometryChanged();
     }
 
     private void resetGeometry() {
@@ -112,6 +114,22 @@ public class VisualElement implements Drawable, Movable, AttributeListener {
         minMaxText = null;
     }
 
+    private void geometryChanged() {
+        resetGeometry();
+        if (indexedBy != null)
+            indexedBy.elementGeometryChanged(this);
+    }
+
+    /**
+     * Sets the circuit whose element index contains this element.
+     * The circuit is notified if the element is moved or modified.
+     *
+     * @param circuit the circuit
+     */
+    void setIndexedBy(Circuit circuit) {
+        indexedBy = circuit;
+    }
+
     /**
      * @return the position of this element
      */
@@ -127,7 +145,7 @@ public class VisualElement implements Drawable, Movable, AttributeListener {
      */
     public VisualElement setPos(Vector pos) {
         this.pos = pos;
-        resetGeometry();
+        geometryChanged();
         return this;
     }
 
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.library;
+
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.elements.CircuitStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.zip.CRC32;
+
+/**
+ * Caches the circuits read from the library files.
+ * A cached circuit is reused as long as the content of the file is unchanged. The content is
+ * always compared by its size and its SHA-256 hash. The modification time is not used, because
+ * a file can be modified without changing its modification time, e.g. if the file system has a
+ * coarse time resolution or if a file is copied together with its time stamp. Reading and hashing
+ * a file is much faster than parsing it.
+ * <p>
+ * If a cache folder is set, the circuits are also stored on disk by the {@link CircuitStore},
+ * together with the path, the size and the hash of the file they are read from.
+ * So at a cold start only the files which have changed since the last start are parsed.
+ * The cache is thread safe.
+ */
+final class CircuitCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitCache.class);
+    private static final int MAGIC = 0x44494744;
+    private static final String SUFFIX = ".circuit";
+    private static final int HASH_SIZE = 32;
+
+    private final HashMap<File, Entry> map = new HashMap<>();
+    private File folder;
+
+    /**
+     * Sets the folder used to store the circuits on disk.
+     * If no folder is set, the circuits are only cached in memory.
+     *
+     * @param folder the folder, maybe null
+     */
+    void setFolder(File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Returns the circuit stored in the given file.
+     * The file is only parsed if its content has changed since it was read the last time.
+     *
+     * @param file the file
+     * @return the circuit
+     * @throws IOException IOException
+     */
+    Circuit load(File file) throws IOException {
+        if (!file.isFile())
+            throw new FileNotFoundException(file.getPath());
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        byte[] hash = hash(data);
+        Entry e;
+        synchronized (map) {
+            e = map.get(file);
+        }
+        if (e != null && e.matches(data.length, hash))
+            return e.circuit;
+
+        e = readStored(file);
+        if (e != null && e.matches(data.length, hash)) {
+            put(file, e);
+            return e.circuit;
+        }
+
+        Circuit circuit = Circuit.loadCircuit(new ByteArrayInputStream(data), null);
+        circuit.setOrigin(file);
+        Entry entry = new Entry(data.length, hash, circuit);
+        put(file, entry);
+        writeStored(file, entry);
+        return circuit;
+    }
+
+    /**
+     * Removes the given file from the cache
+     *
+     * @param file the file
+     */
+    void remove(File file) {
+        synchronized (map) {
+            map.remove(file);
+        }
+        File f = getStoreFile(file);
+        if (f != null && f.exists() && !f.delete())
+            LOGGER.debug("could not delete " + f);
+    }
+
+    /**
+     * Removes all files which are not contained in the given collection.
+     * Called after the library is scanned, so deleted or renamed files are removed.
+     * The circuits stored on disk are removed if their file does not exist anymore.
+     * Files which are not part of this library may be used by an other library, so they are kept on disk.
+     *
+     * @param files the files to keep
+     */
+    void retain(Collection<File> files) {
+        synchronized (map) {
+            map.keySet().retainAll(new HashSet<>(files));
+        }
+
+        if (folder == null)
+            return;
+        File[] stored = folder.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (stored == null)
+            return;
+        for (File f : stored) {
+            String path = null;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+                if (in.readInt() == MAGIC)
+                    path = in.readUTF();
+            } catch (IOException e) {
+                LOGGER.debug("could not read " + f);
+            }
+            if ((path == null || !new File(path).isFile()) && !f.delete())
+                LOGGER.debug("could not delete " + f);
+        }
+    }
+
+    private void put(File file, Entry entry) {
+        synchronized (map) {
+            map.put(file, entry);
+        }
+    }
+
+    private Entry readStored(File file) {
+        File f = getStoreFile(file);
+        if (f == null || !f.isFile())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(file.getAbsolutePath()))
+                return null;
+            long size = in.readLong();
+            byte[] hash = new byte[HASH_SIZE];
+            in.readFully(hash);
+            Circuit circuit = CircuitStore.read(in);
+            circuit.setOrigin(file);
+            return new Entry(size, hash, circuit);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("could not read stored circuit " + f + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the entry on disk. The entry is written to a temporary file which is renamed
+     * afterwards, so an other thread or program instance never reads an incomplete file.
+     */
+    private void writeStored(File file, Entry entry) {
+        File f = getStoreFile(file);
+        if (f == null)
+            return;
+        File temp = null;
+        try {
+            if (!folder.isDirectory() && !folder.mkdirs())
+                throw new IOException("could not create " + folder);
+            temp = File.createTempFile("store", ".tmp", folder);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(file.getAbsolutePath());
+                out.writeLong(entry.size);
+                out.write(entry.hash);
+                CircuitStore.write(entry.circuit, out);
+            }
+            Files.move(temp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("could not store circuit " + file + ": " + e.getMessage());
+            if (temp != null && temp.exists() && !temp.delete())
+                LOGGER.debug("could not delete " + temp);
+        }
+    }
+
+    private File getStoreFile(File file) {
+        if (folder == null)
+            return null;
+        CRC32 crc = new CRC32();
+        crc.update(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        return new File(folder, Long.toHexString(crc.getValue()) + SUFFIX);
+    }
+
+    private static byte[] hash(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final byte[] hash;
+        private final Circuit circuit;
+
+        private Entry(long size, byte[] hash, Circuit circuit) {
+            this.size = size;
+            this.hash = hash;
+            this.circuit = circuit;
+        }
+
+        private boolean matches(long size, byte[] hash) {
+            return this.size == size && Arrays.equals(this.hash, hash);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import de.neemann.digital.draw.elements.Circuit;
 import de.neemann.digital.draw.elements.PinException;
 import de.neemann.digital.draw.elements.VisualElement;
 import de.neemann.digital.draw.model.ModelCreator;
+import de.neemann.digital.draw.model.ModelTemplate;
 import de.neemann.digital.draw.model.NetList;
 import de.neemann.digital.lang.Lang;
 
@@ -26,7 +27,6 @@ public class CustomElement implements Element {
 
     private final Circuit circuit;
     private final ElementLibrary library;
-    private NetList netList;
 
     /**
      * Creates a new custom element
@@ -42,6 +42,8 @@ public class CustomElement implements Element {
     /**
      * Gets a {@link ModelCreator} of this circuit.
      * Every time this method is called a new {@link ModelCreator} is created.
+     * The circuit is flattened only once, further instances are created from the
+     * {@link ModelTemplate} stored in the library.
      *
      * @param subName                 name of the circuit, used to name unique elements
      * @param depth                   recursion depth, used to detect a circuit which contains itself
@@ -52,13 +54,16 @@ public class CustomElement implements Element {
      * @throws ElementNotFoundException ElementNotFoundException
      */
     public ModelCreator getModelCreator(String subName, int depth, VisualElement containingVisualElement) throws PinException, NodeException, ElementNotFoundException {
-        if (netList == null)
-            netList = new NetList(circuit);
-
         if (depth > MAX_DEPTH)
             throw new NodeException(Lang.get("err_recursiveNestingAt_N0", circuit.getOrigin()));
 
-        return new ModelCreator(circuit, library, true, new NetList(netList, containingVisualElement), subName, depth, containingVisualElement);
+        ModelTemplate template = library.getModelTemplate(circuit);
+        if (template == null) {
+            template = new ModelTemplate(new ModelCreator(circuit, library, true, new NetList(circuit), "", depth, containingVisualElement));
+            library.putModelTemplate(circuit, template);
+        }
+
+        return template.createModelCreator(subName, containingVisualElement);
     }
 
     @Override
@@ -23,6 +23,8 @@ import de.neemann.digital.core.flipflops.Monoflop;
 import de.neemann.digital.draw.elements.Circuit;
 import de.neemann.digital.draw.elements.PinException;
 import de.neemann.digital.draw.elements.Tunnel;
+import de.neemann.digital.draw.elements.VisualElement;
+import de.neemann.digital.draw.model.ModelTemplate;
 import de.neemann.digital.draw.shapes.ShapeFactory;
 import de.neemann.digital.draw.shapes.custom.CustomShapeDescription;
 import de.neemann.digital.gui.Settings;
@@ -41,6 +43,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The ElementLibrary is responsible for storing all the components which can be used in a circuit.
@@ -50,6 +57,9 @@ import java.util.*;
  * When a file is selected it is loaded to the library. After that also an icon is available.
  * This is done because the loading of a circuit and the creation of an icon is very time consuming and should
  * be avoided if not necessary. It's a kind of lazy loading.
+ * If preloading is enabled, the files are read in the background after the folder is scanned, so that
+ * a file is usually already read if it is selected. The circuits read are cached as long as the file is
+ * unchanged.
  */
 public class ElementLibrary implements Iterable<ElementLibrary.ElementContainer> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ElementLibrary.class);
@@ -79,6 +89,11 @@ public class ElementLibrary implements Iterable<ElementLibrary.ElementContainer>
     private final HashSet<String> isProgrammable = new HashSet<>();
     private final ArrayList<LibraryListener> listeners = new ArrayList<>();
     private final LibraryNode root;
+    // the flattened nested circuits, a template contains the templates of all its nested circuits
+    private final IdentityHashMap<Circuit, ModelTemplate> modelTemplates = new IdentityHashMap<>();
+    private final CircuitCache circuitCache = new CircuitCache();
+    private final HashMap<File, Future<Circuit>> preloads = new HashMap<>();
+    private boolean preloadEnabled;
     private JarComponentManager jarComponentManager;
     private ShapeFactory shapeFactory;
     private ElementLibraryFolder custom;
@@ -349,6 +364,26 @@ public class ElementLibrary implements Iterable<ElementLibrary.ElementContainer>
         }
     }
 
+    /**
+     * If enabled, all circuits available in the library are read in the background after
+     * the library is scanned. If disabled, the circuits are only read when needed.
+     *
+     * @param preloadEnabled true if the circuits are to be read in the background
+     */
+    public void setPreloadEnabled(boolean preloadEnabled) {
+        this.preloadEnabled = preloadEnabled;
+    }
+
+    /**
+     * Sets the folder which is used to store the parsed circuits between two program starts.
+     * If no folder is set, the circuits are only cached in memory.
+     *
+     * @param cacheFolder the folder, maybe null
+     */
+    public void setCacheFolder(File cacheFolder) {
+        circuitCache.setFolder(cacheFolder);
+    }
+
     /**
      * @return the actual root file path
      */
@@ -429,13 +464,79 @@ public class ElementLibrary implements Iterable<ElementLibrary.ElementContainer>
 
     private void rescanFolder() {
         LOGGER.debug("rescan folder");
+        clearModelTemplates();
         LibraryNode cn = custom.scanFolder(rootLibraryPath, false);
 
         populateNodeMap();
+        evictRemovedFiles();
 
         if (cn != null)
             fireLibraryChanged(cn);
         lastRescanTime = System.currentTimeMillis();
+
+        if (preloadEnabled)
+            startPreload();
+    }
+
+    /**
+     * Removes the cached circuits of files which are not part of the library anymore
+     */
+    private void evictRemovedFiles() {
+        ArrayList<File> files = new ArrayList<>();
+        root.traverse(libraryNode -> {
+            if (libraryNode.isCustom())
+                files.add(libraryNode.getFile());
+        });
+        circuitCache.retain(files);
+    }
+
+    /**
+     * Reads all circuits which are not yet imported in the background.
+     * The circuits are independent of each other, the nested circuits are resolved not until
+     * a model is created, so all files are read in parallel.
+     * Only the reading of the files is done in the background, the import itself is done by
+     * {@link LibraryNode#getDescription()} as before, so the library nodes are not modified
+     * by the background threads.
+     */
+    private void startPreload() {
+        synchronized (preloads) {
+            for (Future<Circuit> f : preloads.values())
+                f.cancel(false);
+            preloads.clear();
+            root.traverse(libraryNode -> {
+                if (libraryNode.isCustom() && libraryNode.isUnique() && !libraryNode.isDescriptionLoaded()) {
+                    final File file = libraryNode.getFile();
+                    preloads.put(file, PreloadHolder.EXECUTOR.submit(() -> circuitCache.load(file)));
+                }
+            });
+            LOGGER.debug("preload " + preloads.size() + " circuits");
+        }
+    }
+
+    /**
+     * Returns the circuit stored in the given file.
+     * If the file is read in the background, the method waits until the file is read.
+     *
+     * @param file the file
+     * @return the circuit
+     * @throws IOException IOException
+     */
+    Circuit loadCircuit(File file) throws IOException {
+        Future<Circuit> f;
+        synchronized (preloads) {
+            f = preloads.remove(file);
+        }
+        if (f != null) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | CancellationException e) {
+                // the file is read again to report the error
+                LOGGER.debug("preload of " + file + " failed");
+            }
+        }
+        return circuitCache.load(file);
     }
 
     /**
@@ -505,6 +606,9 @@ public class ElementLibrary implements Iterable<ElementLibrary.ElementContainer>
      * @throws IOException IOException
      */
     public void invalidateElement(File name) throws IOException {
+        // the templates of all circuits which contain the element are invalid as well
+        clearModelTemplates();
+        circuitCache.remove(name);
         LibraryNode n = map.get(name.getName());
         if (n != null)
             n.invalidate();
@@ -514,6 +618,37 @@ public class ElementLibrary implements Iterable<ElementLibrary.ElementContainer>
         }
     }
 
+    /**
+     * Returns the template of a nested circuit
+     *
+     * @param circuit the nested circuit
+     * @return the template or null if there is no template available
+     */
+    public ModelTemplate getModelTemplate(Circuit circuit) {
+        synchronized (modelTemplates) {
+            return modelTemplates.get(circuit);
+        }
+    }
+
+    /**
+     * Stores the template of a nested circuit.
+     * The template is removed if an element is invalidated.
+     *
+     * @param circuit  the nested circuit
+     * @param template the template
+     */
+    public void putModelTemplate(Circuit circuit, ModelTemplate template) {
+        synchronized (modelTemplates) {
+            modelTemplates.put(circuit, template);
+        }
+    }
+
+    private void clearModelTemplates() {
+        synchronized (modelTemplates) {
+            modelTemplates.clear();
+        }
+    }
+
     /**
      * Updates all entries
      *
@@ -542,10 +677,12 @@ public class ElementLibrary implements Iterable<ElementLibrary.ElementContainer>
             LOGGER.debug("load element " + file);
             Circuit circuit;
             try {
-                circuit = Circuit.loadCircuit(file, shapeFactory);
+                circuit = loadCircuit(file);
             } catch (FileNotFoundException e) {
                 throw new IOException(Lang.get("err_couldNotFindIncludedFile_N0", file));
             }
+            for (VisualElement ve : circuit.getElements())
+                ve.setShapeFactory(shapeFactory);
             ElementTypeDescriptionCustom description =
                     new ElementTypeDescriptionCustom(file,
                             attributes -> new CustomElement(circuit, ElementLibrary.this),
@@ -691,6 +828,19 @@ public class ElementLibrary implements Iterable<ElementLibrary.ElementContainer>
         }
     }
 
+    /**
+     * The threads used to read the circuits in the background.
+     * Are created only if needed.
+     */
+    private static final class PreloadHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread thread = new Thread(r, "library preload");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
     private static final class PopulateMapVisitor implements Visitor {
         private final HashMap<String, LibraryNode> map;
         private StringBuilder warningMessage;
@@ -352,7 +352,7 @@ public class LibraryNode implements Iterable<LibraryNode> {
                     if (toolTipText == null) {
                         try {
                             LOGGER.debug("load tooltip from " + file);
-                            Circuit c = Circuit.loadCircuit(file, null);
+                            Circuit c = library.loadCircuit(file);
                             toolTipText = new LineBreaker().toHTML().breakLines(Lang.evalMultilingualContent(c.getAttributes().get(Keys.DESCRIPTION)));
                         } catch (Exception e) {
                             toolTipText = Lang.get("msg_fileNotImportedYet");
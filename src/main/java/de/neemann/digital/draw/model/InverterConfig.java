@@ -8,6 +8,8 @@ package de.neemann.digital.draw.model;
 import de.neemann.digital.core.NodeWithoutDelay;
 import de.neemann.digital.core.ObservableValue;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 
 /**
@@ -38,6 +40,15 @@ public class InverterConfig {
         return this;
     }
 
+    /**
+     * @return the names of the inverted inputs
+     */
+    public Collection<String> getNames() {
+        if (inputs == null)
+            return Collections.emptySet();
+        return Collections.unmodifiableSet(inputs);
+    }
+
     /**
      * Handles the inverting of a input signal
      * if the given input is not to invert, the original input is returned,
@@ -56,13 +67,9 @@ public class InverterConfig {
             return orig;
 
         ObservableValue out = new ObservableValue("~" + orig.getName(), orig.getBits());
-        orig.addObserver(new NodeWithoutDelay(out) {
-            @Override
-            public void hasChanged() {
-                out.set(~orig.getValue(), orig.getHighZ());
-            }
-        });
-        out.set(~orig.getValue(), orig.getHighZ());
+        Inverter inverter = new Inverter(orig, out);
+        orig.addObserver(inverter);
+        inverter.hasChanged();
         return out;
     }
 
@@ -110,4 +117,30 @@ public class InverterConfig {
     public int hashCode() {
         return inputs != null ? inputs.hashCode() : 0;
     }
+
+    /**
+     * The node which inverts an input without a delay
+     */
+    public static final class Inverter extends NodeWithoutDelay {
+        private final ObservableValue input;
+        private final ObservableValue output;
+
+        private Inverter(ObservableValue input, ObservableValue output) {
+            super(output);
+            this.input = input;
+            this.output = output;
+        }
+
+        @Override
+        public void hasChanged() {
+            output.set(~input.getValue(), input.getHighZ());
+        }
+
+        /**
+         * @return the input which is inverted
+         */
+        public ObservableValue getInput() {
+            return input;
+        }
+    }
 }
@@ -100,14 +100,7 @@ public class ModelCreator implements Iterable<ModelEntry> {
 
                 Pins pins = ve.getPins();
                 ElementTypeDescription elementType = library.getElementType(ve.getElementName());
-                ElementAttributes attr = ve.getElementAttributes();
-                if (attr.getCleanLabel().contains("*")
-                        && !ve.equalsDescription(In.DESCRIPTION)
-                        && !ve.equalsDescription(Out.DESCRIPTION)) {
-                    attr = new ElementAttributes(attr);
-                    attr.set(Keys.LABEL, attr.getCleanLabel().replace("*", subName));
-                }
-                Element element = elementType.createElement(attr);
+                Element element = elementType.createElement(getAttributes(ve, subName));
                 ve.setElement(element);
                 pins.bindOutputsToOutputPins(element.getOutputs());
 
@@ -134,7 +127,8 @@ public class ModelCreator implements Iterable<ModelEntry> {
                 }
 
                 if (isNotAIO)
-                    entries.add(new ModelEntry(element, pins, ve, elementType.getInputDescription(ve.getElementAttributes()), isNestedCircuit, circuit.getOrigin(), cve));
+                    entries.add(new ModelEntry(element, pins, ve, elementType.getInputDescription(ve.getElementAttributes()), isNestedCircuit, circuit.getOrigin(), cve)
+                            .setCreationInfo(elementType, subName));
 
                 for (Pin p : pins)
                     netList.add(p);
@@ -212,6 +206,32 @@ public class ModelCreator implements Iterable<ModelEntry> {
         }
     }
 
+    /**
+     * Creates a nested circuit from the already created parts.
+     * Used by the {@link ModelTemplate}.
+     */
+    ModelCreator(Circuit circuit, ArrayList<ModelEntry> entries, NetList netList, HashMap<String, Pin> ioMap) {
+        this.circuit = circuit;
+        this.entries = entries;
+        this.netList = netList;
+        this.ioMap = ioMap;
+    }
+
+    /**
+     * Returns the attributes used to create the element.
+     * A star in the label is replaced by the name of the circuit.
+     */
+    static ElementAttributes getAttributes(VisualElement ve, String subName) {
+        ElementAttributes attr = ve.getElementAttributes();
+        if (attr.getCleanLabel().contains("*")
+                && !ve.equalsDescription(In.DESCRIPTION)
+                && !ve.equalsDescription(Out.DESCRIPTION)) {
+            attr = new ElementAttributes(attr);
+            attr.set(Keys.LABEL, attr.getCleanLabel().replace("*", subName));
+        }
+        return attr;
+    }
+
     private void checkWiresForSplitterConnection(Circuit circuit) {
         HashSet<Vector> posSet = new HashSet<>();
         for (VisualElement e : circuit.getElements())
@@ -222,7 +242,7 @@ public class ModelCreator implements Iterable<ModelEntry> {
             w.setIsConnectedToSplitter(posSet.contains(w.p1) || posSet.contains(w.p2));
     }
 
-    private String combineNames(String s1, String s2) {
+    static String combineNames(String s1, String s2) {
         if (s1.length() > 0) {
             if (s2.length() > 0) {
                 return s1 + "-" + s2;
@@ -233,6 +253,18 @@ public class ModelCreator implements Iterable<ModelEntry> {
         }
     }
 
+    ArrayList<ModelEntry> getEntryList() {
+        return entries;
+    }
+
+    NetList getNetList() {
+        return netList;
+    }
+
+    HashMap<String, Pin> getIOMap() {
+        return ioMap;
+    }
+
     private void remove(Net childNet) {
         netList.remove(childNet);
     }
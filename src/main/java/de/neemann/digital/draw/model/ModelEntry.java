@@ -10,6 +10,7 @@ import de.neemann.digital.core.ObservableValue;
 import de.neemann.digital.core.ObservableValues;
 import de.neemann.digital.core.Observer;
 import de.neemann.digital.core.element.Element;
+import de.neemann.digital.core.element.ElementTypeDescription;
 import de.neemann.digital.core.element.Keys;
 import de.neemann.digital.core.element.PinDescription;
 import de.neemann.digital.core.element.PinDescriptions;
@@ -34,6 +35,8 @@ public class ModelEntry {
     private final VisualElement containingVisualElement; // Only used to create better error messages
     private final VisualElement visualElement;
     private IOState ioState;
+    private ElementTypeDescription elementType;
+    private String subName;
 
     /**
      * Creates a new instance
@@ -56,6 +59,36 @@ public class ModelEntry {
         this.containingVisualElement = containingVisualElement;
     }
 
+    /**
+     * Stores the information needed to create the element again.
+     * Used by the {@link ModelTemplate} to create further instances of a nested circuit.
+     *
+     * @param elementType the type of the element
+     * @param subName     the name of the circuit the element belongs to
+     * @return this for chained calls
+     */
+    ModelEntry setCreationInfo(ElementTypeDescription elementType, String subName) {
+        this.elementType = elementType;
+        this.subName = subName;
+        return this;
+    }
+
+    ElementTypeDescription getElementType() {
+        return elementType;
+    }
+
+    String getSubName() {
+        return subName;
+    }
+
+    PinDescriptions getInputNames() {
+        return inputNames;
+    }
+
+    File getOrigin() {
+        return origin;
+    }
+
     /**
      * Sets the Inputs of the element contained in this entry
      *
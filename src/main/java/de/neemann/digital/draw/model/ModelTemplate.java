@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.model;
+
+import de.neemann.digital.core.Node;
+import de.neemann.digital.core.element.Element;
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.elements.Pin;
+import de.neemann.digital.draw.elements.PinException;
+import de.neemann.digital.draw.elements.Pins;
+import de.neemann.digital.draw.elements.VisualElement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The flattened form of a nested circuit.
+ * The template is created once from a {@link ModelCreator} of the nested circuit, which means that
+ * all nested circuits contained in the circuit are already resolved.
+ * It stores the elements to create and the nets as lists of pin indices. So creating a further
+ * instance of the circuit only needs to create the elements and the pins and to fill the nets.
+ * Neither the circuit nor its nested circuits are walked again.
+ */
+public final class ModelTemplate {
+    private final Circuit circuit;
+    private final ModelEntry[] entries;
+    private final int[] firstPin;
+    private final Pin[] pins;
+    private final Net[] nets;
+    private final int[][] netPins;
+    private final String[] ioLabels;
+    private final int[] ioPins;
+
+    /**
+     * Creates a new template
+     *
+     * @param creator the model creator of the nested circuit
+     */
+    public ModelTemplate(ModelCreator creator) {
+        circuit = creator.getCircuit();
+
+        ArrayList<ModelEntry> entryList = creator.getEntryList();
+        HashMap<String, Pin> ioMap = creator.getIOMap();
+        entries = entryList.toArray(new ModelEntry[0]);
+        firstPin = new int[entries.length + 1];
+        ArrayList<Pin> pinList = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            firstPin[i] = pinList.size();
+            for (Pin p : entries[i].getPins())
+                pinList.add(p);
+        }
+        firstPin[entries.length] = pinList.size();
+
+        ioLabels = new String[ioMap.size()];
+        ioPins = new int[ioMap.size()];
+        int n = 0;
+        for (Map.Entry<String, Pin> e : ioMap.entrySet()) {
+            ioLabels[n] = e.getKey();
+            ioPins[n] = pinList.size();
+            pinList.add(e.getValue());
+            n++;
+        }
+
+        IdentityHashMap<Pin, Integer> pinIndex = new IdentityHashMap<>();
+        for (int i = 0; i < pinList.size(); i++)
+            pinIndex.put(pinList.get(i), i);
+
+        NetList netList = creator.getNetList();
+        nets = new Net[netList.size()];
+        netPins = new int[netList.size()][];
+        n = 0;
+        for (Net net : netList) {
+            ArrayList<Pin> p = net.getPins();
+            int[] indices = new int[p.size()];
+            for (int i = 0; i < indices.length; i++) {
+                Integer index = pinIndex.get(p.get(i));
+                if (index == null) {
+                    // an unconnected input pin of a nested circuit remains in the net
+                    index = pinList.size();
+                    pinList.add(p.get(i));
+                    pinIndex.put(p.get(i), index);
+                }
+                indices[i] = index;
+            }
+            nets[n] = net;
+            netPins[n] = indices;
+            n++;
+        }
+        pins = pinList.toArray(new Pin[0]);
+    }
+
+    /**
+     * Creates a new instance of the nested circuit
+     *
+     * @param subName                 name of the circuit, used to name unique elements
+     * @param containingVisualElement the topmost containing visual element
+     * @return the model creator of the new instance
+     * @throws PinException PinException
+     */
+    public ModelCreator createModelCreator(String subName, VisualElement containingVisualElement) throws PinException {
+        Pin[] newPins = new Pin[pins.length];
+        ArrayList<ModelEntry> newEntries = new ArrayList<>(entries.length);
+        for (int i = 0; i < entries.length; i++) {
+            ModelEntry me = entries[i];
+            VisualElement ve = me.getVisualElement();
+            String name = ModelCreator.combineNames(subName, me.getSubName());
+            try {
+                Element element = me.getElementType().createElement(ModelCreator.getAttributes(ve, name));
+                ve.setElement(element);
+
+                Pins p = new Pins();
+                for (int j = firstPin[i]; j < firstPin[i + 1]; j++) {
+                    newPins[j] = copy(pins[j]);
+                    p.add(newPins[j]);
+                }
+                p.bindOutputsToOutputPins(element.getOutputs());
+
+                if (element instanceof Node)
+                    ((Node) element).setOrigin(me.getOrigin());
+
+                newEntries.add(new ModelEntry(element, p, ve, me.getInputNames(), true, me.getOrigin(), containingVisualElement)
+                        .setCreationInfo(me.getElementType(), name));
+            } catch (PinException e) {
+                e.setOrigin(me.getOrigin());
+                e.setVisualElement(containingVisualElement);
+                throw e;
+            }
+        }
+
+        for (int i = firstPin[entries.length]; i < pins.length; i++)
+            newPins[i] = copy(pins[i]);
+
+        HashMap<String, Pin> ioMap = new HashMap<>();
+        for (int i = 0; i < ioLabels.length; i++)
+            ioMap.put(ioLabels[i], newPins[ioPins[i]]);
+
+        ArrayList<Net> newNets = new ArrayList<>(nets.length);
+        for (int i = 0; i < nets.length; i++) {
+            int[] indices = netPins[i];
+            ArrayList<Pin> p = new ArrayList<>(indices.length);
+            for (int index : indices)
+                p.add(newPins[index]);
+            newNets.add(new Net(nets[i], containingVisualElement, p));
+        }
+
+        return new ModelCreator(circuit, newEntries, new NetList(newNets), ioMap);
+    }
+
+    private static Pin copy(Pin pin) {
+        return new Pin(pin.getPos(), pin).setVisualElement(pin.getVisualElement());
+    }
+}
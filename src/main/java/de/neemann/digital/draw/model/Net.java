@@ -42,49 +42,38 @@ public class Net {
      * @param visualElement the containing visual element, only used to create better error messages
      */
     public Net(Net toCopy, VisualElement visualElement) {
+        this(toCopy, visualElement, new ArrayList<>(toCopy.pins)); // Pins are changed so create a deep copy
+    }
+
+    /**
+     * Creates a copy of the given net which contains the given pins
+     *
+     * @param toCopy        the net to copy
+     * @param visualElement the containing visual element, only used to create better error messages
+     * @param pins          the pins of the new net
+     */
+    Net(Net toCopy, VisualElement visualElement, ArrayList<Pin> pins) {
         points = toCopy.points;  // no deep copy of points necessary
         this.visualElement = visualElement;
         wires = null;            // wires not needed
-        pins = new ArrayList<>(toCopy.pins); // Pins are changed so create a deep copy
+        this.pins = pins;
         labelSet = new HashSet<>(toCopy.labelSet); //ToDo copy necessary?
         origin = toCopy.origin;
     }
 
     /**
-     * Creates a net containing of a single wire
+     * Creates a net containing the given wires
      *
-     * @param w the wire
+     * @param points the end points of the wires
+     * @param wires  the wires
      */
-    public Net(Wire w) {
-        points = new HashSet<>();
-        points.add(w.p1);
-        points.add(w.p2);
+    Net(HashSet<Vector> points, ArrayList<Wire> wires) {
+        this.points = points;
+        this.wires = wires;
         pins = new ArrayList<>();
-        wires = new ArrayList<>();
-        wires.add(w);
         labelSet = new HashSet<>();
     }
 
-    /**
-     * Tries to add the given wire to this net
-     *
-     * @param wire the wire
-     * @return true if the given wire is connected to one of the old wires.
-     */
-    public Vector tryMerge(Wire wire) {
-        if (points.contains(wire.p1)) {
-            wires.add(wire);
-            points.add(wire.p2);
-            return wire.p2;
-        }
-        if (points.contains(wire.p2)) {
-            wires.add(wire);
-            points.add(wire.p1);
-            return wire.p1;
-        }
-        return null;
-    }
-
     /**
      * Checks if the given position is part of this net
      *
@@ -11,14 +11,29 @@ import de.neemann.digital.draw.graphics.Vector;
 import de.neemann.digital.lang.Lang;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
- * Holds all the nets in a circuit
+ * Holds all the nets in a circuit.
+ * The nets are created by a union find structure over the end points of the wires.
+ * The positions of the nets created from the circuit are stored in a hash map, so
+ * the net of a position can be found without checking all nets.
  */
 public class NetList implements Iterable<Net> {
 
     private final ArrayList<Net> netList;
+    // maps the positions to the index of the net in netsOfCircuit, shared by all copies
+    private final HashMap<Vector, Integer> netIndexOfPos;
+    // the nets created from the circuit, a removed net is set to null
+    private final Net[] netsOfCircuit;
+    // the nets added by add(NetList) which are not indexed by their position
+    private final ArrayList<Net> addedNets;
+    // the last known net of a pin, needs to be checked because pins are moved by the nets methods
+    private final HashMap<Pin, Net> netOfPin;
 
     /**
      * Creates a net list from the given circuit
@@ -28,16 +43,14 @@ public class NetList implements Iterable<Net> {
      */
     public NetList(Circuit circuit) throws PinException {
         netList = new ArrayList<>();
-        for (Wire w : circuit.getWires())
-            add(w);
+        netIndexOfPos = new HashMap<>();
+        addedNets = new ArrayList<>();
+        netOfPin = new HashMap<>();
+        createNets(circuit.getWires());
 
         for (VisualElement ve : circuit.getElements())
             if (ve.equalsDescription(Tunnel.DESCRIPTION)) {
-                Vector pos = ve.getPos();
-                Net found = null;
-                for (Net n : netList)
-                    if (n.contains(pos))
-                        found = n;
+                Integer found = netIndexOfPos.get(ve.getPos());
 
                 String label = ve.getElementAttributes().get(Keys.NETNAME).trim();
                 if (found == null) {
@@ -46,7 +59,7 @@ public class NetList implements Iterable<Net> {
                     throw e;
                 }
 
-                found.addLabel(label);
+                netList.get(found).addLabel(label);
             }
 
         boolean hasLabel = false;
@@ -58,25 +71,145 @@ public class NetList implements Iterable<Net> {
 
         if (hasLabel)
             mergeLabels();
+
+        netsOfCircuit = netList.toArray(new Net[0]);
     }
 
-    //modification of loop variable j is intended!
-    //CHECKSTYLE.OFF: ModifiedControlVariable
+    /**
+     * Creates the nets from the given wires.
+     * The nets and the order of the wires in the nets are the same as if the wires were added one by one
+     * to a list of nets: A wire which is connected to no net creates a new net at the end of the list.
+     * A wire which connects two nets merges the earlier net into the later one.
+     *
+     * @param wires the wires
+     */
+    private void createNets(ArrayList<Wire> wires) {
+        HashMap<Vector, Integer> pointIds = new HashMap<>();
+        int points = wires.size() * 2;
+        int[] parent = new int[points];
+        // the following arrays are only valid for the root of a set
+        int[] netNumber = new int[points];
+        int[] firstWire = new int[points];
+        int[] lastWire = new int[points];
+        int[] nextWire = new int[wires.size()];
+
+        int nets = 0;
+        for (int i = 0; i < wires.size(); i++) {
+            Wire w = wires.get(i);
+            nextWire[i] = -1;
+            int a = find(parent, getPointId(pointIds, parent, netNumber, w.p1));
+            int b = find(parent, getPointId(pointIds, parent, netNumber, w.p2));
+            if (netNumber[a] < 0 && netNumber[b] < 0) {
+                // new net
+                parent[a] = b;
+                netNumber[b] = nets++;
+                firstWire[b] = i;
+                lastWire[b] = i;
+            } else if (a == b || netNumber[a] < 0 || netNumber[b] < 0) {
+                // wire is added to a single net
+                int root = netNumber[a] < 0 ? b : a;
+                parent[a] = root;
+                parent[b] = root;
+                nextWire[lastWire[root]] = i;
+                lastWire[root] = i;
+            } else {
+                // wire connects two nets, the earlier net is appended to the later one
+                int later = netNumber[a] > netNumber[b] ? a : b;
+                int earlier = later == a ? b : a;
+                parent[earlier] = later;
+                nextWire[lastWire[later]] = firstWire[earlier];
+                nextWire[lastWire[earlier]] = i;
+                lastWire[later] = i;
+            }
+        }
+
+        ArrayList<HashSet<Vector>> pointsOfNet = new ArrayList<>(nets);
+        for (int i = 0; i < nets; i++)
+            pointsOfNet.add(null);
+        int[] rootOfNet = new int[nets];
+        for (Map.Entry<Vector, Integer> e : pointIds.entrySet()) {
+            int root = find(parent, e.getValue());
+            int n = netNumber[root];
+            if (pointsOfNet.get(n) == null) {
+                pointsOfNet.set(n, new HashSet<>());
+                rootOfNet[n] = root;
+            }
+            pointsOfNet.get(n).add(e.getKey());
+        }
+
+        for (int n = 0; n < nets; n++) {
+            HashSet<Vector> p = pointsOfNet.get(n);
+            if (p != null) {
+                ArrayList<Wire> netWires = new ArrayList<>();
+                for (int i = firstWire[rootOfNet[n]]; i >= 0; i = nextWire[i])
+                    netWires.add(wires.get(i));
+                for (Vector v : p)
+                    netIndexOfPos.put(v, netList.size());
+                netList.add(new Net(p, netWires));
+            }
+        }
+    }
+
+    private static int getPointId(HashMap<Vector, Integer> pointIds, int[] parent, int[] netNumber, Vector p) {
+        Integer id = pointIds.get(p);
+        if (id == null) {
+            id = pointIds.size();
+            pointIds.put(p, id);
+            parent[id] = id;
+            netNumber[id] = -1;
+        }
+        return id;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Merges all nets which share a label.
+     * The merged net takes the position of the first net in the list.
+     */
     private void mergeLabels() {
-        boolean wasMerge;
-        do {
-            wasMerge = false;
-            for (int i = 0; i < netList.size() - 1; i++)
-                for (int j = i + 1; j < netList.size(); j++)
-                    if (netList.get(i).matchesLabel(netList.get(j))) {
-                        netList.get(i).addAllPointsFrom(netList.get(j));
-                        netList.remove(j);
-                        j--;
-                        wasMerge = true;
-                    }
-        } while (wasMerge);
+        int[] parent = new int[netList.size()];
+        HashMap<String, Integer> netOfLabel = new HashMap<>();
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+            for (String l : netList.get(i).getLabels()) {
+                Integer j = netOfLabel.putIfAbsent(l, i);
+                if (j != null) {
+                    int ri = find(parent, i);
+                    int rj = find(parent, j);
+                    if (ri < rj)
+                        parent[rj] = ri;
+                    else
+                        parent[ri] = rj;
+                }
+            }
+        }
+
+        int[] newIndex = new int[parent.length];
+        ArrayList<Net> merged = new ArrayList<>();
+        for (int i = 0; i < parent.length; i++) {
+            int root = find(parent, i);
+            if (root == i) {
+                newIndex[i] = merged.size();
+                merged.add(netList.get(i));
+            } else {
+                newIndex[i] = newIndex[root];
+                netList.get(root).addAllPointsFrom(netList.get(i));
+            }
+        }
+
+        if (merged.size() < netList.size()) {
+            netIndexOfPos.replaceAll((v, i) -> newIndex[i]);
+            netList.clear();
+            netList.addAll(merged);
+        }
     }
-    //CHECKSTYLE.ON: ModifiedControlVariable
 
     /**
      * Creates a copy of the given net list
@@ -86,8 +219,40 @@ public class NetList implements Iterable<Net> {
      */
     public NetList(NetList toCopy, VisualElement visualElement) {
         netList = new ArrayList<>();
-        for (Net net : toCopy)
-            netList.add(new Net(net, visualElement));
+        netIndexOfPos = toCopy.netIndexOfPos;  // positions are not modified
+        addedNets = new ArrayList<>();
+        netOfPin = new HashMap<>();
+
+        IdentityHashMap<Net, Net> copies = new IdentityHashMap<>();
+        for (Net net : toCopy) {
+            Net copy = new Net(net, visualElement);
+            copies.put(net, copy);
+            netList.add(copy);
+        }
+        netsOfCircuit = new Net[toCopy.netsOfCircuit.length];
+        for (int i = 0; i < netsOfCircuit.length; i++)
+            netsOfCircuit[i] = copies.get(toCopy.netsOfCircuit[i]);
+        for (Net n : toCopy.addedNets)
+            addedNets.add(copies.get(n));
+        for (Map.Entry<Pin, Net> e : toCopy.netOfPin.entrySet())
+            netOfPin.put(e.getKey(), copies.get(e.getValue()));
+    }
+
+    /**
+     * Creates a net list which contains the given nets.
+     * The nets are not indexed by their position.
+     *
+     * @param nets the nets
+     */
+    NetList(ArrayList<Net> nets) {
+        netList = nets;
+        netIndexOfPos = new HashMap<>();
+        netsOfCircuit = new Net[0];
+        addedNets = new ArrayList<>(nets);
+        netOfPin = new HashMap<>();
+        for (Net n : nets)
+            for (Pin p : n.getPins())
+                netOfPin.put(p, n);
     }
 
     /**
@@ -97,6 +262,8 @@ public class NetList implements Iterable<Net> {
      */
     public void add(NetList netList) {
         this.netList.addAll(netList.netList);
+        addedNets.addAll(netList.netList);
+        netOfPin.putAll(netList.netOfPin);
     }
 
     /**
@@ -105,32 +272,23 @@ public class NetList implements Iterable<Net> {
      * @param pin the pin to add
      */
     public void add(Pin pin) {
-        for (Net net : netList)
-            if (net.contains(pin.getPos()))
-                net.add(pin);
-    }
-
-    private void add(Wire w) {
-        for (Net net : netList) {
-            Vector added = net.tryMerge(w);
-            if (added != null) {
-                netChanged(net, added);
-                return;
-            }
+        Net net = getNetOfCircuit(pin.getPos());
+        if (net != null) {
+            net.add(pin);
+            netOfPin.put(pin, net);
         }
-        netList.add(new Net(w));
+        for (Net n : addedNets)
+            if (n.contains(pin.getPos())) {
+                n.add(pin);
+                netOfPin.putIfAbsent(pin, n);
+            }
     }
 
-    private void netChanged(Net changedNet, Vector added) {
-        for (Net n : netList) {
-            if (n != changedNet) {
-                if (n.contains(added)) {
-                    n.addAllPointsFrom(changedNet);
-                    netList.remove(changedNet);
-                    return;
-                }
-            }
-        }
+    private Net getNetOfCircuit(Vector pos) {
+        Integer i = netIndexOfPos.get(pos);
+        if (i == null)
+            return null;
+        return netsOfCircuit[i];
     }
 
     /**
@@ -152,9 +310,16 @@ public class NetList implements Iterable<Net> {
      * @return the net or null if not found
      */
     public Net getNetOfPin(Pin p) {
+        Net net = netOfPin.get(p);
+        if (net != null && net.containsPin(p))
+            return net;
+
+        // pin was moved to an other net
         for (Net n : netList)
-            if (n.containsPin(p))
+            if (n.containsPin(p)) {
+                netOfPin.put(p, n);
                 return n;
+            }
         return null;
     }
 
@@ -165,7 +330,10 @@ public class NetList implements Iterable<Net> {
      * @return the net
      */
     public Net getNetOfPos(Vector pos) {
-        for (Net n : netList)
+        Net net = getNetOfCircuit(pos);
+        if (net != null)
+            return net;
+        for (Net n : addedNets)
             if (n.contains(pos))
                 return n;
         return null;
@@ -177,6 +345,14 @@ public class NetList implements Iterable<Net> {
      * @param childNet the net to remove
      */
     public void remove(Net childNet) {
-        netList.remove(childNet);
+        if (!netList.remove(childNet))
+            return;
+
+        if (!addedNets.remove(childNet))
+            for (int i = 0; i < netsOfCircuit.length; i++)
+                if (netsOfCircuit[i] == childNet)
+                    netsOfCircuit[i] = null;
+        for (Pin p : childNet.getPins())
+            netOfPin.remove(p, childNet);
     }
 }
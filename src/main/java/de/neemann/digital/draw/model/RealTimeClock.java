@@ -7,6 +7,7 @@ package de.neemann.digital.draw.model;
 
 import de.neemann.digital.core.*;
 import de.neemann.digital.core.wiring.Clock;
+import de.neemann.digital.core.wiring.ClockScheduler;
 import de.neemann.digital.gui.ErrorStopper;
 import de.neemann.digital.gui.GuiModelObserver;
 import de.neemann.digital.gui.StatusInterface;
@@ -14,59 +15,64 @@ import de.neemann.digital.lang.Lang;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
- * The real time clock which is used to fire the models clocks with real time signals
+ * The real time clock which is used to fire the models clocks with real time signals.
+ * All clocks are driven by a single {@link ClockScheduler}, so the clocks keep their
+ * frequency ratios and their relative phase.
  * If the maximum frequency is selected a dedicated thread is started which runs the model.
  * So you get the highest speed but no real time. The model runs as fast as possible.
  */
 public class RealTimeClock implements ModelStateObserverTyped {
     private static final Logger LOGGER = LoggerFactory.getLogger(RealTimeClock.class);
     private static final int THREAD_RUNNER_DELAY = 100;
+    private static final long QUANTUM_NANOS = 5000000;
+    private static final int MAX_QUANTUM = 1 << 20;
 
     private final Model model;
     private final ScheduledThreadPoolExecutor executor;
     private final ErrorStopper stopper;
     private final StatusInterface status;
-    private final int frequency;
-    private final ObservableValue output;
+    private final List<Clock> clocks;
+    private final ClockScheduler scheduler;
     private Runner runner;
 
     /**
      * Creates a new real time clock
      *
-     * @param model     the model
-     * @param clock     the clock element which is modify
-     * @param executor  the executor used to schedule the update
-     * @param stopper   used to stop the model if an error is detected
-     * @param status    allows sending messages to the status line
+     * @param model    the model
+     * @param clocks   the clock elements which are to modify
+     * @param executor the executor used to schedule the update
+     * @param stopper  used to stop the model if an error is detected
+     * @param status   allows sending messages to the status line
      */
-    public RealTimeClock(Model model, Clock clock, ScheduledThreadPoolExecutor executor, ErrorStopper stopper, StatusInterface status) {
+    public RealTimeClock(Model model, List<Clock> clocks, ScheduledThreadPoolExecutor executor, ErrorStopper stopper, StatusInterface status) {
         this.model = model;
+        this.clocks = clocks;
         this.executor = executor;
         this.stopper = stopper;
         this.status = status;
-        int f = clock.getFrequency();
-        if (f < 1) f = 1;
-        this.frequency = f;
-        this.output = clock.getClockOutput();
+        this.scheduler = new ClockScheduler(clocks);
     }
 
     @Override
     public void handleEvent(ModelEvent event) {
         switch (event) {
             case STARTED:
-                if (frequency > 50)  // if frequency is high it is not necessary to update the GUI at every clock change
-                    model.access(() -> output.removeObserver(GuiModelObserver.class));
+                model.access(() -> {
+                    for (Clock c : clocks)
+                        if (c.getFrequency() > 50)  // if frequency is high it is not necessary to update the GUI at every clock change
+                            c.getClockOutput().removeObserver(GuiModelObserver.class);
+                });
 
-                int delayMuS = 500000 / frequency;
-                if (delayMuS < THREAD_RUNNER_DELAY)
+                if (isThreadRunner())
                     runner = new ThreadRunner();
                 else
-                    runner = new RealTimeRunner(delayMuS);
+                    runner = new RealTimeRunner();
                 break;
             case STOPPED:
                 if (runner != null)
@@ -84,7 +90,7 @@ public class RealTimeClock implements ModelStateObserverTyped {
      * @return true if a thread runner is used
      */
     public boolean isThreadRunner() {
-        int delayMuS = 500000 / frequency;
+        int delayMuS = 500000 / scheduler.getMaxFrequency();
         return delayMuS < THREAD_RUNNER_DELAY;
     }
 
@@ -94,30 +100,43 @@ public class RealTimeClock implements ModelStateObserverTyped {
 
     /**
      * runs with defined rate
+     * Every edge is scheduled at the real time which corresponds to its simulated time,
+     * so delays of single edges do not accumulate.
      */
-    private class RealTimeRunner implements Runner {
-
-        private final ScheduledFuture<?> timer;
-
-        RealTimeRunner(int delay) {
-            timer = executor.scheduleAtFixedRate(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        model.accessNEx(() -> {
-                            output.setValue(1 - output.getValue());
-                            model.doStep();
-                        });
-                    } catch (NodeException | RuntimeException e) {
-                        stopper.showErrorAndStopModel(Lang.get("msg_clockError"), e);
-                        timer.cancel(false);
-                    }
-                }
-            }, delay, delay, TimeUnit.MICROSECONDS);
+    private class RealTimeRunner implements Runner, Runnable {
+        private final long startNanos;
+        private final long startTicks;
+        private ScheduledFuture<?> timer;
+        private boolean stopped;
+
+        RealTimeRunner() {
+            startNanos = System.nanoTime();
+            startTicks = scheduler.getTime();
+            scheduleNext();
+        }
+
+        private synchronized void scheduleNext() {
+            if (!stopped) {
+                double seconds = (scheduler.getNextEdge() - startTicks) / (double) scheduler.getTicksPerSecond();
+                long due = startNanos + (long) (seconds * 1e9);
+                timer = executor.schedule(this, due - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
         }
 
         @Override
-        public void stop() {
+        public void run() {
+            try {
+                model.accessNEx(() -> scheduler.step(model));
+                scheduleNext();
+            } catch (NodeException | RuntimeException e) {
+                stopper.showErrorAndStopModel(Lang.get("msg_clockError"), e);
+                stop();
+            }
+        }
+
+        @Override
+        public synchronized void stop() {
+            stopped = true;
             if (timer != null)
                 timer.cancel(false);
         }
@@ -125,21 +144,25 @@ public class RealTimeClock implements ModelStateObserverTyped {
 
     /**
      * runs as fast as possible!
+     * To avoid the overhead of locking the model for every single clock change,
+     * a quantum of clock changes is executed while the model is locked.
+     * The size of the quantum is adapted so that the model is not locked for more
+     * than about five milliseconds, which keeps the gui responsive.
      */
     private class ThreadRunner implements Runner {
 
         private final Thread thread;
+        private int quantum = 1;
 
         ThreadRunner() {
             thread = new Thread(() -> {
                 LOGGER.debug("thread start");
-                FrequencyCalculator frequency = new FrequencyCalculator(status);
+                FrequencyCalculator frequency = new FrequencyCalculator(status, scheduler);
                 try {
                     while (!Thread.interrupted()) {
-                        model.accessNEx(() -> {
-                            output.setValue(1 - output.getValue());
-                            model.doStep();
-                        });
+                        long start = System.nanoTime();
+                        model.accessNEx(this::runQuantum);
+                        adaptQuantum(System.nanoTime() - start);
                         frequency.calc();
                     }
                 } catch (NodeException | RuntimeException e) {
@@ -150,39 +173,51 @@ public class RealTimeClock implements ModelStateObserverTyped {
             thread.start();
         }
 
+        private void runQuantum() throws NodeException {
+            final Thread t = Thread.currentThread();
+            for (int i = 0; i < quantum && !t.isInterrupted(); i++)
+                scheduler.step(model);
+        }
+
+        private void adaptQuantum(long nanos) {
+            if (nanos < QUANTUM_NANOS / 2) {
+                if (quantum < MAX_QUANTUM)
+                    quantum *= 2;
+            } else if (nanos > QUANTUM_NANOS && quantum > 1)
+                quantum /= 2;
+        }
+
         @Override
         public void stop() {
             thread.interrupt();
         }
     }
 
+    /**
+     * Shows the frequency the fastest clock is running at
+     */
     private static final class FrequencyCalculator {
-        private static final long MIN_COUNTER = 50000;
         private final StatusInterface status;
-        private long checkCounter;
-        private int counter;
+        private final ClockScheduler scheduler;
+        private long ticks;
         private long time;
 
-        private FrequencyCalculator(StatusInterface status) {
+        private FrequencyCalculator(StatusInterface status, ClockScheduler scheduler) {
             this.status = status;
+            this.scheduler = scheduler;
             time = System.currentTimeMillis();
-            counter = 0;
-            checkCounter = MIN_COUNTER;
+            ticks = scheduler.getTime();
         }
 
         private void calc() {
-            counter++;
-            if (counter == checkCounter) {
-                long t = System.currentTimeMillis();
-                if (t - time > 2000) {
-                    final long l = counter / (t - time) / 2;
-                    status.setStatus(l + " kHz");
-                    time = t;
-                    counter = 0;
-                    checkCounter = MIN_COUNTER;
-                } else {
-                    checkCounter += MIN_COUNTER;
-                }
+            long t = System.currentTimeMillis();
+            if (t - time > 2000) {
+                long now = scheduler.getTime();
+                double simulatedSeconds = (now - ticks) / (double) scheduler.getTicksPerSecond();
+                final long l = (long) (simulatedSeconds * scheduler.getMaxFrequency() / (t - time));
+                status.setStatus(l + " kHz");
+                time = t;
+                ticks = now;
             }
         }
     }
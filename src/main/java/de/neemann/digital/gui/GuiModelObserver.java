@@ -19,6 +19,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * It is registered to all elements which visual representation depends on a model value.
  * This listener method only sets a flag if there was a change.
  * For repainting it is also registered to the model to repaint the circuit if the step is complete.
+ * The state of the model is read by the thread which runs the model when the step is complete,
+ * so the gui does not need to lock the model while the circuit is painted.
  */
 public class GuiModelObserver implements Observer, ModelStateObserverTyped {
     private static final long TIMEOUT = 100;
@@ -51,11 +53,17 @@ public class GuiModelObserver implements Observer, ModelStateObserverTyped {
         boolean timeOut = time - lastUpdateTime > TIMEOUT;
         if ((changed || timeOut) && event == type) {
             if (paintPending.compareAndSet(false, true)) {
-                lastUpdateTime = time;
-                SwingUtilities.invokeLater(() -> {
-                    component.paintImmediately();
+                if (component.readModelState()) {
+                    lastUpdateTime = time;
+                    SwingUtilities.invokeLater(() -> {
+                        component.paintImmediately();
+                        paintPending.set(false);
+                    });
+                } else {
+                    // circuit is painted at the moment, try again after the next step
                     paintPending.set(false);
-                });
+                    return;
+                }
             }
             changed = false;
         }
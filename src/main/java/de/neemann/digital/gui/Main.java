@@ -6,6 +6,7 @@
 package de.neemann.digital.gui;
 
 import de.neemann.digital.analyse.AnalyseException;
+import de.neemann.digital.analyse.EquivalenceChecker;
 import de.neemann.digital.analyse.ModelAnalyser;
 import de.neemann.digital.analyse.TruthTable;
 import de.neemann.digital.analyse.expression.format.FormatToExpression;
@@ -49,6 +50,7 @@ import de.neemann.digital.gui.state.StateManager;
 import de.neemann.digital.hdl.printer.CodePrinter;
 import de.neemann.digital.hdl.vhdl2.VHDLGenerator;
 import de.neemann.digital.lang.Lang;
+import de.neemann.digital.testing.BatchTestRunner;
 import de.neemann.digital.testing.TestCaseElement;
 import de.neemann.digital.testing.TestingDataException;
 import de.neemann.gui.*;
@@ -70,6 +72,7 @@ import java.net.URL;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -160,6 +163,8 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
         if (builder.library != null) library = builder.library;
         else {
             library = new ElementLibrary(Settings.getInstance().get(Keys.SETTINGS_JAR_PATH));
+            library.setCacheFolder(Settings.getInstance().getCacheFolder());
+            library.setPreloadEnabled(true);
             Exception e = library.checkForException();
             if (e != null)
                 SwingUtilities.invokeLater(new ErrorMessage(Lang.get("err_loadingLibrary")).addCause(e).setComponent(this));
@@ -928,6 +933,8 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
                 try {
                     Model model = new ModelCreator(circuitComponent.getCircuit(), library).createModel(false);
                     try {
+                        if (circuitComponent.getCircuit().getAttributes().get(Keys.LEVELIZED_SIMULATION))
+                            model.enableLevelizedEngine();
                         model.setWindowPosManager(windowPosManager);
                         SpeedTest speedTest = new SpeedTest(model);
                         String frequency = format.format(speedTest.calculate() / 1000);
@@ -1048,7 +1055,10 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
                             new ErrorMessage(Lang.get("msg_invalidSignalsAnalysed")).show(Main.this);
                         else
                             new TableDialog(Main.this,
-                                    new ModelAnalyser(model).analyse(),
+                                    new ModelAnalyser(model)
+                                            .setWorkers(Runtime.getRuntime().availableProcessors(),
+                                                    () -> new ModelCreator(circuitComponent.getCircuit(), library).createModel(false))
+                                            .analyse(),
                                     library,
                                     shapeFactory,
                                     getBaseFileName())
@@ -1167,6 +1177,8 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
             }
 
             model = modelCreator.createModel(true);
+            if (updateEvent != ModelEvent.MICROSTEP && circuitComponent.getCircuit().getAttributes().get(Keys.LEVELIZED_SIMULATION))
+                model.enableLevelizedEngine();
 
             time = System.currentTimeMillis() - time;
             LOGGER.debug("model creation: " + time + " ms");
@@ -1177,16 +1189,14 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
 
             realTimeClockRunning = false;
             if (globalRunClock) {
-                int threadRunnerCount = 0;
+                ArrayList<Clock> realTimeClocks = new ArrayList<>();
                 for (Clock c : model.getClocks())
-                    if (c.getFrequency() > 0) {
-                        final RealTimeClock realTimeClock = new RealTimeClock(model, c, timerExecutor, this, this);
-                        model.addObserver(realTimeClock);
-                        if (realTimeClock.isThreadRunner()) threadRunnerCount++;
-                        realTimeClockRunning = true;
-                    }
-                if (threadRunnerCount > 1)
-                    throw new RuntimeException(Lang.get("err_moreThanOneFastClock"));
+                    if (c.getFrequency() > 0)
+                        realTimeClocks.add(c);
+                if (!realTimeClocks.isEmpty()) {
+                    model.addObserver(new RealTimeClock(model, realTimeClocks, timerExecutor, this, this));
+                    realTimeClockRunning = true;
+                }
             }
             if (!realTimeClockRunning && updateEvent == ModelEvent.MICROSTEP) {
                 // no real clock
@@ -1673,11 +1683,23 @@ public final class Main extends JFrame implements ClosingWindowListener.ConfirmS
     //**********************
 
     /**
-     * Starts the main app
+     * Starts the main app.
+     * If the first argument is "test", the tests of the given circuits are executed without a gui.
+     * If the first argument is "equiv", the equivalence of the two given circuits is checked without a gui.
      *
      * @param args the arguments
+     * @throws Exception Exception
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("test")) {
+            BatchTestRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("equiv")) {
+            EquivalenceChecker.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         Thread.setDefaultUncaughtExceptionHandler(new DigitalUncaughtExceptionHandler());
 
         try { // enforce MetalLookAndFeel
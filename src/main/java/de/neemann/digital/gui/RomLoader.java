@@ -7,7 +7,7 @@ package de.neemann.digital.gui;
 
 import de.neemann.digital.core.Model;
 import de.neemann.digital.core.NodeException;
-import de.neemann.digital.core.memory.DataField;
+import de.neemann.digital.core.memory.DataFieldLoader;
 import de.neemann.digital.core.memory.ROM;
 import de.neemann.digital.lang.Lang;
 
@@ -39,8 +39,9 @@ public class RomLoader implements ModelModifier {
             throw new NodeException(Lang.get("msg_moreThenOneRomFound"));
 
         try {
-            roms.get(0).setData(new DataField(romHex));
-            roms.get(0).provideRomAdress(model);
+            ROM rom = roms.get(0);
+            rom.setData(DataFieldLoader.load(romHex, rom.getDataBits(), rom.isBigEndian()));
+            rom.provideRomAdress(model);
         } catch (IOException e) {
             throw new NodeException(e.getMessage());
         }
@@ -112,6 +112,13 @@ public final class Settings implements AttributeListener {
         }
     }
 
+    /**
+     * @return the folder used to store cached data between two program starts
+     */
+    public File getCacheFolder() {
+        return new File(filename.getParentFile(), ".digital.cache");
+    }
+
     /**
      * @return the settings keys
      */
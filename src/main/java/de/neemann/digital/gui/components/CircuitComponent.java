@@ -44,6 +44,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static de.neemann.digital.draw.shapes.GenericShape.SIZE;
 import static de.neemann.digital.draw.shapes.GenericShape.SIZE2;
@@ -75,6 +76,7 @@ public class CircuitComponent extends JComponent implements Circuit.ChangedListe
         ATTR_LIST.add(Keys.SHOW_DATA_TABLE);
         ATTR_LIST.add(Keys.SHOW_DATA_GRAPH);
         ATTR_LIST.add(Keys.SHOW_DATA_GRAPH_MICRO);
+        ATTR_LIST.add(Keys.LEVELIZED_SIMULATION);
     }
 
     private static final String DEL_ACTION = "myDelAction";
@@ -108,6 +110,7 @@ public class CircuitComponent extends JComponent implements Circuit.ChangedListe
     private final ToolTipAction rotateAction;
     private final ToolTipAction undoAction;
     private final ToolTipAction redoAction;
+    private final ReentrantLock modelStateLock = new ReentrantLock();
 
     private Circuit circuit;
     private MouseController activeMouseController;
@@ -117,6 +120,7 @@ public class CircuitComponent extends JComponent implements Circuit.ChangedListe
     private SyncAccess modelSync;
     private boolean isManualScale;
     private boolean graphicsHasChanged = true;
+    private boolean modelStateIsRead = false;
     private boolean focusWasLost = false;
     private boolean lockMessageShown = false;
     private boolean antiAlias = true;
@@ -790,7 +794,15 @@ public class CircuitComponent extends JComponent implements Circuit.ChangedListe
             GraphicSwing gr = new GraphicSwing(gr2, (int) (2 / scaleX));
 
             long time = System.currentTimeMillis();
-            circuit.drawTo(gr, highLighted, highLightStyle, modelSync);
+            modelStateLock.lock();
+            try {
+                if (!modelStateIsRead)
+                    modelSync.access(circuit::readObservableValues);
+                modelStateIsRead = false;
+                circuit.drawTo(gr, highLighted, highLightStyle);
+            } finally {
+                modelStateLock.unlock();
+            }
             time = System.currentTimeMillis() - time;
 
             if (time > 500) antiAlias = false;
@@ -870,6 +882,26 @@ public class CircuitComponent extends JComponent implements Circuit.ChangedListe
         graphicsHasChanged = true;
     }
 
+    /**
+     * Reads the state of the running model which is used by the next repaint.
+     * Is called from {@link de.neemann.digital.gui.GuiModelObserver} by the thread which runs the model.
+     * So the following repaint draws a consistent state of the model without locking it.
+     * If the circuit is painted at the moment, the state is not read.
+     *
+     * @return true if the state was read
+     */
+    public boolean readModelState() {
+        if (!modelStateLock.tryLock())
+            return false;
+        try {
+            circuit.readObservableValues();
+            modelStateIsRead = true;
+            return true;
+        } finally {
+            modelStateLock.unlock();
+        }
+    }
+
     /**
      * forces a immediately repaint
      * Is called from {@link de.neemann.digital.gui.GuiModelObserver} if the models data has changed.
@@ -10,6 +10,7 @@ import de.neemann.digital.core.Model;
 import de.neemann.digital.core.ModelEvent;
 import de.neemann.digital.core.SyncAccess;
 import de.neemann.digital.core.memory.DataField;
+import de.neemann.digital.core.memory.DataFieldLoader;
 import de.neemann.digital.gui.SaveAsHelper;
 import de.neemann.digital.lang.Lang;
 import de.neemann.gui.ErrorMessage;
@@ -39,7 +40,9 @@ public class DataEditor extends JDialog {
     private static final Color MYGRAY = new Color(230, 230, 230);
     private DataField localDataField;
     private final JTable table;
+    private final int dataBits;
     private boolean ok = false;
+    private boolean bigEndian;
     private File fileName;
 
     /**
@@ -56,6 +59,7 @@ public class DataEditor extends JDialog {
     public DataEditor(Component parent, DataField dataField, int size, int dataBits, int addrBits, boolean modelIsRunning, SyncAccess modelSync) {
         super(SwingUtilities.windowForComponent(parent), Lang.get("key_Data"), modelIsRunning ? ModalityType.MODELESS : ModalityType.APPLICATION_MODAL);
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        this.dataBits = dataBits;
 
         if (modelIsRunning)
             localDataField = dataField;
@@ -129,11 +133,11 @@ public class DataEditor extends JDialog {
                     JFileChooser fc = new MyFileChooser();
                     if (fileName != null)
                         fc.setSelectedFile(fileName);
-                    fc.setFileFilter(new FileNameExtensionFilter("hex", "hex"));
+                    fc.setFileFilter(new FileNameExtensionFilter("hex, bin, srec", "hex", "ihx", "bin", "srec", "s19", "s28", "s37", "mot"));
                     if (fc.showOpenDialog(DataEditor.this) == JFileChooser.APPROVE_OPTION) {
                         fileName = fc.getSelectedFile();
                         try {
-                            localDataField.setDataFrom(new DataField(fc.getSelectedFile()));
+                            localDataField.setDataFrom(DataFieldLoader.load(fc.getSelectedFile(), dataBits, bigEndian));
                             dm.fireEvent(new TableModelEvent(dm));
                         } catch (IOException e1) {
                             new ErrorMessage(Lang.get("msg_errorReadingFile")).addCause(e1).show(DataEditor.this);
@@ -232,6 +236,15 @@ public class DataEditor extends JDialog {
         this.fileName = fileName;
     }
 
+    /**
+     * Sets the byte order used if a memory image containing bytes is loaded
+     *
+     * @param bigEndian true if the most significant byte of a word comes first
+     */
+    public void setBigEndian(boolean bigEndian) {
+        this.bigEndian = bigEndian;
+    }
+
     /**
      * @return the file name last used
      */
@@ -56,6 +56,7 @@ import de.neemann.digital.core.extern.Application;
 import de.neemann.digital.core.extern.PortDefinition;
 import de.neemann.digital.core.io.InValue;
 import de.neemann.digital.core.memory.DataField;
+import de.neemann.digital.core.memory.DataFieldLoader;
 import de.neemann.digital.core.memory.ROM;
 import de.neemann.digital.core.memory.rom.ROMManger;
 import de.neemann.digital.draw.elements.PinException;
@@ -523,6 +524,7 @@ public final class EditorFactory {
                         int size = 1 << addrBits;
                         DataEditor de = new DataEditor(panel, data, size, dataBits, addrBits, false, SyncAccess.NOSYNC);
                         de.setFileName(attr.getFile(ROM.LAST_DATA_FILE_KEY));
+                        de.setBigEndian(attr.get(Keys.BIG_ENDIAN));
                         if (de.showDialog()) {
                             data = de.getModifiedDataField();
                             attr.setFile(ROM.LAST_DATA_FILE_KEY, de.getFileName());
@@ -536,7 +538,7 @@ public final class EditorFactory {
                         @Override
                         public void actionPerformed(ActionEvent e) {
                             try {
-                                data = new DataField(attr.getFile(ROM.LAST_DATA_FILE_KEY));
+                                data = DataFieldLoader.load(attr.getFile(ROM.LAST_DATA_FILE_KEY), attr.get(Keys.BITS), attr.get(Keys.BIG_ENDIAN));
                             } catch (IOException e1) {
                                 new ErrorMessage(Lang.get("msg_errorReadingFile")).addCause(e1).show(panel);
                             }
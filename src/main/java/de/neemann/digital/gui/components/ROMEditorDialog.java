@@ -134,7 +134,7 @@ public class ROMEditorDialog extends JDialog {
         }
 
         boolean hasData() {
-            return data.getData().length > 0;
+            return !data.isEmpty();
         }
 
         public boolean edit(ROMEditorDialog romEditorDialog) {
@@ -7,8 +7,8 @@ package de.neemann.digital.gui.components.data;
 
 import de.neemann.digital.core.ModelEvent;
 import de.neemann.digital.core.ModelStateObserverTyped;
+import de.neemann.digital.core.ObservableValue;
 import de.neemann.digital.core.Signal;
-import de.neemann.digital.data.Value;
 import de.neemann.digital.data.ValueTable;
 
 import java.util.ArrayList;
@@ -20,9 +20,13 @@ public class ValueTableObserver implements ModelStateObserverTyped {
 
     private final ValueTable logData;
     private final ModelEvent type;
-    private final ArrayList<Signal> signals;
+    private final ObservableValue[] signals;
+    private final long[] sample;
+    private final long[] sampleHighZ;
 
-    private Value[] manualSample;
+    private long[] manualSample;
+    private long[] manualSampleHighZ;
+    private boolean manualSamplePresent;
 
     /**
      * Creates a new instance
@@ -32,7 +36,11 @@ public class ValueTableObserver implements ModelStateObserverTyped {
      * @param maxSize   the maximum number of data points to store
      */
     public ValueTableObserver(boolean microStep, ArrayList<Signal> signals, int maxSize) {
-        this.signals = signals;
+        this.signals = new ObservableValue[signals.size()];
+        for (int i = 0; i < signals.size(); i++)
+            this.signals[i] = signals.get(i).getValue();
+        sample = new long[signals.size()];
+        sampleHighZ = new long[signals.size()];
         if (microStep)
             this.type = ModelEvent.MICROSTEP;
         else
@@ -50,21 +58,28 @@ public class ValueTableObserver implements ModelStateObserverTyped {
             logData.clear();
 
         if (event == ModelEvent.MANUALCHANGE && type == ModelEvent.MICROSTEP) {
-            if (manualSample == null)
-                manualSample = new Value[logData.getColumns()];
-            for (int i = 0; i < logData.getColumns(); i++)
-                manualSample[i] = new Value(signals.get(i).getValue());
+            if (manualSample == null) {
+                manualSample = new long[signals.length];
+                manualSampleHighZ = new long[signals.length];
+            }
+            readSignals(manualSample, manualSampleHighZ);
+            manualSamplePresent = true;
         }
 
         if (event == type) {
-            if (manualSample != null) {
-                logData.add(manualSample);
-                manualSample = null;
+            if (manualSamplePresent) {
+                logData.add(manualSample, manualSampleHighZ);
+                manualSamplePresent = false;
             }
-            Value[] row = new Value[logData.getColumns()];
-            for (int i = 0; i < logData.getColumns(); i++)
-                row[i] = new Value(signals.get(i).getValue());
-            logData.add(row);
+            readSignals(sample, sampleHighZ);
+            logData.add(sample, sampleHighZ);
+        }
+    }
+
+    private void readSignals(long[] values, long[] highZ) {
+        for (int i = 0; i < signals.length; i++) {
+            values[i] = signals[i].getValue();
+            highZ[i] = signals[i].getHighZ();
         }
     }
 
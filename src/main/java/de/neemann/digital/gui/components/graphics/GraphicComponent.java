@@ -5,6 +5,8 @@
  */
 package de.neemann.digital.gui.components.graphics;
 
+import de.neemann.digital.core.memory.DataField;
+
 import javax.swing.*;
 import java.awt.*;
 
@@ -16,7 +18,7 @@ public class GraphicComponent extends JComponent {
 
     private final int width;
     private final int height;
-    private long[] data;
+    private DataField data;
     private int offs;
 
     /**
@@ -46,7 +48,7 @@ public class GraphicComponent extends JComponent {
      * @param data the data to show
      * @param bank the bank to show
      */
-    public void updateGraphic(long[] data, boolean bank) {
+    public void updateGraphic(DataField data, boolean bank) {
         this.data = data;
         if (bank)
             offs = width * height;
@@ -61,7 +63,7 @@ public class GraphicComponent extends JComponent {
             int xPos = x * getWidth() / width;
             int dx = (x + 1) * getWidth() / width - xPos;
             for (int y = 0; y < height; y++) {
-                int p = (int) data[offs + y * width + x];
+                int p = (int) data.getDataWord(offs + y * width + x);
                 if (p >= PALETTE.length) p = 1;
                 g.setColor(PALETTE[p]);
 
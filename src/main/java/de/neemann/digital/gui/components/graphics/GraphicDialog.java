@@ -43,6 +43,6 @@ public class GraphicDialog extends JDialog {
      * @param bank   the bank to show
      */
     public void updateGraphic(DataField memory, boolean bank) {
-        graphicComponent.updateGraphic(memory.getData(), bank);
+        graphicComponent.updateGraphic(memory, bank);
     }
 }
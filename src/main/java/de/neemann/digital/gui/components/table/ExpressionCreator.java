@@ -6,7 +6,6 @@
 package de.neemann.digital.gui.components.table;
 
 import de.neemann.digital.analyse.*;
-import de.neemann.digital.analyse.expression.Expression;
 import de.neemann.digital.analyse.expression.ExpressionException;
 import de.neemann.digital.analyse.expression.Variable;
 import de.neemann.digital.analyse.expression.format.FormatterException;
@@ -17,20 +16,30 @@ import de.neemann.digital.lang.Lang;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Used to generate the expressions belonging to the given truth table
+ * Used to generate the expressions belonging to the given truth table.
+ * The outputs of the table are simplified in parallel using the common work-stealing pool.
+ * Large outputs are additionally parallelized inside the minimizer, which uses the same pool.
+ * The results are reported to the listener in the order of the outputs in the table.
  */
 public class ExpressionCreator {
     private static final Logger LOGGER = LoggerFactory.getLogger(ExpressionCreator.class);
-    private static final int MAX_INPUTS_ALLOWED = 12;
+    private static final int MAX_INPUTS_ALLOWED = 24;
+    private static final int MAX_INPUTS_QMC = 12;
 
     private final TruthTable theTable;
+    private ProgressListener progressListener;
+    private volatile boolean canceled;
+    private volatile ArrayList<ForkJoinTask<ExpressionListenerStore>> tasks;
 
     /**
      * Creates a new instance
@@ -41,6 +50,39 @@ public class ExpressionCreator {
         this.theTable = theTable;
     }
 
+    /**
+     * Sets the listener which is informed about the progress of the calculation.
+     * The listener is called by the worker threads.
+     *
+     * @param progressListener the progress listener
+     * @return this for chained calls
+     */
+    public ExpressionCreator setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * Cancels the calculation.
+     * Outputs not yet simplified are skipped and the {@link #create(ExpressionListener)} method
+     * returns with an exception as soon as possible.
+     * May be called from any thread.
+     */
+    public void cancel() {
+        canceled = true;
+        ArrayList<ForkJoinTask<ExpressionListenerStore>> t = tasks;
+        if (t != null)
+            for (ForkJoinTask<ExpressionListenerStore> task : t)
+                task.cancel(false);
+    }
+
+    /**
+     * @return true if the calculation was canceled
+     */
+    public boolean isCanceled() {
+        return canceled;
+    }
+
     /**
      * Creates the expressions
      *
@@ -52,35 +94,72 @@ public class ExpressionCreator {
     public void create(ExpressionListener listener) throws ExpressionException, FormatterException, AnalyseException {
         final List<Variable> vars = Collections.unmodifiableList(theTable.getVars());
         long time = System.currentTimeMillis();
-        if (theTable.getResultCount() > 100) {
-            ExecutorService ex = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-            ThreadSaveExpressionListener threadListener = new ThreadSaveExpressionListener(listener);
-            for (int table = 0; table < theTable.getResultCount(); table++) {
-                final int t = table;
-                ex.submit(() -> {
-                    try {
-                        simplify(listener, vars, theTable.getResultName(t), theTable.getResult(t));
-                    } catch (ExpressionException | FormatterException | AnalyseException e) {
-                        e.printStackTrace();
-                    }
-                });
-            }
-            ex.shutdown();
-            try {
-                ex.awaitTermination(100, TimeUnit.HOURS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+
+        final int count = theTable.getResultCount();
+        final AtomicInteger done = new AtomicInteger();
+        ArrayList<ForkJoinTask<ExpressionListenerStore>> t = new ArrayList<>(count);
+        for (int table = 0; table < count; table++) {
+            final String name = theTable.getResultName(table);
+            final BoolTable result = theTable.getResult(table);
+            t.add(ForkJoinPool.commonPool().submit(() -> {
+                if (canceled)
+                    return null;
+                ExpressionListenerStore store = new ExpressionListenerStore(null);
+                simplify(store, vars, name, result);
+                if (progressListener != null)
+                    progressListener.resultDone(name, done.incrementAndGet(), count);
+                return store;
+            }));
+        }
+        tasks = t;
+        if (canceled)
+            cancel();
+
+        try {
+            for (ForkJoinTask<ExpressionListenerStore> task : t) {
+                ExpressionListenerStore store = getResult(task);
+                for (ExpressionListenerStore.Result r : store.getResults())
+                    listener.resultFound(r.getName(), r.getExpression());
             }
-            threadListener.close();
-        } else {
-            for (int table = 0; table < theTable.getResultCount(); table++)
-                simplify(listener, vars, theTable.getResultName(table), theTable.getResult(table));
-            listener.close();
+        } catch (ExpressionException | FormatterException | AnalyseException | RuntimeException e) {
+            for (ForkJoinTask<ExpressionListenerStore> task : t)
+                task.cancel(false);
+            throw e;
         }
+        listener.close();
+
         time = System.currentTimeMillis() - time;
         LOGGER.debug("time: " + time / 1000.0 + " sec");
     }
 
+    private ExpressionListenerStore getResult(ForkJoinTask<ExpressionListenerStore> task) throws ExpressionException, FormatterException, AnalyseException {
+        try {
+            ExpressionListenerStore store = task.get();
+            if (store == null)
+                throw new CancellationException();
+            return store;
+        } catch (CancellationException e) {
+            throw new AnalyseException(Lang.get("err_expressionCreationCanceled"));
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new AnalyseException(Lang.get("err_expressionCreationCanceled"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ExpressionException)
+                throw (ExpressionException) cause;
+            if (cause instanceof FormatterException)
+                throw (FormatterException) cause;
+            if (cause instanceof AnalyseException)
+                throw (AnalyseException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new AnalyseException((Exception) cause);
+        }
+    }
+
     private void simplify(ExpressionListener listener, List<Variable> vars, String resultName, BoolTable boolTable) throws AnalyseException, ExpressionException, FormatterException {
         List<Variable> localVars = vars;
         if (vars.size()>4) {
@@ -103,27 +182,24 @@ public class ExpressionCreator {
     private MinimizerInterface getMinimizer(int size) {
         if (size <= 4)
             return new MinimizerQuineMcCluskeyExam();
-        else {
+        else if (size <= MAX_INPUTS_QMC)
             return new MinimizerQuineMcCluskey();
-        }
+        else
+            return new MinimizerEspresso();
     }
 
 
-    private final static class ThreadSaveExpressionListener implements ExpressionListener {
-        private final ExpressionListener listener;
-
-        private ThreadSaveExpressionListener(ExpressionListener listener) {
-            this.listener = listener;
-        }
-
-        @Override
-        public synchronized void resultFound(String name, Expression expression) throws FormatterException, ExpressionException {
-            listener.resultFound(name, expression);
-        }
-
-        @Override
-        public synchronized void close() throws FormatterException, ExpressionException {
-            listener.close();
-        }
+    /**
+     * Listener which is informed about the progress of the calculation
+     */
+    public interface ProgressListener {
+        /**
+         * Called if the expressions of an output are created
+         *
+         * @param name  the name of the output
+         * @param done  the number of outputs which are done
+         * @param total the total number of outputs
+         */
+        void resultDone(String name, int done, int total);
     }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.gui.components.table;
+
+import de.neemann.digital.analyse.AnalyseException;
+import de.neemann.digital.analyse.expression.ExpressionException;
+import de.neemann.digital.analyse.expression.format.FormatterException;
+import de.neemann.digital.lang.Lang;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+/**
+ * Runs an {@link ExpressionCreator} in a background thread.
+ * If the calculation takes some time, a modal dialog is shown which shows the progress
+ * and allows the user to cancel the calculation.
+ */
+final class ExpressionCreatorDialog extends JDialog {
+    private static final int SHOW_DELAY = 500;
+
+    private final ExpressionCreator creator;
+    private final JProgressBar progressBar;
+    private Exception exception;
+
+    /**
+     * Creates a new instance
+     *
+     * @param parent  the parent window
+     * @param creator the creator to run
+     */
+    ExpressionCreatorDialog(Window parent, ExpressionCreator creator) {
+        super(parent, Lang.get("msg_simplifying"), ModalityType.APPLICATION_MODAL);
+        this.creator = creator;
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent windowEvent) {
+                creator.cancel();
+            }
+        });
+
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(300, progressBar.getPreferredSize().height));
+
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(progressBar, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(new JButton(new AbstractAction(Lang.get("cancel")) {
+            @Override
+            public void actionPerformed(ActionEvent actionEvent) {
+                creator.cancel();
+            }
+        }));
+        panel.add(buttons, BorderLayout.SOUTH);
+        getContentPane().add(panel);
+
+        creator.setProgressListener((name, done, total) -> SwingUtilities.invokeLater(() -> {
+            progressBar.setMaximum(total);
+            progressBar.setValue(done);
+            progressBar.setString(done + "/" + total + " " + name);
+        }));
+
+        pack();
+        setLocationRelativeTo(parent);
+    }
+
+    /**
+     * Creates the expressions.
+     * If the calculation is canceled by the user, null is returned.
+     *
+     * @return the created expressions or null if canceled
+     * @throws ExpressionException ExpressionException
+     * @throws FormatterException  FormatterException
+     * @throws AnalyseException    AnalyseException
+     */
+    ExpressionListenerStore create() throws ExpressionException, FormatterException, AnalyseException {
+        ExpressionListenerStore results = new ExpressionListenerStore(null);
+        Thread thread = new Thread(() -> {
+            try {
+                creator.create(results);
+            } catch (ExpressionException | FormatterException | AnalyseException | RuntimeException e) {
+                exception = e;
+            }
+            SwingUtilities.invokeLater(this::dispose);
+        }, "ExpressionCreator");
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            if (SwingUtilities.isEventDispatchThread()) {
+                thread.join(SHOW_DELAY);
+                if (thread.isAlive())
+                    setVisible(true);
+            }
+            thread.join();
+        } catch (InterruptedException e) {
+            creator.cancel();
+            Thread.currentThread().interrupt();
+        }
+
+        if (creator.isCanceled())
+            return null;
+
+        if (exception instanceof ExpressionException)
+            throw (ExpressionException) exception;
+        if (exception instanceof FormatterException)
+            throw (FormatterException) exception;
+        if (exception instanceof AnalyseException)
+            throw (AnalyseException) exception;
+        if (exception instanceof RuntimeException)
+            throw (RuntimeException) exception;
+        return results;
+    }
+}
@@ -550,13 +550,22 @@ public class TableDialog extends JDialog {
 
     private void calculateExpressions() {
         try {
+            ExpressionListenerStore results = new ExpressionCreatorDialog(this, new ExpressionCreator(model.getTable())).create();
+            if (results == null) {
+                lastGeneratedExpressions = null;
+                allSolutionsDialog.setVisible(false);
+                statusBar.setVisible(true);
+                statusBar.setText(Lang.get("err_expressionCreationCanceled"));
+                return;
+            }
+
             ExpressionListener expressionListener = new HTMLExpressionListener();
 
             if (createJK.isSelected())
                 expressionListener = new ExpressionListenerJK(expressionListener);
 
             lastGeneratedExpressions = new ExpressionListenerStore(expressionListener);
-            new ExpressionCreator(model.getTable()).create(lastGeneratedExpressions);
+            results.replayTo(lastGeneratedExpressions);
 
             kvMap.setResult(model.getTable(), lastGeneratedExpressions.getResults());
 
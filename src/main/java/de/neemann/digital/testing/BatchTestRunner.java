@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.testing;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.elements.VisualElement;
+import de.neemann.digital.draw.library.ElementLibrary;
+import de.neemann.digital.draw.model.ModelCreator;
+import de.neemann.digital.draw.shapes.ShapeFactory;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs all the test cases found in a set of circuit files without a gui.
+ * Every circuit file is loaded with its own library and is tested by a worker of a bounded thread pool.
+ * The test cases of a single file are executed sequentially because they share the same circuit.
+ * The results can be written as a JUnit XML file which can be read by most CI servers.
+ * <p>
+ * Usage: {@code java -jar Digital.jar test [-threads n] [-junit results.xml] file_or_folder ...}
+ */
+public class BatchTestRunner {
+    private final int threads;
+    private final ArrayList<File> files;
+    private ArrayList<FileResult> results;
+    private long time;
+
+    /**
+     * Creates a new instance
+     *
+     * @param threads the number of threads to use
+     */
+    public BatchTestRunner(int threads) {
+        this.threads = Math.max(1, threads);
+        files = new ArrayList<>();
+    }
+
+    /**
+     * Adds a circuit file or a folder.
+     * Folders are scanned recursively for circuit files.
+     *
+     * @param file the file or folder to add
+     * @return this for chained calls
+     */
+    public BatchTestRunner add(File file) {
+        if (file.isDirectory()) {
+            File[] list = file.listFiles();
+            if (list != null) {
+                Arrays.sort(list);
+                for (File f : list)
+                    if (f.isDirectory()) {
+                        if (!f.getName().startsWith("."))
+                            add(f);
+                    } else if (f.getName().endsWith(".dig"))
+                        files.add(f);
+            }
+        } else
+            files.add(file);
+        return this;
+    }
+
+    /**
+     * Runs all tests.
+     *
+     * @return this for chained calls
+     * @throws InterruptedException InterruptedException
+     */
+    public BatchTestRunner run() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<FileResult>> futures = new ArrayList<>();
+            for (File f : files)
+                futures.add(executor.submit(() -> testFile(f)));
+
+            results = new ArrayList<>();
+            for (Future<FileResult> f : futures) {
+                try {
+                    results.add(f.get());
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        time = System.currentTimeMillis() - start;
+        return this;
+    }
+
+    private static FileResult testFile(File file) {
+        FileResult fr = new FileResult(file);
+        long start = System.currentTimeMillis();
+        try {
+            ElementLibrary library = new ElementLibrary();
+            library.setRootFilePath(file.getParentFile());
+            Circuit circuit = Circuit.loadCircuit(file, new ShapeFactory(library));
+
+            for (VisualElement el : circuit.getElements())
+                if (el.equalsDescription(TestCaseElement.TESTCASEDESCRIPTION)) {
+                    String label = el.getElementAttributes().getCleanLabel();
+                    TestCaseDescription td = el.getElementAttributes().get(TestCaseElement.TESTDATA);
+                    fr.add(testCase(circuit, library, label, td));
+                }
+        } catch (Exception e) {
+            fr.error = e;
+        }
+        fr.time = System.currentTimeMillis() - start;
+        return fr;
+    }
+
+    private static TestCaseResult testCase(Circuit circuit, ElementLibrary library, String label, TestCaseDescription td) {
+        TestCaseResult tr = new TestCaseResult(label);
+        long start = System.currentTimeMillis();
+        try {
+            Model model = new ModelCreator(circuit, library).createModel(false);
+            try {
+                TestExecutor te = new TestExecutor(td).create(model);
+                tr.passed = te.allPassed();
+                tr.error = te.getException();
+            } finally {
+                model.close();
+            }
+        } catch (Exception e) {
+            tr.error = e;
+        }
+        tr.time = System.currentTimeMillis() - start;
+        return tr;
+    }
+
+    /**
+     * @return true if all tests have passed
+     */
+    public boolean allPassed() {
+        for (FileResult fr : results)
+            if (!fr.allPassed())
+                return false;
+        return true;
+    }
+
+    /**
+     * @return the test results
+     */
+    public ArrayList<FileResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Prints a summary of the test run.
+     *
+     * @param out the stream to print to
+     */
+    public void printSummary(PrintStream out) {
+        int testCases = 0;
+        int failed = 0;
+        for (FileResult fr : results) {
+            if (fr.error != null) {
+                out.println("error   " + fr.file + ": " + fr.error.getMessage());
+                failed++;
+            }
+            for (TestCaseResult tr : fr.testCases) {
+                testCases++;
+                if (!tr.passed) {
+                    failed++;
+                    out.print("failed  " + fr.file + ": " + tr.name);
+                    if (tr.error != null)
+                        out.print(": " + tr.error.getMessage());
+                    out.println();
+                }
+            }
+        }
+
+        ArrayList<FileResult> slowest = new ArrayList<>(results);
+        slowest.sort((a, b) -> Long.compare(b.time, a.time));
+        out.println("slowest files:");
+        for (int i = 0; i < Math.min(5, slowest.size()); i++)
+            out.println(String.format(Locale.US, "%8.3fs  %s", slowest.get(i).time / 1000.0, slowest.get(i).file));
+
+        out.println(String.format(Locale.US, "files: %d, test cases: %d, failed: %d, threads: %d, time: %.3fs",
+                results.size(), testCases, failed, threads, time / 1000.0));
+    }
+
+    /**
+     * Writes the results as a JUnit XML file.
+     *
+     * @param file the file to write
+     * @throws IOException IOException
+     */
+    public void writeJUnitXML(File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            XMLStreamWriter w = XMLOutputFactory.newInstance().createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            w.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            w.writeCharacters("\n");
+            w.writeStartElement("testsuites");
+            for (FileResult fr : results) {
+                int failures = 0;
+                for (TestCaseResult tr : fr.testCases)
+                    if (!tr.passed) failures++;
+
+                w.writeCharacters("\n  ");
+                w.writeStartElement("testsuite");
+                w.writeAttribute("name", fr.file.getPath());
+                w.writeAttribute("tests", Integer.toString(fr.testCases.size()));
+                w.writeAttribute("failures", Integer.toString(failures));
+                w.writeAttribute("errors", fr.error == null ? "0" : "1");
+                w.writeAttribute("time", seconds(fr.time));
+                if (fr.error != null) {
+                    w.writeCharacters("\n    ");
+                    w.writeStartElement("error");
+                    writeMessage(w, fr.error);
+                    w.writeEndElement();
+                }
+                for (TestCaseResult tr : fr.testCases) {
+                    w.writeCharacters("\n    ");
+                    w.writeStartElement("testcase");
+                    w.writeAttribute("classname", fr.file.getPath());
+                    w.writeAttribute("name", tr.name.isEmpty() ? "test" : tr.name);
+                    w.writeAttribute("time", seconds(tr.time));
+                    if (!tr.passed) {
+                        w.writeStartElement("failure");
+                        if (tr.error != null)
+                            writeMessage(w, tr.error);
+                        else
+                            w.writeAttribute("message", "test failed");
+                        w.writeEndElement();
+                    }
+                    w.writeEndElement();
+                }
+                w.writeCharacters("\n  ");
+                w.writeEndElement();
+            }
+            w.writeCharacters("\n");
+            w.writeEndElement();
+            w.writeEndDocument();
+            w.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeMessage(XMLStreamWriter w, Exception e) throws XMLStreamException {
+        w.writeAttribute("message", e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        StringWriter sw = new StringWriter();
+        e.printStackTrace(new PrintWriter(sw));
+        w.writeCharacters(sw.toString());
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.US, "%.3f", millis / 1000.0);
+    }
+
+    /**
+     * The results of a single file
+     */
+    public static final class FileResult {
+        private final File file;
+        private final ArrayList<TestCaseResult> testCases;
+        private Exception error;
+        private long time;
+
+        private FileResult(File file) {
+            this.file = file;
+            testCases = new ArrayList<>();
+        }
+
+        private void add(TestCaseResult tr) {
+            testCases.add(tr);
+        }
+
+        /**
+         * @return the file tested
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the results of the test cases in this file
+         */
+        public ArrayList<TestCaseResult> getTestCases() {
+            return testCases;
+        }
+
+        /**
+         * @return the error which occurred while loading the file, null if there was none
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * @return true if the file could be loaded and all tests have passed
+         */
+        public boolean allPassed() {
+            if (error != null)
+                return false;
+            for (TestCaseResult tr : testCases)
+                if (!tr.passed)
+                    return false;
+            return true;
+        }
+    }
+
+    /**
+     * The result of a single test case
+     */
+    public static final class TestCaseResult {
+        private final String name;
+        private boolean passed;
+        private Exception error;
+        private long time;
+
+        private TestCaseResult(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the name of the test case
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return true if the test has passed
+         */
+        public boolean isPassed() {
+            return passed;
+        }
+    }
+
+    /**
+     * Runs the tests given on the command line.
+     * Exits with a non zero exit code if a test has failed.
+     *
+     * @param args the command line arguments
+     * @throws Exception Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        File junit = null;
+        ArrayList<File> toTest = new ArrayList<>();
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i++];
+            if (arg.equals("-threads") && i < args.length)
+                threads = Integer.parseInt(args[i++]);
+            else if (arg.equals("-junit") && i < args.length)
+                junit = new File(args[i++]);
+            else
+                toTest.add(new File(arg));
+        }
+
+        if (toTest.isEmpty()) {
+            System.err.println("usage: test [-threads n] [-junit results.xml] file_or_folder ...");
+            System.exit(2);
+        }
+
+        BatchTestRunner runner = new BatchTestRunner(threads);
+        for (File f : toTest)
+            runner.add(f);
+        runner.run();
+        runner.printSummary(System.out);
+        if (junit != null)
+            runner.writeJUnitXML(junit);
+
+        System.exit(runner.allPassed() ? 0 : 1);
+    }
+}
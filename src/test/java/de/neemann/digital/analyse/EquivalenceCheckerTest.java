@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.ObservableValues;
+import de.neemann.digital.core.Signal;
+import de.neemann.digital.core.basic.And;
+import de.neemann.digital.core.basic.FanIn;
+import de.neemann.digital.core.basic.XOr;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.integration.Resources;
+import de.neemann.digital.integration.ToBreakRunner;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ */
+public class EquivalenceCheckerTest extends TestCase {
+    private static final int INPUTS = 20;
+
+    public void testEquivalent() throws Exception {
+        EquivalenceChecker.Result r = new EquivalenceChecker(createParity(false), createParityChain(false)).check();
+        assertTrue(r.isEquivalent());
+        assertTrue(r.isProven());
+    }
+
+    public void testDifferenceFoundBySimulation() throws Exception {
+        EquivalenceChecker.Result r = new EquivalenceChecker(createParity(false), createParity(true))
+                .setRandomVectors(1000)
+                .check();
+        assertFalse(r.isEquivalent());
+        assertEquals("Y", r.getMessage());
+    }
+
+    public void testDifferenceFoundByBDD() throws Exception {
+        // differs only if all inputs are one, which is not found by the random vectors
+        EquivalenceChecker.Result r = new EquivalenceChecker(createParity(false), createParityChain(true))
+                .setRandomVectors(100)
+                .check();
+        assertFalse(r.isEquivalent());
+        assertTrue(r.isProven());
+        assertEquals("Y", r.getMessage());
+        Map<String, Long> ce = r.getCounterExample();
+        assertEquals(INPUTS, ce.size());
+        for (long v : ce.values())
+            assertEquals(1, v);
+    }
+
+    public void testMissingOutput() throws Exception {
+        Model a = createParity(false);
+        a.addOutput(new Signal("Z", new ObservableValue("Z", 1)));
+        try {
+            new EquivalenceChecker(a, createParity(false)).check();
+            fail();
+        } catch (AnalyseException e) {
+            assertTrue(true);
+        }
+    }
+
+    public void testCircuits() throws Exception {
+        File f = new File(Resources.getRoot(), "../../main/dig/lib/74xx/arithmetic/74181.dig");
+        Model a = new ToBreakRunner(f).getModel();
+        Model b = new ToBreakRunner(f).getModel();
+        EquivalenceChecker.Result r = new EquivalenceChecker(a, b).setRandomVectors(100).check();
+        assertTrue(r.isEquivalent());
+        assertTrue(r.isProven());
+    }
+
+    public void testDifferentFiles() throws Exception {
+        // the xor is replaced by a constant zero
+        File fa = new File(Resources.getRoot(), "dig/analyze/analyzeTest.dig");
+        File fb = new File(Resources.getRoot(), "dig/analyze/analyzeTestNotEquiv.dig");
+        for (int vectors : new int[]{0, 100}) {
+            EquivalenceChecker.Result r = EquivalenceChecker.checkFiles(fa, fb, vectors);
+            assertFalse(r.isEquivalent());
+            assertTrue(r.isProven());
+            assertEquals("Y", r.getMessage());
+            Map<String, Long> ce = r.getCounterExample();
+            assertEquals(2, ce.size());
+            assertTrue(ce.get("A") != ce.get("B").longValue());
+        }
+    }
+
+    public void testStatefulCircuit() throws Exception {
+        File f = new File(Resources.getRoot(), "dig/analyze/analyzeTestDFF.dig");
+        try {
+            new EquivalenceChecker(new ToBreakRunner(f).getModel(), new ToBreakRunner(f).getModel()).check();
+            fail();
+        } catch (AnalyseException e) {
+            assertTrue(true);
+        }
+    }
+
+    private static ObservableValues createInputs(Model model) {
+        ObservableValues.Builder in = new ObservableValues.Builder();
+        for (int i = 0; i < INPUTS; i++) {
+            ObservableValue v = new ObservableValue("I" + i, 1);
+            in.add(v);
+            model.addInput(new Signal("I" + i, v));
+        }
+        return in.build();
+    }
+
+    /**
+     * A single xor gate with all inputs, optionally the first input is ignored
+     */
+    private static Model createParity(boolean skipFirst) throws NodeException {
+        Model model = new Model();
+        ObservableValues inputs = createInputs(model);
+        FanIn xor = model.add(new XOr(new ElementAttributes()));
+        xor.setInputs(skipFirst ? new ObservableValues(inputs, 1, INPUTS) : inputs);
+        model.addOutput(new Signal("Y", xor.getOutput()));
+        return model;
+    }
+
+    /**
+     * A chain of two input xor gates, optionally followed by a xor with the and of all inputs
+     */
+    private static Model createParityChain(boolean addAnd) throws NodeException {
+        Model model = new Model();
+        ObservableValues inputs = createInputs(model);
+        ObservableValue last = inputs.get(0);
+        for (int i = 1; i < INPUTS; i++) {
+            FanIn xor = model.add(new XOr(new ElementAttributes()));
+            xor.setInputs(new ObservableValues(last, inputs.get(i)));
+            last = xor.getOutput();
+        }
+        if (addAnd) {
+            FanIn and = model.add(new And(new ElementAttributes()));
+            and.setInputs(inputs);
+            FanIn xor = model.add(new XOr(new ElementAttributes()));
+            xor.setInputs(new ObservableValues(last, and.getOutput()));
+            last = xor.getOutput();
+        }
+        model.addOutput(new Signal("Y", last));
+        return model;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.ObservableValues;
+import de.neemann.digital.core.Signal;
+import de.neemann.digital.core.basic.*;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.core.wiring.Multiplexer;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ */
+public class LaneSimulatorTest extends TestCase {
+
+    public void testGates() throws Exception {
+        Model model = new Model();
+        ArrayList<Signal> in = createInputs(model, 4);
+        FanIn nand = model.add(new NAnd(new ElementAttributes()));
+        nand.setInputs(values(in, 0, 1, 2));
+        FanIn nor = model.add(new NOr(new ElementAttributes()));
+        nor.setInputs(values(in, 1, 3));
+        FanIn xnor = model.add(new XNOr(new ElementAttributes()));
+        xnor.setInputs(new ObservableValues(nand.getOutput(), nor.getOutput(), in.get(2).getValue()));
+        Not not = model.add(new Not(new ElementAttributes()));
+        not.setInputs(xnor.getOutput().asList());
+        Multiplexer mux = model.add(new Multiplexer(new ElementAttributes()));
+        mux.setInputs(new ObservableValues(in.get(3).getValue(), not.getOutput(), nand.getOutput()));
+
+        ArrayList<Signal> out = new ArrayList<>();
+        out.add(new Signal("X", xnor.getOutput()));
+        out.add(new Signal("Y", mux.getOutput()));
+        for (Signal s : out)
+            model.addOutput(s);
+
+        LaneSimulator lanes = LaneSimulator.create(in, out, model);
+        assertNotNull(lanes);
+        checkRandom(model, in, out, lanes);
+    }
+
+    public void testTruthTable() throws Exception {
+        Model model = new Model();
+        ArrayList<Signal> in = createInputs(model, 8);
+        FanIn xor = model.add(new XOr(new ElementAttributes()));
+        xor.setInputs(values(in, 0, 1, 2, 3, 4, 5, 6, 7));
+        ArrayList<Signal> out = new ArrayList<>();
+        out.add(new Signal("Y", xor.getOutput()));
+
+        LaneSimulator lanes = LaneSimulator.create(in, out, model);
+        assertNotNull(lanes);
+        for (int word = 0; word < 4; word++) {
+            lanes.setRows(word);
+            lanes.calculate();
+            long v = lanes.getOutput(0);
+            for (int i = 0; i < LaneSimulator.LANES; i++) {
+                int row = word * LaneSimulator.LANES + i;
+                assertEquals(Integer.bitCount(row) % 2 == 1, ((v >>> i) & 1) != 0);
+            }
+        }
+    }
+
+    public void testMultiBitNotSupported() throws Exception {
+        Model model = new Model();
+        ArrayList<Signal> in = new ArrayList<>();
+        ObservableValue a = new ObservableValue("A", 2);
+        in.add(new Signal("A", a));
+        Not not = model.add(new Not(new ElementAttributes().setBits(2)));
+        not.setInputs(a.asList());
+        ArrayList<Signal> out = new ArrayList<>();
+        out.add(new Signal("Y", not.getOutput()));
+        assertNull(LaneSimulator.create(in, out, model));
+    }
+
+    public void testMultiBitSelectorNotSupported() throws Exception {
+        Model model = new Model();
+        ArrayList<Signal> in = createInputs(model, 6);
+        ObservableValue sel = new ObservableValue("S", 2);
+        Multiplexer mux = model.add(new Multiplexer(new ElementAttributes().set(Keys.SELECTOR_BITS, 2)));
+        mux.setInputs(new ObservableValues(sel, in.get(0).getValue(), in.get(1).getValue(), in.get(2).getValue(), in.get(3).getValue()));
+        ArrayList<Signal> out = new ArrayList<>();
+        out.add(new Signal("Y", mux.getOutput()));
+        assertNull(LaneSimulator.create(in, out, model));
+    }
+
+    private static void checkRandom(Model model, ArrayList<Signal> in, ArrayList<Signal> out, LaneSimulator lanes) throws NodeException {
+        model.init();
+        Random r = new Random(1);
+        long[] values = new long[in.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = r.nextLong();
+            lanes.setInput(i, values[i]);
+        }
+        lanes.calculate();
+
+        for (int lane = 0; lane < LaneSimulator.LANES; lane++) {
+            for (int i = 0; i < values.length; i++)
+                in.get(i).getValue().setBool(((values[i] >>> lane) & 1) != 0);
+            model.doStep();
+            for (int o = 0; o < out.size(); o++)
+                assertEquals(out.get(o).getValue().getBool(), ((lanes.getOutput(o) >>> lane) & 1) != 0);
+        }
+    }
+
+    private static ArrayList<Signal> createInputs(Model model, int n) {
+        ArrayList<Signal> in = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Signal s = new Signal("I" + i, new ObservableValue("I" + i, 1));
+            model.addInput(s);
+            in.add(s);
+        }
+        return in;
+    }
+
+    private static ObservableValues values(ArrayList<Signal> in, int... index) {
+        ObservableValues.Builder b = new ObservableValues.Builder();
+        for (int i : index)
+            b.add(in.get(i).getValue());
+        return b.build();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse;
+
+import de.neemann.digital.analyse.quinemc.BoolTable;
+import de.neemann.digital.analyse.quinemc.ThreeStateValue;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Checks the minimizer on tables which are much too large for the QMC algorithm.
+ * The runtime is measured by the MinimizerBenchmark of the benchmark suite.
+ */
+public class MinimizerEspressoTest extends TestCase {
+    private static final int PRODUCTS = 8;
+
+    public void testLarge20() {
+        checkLarge(20);
+    }
+
+    public void testLarge24() {
+        checkLarge(24);
+    }
+
+    /**
+     * Creates a sum of random products and checks that the minimizer finds a cover
+     * which is not more expensive than the original sum.
+     */
+    private void checkLarge(int n) {
+        Random r = new Random(n);
+        long[] mask = new long[PRODUCTS];
+        long[] value = new long[PRODUCTS];
+        int literals = 0;
+        for (int p = 0; p < PRODUCTS; p++) {
+            int l = 4 + r.nextInt(5);
+            while (Long.bitCount(mask[p]) < l)
+                mask[p] |= 1L << r.nextInt(n);
+            value[p] = r.nextLong() & mask[p];
+            literals += l;
+        }
+        SumOfProducts table = new SumOfProducts(n, mask, value);
+
+        ArrayList<MinimizerEspresso.Cube> cover = new MinimizerEspresso().minimize(n, table);
+
+        int coverLiterals = 0;
+        for (MinimizerEspresso.Cube c : cover)
+            coverLiterals += c.literals();
+        assertTrue(cover.size() <= PRODUCTS);
+        assertTrue(coverLiterals <= literals);
+
+        long[] coverMask = new long[cover.size()];
+        long[] coverValue = new long[cover.size()];
+        for (int i = 0; i < cover.size(); i++) {
+            coverMask[i] = cover.get(i).getMask();
+            coverValue[i] = cover.get(i).getValue();
+        }
+        SumOfProducts result = new SumOfProducts(n, coverMask, coverValue);
+        for (int i = 0; i < table.size(); i++)
+            if (table.get(i) != result.get(i))
+                fail("wrong value in row " + i);
+    }
+
+    private static final class SumOfProducts implements BoolTable {
+        private final int n;
+        private final long[] mask;
+        private final long[] value;
+
+        private SumOfProducts(int n, long[] mask, long[] value) {
+            this.n = n;
+            this.mask = mask;
+            this.value = value;
+        }
+
+        @Override
+        public int size() {
+            return 1 << n;
+        }
+
+        @Override
+        public ThreeStateValue get(int i) {
+            for (int p = 0; p < mask.length; p++)
+                if ((i & mask[p]) == value[p])
+                    return ThreeStateValue.one;
+            return ThreeStateValue.zero;
+        }
+    }
+}
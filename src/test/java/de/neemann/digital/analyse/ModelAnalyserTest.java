@@ -10,6 +10,15 @@ import de.neemann.digital.analyse.quinemc.BoolTable;
 import de.neemann.digital.analyse.quinemc.BoolTableByteArray;
 import de.neemann.digital.analyse.quinemc.ThreeStateValue;
 import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.ObservableValues;
+import de.neemann.digital.core.Signal;
+import de.neemann.digital.core.basic.And;
+import de.neemann.digital.core.basic.FanIn;
+import de.neemann.digital.core.basic.Or;
+import de.neemann.digital.core.basic.XOr;
+import de.neemann.digital.core.element.ElementAttributes;
 import de.neemann.digital.integration.ToBreakRunner;
 import junit.framework.TestCase;
 
@@ -68,6 +77,38 @@ public class ModelAnalyserTest extends TestCase {
         check2BitCounter(tt);
     }
 
+    public void testParallel() throws Exception {
+        TruthTable serial = new ModelAnalyser(createWideModel()).analyse();
+        TruthTable parallel = new ModelAnalyser(createWideModel())
+                .setWorkers(4, ModelAnalyserTest::createWideModel)
+                .analyse();
+
+        assertEquals(1 << 12, parallel.getRows());
+        assertEquals(serial.toString(), parallel.toString());
+    }
+
+    private static Model createWideModel() throws NodeException {
+        Model model = new Model();
+        ObservableValues.Builder in = new ObservableValues.Builder();
+        for (int i = 0; i < 12; i++) {
+            ObservableValue v = new ObservableValue("I" + i, 1);
+            in.add(v);
+            model.addInput(new Signal("I" + i, v));
+        }
+        ObservableValues inputs = in.build();
+
+        FanIn xor = model.add(new XOr(new ElementAttributes()));
+        xor.setInputs(inputs);
+        model.addOutput(new Signal("X", xor.getOutput()));
+
+        FanIn and = model.add(new And(new ElementAttributes()));
+        and.setInputs(new ObservableValues(inputs, 0, 6));
+        FanIn or = model.add(new Or(new ElementAttributes()));
+        or.setInputs(new ObservableValues(new ObservableValues(inputs, 6, 12).get(0), and.getOutput(), inputs.get(11)));
+        model.addOutput(new Signal("Y", or.getOutput()));
+        return model;
+    }
+
     private void check2BitCounter(TruthTable tt) {
         assertEquals(4, tt.getRows());
         assertEquals(4, tt.getCols());
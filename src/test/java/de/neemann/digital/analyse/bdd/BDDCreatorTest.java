@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse.bdd;
+
+import de.neemann.digital.analyse.AnalyseException;
+import de.neemann.digital.analyse.quinemc.BoolTable;
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.ObservableValues;
+import de.neemann.digital.core.Signal;
+import de.neemann.digital.core.basic.And;
+import de.neemann.digital.core.basic.FanIn;
+import de.neemann.digital.core.basic.XNOr;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.core.wiring.Splitter;
+import de.neemann.digital.integration.Resources;
+import de.neemann.digital.integration.ToBreakRunner;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ */
+public class BDDCreatorTest extends TestCase {
+
+    public void testSimple() throws Exception {
+        check("dig/analyze/analyzeTest.dig");
+    }
+
+    public void testMultiBit() throws Exception {
+        check("dig/analyze/multiBitInOut.dig");
+        check("dig/analyze/multiBitInOutXOr.dig");
+    }
+
+    public void test74181() throws Exception {
+        check("../../main/dig/lib/74xx/arithmetic/74181.dig");
+    }
+
+    public void testFlipflop() throws Exception {
+        Model model = new ToBreakRunner("dig/analyze/analyzeTestDFF.dig", false).getModel();
+        try {
+            new BDDCreator(model);
+            fail();
+        } catch (AnalyseException e) {
+            assertTrue(true);
+        }
+    }
+
+    public void testInterleavedOrder() throws Exception {
+        // the comparison of two 16 bit values is exponential if the bits are not interleaved
+        int bits = 16;
+        Model model = new Model();
+        ObservableValue a = new ObservableValue("A", bits);
+        ObservableValue b = new ObservableValue("B", bits);
+        model.addInput(new Signal("A", a));
+        model.addInput(new Signal("B", b));
+        FanIn xnor = model.add(new XNOr(new ElementAttributes().setBits(bits)));
+        xnor.setInputs(new ObservableValues(a, b));
+        Splitter sp = Splitter.createOneToN(bits);
+        sp.setInputs(xnor.getOutput().asList());
+        FanIn and = model.add(new And(new ElementAttributes().set(Keys.INPUT_COUNT, bits)));
+        and.setInputs(sp.getOutputs());
+        model.addOutput(new Signal("Y", and.getOutput()));
+
+        BDDCreator bc = new BDDCreator(model, new BDD(2000));
+        assertEquals(1L << bits, (long) bc.getBDD().satCount(bc.getOutput("Y"), 2 * bits));
+        assertEquals("A15", bc.getInputNames().get(0));
+        assertEquals("B15", bc.getInputNames().get(bits));
+    }
+
+    public void testTableTooLarge() {
+        BDD bdd = new BDD();
+        ArrayList<Integer> vars = new ArrayList<>();
+        for (int i = 0; i < 31; i++)
+            vars.add(bdd.getVariable(bdd.variable("I" + i)));
+        try {
+            new BoolTableBDD(bdd, BDD.ONE, vars);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(true);
+        }
+    }
+
+    /**
+     * Compares the tables created by the BDDs with the values created by simulating every row.
+     */
+    private void check(String name) throws Exception {
+        Model model = new ToBreakRunner(new File(Resources.getRoot(), name)).getModel();
+        BDDCreator bc = new BDDCreator(model);
+        List<String> inputNames = bc.getInputNames();
+        ArrayList<BoolTable> tables = new ArrayList<>();
+        for (String out : bc.getOutputNames())
+            tables.add(bc.createBoolTable(out, inputNames));
+
+        for (int row = 0; row < 1 << inputNames.size(); row++) {
+            int bit = inputNames.size();
+            for (Signal s : model.getInputs()) {
+                int bits = s.getValue().getBits();
+                bit -= bits;
+                long value = (row >>> bit) & ((1L << bits) - 1);
+                // the power supply needs to be connected correctly, the outputs do not depend on it
+                if (s.getName().equals("VCC"))
+                    value = 1;
+                else if (s.getName().equals("GND"))
+                    value = 0;
+                s.getValue().setValue(value);
+            }
+            model.doStep();
+
+            int col = 0;
+            for (Signal s : model.getOutputs()) {
+                ObservableValue v = s.getValue();
+                for (int i = v.getBits() - 1; i >= 0; i--) {
+                    assertEquals(bc.getOutputNames().get(col), (v.getValue() >>> i) & 1, tables.get(col).get(row).asInt());
+                    col++;
+                }
+            }
+        }
+    }
+}
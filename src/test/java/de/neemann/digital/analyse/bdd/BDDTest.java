@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse.bdd;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class BDDTest extends TestCase {
+
+    public void testCanonical() {
+        BDD bdd = new BDD();
+        int a = bdd.variable("A");
+        int b = bdd.variable("B");
+        int c = bdd.variable("C");
+
+        int f1 = bdd.or(bdd.and(a, b), bdd.and(a, c));
+        int f2 = bdd.and(a, bdd.or(b, c));
+        assertEquals(f1, f2);
+
+        assertEquals(BDD.ONE, bdd.or(a, bdd.not(a)));
+        assertEquals(BDD.ZERO, bdd.and(a, bdd.not(a)));
+        assertEquals(bdd.not(bdd.and(a, b)), bdd.or(bdd.not(a), bdd.not(b)));
+        assertEquals(a, bdd.variable("A"));
+        assertEquals(3, bdd.getVariableCount());
+        assertEquals(1, bdd.getVariableIndex("B"));
+        assertEquals(-1, bdd.getVariableIndex("D"));
+    }
+
+    public void testSatisfy() {
+        BDD bdd = new BDD();
+        int a = bdd.variable("A");
+        int b = bdd.variable("B");
+        int c = bdd.variable("C");
+        int f = bdd.and(bdd.not(a), bdd.xor(b, c));
+
+        int[] s = bdd.satisfy(f);
+        assertNotNull(s);
+        boolean[] values = new boolean[3];
+        for (int i = 0; i < s.length; i++)
+            values[i] = s[i] == 1;
+        assertTrue(bdd.evaluate(f, values));
+        assertNull(bdd.satisfy(BDD.ZERO));
+
+        assertEquals(2.0, bdd.satCount(f, 3));
+        assertEquals(4.0, bdd.satCount(a, 3));
+        assertEquals(8.0, bdd.satCount(BDD.ONE, 3));
+    }
+
+    public void testLargeParity() {
+        BDD bdd = new BDD();
+        int n = 200;
+        int f = BDD.ZERO;
+        int g = BDD.ZERO;
+        for (int i = 0; i < n; i++)
+            f = bdd.xor(f, bdd.variable("V" + i));
+        for (int i = n - 1; i >= 0; i--)
+            g = bdd.xor(bdd.variable("V" + i), g);
+        assertEquals(f, g);
+
+        boolean[] values = new boolean[n];
+        values[3] = true;
+        values[150] = true;
+        assertFalse(bdd.evaluate(f, values));
+        values[199] = true;
+        assertTrue(bdd.evaluate(f, values));
+    }
+
+    public void testAdderEquivalence() {
+        // a ripple carry adder is equivalent to the carry select formulation
+        BDD bdd = new BDD();
+        int bits = 32;
+        int[] a = new int[bits];
+        int[] b = new int[bits];
+        for (int i = 0; i < bits; i++) {
+            a[i] = bdd.variable("A" + i);
+            b[i] = bdd.variable("B" + i);
+        }
+        int carry = BDD.ZERO;
+        int carry2 = BDD.ZERO;
+        for (int i = 0; i < bits; i++) {
+            int s = bdd.xor(bdd.xor(a[i], b[i]), carry);
+            carry = bdd.or(bdd.and(a[i], b[i]), bdd.and(carry, bdd.xor(a[i], b[i])));
+            int s2 = bdd.ite(carry2, bdd.not(bdd.xor(a[i], b[i])), bdd.xor(a[i], b[i]));
+            carry2 = bdd.ite(carry2, bdd.or(a[i], b[i]), bdd.and(a[i], b[i]));
+            assertEquals(s, s2);
+        }
+        assertEquals(carry, carry2);
+    }
+
+    public void testTooLarge() {
+        BDD bdd = new BDD(2000);
+        int bits = 16;
+        // the comparison of a and b with an ordering a0..an, b0..bn is exponential
+        int[] a = new int[bits];
+        int[] b = new int[bits];
+        for (int i = 0; i < bits; i++)
+            a[i] = bdd.variable("A" + i);
+        for (int i = 0; i < bits; i++)
+            b[i] = bdd.variable("B" + i);
+        try {
+            int eq = BDD.ONE;
+            for (int i = 0; i < bits; i++)
+                eq = bdd.and(eq, bdd.not(bdd.xor(a[i], b[i])));
+            fail();
+        } catch (BDD.TooLargeException e) {
+            assertEquals(2000, bdd.getNodeCount());
+        }
+    }
+
+    public void testNodeLimit() {
+        // the two terminal nodes and one node for each variable
+        BDD bdd = new BDD(10);
+        for (int i = 0; i < 8; i++)
+            bdd.variable("V" + i);
+        assertEquals(10, bdd.getNodeCount());
+        try {
+            bdd.variable("V8");
+            fail();
+        } catch (BDD.TooLargeException e) {
+            assertEquals(10, bdd.getNodeCount());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.analyse.expression;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static de.neemann.digital.analyse.expression.Not.not;
+import static de.neemann.digital.analyse.expression.Operation.*;
+import static de.neemann.digital.analyse.expression.Variable.v;
+
+/**
+ */
+public class BitSlicedEvaluatorTest extends TestCase {
+
+    public void testSimple() throws ExpressionException {
+        Variable a = v("A");
+        Variable b = v("B");
+        ArrayList<Variable> vars = Variable.vars("A", "B");
+        long[] t = new BitSlicedEvaluator(and(a, not(b)), vars).calculate();
+        assertEquals(1, t.length);
+        assertEquals(0b0100, t[0]);
+
+        t = new BitSlicedEvaluator(xor(a, b), vars).calculate();
+        assertEquals(0b0110, t[0]);
+
+        t = new BitSlicedEvaluator(Constant.ONE, vars).calculate();
+        assertEquals(0b1111, t[0]);
+    }
+
+    public void testUnknownVariable() {
+        try {
+            new BitSlicedEvaluator(v("C"), Variable.vars("A", "B"));
+            fail();
+        } catch (ExpressionException e) {
+            assertTrue(true);
+        }
+    }
+
+    public void testRandom() throws ExpressionException {
+        Random r = new Random(1);
+        for (int n = 1; n <= 10; n++) {
+            ArrayList<Variable> vars = Variable.vars(n);
+            for (int i = 0; i < 20; i++) {
+                Expression e = create(r, vars, 4);
+                long[] t = new BitSlicedEvaluator(e, vars).calculate();
+                ContextFiller cf = new ContextFiller(vars);
+                for (int row = 0; row < cf.getRowCount(); row++)
+                    assertEquals(e.calculate(cf.setContextTo(row)), BitSlicedEvaluator.get(t, row));
+            }
+        }
+    }
+
+    public void testSumOfProducts() throws ExpressionException {
+        Random r = new Random(1);
+        for (int n = 7; n <= 12; n++) {
+            ArrayList<Variable> vars = Variable.vars(n);
+            for (int i = 0; i < 20; i++) {
+                ArrayList<Expression> products = new ArrayList<>();
+                for (int p = 0; p < 5; p++) {
+                    ArrayList<Expression> literals = new ArrayList<>();
+                    for (int l = 0; l < 3; l++) {
+                        Variable v = vars.get(r.nextInt(n));
+                        literals.add(r.nextBoolean() ? v : not(v));
+                    }
+                    products.add(and(literals));
+                }
+                Expression e = or(products);
+                long[] t = new BitSlicedEvaluator(e, vars).calculate();
+                ContextFiller cf = new ContextFiller(vars);
+                for (int row = 0; row < cf.getRowCount(); row++)
+                    assertEquals(e.calculate(cf.setContextTo(row)), BitSlicedEvaluator.get(t, row));
+            }
+        }
+    }
+
+    public void testNamed() throws ExpressionException {
+        ArrayList<Variable> vars = Variable.vars("A", "B");
+        Expression e = new NamedExpression("Y", or(v("A"), v("B")));
+        assertEquals(0b1110, new BitSlicedEvaluator(e, vars).calculate()[0]);
+    }
+
+    private static Expression create(Random r, ArrayList<Variable> vars, int depth) {
+        if (depth == 0 || r.nextInt(4) == 0)
+            return vars.get(r.nextInt(vars.size()));
+        switch (r.nextInt(4)) {
+            case 0:
+                return not(create(r, vars, depth - 1));
+            case 1:
+                return and(create(r, vars, depth - 1), create(r, vars, depth - 1), create(r, vars, depth - 1));
+            case 2:
+                return or(create(r, vars, depth - 1), create(r, vars, depth - 1));
+            default:
+                return xor(create(r, vars, depth - 1), create(r, vars, depth - 1));
+        }
+    }
+}
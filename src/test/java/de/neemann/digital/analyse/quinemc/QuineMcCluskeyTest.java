@@ -14,6 +14,7 @@ import junit.framework.TestCase;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Random;
 
 import static de.neemann.digital.analyse.expression.Not.not;
 import static de.neemann.digital.analyse.expression.Operation.and;
@@ -221,6 +222,21 @@ public class QuineMcCluskeyTest extends TestCase {
         }.create();
     }
 
+    public void testLargeTable() throws ExpressionException {
+        Random r = new Random(1);
+        int n = 13;
+        byte[] tab = new byte[1 << n];
+        for (int i = 0; i < tab.length; i++)
+            tab[i] = (byte) r.nextInt(3);
+
+        Expression e = createExpression(n, tab);
+
+        long[] result = new BitSlicedEvaluator(e, vars(n)).calculate();
+        for (int i = 0; i < tab.length; i++)
+            if (tab[i] < 2)
+                assertEquals(tab[i] == 1, BitSlicedEvaluator.get(result, i));
+    }
+
     private Expression createExpression(int n, byte[] tab) throws ExpressionException {
         ArrayList<Variable> v = vars(n);
         return new QuineMcCluskey(v)
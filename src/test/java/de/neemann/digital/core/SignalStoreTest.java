@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.core;
+
+import de.neemann.digital.core.basic.And;
+import de.neemann.digital.core.basic.FanIn;
+import de.neemann.digital.core.basic.Not;
+import de.neemann.digital.core.element.ElementAttributes;
+import junit.framework.TestCase;
+
+import static de.neemann.digital.core.ObservableValues.ovs;
+
+/**
+ */
+public class SignalStoreTest extends TestCase {
+
+    public void testStore() throws Exception {
+        ObservableValue a = new ObservableValue("a", 1);
+        ObservableValue b = new ObservableValue("b", 1);
+
+        Model model = new Model();
+        FanIn and = model.add(new And(new ElementAttributes().setBits(1)));
+        and.setInputs(ovs(a, b));
+        Not not = model.add(new Not(new ElementAttributes().setBits(1)));
+        not.setInputs(and.getOutputs());
+        model.init();
+
+        SignalStore store = model.getSignalStore();
+        assertEquals(2, store.size());
+
+        ObservableValue andOut = and.getOutputs().get(0);
+        ObservableValue notOut = not.getOutputs().get(0);
+        assertEquals(0, andOut.getValue());
+        assertEquals(1, notOut.getValue());
+
+        SignalStore.Snapshot snapshot = store.createSnapshot();
+
+        a.setValue(1);
+        b.setValue(1);
+        model.doStep();
+        assertEquals(1, andOut.getValue());
+        assertEquals(0, notOut.getValue());
+
+        // snapshot keeps the old state
+        assertEquals(0, snapshot.getValue(andOut));
+        assertEquals(1, snapshot.getValue(notOut));
+        // values not in the store are read directly
+        assertEquals(1, snapshot.getValue(a));
+
+        snapshot.update();
+        assertEquals(1, snapshot.getValue(andOut));
+        assertEquals(0, snapshot.getValue(notOut));
+    }
+
+    public void testObserverAddedAfterInit() throws Exception {
+        ObservableValue a = new ObservableValue("a", 1);
+
+        Model model = new Model();
+        Not not = model.add(new Not(new ElementAttributes().setBits(1)));
+        not.setInputs(a.asList());
+        model.init();
+
+        ObservableValue notOut = not.getOutputs().get(0);
+        final int[] count = new int[1];
+        Observer o = () -> count[0]++;
+        notOut.addObserver(o);
+
+        a.setValue(1);
+        model.doStep();
+        assertEquals(1, count[0]);
+
+        notOut.removeObserver(o);
+        a.setValue(0);
+        model.doStep();
+        assertEquals(1, count[0]);
+        assertEquals(1, notOut.getValue());
+    }
+
+    public void testValueMovedToStore() throws Exception {
+        ObservableValue a = new ObservableValue("a", 4);
+        Model model = new Model();
+        Not not = model.add(new Not(new ElementAttributes().setBits(4)));
+        not.setInputs(a.asList());
+        ObservableValue notOut = not.getOutputs().get(0);
+        notOut.set(5, 2);
+        assertEquals(5 & ~2, notOut.getValue());
+        assertEquals(2, notOut.getHighZ());
+
+        model.init();
+        SignalStore.Snapshot snapshot = model.getSignalStore().createSnapshot();
+        assertEquals(notOut.getValue(), snapshot.getValue(notOut));
+        assertEquals(notOut.getHighZ(), snapshot.getHighZ(notOut));
+        assertEquals(15, notOut.getValue());
+        assertEquals(1, a.observerCount());
+    }
+
+    public void testObserverRemovedByClassAfterInit() throws Exception {
+        ObservableValue a = new ObservableValue("a", 1);
+
+        Model model = new Model();
+        Not not = model.add(new Not(new ElementAttributes().setBits(1)));
+        not.setInputs(a.asList());
+        model.init();
+
+        ObservableValue notOut = not.getOutputs().get(0);
+        CountingObserver o = new CountingObserver();
+        notOut.addObserver(o);
+        a.setValue(1);
+        model.doStep();
+        assertEquals(1, o.count);
+
+        notOut.removeObserver(CountingObserver.class);
+        a.setValue(0);
+        model.doStep();
+        assertEquals(1, o.count);
+    }
+
+    public void testValueNotInModel() {
+        ObservableValue a = new ObservableValue("a", 4);
+        CountingObserver o = new CountingObserver();
+        a.addObserver(o);
+        a.set(5, 2);
+        assertEquals(5 & ~2, a.getValue());
+        assertEquals(2, a.getHighZ());
+        assertEquals(1, o.count);
+    }
+
+    private static final class CountingObserver implements Observer {
+        private int count;
+
+        @Override
+        public void hasChanged() {
+            count++;
+        }
+    }
+}
@@ -77,6 +77,43 @@ public class ApplicationVHDLStdIOTest extends TestCase {
                 "     return result;\n" +
                 "  end str;\n" +
                 "\n" +
+                "  constant hexDigits : string(1 to 16) := \"0123456789ABCDEF\";\n" +
+                "\n" +
+                "  function packed(slv: std_logic_vector; z: boolean) return string is\n" +
+                "     variable result : string (1 to (slv'length + 3) / 4);\n" +
+                "     variable n : integer;\n" +
+                "     variable b : std_logic;\n" +
+                "  begin\n" +
+                "     for d in 0 to result'length - 1 loop\n" +
+                "        n := 0;\n" +
+                "        for j in 3 downto 0 loop\n" +
+                "           n := n * 2;\n" +
+                "           if d * 4 + j < slv'length then\n" +
+                "              b := slv(slv'low + d * 4 + j);\n" +
+                "              if z then\n" +
+                "                 if b = 'Z' then\n" +
+                "                    n := n + 1;\n" +
+                "                 end if;\n" +
+                "              elsif b = '1' or b = 'H' then\n" +
+                "                 n := n + 1;\n" +
+                "              end if;\n" +
+                "           end if;\n" +
+                "        end loop;\n" +
+                "        result(result'length - d) := hexDigits(n + 1);\n" +
+                "     end loop;\n" +
+                "     return result;\n" +
+                "  end packed;\n" +
+                "\n" +
+                "  function hexValue(c: character) return integer is\n" +
+                "  begin\n" +
+                "     case c is\n" +
+                "        when '0' to '9' => return character'pos(c) - character'pos('0');\n" +
+                "        when 'A' to 'F' => return character'pos(c) - character'pos('A') + 10;\n" +
+                "        when 'a' to 'f' => return character'pos(c) - character'pos('a') + 10;\n" +
+                "        when others => return 0;\n" +
+                "     end case;\n" +
+                "  end hexValue;\n" +
+                "\n" +
                 "  component add\n" +
                 "    port (\n" +
                 "      a : in std_logic_vector(3 downto 0);\n" +
@@ -113,24 +150,57 @@ public class ApplicationVHDLStdIOTest extends TestCase {
                 "\n" +
                 "\tprocess\n" +
                 "\t\tvariable ll: line;\n" +
+                "\t\tvariable isPacked: boolean;\n" +
+                "\t\tvariable n, z: integer;\n" +
+                "\t\tconstant digits: integer := (mainIn'length + 3) / 4;\n" +
                 "\n" +
                 "\tbegin\n" +
+                "\t\twrite(ll, string'(\"Digital-Protocol:packed\"));\n" +
+                "\t\twriteline(output, ll);\n" +
                 "\t\twrite(ll, string'(\"\"));\n" +
                 "\t\twhile (ll.all /= \"End\") loop\n" +
                 "\t\t\tdeallocate(ll);\n" +
                 "\t\t\treadline(input, ll);\n" +
-                "\t\t\tfor i in ll'range loop\n" +
-                "\t\t\t\tcase ll(i) is\n" +
-                "\t\t\t\t\twhen '0' => mainIn(i-1) <= '0';\n" +
-                "\t\t\t\t\twhen '1' => mainIn(i-1) <= '1';\n" +
-                "\t\t\t\t\twhen 'Z' => mainIn(i-1) <= 'Z';\n" +
-                "\t\t\t\t\twhen ' ' =>  next;\n" +
-                "\t\t\t\t\twhen others => next;\n" +
-                "\t\t\t\tend case;\n" +
-                "\t\t\tend loop;\n" +
+                "\t\t\tisPacked := ll'length > 0 and ll(1) = '#';\n" +
+                "\t\t\tif isPacked then\n" +
+                "\t\t\t\tfor d in 0 to digits - 1 loop\n" +
+                "\t\t\t\t\tn := hexValue(ll(1 + digits - d));\n" +
+                "\t\t\t\t\tz := 0;\n" +
+                "\t\t\t\t\tif ll'length > 2 * digits then\n" +
+                "\t\t\t\t\t\tz := hexValue(ll(1 + 2 * digits - d));\n" +
+                "\t\t\t\t\tend if;\n" +
+                "\t\t\t\t\tfor j in 0 to 3 loop\n" +
+                "\t\t\t\t\t\tif d * 4 + j < mainIn'length then\n" +
+                "\t\t\t\t\t\t\tif z mod 2 = 1 then\n" +
+                "\t\t\t\t\t\t\t\tmainIn(d * 4 + j) <= 'Z';\n" +
+                "\t\t\t\t\t\t\telsif n mod 2 = 1 then\n" +
+                "\t\t\t\t\t\t\t\tmainIn(d * 4 + j) <= '1';\n" +
+                "\t\t\t\t\t\t\telse\n" +
+                "\t\t\t\t\t\t\t\tmainIn(d * 4 + j) <= '0';\n" +
+                "\t\t\t\t\t\t\tend if;\n" +
+                "\t\t\t\t\t\tend if;\n" +
+                "\t\t\t\t\t\tn := n / 2;\n" +
+                "\t\t\t\t\t\tz := z / 2;\n" +
+                "\t\t\t\t\tend loop;\n" +
+                "\t\t\t\tend loop;\n" +
+                "\t\t\telse\n" +
+                "\t\t\t\tfor i in ll'range loop\n" +
+                "\t\t\t\t\tcase ll(i) is\n" +
+                "\t\t\t\t\t\twhen '0' => mainIn(i-1) <= '0';\n" +
+                "\t\t\t\t\t\twhen '1' => mainIn(i-1) <= '1';\n" +
+                "\t\t\t\t\t\twhen 'Z' => mainIn(i-1) <= 'Z';\n" +
+                "\t\t\t\t\t\twhen ' ' =>  next;\n" +
+                "\t\t\t\t\t\twhen others => next;\n" +
+                "\t\t\t\t\tend case;\n" +
+                "\t\t\t\tend loop;\n" +
+                "\t\t\tend if;\n" +
                 "\t\t\twait for 1 ns;\n" +
                 "\t\t\tdeallocate(ll);\n" +
-                "\t\t\twrite(ll, \"Digital:\" & string'(str(mainOut)));\n" +
+                "\t\t\tif isPacked then\n" +
+                "\t\t\t\twrite(ll, \"Digital:#\" & packed(mainOut, false) & packed(mainOut, true));\n" +
+                "\t\t\telse\n" +
+                "\t\t\t\twrite(ll, \"Digital:\" & string'(str(mainOut)));\n" +
+                "\t\t\tend if;\n" +
                 "\t\t\twriteline(output, ll);\n" +
                 "\t\tend loop;\n" +
                 "\t\twait;\n" +
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann.
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.core.extern;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.ObservableValues;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.core.extern.handler.ProcessInterface;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.neemann.digital.core.ObservableValues.ovs;
+
+/**
+ * Checks the messages sent to a clocked external process
+ */
+public class ExternalTest extends TestCase {
+
+    public void testClockedBatching() throws Exception {
+        ObservableValue c = new ObservableValue("C", 1);
+        ObservableValue d = new ObservableValue("D", 1);
+        External ext = new External(new ElementAttributes()
+                .set(Keys.EXTERNAL_INPUTS, "C,D")
+                .set(Keys.EXTERNAL_OUTPUTS, "Q:4")
+                .set(Keys.EXTERNAL_CLOCK, "C"));
+        ext.setInputs(ovs(c, d));
+        Recorder rec = new Recorder();
+        Model model = new Model();
+        model.add(ext);
+        ext.attach(model, rec);
+
+        // the first step is always sent
+        step(ext);
+        assertEquals("[00] r", rec.toString());
+
+        // changes between clock edges are not sent
+        d.setValue(1);
+        step(ext);
+        d.setValue(0);
+        step(ext);
+        d.setValue(1);
+        step(ext);
+        assertEquals("[00] r", rec.toString());
+
+        // at the clock edge the last values before the edge and the values at the edge are sent
+        c.setValue(1);
+        step(ext);
+        assertEquals("[00] r [01,11] r r", rec.toString());
+        assertEquals(3, ext.getOutputs().get(0).getValue());
+
+        // falling edge is not sent
+        c.setValue(0);
+        step(ext);
+        assertEquals("[00] r [01,11] r r", rec.toString());
+
+        // rising edge without a change of the other inputs
+        c.setValue(1);
+        step(ext);
+        assertEquals("[00] r [01,11] r r [01,11] r r", rec.toString());
+    }
+
+    public void testUnclocked() throws Exception {
+        ObservableValue a = new ObservableValue("A", 1);
+        External ext = new External(new ElementAttributes()
+                .set(Keys.EXTERNAL_INPUTS, "A")
+                .set(Keys.EXTERNAL_OUTPUTS, "Q"));
+        ext.setInputs(ovs(a));
+        Recorder rec = new Recorder();
+        Model model = new Model();
+        model.add(ext);
+        ext.attach(model, rec);
+
+        step(ext);
+        a.setValue(1);
+        step(ext);
+        assertEquals("0 r 1 r", rec.toString());
+    }
+
+    private static void step(External ext) throws Exception {
+        ext.readInputs();
+        ext.writeOutputs();
+    }
+
+    private static final class Recorder implements ProcessInterface {
+        private final ArrayList<String> messages = new ArrayList<>();
+        private int reads;
+
+        @Override
+        public void writeValues(ObservableValues values) {
+            messages.add(toStr(values));
+        }
+
+        @Override
+        public void writeBatch(List<ObservableValues> batch) {
+            StringBuilder sb = new StringBuilder("[");
+            for (ObservableValues v : batch) {
+                if (sb.length() > 1)
+                    sb.append(",");
+                sb.append(toStr(v));
+            }
+            messages.add(sb.append("]").toString());
+        }
+
+        private static String toStr(ObservableValues values) {
+            StringBuilder sb = new StringBuilder();
+            for (ObservableValue v : values)
+                sb.append(v.getValue());
+            return sb.toString();
+        }
+
+        @Override
+        public void readValues(ObservableValues values) {
+            messages.add("r");
+            values.get(0).setValue(++reads);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return String.join(" ", messages);
+        }
+    }
+}
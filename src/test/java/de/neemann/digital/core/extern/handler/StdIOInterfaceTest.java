@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann.
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.core.extern.handler;
+
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.ObservableValues;
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.util.Arrays;
+
+import static de.neemann.digital.core.ObservableValues.ovs;
+
+public class StdIOInterfaceTest extends TestCase {
+
+    public void testEncodePacked() throws IOException {
+        ObservableValue a = new ObservableValue("a", 4).setValue(5);
+        ObservableValue b = new ObservableValue("b", 4).setValue(10);
+        ObservableValue c = new ObservableValue("c", 1).setValue(1);
+        try (StdIOInterface io = new StdIOInterface(new FakeProcess(""))) {
+            assertEquals("#1A5", io.encodePacked(ovs(a, b, c)));
+
+            c.setToHighZ();
+            assertEquals("#0A5100", io.encodePacked(ovs(a, b, c)));
+        }
+    }
+
+    public void testRoundTrip() throws IOException {
+        ObservableValue a = new ObservableValue("a", 3).setValue(6);
+        ObservableValue b = new ObservableValue("b", 64).setValue(0x8123456789abcdefL);
+        ObservableValue c = new ObservableValue("c", 7).set(0x15, 0x22);
+        ObservableValue a2 = new ObservableValue("a", 3);
+        ObservableValue b2 = new ObservableValue("b", 64);
+        ObservableValue c2 = new ObservableValue("c", 7);
+        try (StdIOInterface io = new StdIOInterface(new FakeProcess(""))) {
+            String line = io.encodePacked(ovs(a, b, c));
+            io.decodePacked(line, 1, ovs(a2, b2, c2));
+        }
+        assertEquals(6, a2.getValue());
+        assertEquals(0x8123456789abcdefL, b2.getValue());
+        assertEquals(0x15 & ~0x22, c2.getValue() & ~0x22);
+        assertEquals(0x22, c2.getHighZ());
+    }
+
+    public void testReadValues() throws IOException {
+        ObservableValue s = new ObservableValue("s", 4);
+        ObservableValue co = new ObservableValue("co", 1);
+        ObservableValues out = ovs(s, co);
+        try (StdIOInterface io = new StdIOInterface(new FakeProcess("Digital:#1c\nDigital:01101\nDigital:#0702\n"))) {
+            io.readValues(out);
+            assertEquals(12, s.getValue());
+            assertEquals(1, co.getValue());
+
+            io.readValues(out);
+            assertEquals(6, s.getValue());
+            assertEquals(1, co.getValue());
+
+            io.readValues(out);
+            assertEquals(7, s.getValue() | s.getHighZ());
+            assertEquals(2, s.getHighZ());
+            assertEquals(0, co.getValue());
+        }
+    }
+
+    public void testNegotiation() throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        ObservableValue a = new ObservableValue("a", 8).setValue(0x5a);
+        try (StdIOInterface io = new StdIOInterface(new FakeProcess("Digital-Protocol:packed\nDigital:#00\n", sent))) {
+            // wait until the announcement is read
+            io.readValues(ovs(new ObservableValue("b", 8)));
+            io.writeValues(ovs(a));
+        }
+        assertEquals("#5A\n", sent.toString());
+    }
+
+    public void testBatch() throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        ObservableValue a = new ObservableValue("a", 2).setValue(1);
+        ObservableValue b = new ObservableValue("b", 2).set(2, 1);
+        try (StdIOInterface io = new StdIOInterface(new FakeProcess("", sent))) {
+            io.writeBatch(Arrays.asList(ovs(a), ovs(b)));
+        }
+        assertEquals("10\nZ1\n", sent.toString());
+    }
+
+    private static final class FakeProcess extends Process {
+        private final InputStream in;
+        private final OutputStream out;
+
+        private FakeProcess(String in) {
+            this(in, new ByteArrayOutputStream());
+        }
+
+        private FakeProcess(String in, OutputStream out) {
+            this.in = new ByteArrayInputStream(in.getBytes());
+            this.out = out;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            return 0;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
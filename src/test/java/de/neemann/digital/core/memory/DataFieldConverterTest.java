@@ -41,6 +41,22 @@ public class DataFieldConverterTest extends TestCase {
             assertEquals(i, df.getDataWord(i));
     }
 
+    public void testZeroRuns() throws Exception {
+        DataField d = new DataField(1 << 24);
+        d.setData(0, 1);
+        d.setData(1 << 23, 2);
+
+        XStream xStream = getxStream();
+        String xml = xStream.toXML(d);
+        assertEquals("<dataField size=\"16777216\">1,8388607*0,2</dataField>", xml);
+
+        DataField df = (DataField) xStream.fromXML(xml);
+        assertEquals(1 << 24, df.size());
+        assertEquals(1, df.getDataWord(0));
+        assertEquals(0, df.getDataWord(1));
+        assertEquals(2, df.getDataWord(1 << 23));
+    }
+
     private static class Test {
         private DataField d1;
         private DataField d2;
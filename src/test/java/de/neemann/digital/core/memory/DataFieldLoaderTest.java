@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.core.memory;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ */
+public class DataFieldLoaderTest extends TestCase {
+
+    public void testIntelHex() throws Exception {
+        String hex = ":0400000001020304F2\n" +
+                ":020000040001F9\n" +
+                ":02000200AABB97\n" +
+                ":00000001FF\n";
+        DataField df = DataFieldLoader.readIntelHex(new StringReader(hex), 1, false);
+        assertEquals(0x10004, df.size());
+        assertEquals(1, df.getDataWord(0));
+        assertEquals(4, df.getDataWord(3));
+        assertEquals(0, df.getDataWord(4));
+        assertEquals(0xAA, df.getDataWord(0x10002));
+        assertEquals(0xBB, df.getDataWord(0x10003));
+
+        df = DataFieldLoader.readIntelHex(new StringReader(hex), 2, false);
+        assertEquals(0x0201, df.getDataWord(0));
+        assertEquals(0x0403, df.getDataWord(1));
+        assertEquals(0xBBAA, df.getDataWord(0x8001));
+
+        df = DataFieldLoader.readIntelHex(new StringReader(hex), 2, true);
+        assertEquals(0x0102, df.getDataWord(0));
+        assertEquals(0x0304, df.getDataWord(1));
+    }
+
+    public void testIntelHexChecksum() {
+        try {
+            DataFieldLoader.readIntelHex(new StringReader(":0400000001020304F3\n"), 1, false);
+            fail();
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+    }
+
+    public void testSRecord() throws Exception {
+        String srec = "S005000048446E\n" +
+                "S107001012345678D4\n" +
+                "S2080100009ABCDEF0D2\n" +
+                "S9030000FC\n";
+        DataField df = DataFieldLoader.readSRecord(new StringReader(srec), 4, true);
+        assertEquals(0x12345678, df.getDataWord(4));
+        assertEquals(0x9ABCDEF0L, df.getDataWord(0x4000));
+        assertEquals(0x4001, df.size());
+    }
+
+    public void testBinaryAndCache() throws Exception {
+        File f = File.createTempFile("digital", ".bin");
+        try {
+            try (FileOutputStream out = new FileOutputStream(f)) {
+                out.write(new byte[]{1, 2, 3, 4, 5});
+            }
+            DataField df = DataFieldLoader.load(f, 16, false);
+            assertEquals(3, df.size());
+            assertEquals(0x0201, df.getDataWord(0));
+            assertEquals(0x0403, df.getDataWord(1));
+            assertEquals(0x05, df.getDataWord(2));
+
+            // the returned instance is a copy, so modifying it does not affect the cache
+            df.setData(0, 7);
+            assertEquals(0x0201, DataFieldLoader.load(f, 16, false).getDataWord(0));
+            assertEquals(0x0102, DataFieldLoader.load(f, 16, true).getDataWord(0));
+        } finally {
+            assertTrue(f.delete());
+        }
+    }
+}
@@ -60,4 +60,46 @@ public class DataFieldTest extends TestCase {
         assertEquals(0xAA, df.getDataWord(2));
         assertEquals(0xFF, df.getDataWord(3));
     }
+
+    public void testSparse() throws Exception {
+        DataField df = new DataField(1 << 30);
+        df.setData(5, 7);
+        df.setData((1 << 30) - 1, 8);
+        df.setData(1 << 20, 0);
+        assertEquals(7, df.getDataWord(5));
+        assertEquals(8, df.getDataWord((1 << 30) - 1));
+        assertEquals(0, df.getDataWord(1 << 20));
+        assertFalse(df.isEmpty());
+
+        DataField copy = new DataField(df, 1 << 20);
+        assertEquals(7, copy.getDataWord(5));
+        assertEquals(0, copy.getDataWord((1 << 30) - 1));
+        assertEquals(6, copy.getMinimized().hgsArraySize());
+
+        df.clearAll();
+        assertTrue(df.isEmpty());
+        assertEquals(0, df.getDataWord(5));
+    }
+
+    public void testRuns() throws Exception {
+        DataField df = new DataField(100000);
+        df.setData(1, 1);
+        df.setData(5, 2);
+        df.setData(90000, 3);
+        StringBuilder sb = new StringBuilder();
+        df.writeRuns((value, count) -> sb.append(count).append('*').append(value).append(','));
+        assertEquals("1*0,1*1,1*0,1*0,1*0,1*2,89994*0,1*3,", sb.toString());
+    }
+
+    public void testLoadRuns() throws Exception {
+        String data = "v2.0 raw\n1\n3*0\n2*AA\n1000*0\nFF";
+        DataField df = new DataField(new StringReader(data));
+        assertEquals(1007, df.size());
+        assertEquals(1, df.getDataWord(0));
+        assertEquals(0, df.getDataWord(3));
+        assertEquals(0xAA, df.getDataWord(4));
+        assertEquals(0xAA, df.getDataWord(5));
+        assertEquals(0, df.getDataWord(1005));
+        assertEquals(0xFF, df.getDataWord(1006));
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.core.wiring;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.NodeException;
+import de.neemann.digital.core.ObservableValue;
+import de.neemann.digital.core.basic.And;
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.element.Keys;
+import de.neemann.digital.draw.elements.PinException;
+import de.neemann.digital.draw.library.ElementNotFoundException;
+import de.neemann.digital.integration.ToBreakRunner;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+
+import java.util.Arrays;
+
+/**
+ */
+public class ClockSchedulerTest extends TestCase {
+
+    private static Clock createClock(int frequency) {
+        return new Clock(new ElementAttributes()
+                .set(Keys.RUN_AT_REAL_TIME, true)
+                .set(Keys.FREQUENCY, frequency));
+    }
+
+    public void testRatio() throws NodeException {
+        Clock a = createClock(3);
+        Clock b = createClock(2);
+        Model model = new Model();
+        a.registerNodes(model);
+        b.registerNodes(model);
+        model.init();
+
+        ClockScheduler s = new ClockScheduler(Arrays.asList(a, b));
+        assertEquals(12, s.getTicksPerSecond());
+        assertEquals(3, s.getMaxFrequency());
+
+        // edges of a at 2,4,6,8,10,12; edges of b at 3,6,9,12
+        long[] times = {2, 3, 4, 6, 8, 9, 10, 12};
+        long[] aValues = {1, 1, 0, 1, 0, 0, 1, 0};
+        long[] bValues = {0, 1, 1, 0, 0, 1, 1, 0};
+        for (int i = 0; i < times.length; i++) {
+            s.step(model);
+            assertEquals(times[i], s.getTime());
+            assertEquals(aValues[i], a.getClockOutput().getValue());
+            assertEquals(bValues[i], b.getClockOutput().getValue());
+        }
+        assertEquals(14, s.getNextEdge());
+    }
+
+    public void testLargeFrequencies() throws NodeException {
+        Clock a = createClock(1000000007);
+        Clock b = createClock(999999937);
+        Model model = new Model();
+        a.registerNodes(model);
+        b.registerNodes(model);
+        model.init();
+
+        ClockScheduler s = new ClockScheduler(Arrays.asList(a, b));
+        assertEquals(1L << 40, s.getTicksPerSecond());
+        for (int i = 0; i < 1000; i++) {
+            long t = s.getTime();
+            s.step(model);
+            assertTrue(s.getTime() > t);
+        }
+    }
+
+    /**
+     * Two fast clocks used to be rejected at start up.
+     * Now both are driven by the scheduler in phase.
+     */
+    public void testTwoFastClocks() throws IOException, PinException, NodeException, ElementNotFoundException {
+        ToBreakRunner runner = new ToBreakRunner("dig/manualError/08_twoFastClocks.dig");
+        Model model = runner.getModel();
+        assertEquals(2, model.getClocks().size());
+        for (Clock c : model.getClocks())
+            assertEquals(500000, c.getFrequency());
+
+        ClockScheduler s = new ClockScheduler(model.getClocks());
+        assertEquals(500000, s.getMaxFrequency());
+        assertEquals(1000000, s.getTicksPerSecond());
+
+        ObservableValue out = runner.getSingleNode(And.class).getOutput();
+        for (int i = 1; i <= 10; i++) {
+            s.step(model);
+            assertEquals(i, s.getTime());
+            long a = model.getClocks().get(0).getClockOutput().getValue();
+            assertEquals(a, model.getClocks().get(1).getClockOutput().getValue());
+            assertEquals(a, out.getValue());
+        }
+    }
+}
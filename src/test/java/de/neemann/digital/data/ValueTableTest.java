@@ -61,4 +61,45 @@ public class ValueTableTest extends TestCase {
         assertTrue(new Value(3).isEqualTo(t.getTableValue(1,0)));
         assertTrue(new Value(5).isEqualTo(t.getTableValue(2,0)));
     }
+
+    public void testMaxSize() {
+        ValueTable t = new ValueTable("A", "B").setMaxSize(100);
+        long[] row = new long[2];
+        long[] highZ = new long[2];
+        for (int i = 0; i < 1000; i++) {
+            row[0] = i;
+            row[1] = i * 2;
+            highZ[1] = i & 1;
+            t.add(row, highZ);
+        }
+        assertEquals(100, t.getRows());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(900 + i, t.getLongValue(i, 0));
+            assertEquals(1800 + i * 2, t.getValue(i, 1).getValue());
+            assertEquals((i & 1) == 1, t.getValue(i, 1).isHighZ());
+        }
+        assertEquals(1998, t.getMax(1));
+
+        ValueTable copy = new ValueTable(t);
+        t.add(row, highZ);
+        assertEquals(100, copy.getRows());
+        assertEquals(900, copy.getLongValue(0, 0));
+        assertEquals(901, t.getLongValue(0, 0));
+
+        int n = 900;
+        for (Value[] r : copy)
+            assertEquals(n++, r[0].getValue());
+        assertEquals(1000, n);
+    }
+
+    public void testObjectValues() throws Exception {
+        ValueTable t = new ValueTable("A").setMaxSize(2);
+        t.add(new Value[]{new Value("X")});
+        t.add(new Value[]{new Value(1)});
+        assertEquals(Value.Type.DONTCARE, t.getValue(0, 0).getType());
+        t.add(new Value[]{new Value(2)});
+        assertEquals(Value.Type.NORMAL, t.getValue(0, 0).getType());
+        assertEquals(Value.State.NORMAL, t.getState(1, 0));
+        assertEquals(2, t.getLongValue(1, 0));
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.elements;
+
+import com.thoughtworks.xstream.XStream;
+import de.neemann.digital.integration.Resources;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads all available circuits with the {@link CircuitReader} and with XStream and
+ * checks that both readers create the same circuit.
+ */
+public class CircuitReaderTest extends TestCase {
+    private final XStream xStream = Circuit.getxStream();
+    private int read;
+
+    public void testExamples() throws Exception {
+        File examples = new File(Resources.getRoot().getParentFile().getParentFile(), "/main/dig");
+        check(examples);
+        assertTrue(read > 100);
+    }
+
+    public void testTestFiles() throws Exception {
+        check(new File(Resources.getRoot(), "/dig"));
+        assertTrue(read > 100);
+    }
+
+    public void testReferenceIsUnsupported() throws Exception {
+        String xml = "<circuit><version>1</version><attributes/><visualElements>"
+                + "<visualElement><elementName>In</elementName><elementAttributes>"
+                + "<entry><string>rotation</string><rotation rotation=\"1\"/></entry>"
+                + "</elementAttributes><pos x=\"20\" y=\"40\"/></visualElement>"
+                + "<visualElement><elementName>In</elementName><elementAttributes>"
+                + "<entry><string>rotation</string><rotation reference=\"../../../../visualElement/elementAttributes/entry/rotation\"/></entry>"
+                + "</elementAttributes><pos x=\"20\" y=\"80\"/></visualElement>"
+                + "</visualElements><wires/></circuit>";
+        try {
+            CircuitReader.read(stream(xml));
+            fail();
+        } catch (CircuitReader.UnsupportedException e) {
+            assertTrue(true);
+        }
+
+        Circuit c = Circuit.loadCircuit(stream(xml), null);
+        assertEquals(2, c.getElements().size());
+        assertEquals(c.getElements().get(0).getRotate(), c.getElements().get(1).getRotate());
+    }
+
+    public void testSimpleCircuit() throws Exception {
+        String xml = "<circuit><version>1</version><attributes/><visualElements>"
+                + "<visualElement><elementName>Out</elementName><elementAttributes>"
+                + "<entry><string>Label</string><string>Y</string></entry>"
+                + "<entry><string>Bits</string><int>4</int></entry>"
+                + "<entry><string>intFormat</string><intFormat>hex</intFormat></entry>"
+                + "</elementAttributes><pos x=\"20\" y=\"40\"/></visualElement>"
+                + "</visualElements><wires><wire><p1 x=\"0\" y=\"40\"/><p2 x=\"20\" y=\"40\"/></wire></wires></circuit>";
+        Circuit c = CircuitReader.read(stream(xml));
+        assertEquals(1, c.getElements().size());
+        VisualElement ve = c.getElements().get(0);
+        assertEquals("Out", ve.getElementName());
+        assertEquals("Y", ve.getElementAttributes().getLabel());
+        assertEquals(4, ve.getElementAttributes().getBits());
+        assertEquals(1, c.getWires().size());
+        assertEquals(xStream.toXML(xStream.fromXML(xml)), xStream.toXML(c));
+    }
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void check(File folder) throws Exception {
+        File[] files = folder.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.isDirectory())
+                check(f);
+            else if (f.getName().endsWith(".dig"))
+                compare(f);
+        }
+    }
+
+    private void compare(File file) throws Exception {
+        Circuit stax;
+        try (InputStream in = new FileInputStream(file)) {
+            stax = CircuitReader.read(in);
+        } catch (CircuitReader.UnsupportedException e) {
+            // these files are read by XStream
+            return;
+        }
+        Object reference;
+        try (InputStream in = new FileInputStream(file)) {
+            reference = xStream.fromXML(in);
+        }
+        assertEquals(file.getPath(), xStream.toXML(reference), xStream.toXML(stax));
+        read++;
+    }
+}
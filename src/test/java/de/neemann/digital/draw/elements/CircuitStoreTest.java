@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.elements;
+
+import de.neemann.digital.core.element.ElementAttributes;
+import de.neemann.digital.core.memory.DataField;
+import de.neemann.digital.integration.Resources;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Stores all available circuits with the {@link CircuitStore}, reads them back and
+ * checks that the same circuit is restored.
+ */
+public class CircuitStoreTest extends TestCase {
+    private int stored;
+
+    public void testExamples() throws Exception {
+        File examples = new File(Resources.getRoot().getParentFile().getParentFile(), "/main/dig");
+        check(examples);
+        assertTrue(stored > 100);
+    }
+
+    public void testTestFiles() throws Exception {
+        check(new File(Resources.getRoot(), "/dig"));
+        assertTrue(stored > 100);
+    }
+
+    public void testWrongFormat() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeInt(CircuitStore.FORMAT + 1);
+        try {
+            CircuitStore.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail();
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+    }
+
+    public void testWrongVersion() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(CircuitStore.FORMAT);
+        out.writeInt(Circuit.VERSION - 1);
+        try {
+            CircuitStore.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail();
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+    }
+
+    public void testWrongRelease() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CircuitStore.write(new Circuit(), new DataOutputStream(bytes));
+        byte[] data = bytes.toByteArray();
+        // the header contains the release as a string, so change its first character
+        int pos = 4 + 4 + 4;
+        assertEquals(CircuitStore.getRelease().charAt(0), (char) data[pos]);
+        data[pos]++;
+        try {
+            CircuitStore.read(new DataInputStream(new ByteArrayInputStream(data)));
+            fail();
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+    }
+
+    private void check(File folder) throws Exception {
+        File[] files = folder.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.isDirectory())
+                check(f);
+            else if (f.getName().endsWith(".dig"))
+                storeAndRestore(f);
+        }
+    }
+
+    private void storeAndRestore(File file) throws Exception {
+        Circuit circuit;
+        try (InputStream in = new FileInputStream(file)) {
+            circuit = CircuitReader.read(in);
+        } catch (CircuitReader.UnsupportedException e) {
+            // these files are read by XStream
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CircuitStore.write(circuit, new DataOutputStream(bytes));
+        Circuit restored = CircuitStore.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        String name = file.getPath();
+        assertAttributes(name, circuit.getAttributes(), restored.getAttributes());
+        assertEquals(name, circuit.getElements().size(), restored.getElements().size());
+        for (int i = 0; i < circuit.getElements().size(); i++) {
+            VisualElement a = circuit.getElements().get(i);
+            VisualElement b = restored.getElements().get(i);
+            assertEquals(name, a.getElementName(), b.getElementName());
+            assertEquals(name, a.getPos(), b.getPos());
+            assertAttributes(name, a.getElementAttributes(), b.getElementAttributes());
+        }
+        assertEquals(name, circuit.getWires().size(), restored.getWires().size());
+        for (int i = 0; i < circuit.getWires().size(); i++)
+            assertTrue(name, circuit.getWires().get(i).equalsContent(restored.getWires().get(i)));
+        assertEquals(name, circuit.getMeasurementOrdering(), restored.getMeasurementOrdering());
+        stored++;
+    }
+
+    private static void assertAttributes(String name, ElementAttributes a, ElementAttributes b) {
+        Map<String, Object> sa = a.getStored();
+        Map<String, Object> sb = b.getStored();
+        assertEquals(name, sa.keySet(), sb.keySet());
+        for (Map.Entry<String, Object> e : sa.entrySet()) {
+            Object va = e.getValue();
+            Object vb = sb.get(e.getKey());
+            if (va instanceof DataField) {
+                assertEquals(name, ((DataField) va).size(), ((DataField) vb).size());
+                assertTrue(name, Arrays.equals(trim((DataField) va), trim((DataField) vb)));
+            } else
+                assertEquals(name, va, vb);
+        }
+    }
+
+    private static long[] trim(DataField df) {
+        long[] data = df.getData();
+        int len = data.length;
+        while (len > 0 && data[len - 1] == 0)
+            len--;
+        return Arrays.copyOf(data, len);
+    }
+}
@@ -6,11 +6,13 @@
 package de.neemann.digital.draw.elements;
 
 
+import de.neemann.digital.core.basic.And;
 import de.neemann.digital.core.element.Keys;
 import de.neemann.digital.core.io.In;
 import de.neemann.digital.core.io.InValue;
 import de.neemann.digital.core.memory.DataField;
 import de.neemann.digital.core.memory.ROM;
+import de.neemann.digital.draw.graphics.Vector;
 import de.neemann.digital.draw.library.ElementLibrary;
 import de.neemann.digital.draw.shapes.ShapeFactory;
 import junit.framework.TestCase;
@@ -57,4 +59,87 @@ public class CircuitTest extends TestCase {
         assertEquals(0x8fff0000ffff0000L, in.getElementAttributes().get(Keys.INPUT_DEFAULT).getValue());
     }
 
+    public void testIndex() {
+        ShapeFactory shapeFactory = new ShapeFactory(new ElementLibrary());
+        Circuit c = new Circuit();
+        VisualElement and1 = new VisualElement(And.DESCRIPTION.getName()).setShapeFactory(shapeFactory).setPos(new Vector(0, 0));
+        VisualElement and2 = new VisualElement(And.DESCRIPTION.getName()).setShapeFactory(shapeFactory).setPos(new Vector(1000, 0));
+        c.add(and1);
+        c.add(new Wire(new Vector(-100, 20), new Vector(-20, 20)));
+
+        assertSame(and1, c.getElementAt(new Vector(10, 10)));
+        assertNull(c.getElementAt(new Vector(1010, 10)));
+        assertNotNull(c.getWireAt(new Vector(-60, 20), 5));
+        assertNull(c.getWireAt(new Vector(-60, 40), 5));
+
+        // index is updated
+        c.add(and2);
+        assertSame(and2, c.getElementAt(new Vector(1010, 10)));
+        c.add(new Wire(new Vector(960, 20), new Vector(1000, 20)));
+        assertNotNull(c.getWireAt(new Vector(980, 20), 5));
+
+        // moved elements are found at the new position
+        and1.setPos(new Vector(2000, 0));
+        c.elementsMoved();
+        assertNull(c.getElementAt(new Vector(10, 10)));
+        assertSame(and1, c.getElementAt(new Vector(2010, 10)));
+
+        // two elements and both ends of a wire
+        assertEquals(4, c.getElementsToMove(new Vector(900, -100), new Vector(2100, 100)).size());
+
+        // elements dragged without notifying the circuit are found at the new position
+        and1.setPos(new Vector(3000, 0));
+        assertNull(c.getElementAt(new Vector(2010, 10)));
+        assertSame(and1, c.getElementAt(new Vector(3010, 10)));
+        and1.setPos(new Vector(2000, 0));
+        assertSame(and1, c.getElementAt(new Vector(2010, 10)));
+        and1.rotate();
+        assertNull(c.getElementAt(new Vector(2050, 10)));
+
+        c.delete(and2);
+        assertNull(c.getElementAt(new Vector(1010, 10)));
+
+        c.delete(new Vector(-200, -200), new Vector(200, 200));
+        assertNull(c.getWireAt(new Vector(-60, 20), 5));
+        assertEquals(1, c.getWires().size());
+        assertEquals(1, c.getElements().size());
+    }
+
+    public void testFileFormatVersion() throws IOException {
+        String xml = "<circuit><version>1</version><attributes/><visualElements>"
+                + "<visualElement><elementName>ROM</elementName><elementAttributes>"
+                + "<entry><string>Data</string><data size=\"3\">0,1,2</data></entry>"
+                + "</elementAttributes><pos x=\"20\" y=\"40\"/></visualElement>"
+                + "</visualElements><wires/></circuit>";
+
+        // data written by version 1
+        Circuit c = Circuit.loadCircuit(new ByteArrayInputStream(xml.getBytes("utf-8")), null);
+        DataField d = c.getElements().get(0).getElementAttributes().get(Keys.DATA);
+        assertEquals(1, d.getDataWord(1));
+        assertEquals(2, d.getDataWord(2));
+
+        // zero runs are only written with the new version
+        DataField large = new DataField(100);
+        large.setData(50, 7);
+        c.getElements().get(0).setAttribute(Keys.DATA, large);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        c.save(baos);
+        String saved = baos.toString("utf-8");
+        assertTrue(saved.contains("<version>" + Circuit.VERSION + "</version>"));
+        assertTrue(saved.contains("50*0,7"));
+
+        c = Circuit.loadCircuit(new ByteArrayInputStream(baos.toByteArray()), null);
+        d = c.getElements().get(0).getElementAttributes().get(Keys.DATA);
+        assertEquals(0, d.getDataWord(49));
+        assertEquals(7, d.getDataWord(50));
+
+        // a newer version is rejected with a clear message
+        String newer = xml.replace("<version>1</version>", "<version>" + (Circuit.VERSION + 1) + "</version>");
+        try {
+            Circuit.loadCircuit(new ByteArrayInputStream(newer.getBytes("utf-8")), null);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains(Integer.toString(Circuit.VERSION + 1)));
+        }
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.elements;
+
+import de.neemann.digital.draw.graphics.Vector;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ */
+public class GridIndexTest extends TestCase {
+
+    public void testQuery() {
+        GridIndex<String> index = new GridIndex<>();
+        index.add("a", new Vector(0, 0), new Vector(40, 40));
+        index.add("b", new Vector(1000, 1000), new Vector(1040, 1060));
+        index.add("c", new Vector(-500, 20), new Vector(2000, 20));
+        assertEquals(3, index.size());
+
+        assertEquals(Arrays.asList("a", "c"), index.query(new Vector(20, 20), new Vector(20, 20)));
+        assertEquals(Arrays.asList("b"), index.query(new Vector(1010, 1010), new Vector(1010, 1010)));
+        assertEquals(Arrays.asList(), index.query(new Vector(500, 500), new Vector(600, 600)));
+        assertEquals(Arrays.asList("a", "b", "c"), index.query(new Vector(-10000, -10000), new Vector(10000, 10000)));
+    }
+
+    public void testRemoveAndMove() {
+        GridIndex<String> index = new GridIndex<>();
+        index.add("a", new Vector(0, 0), new Vector(40, 40));
+        index.add("b", new Vector(20, 20), new Vector(60, 60));
+
+        index.add("a", new Vector(2000, 2000), new Vector(2040, 2040));
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("b"), index.query(new Vector(30, 30), new Vector(30, 30)));
+        // the order is kept if an item is moved
+        assertEquals(Arrays.asList("a", "b"), index.query(new Vector(0, 0), new Vector(3000, 3000)));
+
+        index.remove("b");
+        assertEquals(1, index.size());
+        assertEquals(new ArrayList<String>(), index.query(new Vector(30, 30), new Vector(30, 30)));
+    }
+
+    public void testNegativeCoordinates() {
+        GridIndex<String> index = new GridIndex<>();
+        index.add("a", new Vector(-300, -300), new Vector(-260, -240));
+        assertEquals(Arrays.asList("a"), index.query(new Vector(-280, -250), new Vector(-280, -250)));
+        assertEquals(Arrays.asList(), index.query(new Vector(280, 250), new Vector(280, 250)));
+    }
+}
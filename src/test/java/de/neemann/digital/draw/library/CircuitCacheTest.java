@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.library;
+
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.integration.Resources;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+/**
+ */
+public class CircuitCacheTest extends TestCase {
+
+    public void testCache() throws Exception {
+        File file = File.createTempFile("cache", ".dig");
+        try {
+            Files.copy(new File(Resources.getRoot(), "dig/MS-JK.dig").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            CircuitCache cache = new CircuitCache();
+
+            Circuit c = cache.load(file);
+            assertSame(c, cache.load(file));
+
+            // touched but not modified
+            assertTrue(file.setLastModified(file.lastModified() + 10000));
+            assertSame(c, cache.load(file));
+
+            Files.write(file.toPath(), "\n".getBytes(), StandardOpenOption.APPEND);
+            Circuit c2 = cache.load(file);
+            assertNotSame(c, c2);
+            assertEquals(c.getElements().size(), c2.getElements().size());
+            assertSame(c2, cache.load(file));
+
+            cache.remove(file);
+            assertNotSame(c2, cache.load(file));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    public void testStoredOnDisk() throws Exception {
+        File folder = Files.createTempDirectory("cache").toFile();
+        File file = File.createTempFile("cache", ".dig");
+        try {
+            Files.copy(new File(Resources.getRoot(), "dig/MS-JK.dig").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            CircuitCache cache = new CircuitCache();
+            cache.setFolder(folder);
+            Circuit c = cache.load(file);
+            assertEquals(1, storedFiles(folder));
+
+            // a new cache instance reads the stored circuit
+            CircuitCache cache2 = new CircuitCache();
+            cache2.setFolder(folder);
+            Circuit c2 = cache2.load(file);
+            assertNotSame(c, c2);
+            assertEquals(file, c2.getOrigin());
+            assertEquals(c.getElements().size(), c2.getElements().size());
+            assertEquals(c.getWires().size(), c2.getWires().size());
+
+            // the file is renamed, so the stored circuit is removed by the next rescan
+            cache2.retain(Collections.singletonList(file));
+            assertEquals(1, storedFiles(folder));
+            assertTrue(file.delete());
+            cache2.retain(Collections.emptyList());
+            assertEquals(0, storedFiles(folder));
+        } finally {
+            file.delete();
+            File[] files = folder.listFiles();
+            if (files != null)
+                for (File f : files)
+                    assertTrue(f.delete());
+            assertTrue(folder.delete());
+        }
+    }
+
+    public void testModifiedWithSameSizeAndTime() throws Exception {
+        File folder = Files.createTempDirectory("cache").toFile();
+        File file = File.createTempFile("cache", ".dig");
+        try {
+            Files.copy(new File(Resources.getRoot(), "dig/MS-JK.dig").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            CircuitCache cache = new CircuitCache();
+            cache.setFolder(folder);
+            Circuit c = cache.load(file);
+
+            // replace a coordinate digit, so size and modification time are unchanged
+            long modified = file.lastModified();
+            long size = file.length();
+            String xml = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            int pos = xml.indexOf("<pos x=\"") + 8;
+            char digit = xml.charAt(pos) == '1' ? '2' : '1';
+            xml = xml.substring(0, pos) + digit + xml.substring(pos + 1);
+            Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+            assertTrue(file.setLastModified(modified));
+            assertEquals(size, file.length());
+
+            Circuit c2 = cache.load(file);
+            assertNotSame(c, c2);
+            assertFalse(c.getElements().get(0).getPos().equals(c2.getElements().get(0).getPos()));
+
+            // a new cache instance must not use the outdated circuit stored on disk
+            Files.write(file.toPath(), xml.replace("<pos x=\"" + digit, "<pos x=\"" + (digit == '1' ? '3' : '4')).getBytes(StandardCharsets.UTF_8));
+            assertTrue(file.setLastModified(modified));
+            CircuitCache cache2 = new CircuitCache();
+            cache2.setFolder(folder);
+            Circuit c3 = cache2.load(file);
+            assertFalse(c2.getElements().get(0).getPos().equals(c3.getElements().get(0).getPos()));
+        } finally {
+            assertTrue(file.delete());
+            File[] files = folder.listFiles();
+            if (files != null)
+                for (File f : files)
+                    assertTrue(f.delete());
+            assertTrue(folder.delete());
+        }
+    }
+
+    private static int storedFiles(File folder) {
+        File[] files = folder.listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    public void testMissingFile() throws Exception {
+        try {
+            new CircuitCache().load(new File(Resources.getRoot(), "dig/notPresent.dig"));
+            fail();
+        } catch (FileNotFoundException e) {
+            assertTrue(true);
+        }
+    }
+}
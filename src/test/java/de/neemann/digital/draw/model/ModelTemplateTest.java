@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.draw.model;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.core.Node;
+import de.neemann.digital.draw.elements.Circuit;
+import de.neemann.digital.draw.library.ElementLibrary;
+import de.neemann.digital.draw.shapes.ShapeFactory;
+import de.neemann.digital.integration.Resources;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ */
+public class ModelTemplateTest extends TestCase {
+
+    public void testTemplateIsReused() throws Exception {
+        File file = new File(Resources.getRoot(), "dig/trafficLight.dig");
+        ElementLibrary library = new ElementLibrary();
+        library.setRootFilePath(file.getParentFile());
+        Circuit circuit = Circuit.loadCircuit(file, new ShapeFactory(library));
+
+        Model m1 = new ModelCreator(circuit, library).createModel(false);
+        Circuit nested = ((ElementLibrary.ElementTypeDescriptionCustom) library.getElementType("MS-JK.dig")).getCircuit();
+        ModelTemplate template = library.getModelTemplate(nested);
+        assertNotNull(template);
+
+        Model m2 = new ModelCreator(circuit, library).createModel(false);
+        assertSame(template, library.getModelTemplate(nested));
+        assertEquals(countDistinct(m1), countDistinct(m2));
+
+        library.invalidateElement(new File(file.getParentFile(), "MS-JK.dig"));
+        assertNull(library.getModelTemplate(nested));
+    }
+
+    /**
+     * Every instance of a nested circuit needs its own nodes
+     */
+    private static int countDistinct(Model model) {
+        Set<Node> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        int count = 0;
+        for (Node n : model) {
+            nodes.add(n);
+            count++;
+        }
+        assertEquals(count, nodes.size());
+        return count;
+    }
+}
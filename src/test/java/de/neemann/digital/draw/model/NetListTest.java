@@ -12,6 +12,9 @@ import de.neemann.digital.draw.elements.Wire;
 import de.neemann.digital.draw.graphics.Vector;
 import junit.framework.TestCase;
 
+import java.util.Arrays;
+import java.util.Iterator;
+
 /**
  */
 public class NetListTest extends TestCase {
@@ -91,5 +94,27 @@ public class NetListTest extends TestCase {
         assertEquals(1, ns.size());
     }
 
-}
+    public void testMergeOrder() throws Exception {
+        Circuit c = new Circuit();
+        Wire w1 = new Wire(new Vector(1, 1), new Vector(2, 1));
+        Wire w2 = new Wire(new Vector(1, 4), new Vector(2, 4));
+        Wire w3 = new Wire(new Vector(5, 5), new Vector(6, 5));
+        Wire w4 = new Wire(new Vector(2, 1), new Vector(2, 4));
+        c.getWires().add(w1);
+        c.getWires().add(w2);
+        c.getWires().add(w3);
+        c.getWires().add(w4);
 
+        NetList ns = new NetList(c);
+        assertEquals(2, ns.size());
+        Iterator<Net> it = ns.iterator();
+        // the earlier net is appended to the later one
+        assertEquals(Arrays.asList(w2, w1, w4), it.next().getWires());
+        assertEquals(Arrays.asList(w3), it.next().getWires());
+
+        Net n = ns.getNetOfPos(new Vector(1, 1));
+        assertSame(n, ns.getNetOfPos(new Vector(2, 4)));
+        assertNotSame(n, ns.getNetOfPos(new Vector(5, 5)));
+        assertNull(ns.getNetOfPos(new Vector(7, 7)));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.gui.components.table;
+
+import de.neemann.digital.analyse.AnalyseException;
+import de.neemann.digital.analyse.TruthTable;
+import de.neemann.digital.analyse.expression.ContextFiller;
+import de.neemann.digital.analyse.expression.Expression;
+import de.neemann.digital.analyse.expression.ExpressionException;
+import de.neemann.digital.analyse.expression.format.FormatterException;
+import de.neemann.digital.analyse.quinemc.BoolTable;
+import de.neemann.digital.analyse.quinemc.BoolTableByteArray;
+import de.neemann.digital.analyse.quinemc.ThreeStateValue;
+import junit.framework.TestCase;
+
+import static de.neemann.digital.analyse.expression.Variable.vars;
+
+/**
+ */
+public class ExpressionCreatorTest extends TestCase {
+
+    public void testManyOutputs() throws AnalyseException, FormatterException, ExpressionException {
+        TruthTable tt = new TruthTable(vars(5));
+        for (int i = 0; i < 40; i++) {
+            byte[] data = new byte[32];
+            for (int r = 0; r < data.length; r++)
+                data[r] = (byte) ((r * (i + 3)) % 7 < 3 ? 1 : 0);
+            tt.addResult("Y" + i, new BoolTableByteArray(data));
+        }
+
+        ExpressionListenerStore els = new ExpressionListenerStore(null);
+        new ExpressionCreator(tt).create(els);
+
+        // some outputs have more than one solution, the outputs have to be in the order of the table
+        ContextFiller cf = new ContextFiller(tt.getVars());
+        int i = 0;
+        for (ExpressionListenerStore.Result r : els.getResults()) {
+            if (!r.getName().equals("Y" + i))
+                i++;
+            assertEquals("Y" + i, r.getName());
+            Expression e = r.getExpression();
+            BoolTable t = tt.getResult(i);
+            for (int row = 0; row < t.size(); row++)
+                assertEquals(t.get(row).bool(), e.calculate(cf.setContextTo(row)));
+        }
+        assertEquals(39, i);
+    }
+
+    public void testErrorIsPropagated() throws AnalyseException, FormatterException, ExpressionException {
+        TruthTable tt = new TruthTable(vars(5))
+                .addResult("A", new BoolTableByteArray(new byte[32]))
+                .addResult("B", new BoolTable() {
+                    @Override
+                    public int size() {
+                        return 32;
+                    }
+
+                    @Override
+                    public ThreeStateValue get(int i) {
+                        throw new IllegalStateException("broken table");
+                    }
+                });
+
+        try {
+            new ExpressionCreator(tt).create(new ExpressionListenerStore(null));
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("broken table", e.getMessage());
+        }
+    }
+
+    public void testCancel() throws FormatterException, ExpressionException {
+        TruthTable tt = new TruthTable(vars(5)).addResult("A", new BoolTableByteArray(new byte[32]));
+        ExpressionCreator ec = new ExpressionCreator(tt);
+        ec.cancel();
+        try {
+            ec.create(new ExpressionListenerStore(null));
+            fail();
+        } catch (AnalyseException e) {
+            assertTrue(ec.isCanceled());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.integration;
+
+import de.neemann.digital.core.Model;
+import de.neemann.digital.draw.elements.VisualElement;
+import de.neemann.digital.draw.model.ModelCreator;
+import de.neemann.digital.testing.TestCaseDescription;
+import de.neemann.digital.testing.TestCaseElement;
+import de.neemann.digital.testing.TestExecutor;
+import junit.framework.TestCase;
+
+import java.io.File;
+
+/**
+ * Runs all the test cases in the examples using the levelized engine.
+ * All circuits which can be levelized have to pass their tests.
+ */
+public class TestLevelized extends TestCase {
+
+    private int levelized;
+    private int testCases;
+
+    public void testDistExamples() throws Exception {
+        File examples = new File(Resources.getRoot().getParentFile().getParentFile(), "/main/dig");
+        new FileScanner(this::check).noOutput().scan(examples);
+        assertTrue(levelized > 0);
+        System.out.println("levelized test cases: " + levelized + " of " + testCases);
+    }
+
+    public void testTestExamples() throws Exception {
+        File examples = new File(Resources.getRoot(), "/dig/test");
+        new FileScanner(this::check).noOutput().scan(examples);
+        assertTrue(levelized > 0);
+        System.out.println("levelized test cases: " + levelized + " of " + testCases);
+    }
+
+    private void check(File dig) throws Exception {
+        if (dig.getName().endsWith("Error.dig"))
+            return;
+
+        ToBreakRunner br = new ToBreakRunner(dig);
+        try {
+            for (VisualElement el : br.getCircuit().getElements())
+                if (el.equalsDescription(TestCaseElement.TESTCASEDESCRIPTION)) {
+                    String label = el.getElementAttributes().getCleanLabel();
+                    TestCaseDescription td = el.getElementAttributes().get(TestCaseElement.TESTDATA);
+
+                    Model model = new ModelCreator(br.getCircuit(), br.getLibrary()).createModel(false);
+                    try {
+                        testCases++;
+                        if (model.enableLevelizedEngine()) {
+                            levelized++;
+                            TestExecutor tr = new TestExecutor(td).create(model);
+                            if (label.contains("Failing"))
+                                assertFalse(dig.getName() + ":" + label, tr.allPassed());
+                            else
+                                assertTrue(dig.getName() + ":" + label, tr.allPassed());
+                        }
+                    } finally {
+                        model.close();
+                    }
+                }
+        } finally {
+            br.close();
+        }
+    }
+}
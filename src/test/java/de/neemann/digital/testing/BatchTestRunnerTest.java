@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018 Helmut Neemann
+ * Use of this source code is governed by the GPL v3 license
+ * that can be found in the LICENSE file.
+ */
+package de.neemann.digital.testing;
+
+import de.neemann.digital.integration.Resources;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ */
+public class BatchTestRunnerTest extends TestCase {
+
+    public void testRunner() throws Exception {
+        BatchTestRunner runner = new BatchTestRunner(3)
+                .add(new File(Resources.getRoot(), "dig/test/arith"))
+                .add(new File(Resources.getRoot(), "dig/test/TwoTestCases.dig"))
+                .run();
+
+        assertTrue(runner.allPassed());
+
+        int testCases = 0;
+        for (BatchTestRunner.FileResult fr : runner.getResults())
+            testCases += fr.getTestCases().size();
+        assertTrue(testCases > 2);
+
+        File xml = File.createTempFile("junit", ".xml");
+        try {
+            runner.writeJUnitXML(xml);
+            String content = new String(Files.readAllBytes(xml.toPath()), "utf-8");
+            assertTrue(content.contains("<testsuites>"));
+            assertTrue(content.contains("TwoTestCases.dig"));
+            assertFalse(content.contains("<failure"));
+        } finally {
+            xml.delete();
+        }
+    }
+
+    public void testFailure() throws Exception {
+        BatchTestRunner runner = new BatchTestRunner(2)
+                .add(new File(Resources.getRoot(), "dig/test/doesNotExist.dig"))
+                .run();
+
+        assertFalse(runner.allPassed());
+        assertNotNull(runner.getResults().get(0).getError());
+    }
+}